@@ -0,0 +1,91 @@
+package org.netspeak.io;
+
+import java.lang.reflect.Constructor;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares {@link ScalarArrayScanner} with the Vector API implementation of the multi-release jar.
+ * <p>
+ * The vector implementation is only available on Java 17 with {@code --add-modules jdk.incubator.vector} (see the
+ * {@code jmh} block of the build script).
+ * <p>
+ * The input is ASCII text without line terminators or control characters, so all scans have to look at every byte.
+ * 16-64 bytes are typical phrase lengths and 64 KiB is the buffer size of the CSV readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ArrayScannerBenchmark {
+
+	@Param({ "scalar", "vector" })
+	public String implementation;
+
+	@Param({ "16", "32", "64", "1024", "65536" })
+	public int length;
+
+	private ArrayScanner scanner;
+	private byte[] bytes;
+	private char[] chars;
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		if ("scalar".equals(implementation)) {
+			scanner = new ScalarArrayScanner();
+		} else {
+			final Constructor<?> constructor = Class.forName("org.netspeak.io.VectorArrayScanner")
+					.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			scanner = (ArrayScanner) constructor.newInstance();
+		}
+
+		final Random random = new Random(42);
+		bytes = new byte[length];
+		chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			final char c = random.nextInt(6) == 0 ? ' ' : (char) ('a' + random.nextInt(26));
+			bytes[i] = (byte) c;
+			chars[i] = c;
+		}
+	}
+
+	@Benchmark
+	public int lineTerminatorBytes() {
+		return scanner.indexOfLineTerminator(bytes, 0, length);
+	}
+
+	@Benchmark
+	public int lineTerminatorChars() {
+		return scanner.indexOfLineTerminator(chars, 0, length);
+	}
+
+	@Benchmark
+	public int tabChars() {
+		return scanner.indexOf(chars, 0, length, '\t');
+	}
+
+	@Benchmark
+	public int countSpaces() {
+		return scanner.count(bytes, 0, length, (byte) ' ');
+	}
+
+	@Benchmark
+	public int nonAscii() {
+		return scanner.indexOfUnsignedAtLeast(bytes, 0, length, 0x80);
+	}
+
+	@Benchmark
+	public int controlCharacter() {
+		return scanner.indexOfControlCharacter(bytes, 0, length);
+	}
+
+}
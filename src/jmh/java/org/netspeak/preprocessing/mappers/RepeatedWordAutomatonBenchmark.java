@@ -0,0 +1,64 @@
+package org.netspeak.preprocessing.mappers;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.netspeak.Util;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Compares the regex of {@link PhraseMappers#blacklistRepeated(java.util.Collection)} with
+ * {@link RepeatedWordAutomaton} using the bundled blacklist.
+ * <p>
+ * Each invocation matches all of {@link #WORDS} which is a mix of normal words and (repeated) blacklist words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RepeatedWordAutomatonBenchmark {
+
+	private static final String[] WORDS = { "the", "of", "and", "Netspeak", "don't", "--", "...", "e.g.", "(", ")",
+			"„foo“", "„“", "#", "<>", "::", "1,000", "U.S.", "-", "Straße", "----------",
+			"*-*-*", "http://example.com", "~", "'", "a", "??", "=>", "«»", "x86_64", "" };
+
+	private Pattern regex;
+	private RepeatedWordAutomaton automaton;
+
+	@Setup
+	public void setup() throws IOException {
+		final Set<String> blacklist = Util.readResourceWordList("/blacklist.txt");
+		regex = PhraseMappers.repeatedWordsPattern(blacklist);
+		automaton = RepeatedWordAutomaton.compile(blacklist);
+	}
+
+	@Benchmark
+	public int regex() {
+		int matches = 0;
+		for (final String word : WORDS) {
+			if (regex.matcher(word).matches()) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+	@Benchmark
+	public int automaton() {
+		int matches = 0;
+		for (final String word : WORDS) {
+			if (automaton.matches(word)) {
+				matches++;
+			}
+		}
+		return matches;
+	}
+
+}
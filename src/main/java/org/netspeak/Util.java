@@ -3,11 +3,14 @@ package org.netspeak;
 import static java.util.Objects.requireNonNull;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileVisitResult;
@@ -162,6 +165,60 @@ public final class Util {
 		}
 	}
 
+	/**
+	 * Returns the bytes of the given resource.
+	 *
+	 * @param name
+	 * @return
+	 * @throws IOException
+	 */
+	public static byte[] readResource(String name) throws IOException {
+		try (InputStream input = Util.class.getResourceAsStream(name)) {
+			if (input == null) {
+				throw new IOException("Unable to find resource " + name);
+			}
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[8192];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Writes the given string as its number of UTF-8 bytes followed by the UTF-8 bytes.
+	 * <p>
+	 * Unlike {@link DataOutput#writeUTF(String)}, this supports strings of any length.
+	 *
+	 * @param out
+	 * @param string
+	 * @throws IOException
+	 * @see #readString(ByteBuffer)
+	 */
+	public static void writeString(DataOutput out, String string) throws IOException {
+		final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Reads a string written by {@link #writeString(DataOutput, String)}.
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	public static String readString(ByteBuffer buffer) {
+		final int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length + ".");
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
 	public static String toPhrase(String[] words) {
 		if (words.length == 1)
 			return words[0];
@@ -0,0 +1,123 @@
+package org.netspeak.hadoop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.netspeak.io.ArrayScanner;
+import org.netspeak.io.ArrayScanners;
+import org.netspeak.io.ReaderFilter;
+import org.netspeak.io.SimpleCsvReader;
+
+/**
+ * An input format for the CSV files read by {@link SimpleCsvReader}.
+ * <p>
+ * Every line contains a phrase followed by a tab followed by the frequency of the phrase. Leading and trailing
+ * whitespace of lines will be ignored and so will empty lines.
+ */
+public class CsvInputFormat extends PhraseInputFormat {
+
+	@Override
+	public RecordReader<Text, LongWritable> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new CsvRecordReader();
+	}
+
+	private static class CsvRecordReader extends RecordReader<Text, LongWritable> {
+
+		private static final ArrayScanner SCANNER = ArrayScanners.INSTANCE;
+
+		private final LineRecordReader lines = new LineRecordReader();
+		private ReaderFilter filter = ReaderFilter.NONE;
+
+		private final Text phrase = new Text();
+		private final LongWritable frequency = new LongWritable();
+
+		@Override
+		public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+			lines.initialize(split, context);
+			filter = getReaderFilter(context.getConfiguration());
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException {
+			while (lines.nextKeyValue()) {
+				// format: <word> *( <spaces> <word> ) <tab> <frequency>
+				// The line is parsed as UTF-8 bytes without decoding it. All bytes of multi-byte UTF-8 sequences are
+				// >= 0x80, so trimming bytes <= 0x20 is the same as String#trim.
+				final Text line = lines.getCurrentValue();
+				final byte[] bytes = line.getBytes();
+				int start = 0;
+				int end = line.getLength();
+				while (start < end && bytes[start] >= 0 && bytes[start] <= ' ') {
+					start++;
+				}
+				while (start < end && bytes[end - 1] >= 0 && bytes[end - 1] <= ' ') {
+					end--;
+				}
+				if (start == end) {
+					// ignore line
+					continue;
+				}
+
+				final int tabIndex = SCANNER.indexOf(bytes, start, end, (byte) '\t');
+				if (tabIndex == -1) {
+					throw new IOException("Invalid format: Unable to find tab character.");
+				}
+
+				final long freq = parseLong(bytes, tabIndex + 1, end);
+				if (!filter.acceptsFrequency(freq) || !filter.acceptsWords(bytes, start, tabIndex)) {
+					continue;
+				}
+
+				phrase.set(bytes, start, tabIndex - start);
+				frequency.set(freq);
+				return true;
+			}
+			return false;
+		}
+
+		private static long parseLong(byte[] bytes, int from, int to) {
+			if (from == to || to - from > 18) {
+				return Long.parseLong(new String(bytes, from, to - from, UTF_8));
+			}
+			long value = 0;
+			for (int i = from; i < to; i++) {
+				final int digit = bytes[i] - '0';
+				if (digit < 0 || digit > 9) {
+					// let Long#parseLong handle signs and errors
+					return Long.parseLong(new String(bytes, from, to - from, UTF_8));
+				}
+				value = value * 10 + digit;
+			}
+			return value;
+		}
+
+		@Override
+		public Text getCurrentKey() {
+			return phrase;
+		}
+
+		@Override
+		public LongWritable getCurrentValue() {
+			return frequency;
+		}
+
+		@Override
+		public float getProgress() throws IOException {
+			return lines.getProgress();
+		}
+
+		@Override
+		public void close() throws IOException {
+			lines.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,179 @@
+package org.netspeak.hadoop;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
+import org.netspeak.io.GoogleBooksCsvReader;
+import org.netspeak.io.GoogleBooksCsvReader.CountColumn;
+
+/**
+ * An input format for the {@code googlebooks-*} files of the Google Books n-gram corpus.
+ * <p>
+ * The lines of a split are parsed and aggregated by a {@link GoogleBooksCsvReader}, so the records are the same as
+ * the phrases read by local runs. The consecutive lines of a phrase may be divided between two splits. The phrase
+ * will then be returned once for each split with the frequencies of its lines in that split. This is fine because
+ * all frequencies of a phrase will be summed up by the reducers anyway.
+ * <p>
+ * The years and the count column can be configured using {@link #setYearRange(Job, int, int)} and
+ * {@link #setCountColumn(Job, CountColumn)}.
+ */
+public class GoogleBooksInputFormat extends PhraseInputFormat {
+
+	private static final String CONFIG_MIN_YEAR = "preprocessing.google-books.min-year";
+	private static final String CONFIG_MAX_YEAR = "preprocessing.google-books.max-year";
+	private static final String CONFIG_COUNT_COLUMN = "preprocessing.google-books.count-column";
+
+	/**
+	 * Sets the range of years (both inclusive) whose counts will be aggregated.
+	 * <p>
+	 * This defaults to all years.
+	 *
+	 * @param job
+	 * @param minYear
+	 * @param maxYear
+	 * @see GoogleBooksCsvReader#setYearRange(int, int)
+	 */
+	public static void setYearRange(Job job, int minYear, int maxYear) {
+		if (minYear > maxYear) {
+			throw new IllegalArgumentException("The minimum year " + minYear + " is greater than the maximum year "
+					+ maxYear + ".");
+		}
+		final Configuration conf = job.getConfiguration();
+		conf.setInt(CONFIG_MIN_YEAR, minYear);
+		conf.setInt(CONFIG_MAX_YEAR, maxYear);
+	}
+
+	/**
+	 * Sets the column of the counts which will be aggregated.
+	 * <p>
+	 * This defaults to {@link CountColumn#MATCH_COUNT}.
+	 *
+	 * @param job
+	 * @param countColumn
+	 * @see GoogleBooksCsvReader#setCountColumn(CountColumn)
+	 */
+	public static void setCountColumn(Job job, CountColumn countColumn) {
+		job.getConfiguration().setEnum(CONFIG_COUNT_COLUMN, countColumn);
+	}
+
+	@Override
+	public RecordReader<Text, LongWritable> createRecordReader(InputSplit split, TaskAttemptContext context) {
+		return new GoogleBooksRecordReader();
+	}
+
+	private static class GoogleBooksRecordReader extends RecordReader<Text, LongWritable> {
+
+		private final LineRecordReader lines = new LineRecordReader();
+		private GoogleBooksCsvReader reader;
+
+		private final Text phrase = new Text();
+		private final LongWritable frequency = new LongWritable();
+
+		@Override
+		public void initialize(InputSplit split, TaskAttemptContext context) throws IOException {
+			lines.initialize(split, context);
+
+			final Configuration conf = context.getConfiguration();
+			reader = new GoogleBooksCsvReader(new BufferedReader(new LineReader(lines)));
+			reader.setYearRange(conf.getInt(CONFIG_MIN_YEAR, Integer.MIN_VALUE),
+					conf.getInt(CONFIG_MAX_YEAR, Integer.MAX_VALUE));
+			reader.setCountColumn(conf.getEnum(CONFIG_COUNT_COLUMN, CountColumn.MATCH_COUNT));
+			reader.setFilter(getReaderFilter(conf));
+		}
+
+		@Override
+		public boolean nextKeyValue() throws IOException {
+			if (!reader.advance()) {
+				return false;
+			}
+			phrase.set(reader.phrase());
+			frequency.set(reader.frequency());
+			return true;
+		}
+
+		@Override
+		public Text getCurrentKey() {
+			return phrase;
+		}
+
+		@Override
+		public LongWritable getCurrentValue() {
+			return frequency;
+		}
+
+		@Override
+		public float getProgress() throws IOException {
+			return lines.getProgress();
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (reader != null) {
+				reader.close();
+			} else {
+				lines.close();
+			}
+		}
+
+	}
+
+	/**
+	 * A {@link Reader} which returns the lines of the given {@link LineRecordReader} with each line terminated by a
+	 * {@code \n}.
+	 * <p>
+	 * The {@link LineRecordReader} takes care of the split boundaries and the decompression.
+	 */
+	private static class LineReader extends Reader {
+
+		private final LineRecordReader lines;
+		private String line = "";
+		/**
+		 * The position of the next char of {@link #line}. The line terminator is at {@code line.length()}.
+		 */
+		private int position = 1;
+
+		public LineReader(LineRecordReader lines) {
+			this.lines = lines;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position > line.length()) {
+				if (!lines.nextKeyValue()) {
+					return -1;
+				}
+				line = lines.getCurrentValue().toString();
+				position = 0;
+			}
+
+			final int chars = Math.min(len, line.length() - position);
+			line.getChars(position, position + chars, cbuf, off);
+			position += chars;
+			if (chars < len) {
+				cbuf[off + chars] = '\n';
+				position++;
+				return chars + 1;
+			}
+			return chars;
+		}
+
+		@Override
+		public void close() throws IOException {
+			lines.close();
+		}
+
+	}
+
+}
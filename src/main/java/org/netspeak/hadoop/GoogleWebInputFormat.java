@@ -0,0 +1,117 @@
+package org.netspeak.hadoop;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.JobContext;
+
+/**
+ * An input format for the Google Web 1T 5-gram corpus.
+ * <p>
+ * The input paths of the job are the root directories of the corpus. Like the local CLI, this expects either a
+ * {@code data} directory or the {@code 1gms} directory inside the root directory. The phrases will be read from the
+ * 1-gram vocabulary ({@code 1gms/vocab.gz}, {@code 1gms/vocab.bz2}, {@code 1gms/vocab_cs.gz}, or
+ * {@code 1gms/vocab_cs.bz2}, the first one which exists) and from all {@code <n>gms/<n>gm-*}
+ * files. The files are CSV files which are read like by {@link CsvInputFormat}, so bzip2-compressed files will be
+ * split.
+ * <p>
+ * All {@code <n>gms} directories with more words than allowed by the reader filter of the job will be skipped (see
+ * {@link PhraseInputFormat#setReaderFilter}).
+ */
+public class GoogleWebInputFormat extends CsvInputFormat {
+
+	/**
+	 * The 1-gram files in order of preference. {@code vocab} is sorted alphabetically and {@code vocab_cs} by count.
+	 * Both contain the same 1-grams. This is the same order as used by the local CLI.
+	 */
+	private static final String[] VOCAB_FILES = { "vocab.gz", "vocab.bz2", "vocab_cs.gz", "vocab_cs.bz2" };
+
+	/**
+	 * Returns whether the given directory contains the Google Web 1T 5-gram corpus.
+	 *
+	 * @param fs
+	 * @param root
+	 * @return
+	 * @throws IOException
+	 */
+	public static boolean isGoogleWeb(FileSystem fs, Path root) throws IOException {
+		return isDirectory(fs, getDataDirectory(fs, root));
+	}
+
+	/**
+	 * Returns the status of the given path or {@code null} if it doesn't exist.
+	 */
+	private static FileStatus getStatus(FileSystem fs, Path path) throws IOException {
+		try {
+			return fs.getFileStatus(path);
+		} catch (FileNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static boolean isDirectory(FileSystem fs, Path path) throws IOException {
+		final FileStatus status = getStatus(fs, path);
+		return status != null && status.isDirectory();
+	}
+
+	private static Path getDataDirectory(FileSystem fs, Path root) throws IOException {
+		final Path data = new Path(root, "data");
+		if (!isDirectory(fs, data) && isDirectory(fs, new Path(root, "1gms"))) {
+			return root;
+		}
+		return data;
+	}
+
+	@Override
+	protected List<FileStatus> listStatus(JobContext job) throws IOException {
+		final Configuration conf = job.getConfiguration();
+		final int maxWords = getReaderFilter(conf).getMaxWords();
+
+		final List<FileStatus> files = new ArrayList<>();
+		for (final Path root : getInputPaths(job)) {
+			final FileSystem fs = root.getFileSystem(conf);
+			final Path data = getDataDirectory(fs, root);
+
+			// 1gms is special
+			final Path oneGrams = new Path(data, "1gms");
+			FileStatus vocab = null;
+			for (final String file : VOCAB_FILES) {
+				final FileStatus status = getStatus(fs, new Path(oneGrams, file));
+				if (status != null && status.isFile()) {
+					vocab = status;
+					break;
+				}
+			}
+			if (vocab == null) {
+				throw new IOException("Unable to find 1-gram file in " + root);
+			}
+			if (maxWords >= 1) {
+				files.add(vocab);
+			}
+
+			// all phrases in <n>gms have n words
+			for (int n = 2; n <= maxWords; n++) {
+				final Path dir = new Path(data, n + "gms");
+				if (!isDirectory(fs, dir)) {
+					break;
+				}
+
+				// all files are of the name "<n>gm-0000.<ext>"
+				final String prefix = n + "gm-";
+				for (final FileStatus status : fs.listStatus(dir, p -> p.getName().startsWith(prefix))) {
+					if (status.isFile()) {
+						files.add(status);
+					}
+				}
+			}
+		}
+		return files;
+	}
+
+}
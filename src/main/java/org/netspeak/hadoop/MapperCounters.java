@@ -0,0 +1,137 @@
+package org.netspeak.hadoop;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.netspeak.preprocessing.PhraseMapper;
+
+/**
+ * The statistics of each phrase mapper of a map task which will be published as Hadoop counters.
+ * <p>
+ * These are the same statistics as the ones printed by local runs with {@code --verbose}: the number of phrases each
+ * mapper removed, changed, and kept unchanged, and the time spent in each mapper. To keep the overhead low, the
+ * counts are kept in plain arrays until the end of the task and only every {@code n}-th phrase is timed. The reported
+ * time is the sampled time multiplied by {@code n}.
+ * <p>
+ * There is one counter group per statistic and one counter per mapper in each group. The counters are named after the
+ * index and {@link PhraseMapper#getName() name} of their mapper.
+ */
+final class MapperCounters {
+
+	static final String GROUP_REMOVED = "Netspeak mappers: removed phrases";
+	static final String GROUP_CHANGED = "Netspeak mappers: changed phrases";
+	static final String GROUP_KEPT = "Netspeak mappers: kept phrases";
+	static final String GROUP_TIME = "Netspeak mappers: estimated time (ms)";
+
+	private final String[] names;
+	private final long[] removed;
+	private final long[] changed;
+	private final long[] kept;
+	private final long[] time;
+	private final int timingInterval;
+	private int untilTimed = 0;
+
+	/**
+	 * Creates new counters for the given mappers.
+	 *
+	 * @param mappers
+	 * @param timingInterval Every {@code timingInterval}-th phrase will be timed. {@code 0} disables timing.
+	 */
+	public MapperCounters(PhraseMapper[] mappers, int timingInterval) {
+		if (timingInterval < 0) {
+			throw new IllegalArgumentException("The timing interval cannot be negative.");
+		}
+		this.names = new String[mappers.length];
+		for (int i = 0; i < mappers.length; i++) {
+			names[i] = getCounterName(i, mappers[i]);
+		}
+		this.removed = new long[mappers.length];
+		this.changed = new long[mappers.length];
+		this.kept = new long[mappers.length];
+		this.time = new long[mappers.length];
+		this.timingInterval = timingInterval;
+	}
+
+	/**
+	 * Returns the number of counters used for the given number of mappers.
+	 *
+	 * @param mappers
+	 * @return
+	 */
+	public static int getCounterCount(int mappers) {
+		return mappers * 4;
+	}
+
+	private static String getCounterName(int index, PhraseMapper mapper) {
+		// Hadoop truncates long counter names, so the package is removed and the index comes first to keep the names
+		// unique
+		final String name = mapper.getName();
+		int start = 0;
+		for (int dot; (dot = name.indexOf('.', start)) != -1 && Character.isLowerCase(name.charAt(start));) {
+			start = dot + 1;
+		}
+		return (index < 10 ? "0" : "") + index + " " + name.substring(start);
+	}
+
+	/**
+	 * Returns the name of the counters of the given mapper.
+	 *
+	 * @param mapper
+	 * @return
+	 */
+	String getName(int mapper) {
+		return names[mapper];
+	}
+
+	/**
+	 * Returns whether the next phrase should be timed.
+	 *
+	 * @return
+	 */
+	public boolean timeNext() {
+		if (timingInterval == 0) {
+			return false;
+		}
+		if (untilTimed == 0) {
+			untilTimed = timingInterval - 1;
+			return true;
+		}
+		untilTimed--;
+		return false;
+	}
+
+	public void removed(int mapper) {
+		removed[mapper]++;
+	}
+
+	public void changed(int mapper) {
+		changed[mapper]++;
+	}
+
+	public void kept(int mapper) {
+		kept[mapper]++;
+	}
+
+	/**
+	 * Adds the given run time of a timed phrase.
+	 *
+	 * @param mapper
+	 * @param nanos
+	 */
+	public void time(int mapper, long nanos) {
+		time[mapper] += nanos;
+	}
+
+	/**
+	 * Adds all statistics to the counters of the given context.
+	 *
+	 * @param context
+	 */
+	public void publish(TaskInputOutputContext<?, ?, ?, ?> context) {
+		for (int i = 0; i < names.length; i++) {
+			context.getCounter(GROUP_REMOVED, names[i]).increment(removed[i]);
+			context.getCounter(GROUP_CHANGED, names[i]).increment(changed[i]);
+			context.getCounter(GROUP_KEPT, names[i]).increment(kept[i]);
+			context.getCounter(GROUP_TIME, names[i]).increment(time[i] * timingInterval / 1_000_000);
+		}
+	}
+
+}
@@ -1,128 +1,734 @@
 package org.netspeak.hadoop;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MRJobConfig;
 import org.apache.hadoop.mapreduce.Mapper;
-import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.Reducer;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.InputSampler;
+import org.apache.hadoop.mapreduce.lib.partition.TotalOrderPartitioner;
 import org.apache.hadoop.mapreduce.lib.reduce.LongSumReducer;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.netspeak.Util;
+import org.netspeak.io.PhraseFrequencyPair;
+import org.netspeak.io.Utf8Phrase;
 import org.netspeak.lang.Agnostic;
+import org.netspeak.lang.De;
 import org.netspeak.lang.En;
 import org.netspeak.lang.MapperConfig;
-import org.netspeak.lang.SingleMapProcessor;
 import org.netspeak.preprocessing.PhraseMapper;
+import org.netspeak.preprocessing.Preprocessing;
+import org.netspeak.preprocessing.Utf8PhraseMapper;
+import org.netspeak.preprocessing.items.GermanHyphenationJoiner;
+import org.netspeak.vocabulary.ConcurrentWordMaxMap;
+import org.netspeak.vocabulary.SortedWordFile;
+import org.netspeak.vocabulary.WordSet;
 
 public class Merge {
 	private static final String CONFIG_LOWERCASE = "preprocessing.lowercase";
+	private static final String CONFIG_LOWERCASE_LOCALE = "preprocessing.lowercase-locale";
 	private static final String CONFIG_MAX_N_GRAM = "preprocessing.max-n-gram";
-	private static final String CONFIG_LANG = "preprocessing.lang";
+	static final String CONFIG_LANG = "preprocessing.lang";
+	private static final String CONFIG_COMBINE_MAX_PHRASES = "preprocessing.combine.max-phrases";
+	private static final String CONFIG_COMBINE_MAX_BYTES = "preprocessing.combine.max-bytes";
+	static final String CONFIG_COUNTERS = "preprocessing.counters";
+	private static final String CONFIG_COUNTERS_TIMING_INTERVAL = "preprocessing.counters.timing-interval";
+	/**
+	 * The URI of the mapper artifact which will be added to the distributed cache of all jobs.
+	 */
+	private static final String CONFIG_MAPPER_ARTIFACT_URI = "preprocessing.mapper-artifact.uri";
+	/**
+	 * The local path of the mapper artifact in tasks.
+	 */
+	private static final String CONFIG_MAPPER_ARTIFACT = "preprocessing.mapper-artifact";
+	private static final String MAPPER_ARTIFACT_LINK = "mappers.bin";
+	private static final String CONFIG_JOIN_HYPHENATIONS = "preprocessing.de.join-hyphenations";
+	private static final String CONFIG_VOCABULARY_FILE = "preprocessing.de.vocabulary-file";
+	private static final String CONFIG_TOP_WORDS_FILE = "preprocessing.de.top-words-file";
+
+	/**
+	 * The named output of {@link VocabularyReducer}.
+	 */
+	static final String VOCABULARY_OUTPUT = "vocabulary";
+	/**
+	 * The directory of the vocabulary files relative to the output directory of the first DE job. Since the name
+	 * starts with an underscore, the files will not be read as input by the second job.
+	 */
+	static final String VOCABULARY_DIR = "_vocabulary";
+
+	/**
+	 * The probability with which a record of a sampled split is used as a sample for the split points of the
+	 * partitions.
+	 */
+	private static final double SAMPLE_FREQUENCY = 0.01;
+	private static final int SAMPLES_PER_REDUCE_TASK = 1000;
+	private static final int MAX_SAMPLED_SPLITS = 100;
+
+	/**
+	 * The number of counters reserved for the counters of Hadoop itself.
+	 */
+	private static final int MIN_BUILTIN_COUNTERS = 100;
 
 	private static final String LANG_NONE = "none";
 	private static final String LANG_EN = "en";
 	private static final String LANG_DE = "de";
 
-	public static class TokenizerMapper extends Mapper<Object, Text, Text, LongWritable> {
+	/**
+	 * Returns the mappers of the language and the mapper config of the given job configuration.
+	 */
+	private static PhraseMapper[] createMappers(Configuration conf) {
+		final MapperConfig config = new MapperConfig();
+		config.lowercase = conf.getBoolean(CONFIG_LOWERCASE, false);
+		final String locale = conf.get(CONFIG_LOWERCASE_LOCALE);
+		config.lowercaseLocale = locale == null ? null : Locale.forLanguageTag(locale);
+		config.maxNGram = conf.getInt(CONFIG_MAX_N_GRAM, Integer.MAX_VALUE);
+		final String artifact = conf.get(CONFIG_MAPPER_ARTIFACT);
+		config.mapperArtifact = artifact == null ? null : Paths.get(artifact);
+
+		try {
+			final String lang = conf.get(CONFIG_LANG, LANG_NONE).toLowerCase();
+			switch (lang) {
+			case LANG_NONE:
+				return Agnostic.INSTANCE.getMappers(config).toArray(new PhraseMapper[0]);
+			case LANG_DE:
+				if (conf.getBoolean(CONFIG_JOIN_HYPHENATIONS, false)) {
+					return new PhraseMapper[] { createHyphenationJoiner(conf) };
+				}
+				return De.INSTANCE.getMappers(config).toArray(new PhraseMapper[0]);
+			case LANG_EN:
+				return En.INSTANCE.getMappers(config).toArray(new PhraseMapper[0]);
+			default:
+				throw new IllegalArgumentException("Unknown language: " + lang);
+			}
+		} catch (final IllegalArgumentException e) {
+			throw e;
+		} catch (final Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the hyphenation joiner of the second DE job.
+	 * <p>
+	 * The vocabulary and the top words are read from the local files given by the job configuration. In tasks, these
+	 * are the links to the files of the distributed cache. The vocabulary file is memory-mapped and stays open until
+	 * the task JVM exits.
+	 */
+	private static PhraseMapper createHyphenationJoiner(Configuration conf) throws IOException {
+		final WordSet vocabulary = SortedWordFile.open(Paths.get(conf.get(CONFIG_VOCABULARY_FILE)));
+		final List<String> topWords = Files.readAllLines(Paths.get(conf.get(CONFIG_TOP_WORDS_FILE)), UTF_8);
+		return GermanHyphenationJoiner.createMapper(De.INSTANCE.getStopWords(), vocabulary, topWords);
+	}
+
+	/**
+	 * Applies the mappers to the phrases read by a {@link PhraseInputFormat}.
+	 * <p>
+	 * Phrases stay UTF-8 bytes for the longest prefix of mappers which implement {@link Utf8PhraseMapper} and will
+	 * only be decoded for the remaining mappers (if any).
+	 * <p>
+	 * The frequencies of the mapped phrases are summed up in a size-bounded {@link PhraseCounts} map which is
+	 * flushed when it is full and at the end of the task (in-mapper combining). This reduces the number of records
+	 * which have to be serialized, sorted, and spilled to about the number of distinct phrases of a task.
+	 */
+	public static class TokenizerMapper extends Mapper<Text, LongWritable, Text, LongWritable> {
 
 		private final Text phrase = new Text();
 		private final LongWritable frequency = new LongWritable();
 
-		private PhraseMapper[] mappers = new PhraseMapper[0];
+		private Utf8PhraseMapper[] utf8Mappers = new Utf8PhraseMapper[0];
+		private PhraseMapper[] stringMappers = new PhraseMapper[0];
+		/**
+		 * The sums of the mapped phrases. This is {@code null} if in-mapper combining is disabled.
+		 */
+		private PhraseCounts counts;
+		/**
+		 * The statistics of the mappers. This is {@code null} if counters are disabled.
+		 */
+		private MapperCounters counters;
 
 		@Override
 		public void setup(Context context) throws IOException, InterruptedException {
 			final Configuration conf = context.getConfiguration();
 
-			final MapperConfig config = new MapperConfig();
-			config.lowercase = conf.getBoolean(CONFIG_LOWERCASE, false);
-			config.maxNGram = conf.getInt(CONFIG_MAX_N_GRAM, Integer.MAX_VALUE);
-
-			SingleMapProcessor processor;
-			final String lang = conf.get(CONFIG_LANG, LANG_NONE).toLowerCase();
-			switch (lang) {
-			case LANG_NONE:
-				processor = Agnostic.INSTANCE;
-				break;
-			case LANG_DE:
-				throw new IllegalArgumentException("DE is not supported for Hadoop.");
-			case LANG_EN:
-				processor = En.INSTANCE;
-				break;
-			default:
-				throw new IllegalArgumentException("Unknown language: " + lang);
+			final PhraseMapper[] mappers = createMappers(conf);
+			int utf8Count = 0;
+			while (utf8Count < mappers.length && mappers[utf8Count] instanceof Utf8PhraseMapper) {
+				utf8Count++;
 			}
+			utf8Mappers = new Utf8PhraseMapper[utf8Count];
+			for (int i = 0; i < utf8Count; i++) {
+				utf8Mappers[i] = (Utf8PhraseMapper) mappers[i];
+			}
+			stringMappers = Arrays.copyOfRange(mappers, utf8Count, mappers.length);
+
+			final int maxPhrases = conf.getInt(CONFIG_COMBINE_MAX_PHRASES, MergeConfig.DEFAULT_COMBINE_MAX_PHRASES);
+			final long maxBytes = conf.getLong(CONFIG_COMBINE_MAX_BYTES, MergeConfig.DEFAULT_COMBINE_MAX_BYTES);
+			counts = maxPhrases > 0 ? new PhraseCounts(maxPhrases, maxBytes) : null;
 
-			try {
-				mappers = processor.getMappers(config).toArray(new PhraseMapper[0]);
-			} catch (final Exception e) {
-				throw new RuntimeException(e);
+			if (conf.getBoolean(CONFIG_COUNTERS, false)) {
+				counters = new MapperCounters(mappers, conf.getInt(CONFIG_COUNTERS_TIMING_INTERVAL,
+						MergeConfig.DEFAULT_COUNTERS_TIMING_INTERVAL));
 			}
 		}
 
-		private String map(String phrase, long frequency) {
-			for (final PhraseMapper mapper : mappers) {
+		/**
+		 * Returns the mapped phrase or {@code null} if the phrase was removed.
+		 */
+		private Utf8Phrase map(Utf8Phrase phrase, long frequency) {
+			for (final Utf8PhraseMapper mapper : utf8Mappers) {
 				phrase = mapper.map(phrase, frequency);
-				if (phrase == null) {
-					break;
+				if (phrase == null || phrase.isEmpty()) {
+					return null;
 				}
 			}
-			return phrase;
+			if (stringMappers.length == 0) {
+				return phrase;
+			}
+
+			String p = phrase.toString();
+			for (final PhraseMapper mapper : stringMappers) {
+				p = mapper.map(p, frequency);
+				if (p == null || p.isEmpty()) {
+					return null;
+				}
+			}
+			return Utf8Phrase.of(p);
 		}
 
-		@Override
-		public void map(Object key, Text value, Context context) throws IOException, InterruptedException {
-			// format: <word> *( <spaces> <word> ) <tab> <frequency>
-			final String line = value.toString().trim();
-			if (line.isEmpty()) {
-				// ignore line
-				return;
+		/**
+		 * Same as {@link #map(Utf8Phrase, long)} but with statistics.
+		 */
+		private Utf8Phrase mapWithCounters(Utf8Phrase phrase, long frequency) {
+			final boolean timed = counters.timeNext();
+			for (int i = 0; i < utf8Mappers.length; i++) {
+				final long start = timed ? System.nanoTime() : 0;
+				final Utf8Phrase newPhrase = utf8Mappers[i].map(phrase, frequency);
+				if (timed) {
+					counters.time(i, System.nanoTime() - start);
+				}
+
+				if (newPhrase == null || newPhrase.isEmpty()) {
+					counters.removed(i);
+					return null;
+				} else if (newPhrase.equals(phrase)) {
+					counters.kept(i);
+				} else {
+					counters.changed(i);
+					phrase = newPhrase;
+				}
 			}
+			if (stringMappers.length == 0) {
+				return phrase;
+			}
+
+			String p = phrase.toString();
+			for (int i = 0; i < stringMappers.length; i++) {
+				final int index = utf8Mappers.length + i;
+				final long start = timed ? System.nanoTime() : 0;
+				final String newPhrase = stringMappers[i].map(p, frequency);
+				if (timed) {
+					counters.time(index, System.nanoTime() - start);
+				}
 
-			final int tabIndex = line.indexOf('\t');
-			if (tabIndex == -1) {
-				throw new IOException("Invalid format: Unable to find tab character.");
+				if (newPhrase == null || newPhrase.isEmpty()) {
+					counters.removed(index);
+					return null;
+				} else if (newPhrase.equals(p)) {
+					counters.kept(index);
+				} else {
+					counters.changed(index);
+					p = newPhrase;
+				}
 			}
+			return Utf8Phrase.of(p);
+		}
 
-			final long freq = Long.parseLong(line.substring(tabIndex + 1));
-			final String p = map(line.substring(0, tabIndex), freq);
+		@Override
+		public void map(Text key, LongWritable value, Context context) throws IOException, InterruptedException {
+			final long freq = value.get();
+			final Utf8Phrase phrase = Utf8Phrase.copyOf(key.getBytes(), 0, key.getLength());
+			final Utf8Phrase p = counters == null ? map(phrase, freq) : mapWithCounters(phrase, freq);
 
 			if (p == null) {
 				return;
 			}
 
-			phrase.set(p);
-			frequency.set(freq);
+			if (counts == null) {
+				write(p, freq, context);
+			} else if (counts.add(p, freq)) {
+				counts.flush((ph, sum) -> write(ph, sum, context));
+			}
+		}
 
+		@Override
+		protected void cleanup(Context context) throws IOException, InterruptedException {
+			if (counts != null) {
+				counts.flush((ph, sum) -> write(ph, sum, context));
+			}
+			if (counters != null) {
+				counters.publish(context);
+			}
+		}
+
+		private void write(Utf8Phrase p, long freq, Context context) throws IOException, InterruptedException {
+			final byte[] bytes = p.getBytes();
+			phrase.set(bytes, 0, bytes.length);
+			frequency.set(freq);
 			context.write(phrase, frequency);
 		}
 	}
 
+	/**
+	 * Sums up the frequencies of each phrase like {@link LongSumReducer} and additionally writes the vocabulary of the
+	 * summed phrases to the {@link #VOCABULARY_OUTPUT} named output.
+	 * <p>
+	 * The value of a word is the maximum frequency of all phrases containing the word, the same as for
+	 * {@link org.netspeak.preprocessing.mappers.VocabularyExtractor}. Words are collected in memory and written when
+	 * there are too many of them, so the same word may be written more than once by a task and by different tasks.
+	 */
+	public static class VocabularyReducer extends Reducer<Text, LongWritable, Text, LongWritable> {
+
+		private static final int MAX_WORDS = 1 << 20;
+
+		private final LongWritable sum = new LongWritable();
+		private final Map<String, Long> words = new HashMap<>();
+		private MultipleOutputs<Text, LongWritable> outputs;
+
+		@Override
+		protected void setup(Context context) throws IOException, InterruptedException {
+			outputs = new MultipleOutputs<>(context);
+		}
+
+		@Override
+		protected void reduce(Text key, Iterable<LongWritable> values, Context context)
+				throws IOException, InterruptedException {
+			long s = 0;
+			for (final LongWritable value : values) {
+				s += value.get();
+			}
+			sum.set(s);
+			context.write(key, sum);
+
+			for (final String word : key.toString().split(" ")) {
+				words.merge(word, s, Math::max);
+			}
+			if (words.size() >= MAX_WORDS) {
+				flush();
+			}
+		}
+
+		@Override
+		protected void cleanup(Context context) throws IOException, InterruptedException {
+			flush();
+			outputs.close();
+		}
+
+		private void flush() throws IOException, InterruptedException {
+			final Text word = new Text();
+			final LongWritable value = new LongWritable();
+			for (final Map.Entry<String, Long> entry : words.entrySet()) {
+				word.set(entry.getKey());
+				value.set(entry.getValue());
+				outputs.write(VOCABULARY_OUTPUT, word, value, VOCABULARY_DIR + "/part");
+			}
+			words.clear();
+		}
+	}
+
+	/**
+	 * Returns the input format of the given input path.
+	 * <p>
+	 * The formats are detected the same way as by the local CLI: Google Web 1T 5-gram directories, directories with
+	 * {@code googlebooks-*} files, and CSV files.
+	 *
+	 * @param fs
+	 * @param path
+	 * @return
+	 * @throws IOException
+	 */
+	public static Class<? extends PhraseInputFormat> detectInputFormat(FileSystem fs, Path path) throws IOException {
+		boolean isDirectory;
+		try {
+			isDirectory = fs.getFileStatus(path).isDirectory();
+		} catch (FileNotFoundException e) {
+			isDirectory = false;
+		}
+
+		if (isDirectory) {
+			if (GoogleWebInputFormat.isGoogleWeb(fs, path)) {
+				return GoogleWebInputFormat.class;
+			}
+			for (final FileStatus status : fs.listStatus(path)) {
+				if (status.isFile() && status.getPath().getName().startsWith("googlebooks-")) {
+					return GoogleBooksInputFormat.class;
+				}
+			}
+		} else if (path.getName().startsWith("googlebooks-")) {
+			return GoogleBooksInputFormat.class;
+		}
+
+		// assume simple CSV format
+		return CsvInputFormat.class;
+	}
+
+	/**
+	 * Returns the number of reduce tasks for the given total input size such that each reduce task gets about
+	 * {@code partSize} bytes.
+	 *
+	 * @param inputSize
+	 * @param partSize
+	 * @return
+	 */
+	public static int getReduceTasks(long inputSize, long partSize) {
+		if (partSize <= 0) {
+			throw new IllegalArgumentException("The part size has to be positive.");
+		}
+		final long tasks = (inputSize + partSize - 1) / partSize;
+		return (int) Math.max(1, Math.min(tasks, Integer.MAX_VALUE));
+	}
+
+	private static long getInputSize(Collection<Path> input, Configuration conf) throws IOException {
+		long size = 0;
+		for (final Path path : input) {
+			size += path.getFileSystem(conf).getContentSummary(path).getLength();
+		}
+		return size;
+	}
+
+	/**
+	 * Samples the input of the given job, writes the split points of the partitions to the given file, and configures
+	 * the job to use a {@link TotalOrderPartitioner}.
+	 * <p>
+	 * The partitioner sees the mapped phrases, so the sampled phrases will be mapped before the split points are
+	 * selected. The number of reduce tasks of the job will be lowered if there are fewer distinct sampled phrases
+	 * than reduce tasks.
+	 *
+	 * @param job
+	 * @param file
+	 * @param sampler
+	 * @param mappers The mappers of the job.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 * @throws ClassNotFoundException
+	 */
+	static void setTotalOrderPartitioner(Job job, Path file, InputSampler.Sampler<Text, LongWritable> sampler,
+			PhraseMapper[] mappers) throws IOException, InterruptedException, ClassNotFoundException {
+		final Configuration conf = job.getConfiguration();
+		final int reduceTasks = job.getNumReduceTasks();
+
+		final InputFormat<?, ?> inputFormat = ReflectionUtils.newInstance(job.getInputFormatClass(), conf);
+		// The samplers return an Object[] for any key type, so the samples can't be returned as Text[].
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		final Object[] samples = ((InputSampler.Sampler) sampler).getSample(inputFormat, job);
+
+		final List<Text> phrases = new ArrayList<>();
+		for (final Object sample : samples) {
+			final String phrase = map(mappers, sample.toString());
+			if (phrase != null) {
+				phrases.add(new Text(phrase));
+			}
+		}
+		Collections.sort(phrases);
+
+		final List<Text> splitPoints = new ArrayList<>();
+		for (int i = 1; i < reduceTasks && !phrases.isEmpty(); i++) {
+			final Text splitPoint = phrases.get((int) ((long) i * phrases.size() / reduceTasks));
+			if (splitPoints.isEmpty() || splitPoints.get(splitPoints.size() - 1).compareTo(splitPoint) < 0) {
+				splitPoints.add(splitPoint);
+			}
+		}
+
+		try (SequenceFile.Writer writer = SequenceFile.createWriter(conf, SequenceFile.Writer.file(file),
+				SequenceFile.Writer.keyClass(Text.class), SequenceFile.Writer.valueClass(NullWritable.class))) {
+			for (final Text splitPoint : splitPoints) {
+				writer.append(splitPoint, NullWritable.get());
+			}
+		}
+
+		job.setNumReduceTasks(splitPoints.size() + 1);
+		// the partitioner reads the split points as map output keys
+		job.setMapOutputKeyClass(Text.class);
+		TotalOrderPartitioner.setPartitionFile(conf, file);
+		job.setPartitionerClass(TotalOrderPartitioner.class);
+	}
+
+	/**
+	 * Applies the given mappers to the given sampled phrase.
+	 * <p>
+	 * The samplers only return phrases, so the frequency is unknown. Phrases will be treated as frequent, so they will
+	 * not be removed by mappers which remove infrequent phrases.
+	 */
+	private static String map(PhraseMapper[] mappers, String phrase) {
+		for (final PhraseMapper mapper : mappers) {
+			phrase = mapper.map(phrase, Long.MAX_VALUE);
+			if (phrase == null || phrase.isEmpty()) {
+				return null;
+			}
+		}
+		return phrase;
+	}
+
 	public static void run(Collection<String> input, String outputDir, String lang, MapperConfig config)
 			throws Exception {
+		run(input, outputDir, lang, config, new MergeConfig());
+	}
+
+	public static void run(Collection<String> input, String outputDir, String lang, MapperConfig config,
+			MergeConfig mergeConfig) throws Exception {
 		final Configuration conf = new Configuration();
 		conf.set(CONFIG_LANG, lang);
 		conf.setBoolean(CONFIG_LOWERCASE, config.lowercase);
+		if (config.lowercaseLocale != null) {
+			// the locale of the mappers has to be the same on all machines
+			conf.set(CONFIG_LOWERCASE_LOCALE, config.lowercaseLocale.toLanguageTag());
+		}
 		conf.setInt(CONFIG_MAX_N_GRAM, config.maxNGram);
+		conf.setInt(CONFIG_COMBINE_MAX_PHRASES, mergeConfig.combineMaxPhrases);
+		conf.setLong(CONFIG_COMBINE_MAX_BYTES, mergeConfig.combineMaxBytes);
+		conf.setBoolean(CONFIG_COUNTERS, mergeConfig.counters);
+		conf.setInt(CONFIG_COUNTERS_TIMING_INTERVAL, mergeConfig.countersTimingInterval);
+		if (mergeConfig.compressMapOutput) {
+			conf.setBoolean(MRJobConfig.MAP_OUTPUT_COMPRESS, true);
+		}
+
+		final List<Path> inputPaths = new ArrayList<>();
+		for (final String in : input) {
+			inputPaths.add(new Path(in));
+		}
+
+		Path artifact = null;
+		if (config.mapperArtifact != null) {
+			// the map tasks load the compiled mappers instead of compiling them
+			artifact = new Path(outputDir).suffix("_" + MAPPER_ARTIFACT_LINK);
+			final FileSystem fs = artifact.getFileSystem(conf);
+			fs.copyFromLocalFile(new Path(config.mapperArtifact.toUri()), artifact);
+			conf.set(CONFIG_MAPPER_ARTIFACT_URI, fs.makeQualified(artifact).toUri().toString());
+		}
+
+		try {
+			if (LANG_DE.equals(lang.toLowerCase())) {
+				runDe(conf, inputPaths, new Path(outputDir), mergeConfig);
+				return;
+			}
+
+			final PhraseMapper[] mappers = createMappers(conf);
+			final Job job = createJob(conf, "Netspeak index preprocessing (" + lang + ")", inputPaths, mappers,
+					mergeConfig);
+			runJob(job, new Path(outputDir), mappers, mergeConfig, false);
+		} finally {
+			if (artifact != null) {
+				artifact.getFileSystem(conf).delete(artifact, false);
+			}
+		}
+	}
+
+	/**
+	 * Runs DE as two jobs.
+	 * <p>
+	 * The first job applies the standard mappers, merges the phrases, and writes the vocabulary of the merged phrases.
+	 * The vocabulary is then aggregated into a {@link SortedWordFile} and a list of the top words which are passed to
+	 * the second job using the distributed cache. The second job joins hyphenated words and merges the phrases again.
+	 * <p>
+	 * The vocabulary is aggregated by the client, so it has to fit into the memory of the client. The phrases don't.
+	 */
+	private static void runDe(Configuration conf, List<Path> input, Path output, MergeConfig mergeConfig)
+			throws Exception {
+		final Path temp = output.suffix("_tmp");
+		final FileSystem fs = temp.getFileSystem(conf);
+		final java.nio.file.Path localTemp = Files.createTempDirectory("netspeak-vocabulary");
+		try {
+			// 1. standard mappers and vocabulary
+			final Path merged = new Path(temp, "merged");
+			final PhraseMapper[] mappers = createMappers(conf);
+			final Job job1 = createJob(conf, "Netspeak index preprocessing (de, 1/2)", input, mappers, mergeConfig);
+			job1.setReducerClass(VocabularyReducer.class);
+			MultipleOutputs.addNamedOutput(job1, VOCABULARY_OUTPUT, TextOutputFormat.class, Text.class,
+					LongWritable.class);
+			runJob(job1, merged, mappers, mergeConfig, true);
+
+			// aggregate the vocabulary
+			final java.nio.file.Path vocabularyFile = localTemp.resolve("vocabulary.bin");
+			final java.nio.file.Path topWordsFile = localTemp.resolve("top-words.txt");
+			writeVocabulary(fs, new Path(merged, VOCABULARY_DIR), vocabularyFile, topWordsFile, conf);
+			for (final java.nio.file.Path file : Arrays.asList(vocabularyFile, topWordsFile)) {
+				fs.copyFromLocalFile(new Path(file.toUri()), new Path(temp, file.getFileName().toString()));
+			}
+
+			// 2. hyphenation joiner
+			final Configuration conf2 = new Configuration(conf);
+			conf2.setBoolean(CONFIG_JOIN_HYPHENATIONS, true);
+			// the links to the cached files in the working directory of the tasks
+			conf2.set(CONFIG_VOCABULARY_FILE, vocabularyFile.getFileName().toString());
+			conf2.set(CONFIG_TOP_WORDS_FILE, topWordsFile.getFileName().toString());
+
+			// the client uses the joiner to map the samples of the split points, so the local vocabulary has to stay
+			// open until the job is done
+			final List<String> topWords = Files.readAllLines(topWordsFile, UTF_8);
+			try (SortedWordFile vocabulary = SortedWordFile.open(vocabularyFile)) {
+				final PhraseMapper[] joiner = { GermanHyphenationJoiner.createMapper(De.INSTANCE.getStopWords(),
+						vocabulary, topWords) };
+				final Job job2 = createJob(conf2, "Netspeak index preprocessing (de, 2/2)", Arrays.asList(merged),
+						joiner, mergeConfig);
+				for (final java.nio.file.Path file : Arrays.asList(vocabularyFile, topWordsFile)) {
+					final String name = file.getFileName().toString();
+					job2.addCacheFile(new URI(fs.makeQualified(new Path(temp, name)).toUri() + "#" + name));
+				}
+				runJob(job2, output, joiner, mergeConfig, false);
+			}
+		} finally {
+			fs.delete(temp, true);
+			Util.delete(localTemp, true);
+		}
+	}
+
+	/**
+	 * Reads the vocabulary files written by {@link VocabularyReducer}s and writes all words to a
+	 * {@link SortedWordFile} and the {@link GermanHyphenationJoiner#TOP_WORDS top words} to a text file with one word
+	 * per line.
+	 */
+	static void writeVocabulary(FileSystem fs, Path dir, java.nio.file.Path vocabularyFile,
+			java.nio.file.Path topWordsFile, Configuration conf) throws IOException {
+		final ConcurrentWordMaxMap vocabulary = new ConcurrentWordMaxMap(1);
+		final CompressionCodecFactory codecs = new CompressionCodecFactory(conf);
+		for (final FileStatus status : fs.globStatus(new Path(dir, "part-*"))) {
+			final CompressionCodec codec = codecs.getCodec(status.getPath());
+			InputStream in = fs.open(status.getPath());
+			if (codec != null) {
+				in = codec.createInputStream(in);
+			}
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, UTF_8))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					final int tab = line.lastIndexOf('\t');
+					vocabulary.accumulate(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)));
+				}
+			}
+		}
+
+		SortedWordFile.write(vocabularyFile, vocabulary.keySet());
+		final List<String> topWords = new ArrayList<>();
+		for (final PhraseFrequencyPair pair : vocabulary.top(GermanHyphenationJoiner.TOP_WORDS)) {
+			topWords.add(pair.phrase);
+		}
+		Files.write(topWordsFile, topWords, UTF_8);
+	}
 
-		final Job job = Job.getInstance(conf, "Netspeak index preprocessing (" + lang + ")");
+	/**
+	 * Creates a new merge job for the given input and mappers.
+	 * <p>
+	 * The mappers are only used by the client to push filters down into the record readers. The map tasks create
+	 * their mappers from the given configuration.
+	 */
+	private static Job createJob(Configuration conf, String name, List<Path> input, PhraseMapper[] mappers,
+			MergeConfig mergeConfig) throws IOException {
+		final Job job = Job.getInstance(conf, name);
 		job.setJarByClass(Merge.class);
 		job.setMapperClass(TokenizerMapper.class);
 		job.setCombinerClass(LongSumReducer.class);
 		job.setReducerClass(LongSumReducer.class);
 		job.setOutputKeyClass(Text.class);
 		job.setOutputValueClass(LongWritable.class);
-		job.setNumReduceTasks(1000);
+		job.setNumReduceTasks(getReduceTasks(getInputSize(input, conf), mergeConfig.partSize));
 
-		FileInputFormat.setInputPaths(job, input.stream().map(Path::new).toArray(Path[]::new));
-		FileOutputFormat.setOutputPath(job, new Path(outputDir));
+		final String artifact = conf.get(CONFIG_MAPPER_ARTIFACT_URI);
+		if (artifact != null) {
+			job.addCacheFile(URI.create(artifact + "#" + MAPPER_ARTIFACT_LINK));
+			job.getConfiguration().set(CONFIG_MAPPER_ARTIFACT, MAPPER_ARTIFACT_LINK);
+		}
+
+		// the same phrases as in local runs are skipped by the record readers
+		// (but not if the counters of the mappers have to see all phrases)
+		if (!mergeConfig.counters) {
+			PhraseInputFormat.setReaderFilter(job, Preprocessing.getPushdownFilter(mappers));
+		} else {
+			// the job has to allow the counters of all mappers
+			final Configuration jobConf = job.getConfiguration();
+			final int counterCount = MapperCounters.getCounterCount(mappers.length) + MIN_BUILTIN_COUNTERS;
+			if (jobConf.getInt(MRJobConfig.COUNTERS_MAX_KEY, MRJobConfig.COUNTERS_MAX_DEFAULT) < counterCount) {
+				jobConf.setInt(MRJobConfig.COUNTERS_MAX_KEY, counterCount);
+			}
+		}
+		if (mergeConfig.googleBooksMinYear != Integer.MIN_VALUE
+				|| mergeConfig.googleBooksMaxYear != Integer.MAX_VALUE) {
+			GoogleBooksInputFormat.setYearRange(job, mergeConfig.googleBooksMinYear, mergeConfig.googleBooksMaxYear);
+		}
+		GoogleBooksInputFormat.setCountColumn(job, mergeConfig.googleBooksCount);
 
-		if (!job.waitForCompletion(true)) {
-			throw new RuntimeException("Job failed.");
+		for (final Path path : input) {
+			MultipleInputs.addInputPath(job, path, detectInputFormat(path.getFileSystem(conf), path));
+		}
+		return job;
+	}
+
+	/**
+	 * Runs the given job and waits for its completion.
+	 *
+	 * @param job
+	 * @param output
+	 * @param mappers      The mappers of the job. These are used to map the samples of the split points if the output
+	 *                     is sorted.
+	 * @param mergeConfig
+	 * @param intermediate Whether the output will be read by another job. Intermediate output is always unsorted text.
+	 */
+	private static void runJob(Job job, Path output, PhraseMapper[] mappers, MergeConfig mergeConfig,
+			boolean intermediate) throws Exception {
+		FileOutputFormat.setOutputPath(job, output);
+		if (!intermediate && mergeConfig.sequenceFile) {
+			job.setOutputFormatClass(SequenceFileOutputFormat.class);
+			FileOutputFormat.setCompressOutput(job, true);
+			SequenceFileOutputFormat.setOutputCompressionType(job, CompressionType.BLOCK);
+		}
+
+		Path partitionFile = null;
+		if (!intermediate && mergeConfig.sorted && job.getNumReduceTasks() > 1) {
+			partitionFile = output.suffix("_partitions");
+			setTotalOrderPartitioner(job, partitionFile, new InputSampler.RandomSampler<>(SAMPLE_FREQUENCY,
+					job.getNumReduceTasks() * SAMPLES_PER_REDUCE_TASK, MAX_SAMPLED_SPLITS), mappers);
+		}
+
+		try {
+			if (!job.waitForCompletion(true)) {
+				throw new RuntimeException("Job failed.");
+			}
+		} finally {
+			if (partitionFile != null) {
+				partitionFile.getFileSystem(job.getConfiguration()).delete(partitionFile, false);
+			}
 		}
 	}
 
@@ -0,0 +1,78 @@
+package org.netspeak.hadoop;
+
+import org.netspeak.io.GoogleBooksCsvReader.CountColumn;
+
+/**
+ * Options of {@link Merge} which are not options of the mappers.
+ *
+ * @see org.netspeak.lang.MapperConfig
+ */
+public class MergeConfig {
+
+	public static final int DEFAULT_COMBINE_MAX_PHRASES = 1 << 18;
+	public static final long DEFAULT_COMBINE_MAX_BYTES = 32L << 20;
+	public static final long DEFAULT_PART_SIZE = 256L << 20;
+	public static final int DEFAULT_COUNTERS_TIMING_INTERVAL = 64;
+
+	/**
+	 * The first year whose counts will be aggregated for Google Books n-grams.
+	 */
+	public int googleBooksMinYear = Integer.MIN_VALUE;
+	/**
+	 * The last year whose counts will be aggregated for Google Books n-grams.
+	 */
+	public int googleBooksMaxYear = Integer.MAX_VALUE;
+	/**
+	 * The count of Google Books n-grams which will be used as the frequency of a phrase.
+	 */
+	public CountColumn googleBooksCount = CountColumn.MATCH_COUNT;
+	/**
+	 * The maximum number of distinct phrases each mapper sums up in memory before writing them.
+	 * <p>
+	 * {@code 0} disables in-mapper combining.
+	 */
+	public int combineMaxPhrases = DEFAULT_COMBINE_MAX_PHRASES;
+	/**
+	 * The maximum total number of UTF-8 bytes of the phrases each mapper sums up in memory before writing them.
+	 */
+	public long combineMaxBytes = DEFAULT_COMBINE_MAX_BYTES;
+	/**
+	 * The number of input bytes per reduce task.
+	 * <p>
+	 * The number of reduce tasks (and output parts) is the total size of all input files divided by this. Because
+	 * duplicate phrases are merged and compressed input files are counted with their compressed size, parts are
+	 * usually smaller than this.
+	 */
+	public long partSize = DEFAULT_PART_SIZE;
+	/**
+	 * Whether the output will be globally sorted.
+	 * <p>
+	 * If {@code true}, the phrases will be partitioned by ranges whose split points are sampled from the input. The
+	 * concatenation of all output parts will then be sorted and all parts will have about the same size. Otherwise,
+	 * phrases will be partitioned by hash and only each part will be sorted.
+	 */
+	public boolean sorted = false;
+	/**
+	 * Whether the number of phrases removed, changed, and kept by each mapper and the time spent in each mapper will
+	 * be published as Hadoop counters.
+	 * <p>
+	 * Like local runs with {@code --verbose}, no phrases will be skipped by the record readers if this is enabled, so
+	 * the mappers see all phrases.
+	 */
+	public boolean counters = false;
+	/**
+	 * Every {@code n}-th phrase will be timed for the time counters. {@code 0} disables timing.
+	 */
+	public int countersTimingInterval = DEFAULT_COUNTERS_TIMING_INTERVAL;
+	/**
+	 * Whether the intermediate map output will be compressed.
+	 */
+	public boolean compressMapOutput = true;
+	/**
+	 * Whether the output will be written as block-compressed {@link org.apache.hadoop.io.SequenceFile}s of
+	 * {@link org.apache.hadoop.io.Text} phrases and {@link org.apache.hadoop.io.LongWritable} frequencies instead of
+	 * CSV files.
+	 */
+	public boolean sequenceFile = false;
+
+}
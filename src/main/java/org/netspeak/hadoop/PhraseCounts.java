@@ -0,0 +1,116 @@
+package org.netspeak.hadoop;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.netspeak.io.Utf8Phrase;
+
+/**
+ * A size-bounded hash map from phrases to the sum of their frequencies.
+ * <p>
+ * This is used for in-mapper combining. The phrases are kept in an open-addressing table with a parallel array of
+ * sums, so adding a frequency to an existing phrase doesn't allocate anything. The table never grows: it is full
+ * once it contains the maximum number of phrases or the phrases have the maximum total number of bytes. Full maps
+ * have to be {@link #flush(Sink) flushed}.
+ */
+final class PhraseCounts {
+
+	private final Utf8Phrase[] phrases;
+	private final long[] sums;
+	private final int mask;
+	private final int maxSize;
+	private final long maxBytes;
+
+	private int size = 0;
+	private long bytes = 0;
+
+	/**
+	 * Creates a new empty map.
+	 *
+	 * @param maxSize  The maximum number of phrases.
+	 * @param maxBytes The maximum total number of UTF-8 bytes of all phrases.
+	 */
+	public PhraseCounts(int maxSize, long maxBytes) {
+		if (maxSize < 1 || maxSize > 1 << 29) {
+			throw new IllegalArgumentException("The maximum size has to be between 1 and 2^29.");
+		}
+		// a load factor of at most 0.5 keeps the probe sequences short
+		final int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1;
+		this.phrases = new Utf8Phrase[capacity];
+		this.sums = new long[capacity];
+		this.mask = capacity - 1;
+		this.maxSize = maxSize;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Adds the given frequency to the sum of the given phrase.
+	 * <p>
+	 * Returns {@code true} if the map is full after this operation.
+	 *
+	 * @param phrase
+	 * @param frequency
+	 * @return
+	 */
+	public boolean add(Utf8Phrase phrase, long frequency) {
+		final byte[] b = phrase.getBytes();
+		for (int i = hash(b) & mask;; i = (i + 1) & mask) {
+			final Utf8Phrase p = phrases[i];
+			if (p == null) {
+				phrases[i] = phrase;
+				sums[i] = frequency;
+				size++;
+				bytes += b.length;
+				break;
+			}
+			if (Arrays.equals(p.getBytes(), b)) {
+				sums[i] += frequency;
+				break;
+			}
+		}
+		return size >= maxSize || bytes >= maxBytes;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Passes all phrases and their sums to the given sink and removes them from this map.
+	 *
+	 * @param sink
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public void flush(Sink sink) throws IOException, InterruptedException {
+		if (size == 0)
+			return;
+
+		for (int i = 0; i < phrases.length; i++) {
+			final Utf8Phrase p = phrases[i];
+			if (p != null) {
+				sink.accept(p, sums[i]);
+				phrases[i] = null;
+			}
+		}
+		size = 0;
+		bytes = 0;
+	}
+
+	private static int hash(byte[] bytes) {
+		int h = 1;
+		for (byte b : bytes) {
+			h = 31 * h + b;
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@FunctionalInterface
+	interface Sink {
+
+		void accept(Utf8Phrase phrase, long sum) throws IOException, InterruptedException;
+
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.netspeak.hadoop;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+import org.apache.hadoop.io.compress.SplittableCompressionCodec;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.TextInputFormat;
+import org.netspeak.io.ReaderFilter;
+
+/**
+ * An input format for line-based files of phrases. The keys of the records are the phrases and the values are their
+ * frequencies.
+ * <p>
+ * Files are split the same way as by {@link TextInputFormat}: uncompressed files and files compressed with a
+ * splittable codec (e.g. bzip2) can be split, all other compressed files (e.g. gzip) are read by a single mapper.
+ * <p>
+ * The record readers skip all phrases rejected by the {@link #setReaderFilter(Job, ReaderFilter) reader filter} of
+ * the job.
+ *
+ * @see CsvInputFormat
+ * @see GoogleBooksInputFormat
+ * @see GoogleWebInputFormat
+ */
+public abstract class PhraseInputFormat extends FileInputFormat<Text, LongWritable> {
+
+	private static final String CONFIG_MAX_WORDS = "preprocessing.reader.max-words";
+	private static final String CONFIG_MIN_FREQUENCY = "preprocessing.reader.min-frequency";
+
+	/**
+	 * Sets the filter of the record readers of the given job.
+	 * <p>
+	 * This defaults to {@link ReaderFilter#NONE}.
+	 *
+	 * @param job
+	 * @param filter
+	 */
+	public static void setReaderFilter(Job job, ReaderFilter filter) {
+		final Configuration conf = job.getConfiguration();
+		conf.setInt(CONFIG_MAX_WORDS, filter.getMaxWords());
+		conf.setLong(CONFIG_MIN_FREQUENCY, filter.getMinFrequency());
+	}
+
+	/**
+	 * Returns the filter of the record readers.
+	 *
+	 * @param conf
+	 * @return
+	 */
+	public static ReaderFilter getReaderFilter(Configuration conf) {
+		final ReaderFilter maxWords = ReaderFilter.maxWords(conf.getInt(CONFIG_MAX_WORDS, Integer.MAX_VALUE));
+		final ReaderFilter minFrequency = ReaderFilter
+				.minFrequency(conf.getLong(CONFIG_MIN_FREQUENCY, Long.MIN_VALUE));
+		return maxWords.and(minFrequency);
+	}
+
+	@Override
+	protected boolean isSplitable(JobContext context, Path file) {
+		final CompressionCodec codec = new CompressionCodecFactory(context.getConfiguration()).getCodec(file);
+		if (codec == null) {
+			return true;
+		}
+		return codec instanceof SplittableCompressionCodec;
+	}
+
+}
@@ -0,0 +1,94 @@
+package org.netspeak.io;
+
+/**
+ * Scanning operations on ranges of byte and char arrays.
+ * <p>
+ * These are the innermost loops of readers and mappers. Use {@link ArrayScanners#INSTANCE} to get the fastest
+ * implementation available on the current JVM.
+ * <p>
+ * All methods operate on the range {@code [from, to)} of the given array and return absolute indexes.
+ */
+public interface ArrayScanner {
+
+	/**
+	 * Returns the index of the first occurrence of the given byte or {@code -1}.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @param value
+	 * @return
+	 */
+	int indexOf(byte[] a, int from, int to, byte value);
+
+	/**
+	 * Returns the index of the first occurrence of the given char or {@code -1}.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @param value
+	 * @return
+	 */
+	int indexOf(char[] a, int from, int to, char value);
+
+	/**
+	 * Returns the index of the first {@code \n} or {@code \r} or {@code -1}.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	int indexOfLineTerminator(byte[] a, int from, int to);
+
+	/**
+	 * Returns the index of the first {@code \n} or {@code \r} or {@code -1}.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	int indexOfLineTerminator(char[] a, int from, int to);
+
+	/**
+	 * Returns the number of occurrences of the given byte.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @param value
+	 * @return
+	 */
+	int count(byte[] a, int from, int to, byte value);
+
+	/**
+	 * Returns the index of the first byte which is greater than or equal to the given value when interpreted as an
+	 * unsigned byte or {@code -1}.
+	 * <p>
+	 * Use {@code 0x80} to find the first non-ASCII byte.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @param unsignedMin A value between 0 and 255.
+	 * @return
+	 */
+	int indexOfUnsignedAtLeast(byte[] a, int from, int to, int unsignedMin);
+
+	/**
+	 * Returns the index of the first byte of the first UTF-8 encoded control character or {@code -1}.
+	 * <p>
+	 * Control characters are U+0000 - U+001F, U+007F, and U+0080 - U+009F. The latter are encoded as {@code C2 80} -
+	 * {@code C2 9F}. Like the UTF-8 mappers, any {@code C2} byte followed by a byte less than or equal to {@code 9F}
+	 * counts as a control character.
+	 *
+	 * @param a
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	int indexOfControlCharacter(byte[] a, int from, int to);
+
+}
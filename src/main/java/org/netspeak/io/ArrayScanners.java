@@ -0,0 +1,22 @@
+package org.netspeak.io;
+
+/**
+ * Provides the {@link ArrayScanner} used by all readers and mappers.
+ * <p>
+ * This class has a Java 17 variant in {@code src/main/java17} which will be used instead of this one on Java 17 and
+ * later (multi-release jar). The Java 17 variant returns a SIMD implementation based on the Vector API if the
+ * {@code jdk.incubator.vector} module is available (e.g. {@code --add-modules jdk.incubator.vector}).
+ */
+public final class ArrayScanners {
+
+	private ArrayScanners() {
+	}
+
+	/**
+	 * The fastest available scanner.
+	 * <p>
+	 * Its {@link Object#toString()} returns the name of the implementation.
+	 */
+	public static final ArrayScanner INSTANCE = new ScalarArrayScanner();
+
+}
@@ -1,7 +1,10 @@
 package org.netspeak.io;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * A reader for Google books CSV files.
@@ -33,98 +36,338 @@ import java.io.IOException;
  * long frequency = 113;
  * </code>
  * </pre>
+ * <p>
+ * Only the phrase of the first line of each group of consecutive lines will be converted to a string. The phrases of
+ * all following lines will be compared to the current phrase in place.
+ * <p>
+ * By default, the match counts of all years will be aggregated. The years can be restricted using
+ * {@link #setYearRange(int, int)} and the volume counts can be aggregated instead of the match counts using
+ * {@link #setCountColumn(CountColumn)}. Phrases without any line in the year range will be skipped.
  *
  * @author Michael Schmidt
  *
  */
 public class GoogleBooksCsvReader implements PhraseReader {
 
+	private static final ArrayScanner SCANNER = ArrayScanners.INSTANCE;
+
 	private final BufferedReader reader;
-	private String lastLine = null;
+	private char[] buffer = new char[1024 * 16];
+	private int position = 0;
+	private int limit = 0;
+	private boolean done = false;
+	private boolean skipLineFeed = false;
+
+	private int minYear = Integer.MIN_VALUE;
+	private int maxYear = Integer.MAX_VALUE;
+	private CountColumn countColumn = CountColumn.MATCH_COUNT;
+	private ReaderFilter filter = ReaderFilter.NONE;
+
+	private String phrase;
+	private long frequency;
+
+	// the current line and the result of the last successful parseLine call
+	private int lineStart;
+	private int lineEnd;
+	private int phraseStart;
+	private int phraseEnd;
+	private boolean inYearRange;
+	private long count;
+	/**
+	 * Whether the current line has already been parsed but not consumed by {@link #advance()}.
+	 */
+	private boolean pending = false;
 
 	public GoogleBooksCsvReader(BufferedReader reader) {
 		this.reader = reader;
 	}
 
+	/**
+	 * Sets the range of years (both inclusive) whose counts will be aggregated.
+	 * <p>
+	 * This defaults to all years.
+	 *
+	 * @param minYear
+	 * @param maxYear
+	 */
+	public void setYearRange(int minYear, int maxYear) {
+		if (minYear > maxYear) {
+			throw new IllegalArgumentException("The minimum year " + minYear + " is greater than the maximum year "
+					+ maxYear + ".");
+		}
+		this.minYear = minYear;
+		this.maxYear = maxYear;
+	}
+
+	/**
+	 * Sets the column of the counts which will be aggregated.
+	 * <p>
+	 * This defaults to {@link CountColumn#MATCH_COUNT}.
+	 *
+	 * @param countColumn
+	 */
+	public void setCountColumn(CountColumn countColumn) {
+		this.countColumn = requireNonNull(countColumn);
+	}
+
+	/**
+	 * Sets a filter for the phrases of this reader.
+	 * <p>
+	 * Lines of phrases with too many words will be skipped like lines which can't be parsed, so neither their phrase
+	 * nor their counts will be parsed. The frequency is checked after aggregating all lines of a phrase.
+	 */
+	@Override
+	public void setFilter(ReaderFilter filter) {
+		this.filter = requireNonNull(filter);
+	}
+
 	@Override
-	public PhraseFrequencyPair nextPair() throws IOException {
-		String line = lastLine == null ? reader.readLine() : lastLine;
+	public boolean advance() throws IOException {
+		phrase = null;
 
-		MutablePhraseFrequencyPair pair = new MutablePhraseFrequencyPair(null, -1);
-		while (line != null && !parseLine(line, pair)) {
-			// we read lines until we find one which parses or arrive at the end
-			line = reader.readLine();
-		}
-		if (line == null || pair.phrase == null)
-			return null;
-
-		// aggregate the frequencies of the next lines which also have the current
-		// phrase
-		String currentPhrase = pair.phrase;
-		long currentFrequency = pair.frequency;
-
-		String nextLine;
-		while ((nextLine = reader.readLine()) != null) {
-			if (parseLine(nextLine, pair)) {
-				if (currentPhrase.contentEquals(pair.phrase)) {
-					currentFrequency += pair.frequency;
-				} else {
-					break;
+		while (true) {
+			if (!pending) {
+				// we read lines until we find one which parses or arrive at the end
+				do {
+					if (!readLine())
+						return false;
+				} while (!parseLine());
+			}
+			pending = false;
+
+			// aggregate the frequencies of the next lines which also have the current
+			// phrase
+			String currentPhrase = new String(buffer, phraseStart, phraseEnd - phraseStart);
+			boolean anyInYearRange = inYearRange;
+			long currentFrequency = inYearRange ? count : 0;
+
+			while (readLine()) {
+				if (parseLine()) {
+					if (isCurrentPhrase(currentPhrase)) {
+						if (inYearRange) {
+							anyInYearRange = true;
+							currentFrequency += count;
+						}
+					} else {
+						pending = true;
+						break;
+					}
+				}
+			}
+
+			if (anyInYearRange) {
+				if (currentFrequency <= 0) {
+					throw new IllegalArgumentException();
 				}
+				if (!filter.acceptsFrequency(currentFrequency)) {
+					continue;
+				}
+				phrase = currentPhrase;
+				frequency = currentFrequency;
+				return true;
 			}
 		}
-		lastLine = nextLine;
+	}
+
+	@Override
+	public String phrase() {
+		return phrase;
+	}
 
-		return new PhraseFrequencyPair(currentPhrase, currentFrequency);
+	@Override
+	public long frequency() {
+		return frequency;
+	}
+
+	private boolean isCurrentPhrase(String currentPhrase) {
+		int length = phraseEnd - phraseStart;
+		if (currentPhrase.length() != length)
+			return false;
+		for (int i = 0; i < length; i++) {
+			if (buffer[phraseStart + i] != currentPhrase.charAt(i))
+				return false;
+		}
+		return true;
 	}
 
 	/**
-	 * This parses a CSV line.
+	 * This parses the current line.
 	 * <p>
-	 * Returns {@code false} if the given line could not be parsed.
+	 * Returns {@code false} if the current line could not be parsed.
 	 */
-	private static boolean parseLine(String line, MutablePhraseFrequencyPair pair) {
+	private boolean parseLine() {
 		// e.g. "circumvallate\t1978\t313\t215\t85"
 		// "The first line tells us that in 1978, the word "circumvallate" occurred 313
 		// times overall, on 215 distinct pages and in 85 distinct books."
 
 		// this operation will be done millions of times, so I want to avoid
-		// String#split
+		// String#split and creating strings
 
-		int firstTab = line.indexOf('\t', 0);
-		int secondTab = line.indexOf('\t', firstTab + 1);
-		int thirdTab = line.indexOf('\t', secondTab + 1);
-		if (firstTab == -1 || secondTab == -1 || thirdTab == -1)
+		int firstTab = indexOf('\t', lineStart);
+		if (firstTab == -1)
+			return false;
+		int secondTab = indexOf('\t', firstTab + 1);
+		if (secondTab == -1)
+			return false;
+		int thirdTab = indexOf('\t', secondTab + 1);
+		if (thirdTab == -1)
 			return false;
 
-		// phrases sometimes have a trailing space, so we have to remove that
-		String phrase = line.substring(0, firstTab).trim();
-		// the empty string is not a valid phrase
-		if (phrase.isEmpty()) {
+		// phrases sometimes have a trailing space, so we have to remove that (same as String#trim)
+		int start = lineStart;
+		int end = firstTab;
+		while (start < end && buffer[start] <= ' ') {
+			start++;
+		}
+		while (start < end && buffer[end - 1] <= ' ') {
+			end--;
+		}
+		// the empty string is not a valid phrase and rejected phrases are skipped
+		if (start == end || !filter.acceptsWords(buffer, start, end)) {
 			return false;
 		}
+		phraseStart = start;
+		phraseEnd = end;
 
-		pair.phrase = phrase;
-		pair.frequency = Long.parseLong(line.substring(secondTab + 1, thirdTab));
+		if (minYear != Integer.MIN_VALUE || maxYear != Integer.MAX_VALUE) {
+			long year = parseLong(firstTab + 1, secondTab);
+			inYearRange = minYear <= year && year <= maxYear;
+			if (!inYearRange) {
+				return true;
+			}
+		} else {
+			inYearRange = true;
+		}
+
+		switch (countColumn) {
+		case MATCH_COUNT:
+			count = parseLong(secondTab + 1, thirdTab);
+			break;
+		case VOLUME_COUNT:
+			int lastTab = thirdTab;
+			int tab;
+			while ((tab = indexOf('\t', lastTab + 1)) != -1) {
+				lastTab = tab;
+			}
+			count = parseLong(lastTab + 1, lineEnd);
+			break;
+		default:
+			throw new IllegalStateException();
+		}
 
 		return true;
 	}
 
-	@Override
-	public void close() throws IOException {
-		reader.close();
+	/**
+	 * Reads the next line into the buffer. The line will be {@code buffer[lineStart, lineEnd)}.
+	 * <p>
+	 * Lines are terminated the same way as by {@link BufferedReader#readLine()}. Returns {@code false} if there are
+	 * no more lines.
+	 */
+	private boolean readLine() throws IOException {
+		if (done)
+			return false;
+
+		if (skipLineFeed) {
+			// the last line ended with \r, so a directly following \n belongs to it
+			skipLineFeed = false;
+			if (position == limit)
+				fill();
+			if (position < limit && buffer[position] == '\n')
+				position++;
+		}
+
+		int searchFrom = position;
+		while (true) {
+			int i = SCANNER.indexOfLineTerminator(buffer, searchFrom, limit);
+			if (i != -1) {
+				lineStart = position;
+				lineEnd = i;
+				position = i + 1;
+				skipLineFeed = buffer[i] == '\r';
+				return true;
+			}
+
+			int lineLength = limit - position;
+			if (!fill()) {
+				done = true;
+				if (lineLength == 0)
+					return false;
+				// the last line does not end with a line terminator
+				lineStart = position;
+				lineEnd = limit;
+				position = limit;
+				return true;
+			}
+			searchFrom = position + lineLength;
+		}
 	}
 
-	private static class MutablePhraseFrequencyPair {
+	/**
+	 * Reads more characters into the buffer while keeping all characters from {@link #position} on.
+	 * <p>
+	 * Returns {@code false} if the end of the stream has been reached.
+	 */
+	private boolean fill() throws IOException {
+		int length = limit - position;
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, length);
+			position = 0;
+			limit = length;
+		}
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
 
-		public String phrase;
-		public long frequency;
+		int read;
+		do {
+			read = reader.read(buffer, limit, buffer.length - limit);
+		} while (read == 0);
+		if (read == -1)
+			return false;
+		limit += read;
+		return true;
+	}
+
+	private int indexOf(char c, int from) {
+		return SCANNER.indexOf(buffer, from, lineEnd, c);
+	}
 
-		public MutablePhraseFrequencyPair(final String phrase, final long frequency) {
-			this.phrase = phrase;
-			this.frequency = frequency;
+	private long parseLong(int from, int to) {
+		if (from == to || to - from > 18) {
+			return Long.parseLong(new String(buffer, from, to - from));
 		}
+		long value = 0;
+		for (int i = from; i < to; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				// let Long#parseLong handle signs and errors
+				return Long.parseLong(new String(buffer, from, to - from));
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
 
+	/**
+	 * The columns of Google books CSV files which can be used as the frequency of a phrase.
+	 */
+	public enum CountColumn {
+		/**
+		 * The number of times the phrase occurred in a year.
+		 */
+		MATCH_COUNT,
+		/**
+		 * The number of distinct books the phrase occurred in in a year.
+		 * <p>
+		 * This is always the last column of a line.
+		 */
+		VOLUME_COUNT
 	}
 
 }
@@ -2,6 +2,16 @@ package org.netspeak.io;
 
 /**
  * A interface for readers which return one phrase-frequency-pair at a time.
+ * <p>
+ * Readers are cursors: {@link #advance()} moves the reader to the next pair which can then be accessed using
+ * {@link #phrase()} and {@link #frequency()}. This avoids creating a new object for every pair.
+ *
+ * <pre>
+ * while (reader.advance()) {
+ * 	String phrase = reader.phrase();
+ * 	long frequency = reader.frequency();
+ * }
+ * </pre>
  *
  * @see GoogleBooksCsvReader
  * @see SimpleCsvReader
@@ -10,13 +20,60 @@ package org.netspeak.io;
  */
 public interface PhraseReader extends AutoCloseable {
 
+	/**
+	 * Moves the reader to the next phrase-frequency-pair.
+	 * <p>
+	 * Returns {@code false} if no other pairs will be returned. The values of {@link #phrase()} and
+	 * {@link #frequency()} are undefined after this returned {@code false}.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	boolean advance() throws Exception;
+
+	/**
+	 * Returns the phrase of the current pair.
+	 * <p>
+	 * The phrase is guaranteed to be non-{@code null} after {@link #advance()} returned {@code true}.
+	 *
+	 * @return
+	 */
+	String phrase();
+
+	/**
+	 * Returns the frequency of the current pair.
+	 * <p>
+	 * The frequency is guaranteed to be positive after {@link #advance()} returned {@code true}.
+	 *
+	 * @return
+	 */
+	long frequency();
+
+	/**
+	 * Sets a filter for the phrases of this reader.
+	 * <p>
+	 * Readers may evaluate the filter on the raw line before creating a phrase and skip all rejected phrases. This is
+	 * only an optimization: readers are free to ignore the filter and return rejected phrases anyway, so the phrases
+	 * returned by a reader still have to be filtered by the caller. By default, the filter is ignored.
+	 *
+	 * @param filter
+	 */
+	default void setFilter(ReaderFilter filter) {
+	}
+
 	/**
 	 * Returns the next phrase-frequency-pair or {@code null} if no other pairs will
 	 * be returned.
+	 * <p>
+	 * This is an adapter for {@link #advance()} which creates a new pair object for every call.
 	 *
 	 * @return
 	 * @throws Exception
 	 */
-	PhraseFrequencyPair nextPair() throws Exception;
+	default PhraseFrequencyPair nextPair() throws Exception {
+		if (!advance())
+			return null;
+		return new PhraseFrequencyPair(phrase(), frequency());
+	}
 
 }
@@ -0,0 +1,166 @@
+package org.netspeak.io;
+
+/**
+ * Cheap predicates which readers can evaluate on the raw bytes or chars of a line before creating a phrase object.
+ * <p>
+ * A filter accepts a phrase if it has at most {@link #getMaxWords()} words and a frequency of at least
+ * {@link #getMinFrequency()}. Words are counted the same way as by
+ * {@link org.netspeak.preprocessing.mappers.PhraseMappers#maxNGram(int)}: the number of spaces plus one.
+ * <p>
+ * Filters are immutable.
+ *
+ * @see PhraseReader#setFilter(ReaderFilter)
+ * @see Utf8PhraseReader#setFilter(ReaderFilter)
+ */
+public final class ReaderFilter {
+
+	/**
+	 * The filter which accepts all phrases.
+	 */
+	public static final ReaderFilter NONE = new ReaderFilter(Integer.MAX_VALUE, Long.MIN_VALUE);
+
+	private static final ArrayScanner SCANNER = ArrayScanners.INSTANCE;
+
+	private final int maxWords;
+	private final long minFrequency;
+
+	private ReaderFilter(int maxWords, long minFrequency) {
+		this.maxWords = maxWords;
+		this.minFrequency = minFrequency;
+	}
+
+	/**
+	 * Returns a filter which only accepts phrases with at most the given number of words.
+	 *
+	 * @param maxWords
+	 * @return
+	 */
+	public static ReaderFilter maxWords(int maxWords) {
+		return new ReaderFilter(maxWords, NONE.minFrequency);
+	}
+
+	/**
+	 * Returns a filter which only accepts phrases with a frequency of at least the given frequency.
+	 *
+	 * @param minFrequency
+	 * @return
+	 */
+	public static ReaderFilter minFrequency(long minFrequency) {
+		return new ReaderFilter(NONE.maxWords, minFrequency);
+	}
+
+	/**
+	 * Returns a filter which only accepts phrases which are accepted by both this and the given filter.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public ReaderFilter and(ReaderFilter other) {
+		if (other.isNone())
+			return this;
+		if (isNone())
+			return other;
+		return new ReaderFilter(Math.min(maxWords, other.maxWords), Math.max(minFrequency, other.minFrequency));
+	}
+
+	/**
+	 * Returns a filter with the same frequency predicate as this one which accepts any number of words.
+	 *
+	 * @return
+	 */
+	public ReaderFilter withoutMaxWords() {
+		if (maxWords == NONE.maxWords)
+			return this;
+		return new ReaderFilter(NONE.maxWords, minFrequency);
+	}
+
+	/**
+	 * Returns whether this filter accepts all phrases.
+	 *
+	 * @return
+	 */
+	public boolean isNone() {
+		return maxWords == NONE.maxWords && minFrequency == NONE.minFrequency;
+	}
+
+	public int getMaxWords() {
+		return maxWords;
+	}
+
+	public long getMinFrequency() {
+		return minFrequency;
+	}
+
+	public boolean acceptsFrequency(long frequency) {
+		return frequency >= minFrequency;
+	}
+
+	/**
+	 * Returns whether the phrase {@code bytes[from, to)} has at most {@link #getMaxWords()} words.
+	 *
+	 * @param bytes
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public boolean acceptsWords(byte[] bytes, int from, int to) {
+		if (maxWords == NONE.maxWords || to - from <= maxWords)
+			// a phrase of n bytes can have at most n words
+			return true;
+		return SCANNER.count(bytes, from, to, (byte) ' ') < maxWords;
+	}
+
+	/**
+	 * Returns whether the phrase {@code chars[from, to)} has at most {@link #getMaxWords()} words.
+	 *
+	 * @param chars
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public boolean acceptsWords(char[] chars, int from, int to) {
+		if (maxWords == NONE.maxWords || to - from <= maxWords)
+			return true;
+		int spaces = 0;
+		for (int i = from; i < to; i++) {
+			if (chars[i] == ' ' && ++spaces >= maxWords)
+				return false;
+		}
+		return spaces < maxWords;
+	}
+
+	/**
+	 * Returns whether the phrase {@code chars[from, to)} has at most {@link #getMaxWords()} words.
+	 *
+	 * @param chars
+	 * @param from
+	 * @param to
+	 * @return
+	 */
+	public boolean acceptsWords(CharSequence chars, int from, int to) {
+		if (maxWords == NONE.maxWords || to - from <= maxWords)
+			return true;
+		int spaces = 0;
+		for (int i = from; i < to; i++) {
+			if (chars.charAt(i) == ' ' && ++spaces >= maxWords)
+				return false;
+		}
+		return spaces < maxWords;
+	}
+
+	@Override
+	public String toString() {
+		if (isNone())
+			return "none";
+		StringBuilder sb = new StringBuilder();
+		if (maxWords != NONE.maxWords)
+			sb.append("words <= ").append(maxWords);
+		if (minFrequency != NONE.minFrequency) {
+			if (sb.length() > 0)
+				sb.append(", ");
+			sb.append("frequency >= ").append(minFrequency);
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.netspeak.io;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A CSV writer which writes phrases to numbered CSV files in a directory. A new file will be started every given number
+ * of phrases or once the current file reached a given number of bytes.
+ * <p>
+ * The files are named {@code 00000.csv}, {@code 00001.csv}, and so on, so the order of their names is the order in
+ * which the phrases were written. If the phrases are written in sorted order, the concatenation of all files in the
+ * order of their names will be sorted as well.
+ * <p>
+ * This writer is thread-safe. If multiple threads write at the same time, the order of their phrases is undefined.
+ *
+ * @see SplitterCsvWriter
+ */
+public class RollingCsvWriter implements Utf8PhraseWriter {
+
+	private final Path destDir;
+	private final long phrasesPerFile;
+	private final long bytesPerFile;
+	private Utf8CsvWriter writer = null;
+	private CountingOutputStream out = null;
+	private int files = 0;
+	private long phrases = 0;
+
+	public RollingCsvWriter(Path destDir, long phrasesPerFile) {
+		this(destDir, phrasesPerFile, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new writer.
+	 *
+	 * @param destDir
+	 * @param phrasesPerFile The maximum number of phrases per file.
+	 * @param bytesPerFile The number of bytes after which a new file will be started. Files will be slightly larger
+	 *                     than this because phrases are never split.
+	 */
+	public RollingCsvWriter(Path destDir, long phrasesPerFile, long bytesPerFile) {
+		if (phrasesPerFile < 1) {
+			throw new IllegalArgumentException("Each file has to contain at least one phrase.");
+		}
+		if (bytesPerFile < 1) {
+			throw new IllegalArgumentException("Each file has to contain at least one byte.");
+		}
+		this.destDir = destDir;
+		this.phrasesPerFile = phrasesPerFile;
+		this.bytesPerFile = bytesPerFile;
+	}
+
+	@Override
+	public synchronized void write(String phrase, long frequency) throws IOException {
+		next().write(phrase, frequency);
+	}
+
+	@Override
+	public synchronized void write(Utf8Phrase phrase, long frequency) throws IOException {
+		next().write(phrase, frequency);
+	}
+
+	private Utf8CsvWriter next() throws IOException {
+		if (writer == null || phrases == phrasesPerFile || out.count >= bytesPerFile) {
+			if (writer != null) {
+				writer.close();
+			}
+			Path path = destDir.resolve(String.format("%05d.csv", files++));
+			out = new CountingOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(path, CREATE_NEW), 1024 * 256));
+			writer = new Utf8CsvWriter(out);
+			phrases = 0;
+		}
+		phrases++;
+		return writer;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+			writer = null;
+		}
+	}
+
+}
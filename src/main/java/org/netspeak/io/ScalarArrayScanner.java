@@ -0,0 +1,85 @@
+package org.netspeak.io;
+
+/**
+ * The plain Java implementation of {@link ArrayScanner}.
+ * <p>
+ * This is used on Java 8 and whenever no faster implementation is available.
+ */
+public final class ScalarArrayScanner implements ArrayScanner {
+
+	@Override
+	public int indexOf(byte[] a, int from, int to, byte value) {
+		for (int i = from; i < to; i++) {
+			if (a[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int indexOf(char[] a, int from, int to, char value) {
+		for (int i = from; i < to; i++) {
+			if (a[i] == value)
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int indexOfLineTerminator(byte[] a, int from, int to) {
+		for (int i = from; i < to; i++) {
+			final byte b = a[i];
+			if (b == '\n' || b == '\r')
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int indexOfLineTerminator(char[] a, int from, int to) {
+		for (int i = from; i < to; i++) {
+			final char c = a[i];
+			if (c == '\n' || c == '\r')
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int count(byte[] a, int from, int to, byte value) {
+		int count = 0;
+		for (int i = from; i < to; i++) {
+			if (a[i] == value)
+				count++;
+		}
+		return count;
+	}
+
+	@Override
+	public int indexOfUnsignedAtLeast(byte[] a, int from, int to, int unsignedMin) {
+		for (int i = from; i < to; i++) {
+			if ((a[i] & 0xFF) >= unsignedMin)
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public int indexOfControlCharacter(byte[] a, int from, int to) {
+		for (int i = from; i < to; i++) {
+			final int b = a[i] & 0xFF;
+			if (b < ' ' || b == 0x7F) // \x00 - \x1F, DEL
+				return i;
+			// \x80 - \x9F are encoded as C2 80 - C2 9F
+			if (b == 0xC2 && i + 1 < to && (a[i + 1] & 0xFF) <= 0x9F)
+				return i;
+		}
+		return -1;
+	}
+
+	@Override
+	public String toString() {
+		return "scalar";
+	}
+
+}
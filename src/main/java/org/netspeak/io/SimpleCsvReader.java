@@ -1,5 +1,7 @@
 package org.netspeak.io;
 
+import static java.util.Objects.requireNonNull;
+
 import java.io.BufferedReader;
 import java.io.IOException;
 
@@ -23,16 +25,30 @@ import java.io.IOException;
 public class SimpleCsvReader implements PhraseReader {
 
 	private final BufferedReader reader;
+	private String phrase;
+	private long frequency;
+	private ReaderFilter filter = ReaderFilter.NONE;
 
 	public SimpleCsvReader(BufferedReader reader) {
 		this.reader = reader;
 	}
 
+	/**
+	 * Sets a filter for the phrases of this reader.
+	 * <p>
+	 * Rejected phrases will be skipped without creating a phrase string.
+	 */
+	@Override
+	public void setFilter(ReaderFilter filter) {
+		this.filter = requireNonNull(filter);
+	}
+
 	@Override
-	public PhraseFrequencyPair nextPair() throws IOException {
-		String line = reader.readLine();
+	public boolean advance() throws IOException {
+		phrase = null;
+		String line;
 
-		if (line != null) {
+		while ((line = reader.readLine()) != null) {
 			// For better performance, we avoid String#split. Instead we know that a line
 			// only contains one \t, so we search for that index. To validate the format, we
 			// also search for a second \t. This is equivalent to:
@@ -44,13 +60,32 @@ public class SimpleCsvReader implements PhraseReader {
 			// The first tab has to exist and it cannot be 0 because the phrase cannot be
 			// the empty string. The second tab has to not exist.
 			if (firstTab > 0 && secondTab == -1) {
-				String phrase = line.substring(0, firstTab);
 				long frequency = Long.parseLong(line.substring(firstTab + 1));
-				return new PhraseFrequencyPair(phrase, frequency);
+				if (frequency <= 0) {
+					throw new IllegalArgumentException();
+				}
+				if (!filter.acceptsFrequency(frequency) || !filter.acceptsWords(line, 0, firstTab)) {
+					continue;
+				}
+				this.phrase = line.substring(0, firstTab);
+				this.frequency = frequency;
+				return true;
 			}
+
+			return false;
 		}
 
-		return null;
+		return false;
+	}
+
+	@Override
+	public String phrase() {
+		return phrase;
+	}
+
+	@Override
+	public long frequency() {
+		return frequency;
 	}
 
 	@Override
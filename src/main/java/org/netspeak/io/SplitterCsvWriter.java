@@ -1,44 +1,188 @@
 package org.netspeak.io;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.CREATE_NEW;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.CharsetEncoder;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * This CSV writer will create a given number of CSV files which will be used as
  * buckets where phrases will be assigned a bucket according to their hash.
  * These bags can then be used for further processing.
  * <p>
- * The {@link #write(String, long)} and {@link #write(PhraseFrequencyPair)}
- * methods are thread-safe.
+ * Phrases are hashed with {@link Utf8Phrase#hash64(long)}. The number of bytes
+ * written to each bucket is tracked (see {@link #getBucketSizes()}), so buckets
+ * which turned out too large can be split again with a different seed.
+ * <p>
+ * Alternatively, phrases can be assigned buckets by ranges of phrases or
+ * frequencies (see {@link #byPhraseRanges(Path, Utf8Phrase[])} and
+ * {@link #byFrequencyRanges(Path, PhraseFrequencyPair[])}).
+ * <p>
+ * The {@link #write(String, long)}, {@link #write(Utf8Phrase, long)}, and
+ * {@link #write(PhraseFrequencyPair)} methods are thread-safe. Strings and UTF-8
+ * phrases with the same content will be assigned the same bucket.
  *
  * @author Michael
  *
  */
-public class SplitterCsvWriter implements PhraseWriter {
+public class SplitterCsvWriter implements Utf8PhraseWriter {
 
-	private final SimpleCsvWriter[] writers;
+	/**
+	 * The total size of the output buffers of all buckets.
+	 */
+	private static final int TOTAL_BUFFER_SIZE = 256 << 20;
+	private static final int MIN_BUFFER_SIZE = 16 << 10;
+	private static final int MAX_BUFFER_SIZE = 256 << 10;
+
+	private final Utf8CsvWriter[] writers;
+	private final CountingOutputStream[] counters;
 	private final Path destDir;
+	private final String namePrefix;
+	private final long seed;
+	private final Partitioner partitioner;
 	private boolean initialized = false;
 
 	public SplitterCsvWriter(Path destDir, int bucketCount) {
-		this.writers = new SimpleCsvWriter[bucketCount];
+		this(destDir, "", bucketCount, 0);
+	}
+
+	/**
+	 * Creates a new writer which assigns phrases to buckets by their hash with the
+	 * given seed.
+	 * <p>
+	 * The buckets will be named {@code <namePrefix><i>.csv}.
+	 *
+	 * @param destDir
+	 * @param namePrefix
+	 * @param bucketCount
+	 * @param seed
+	 */
+	public SplitterCsvWriter(Path destDir, String namePrefix, int bucketCount, long seed) {
+		this(destDir, namePrefix, bucketCount, seed, null);
+	}
+
+	private SplitterCsvWriter(Path destDir, String namePrefix, int bucketCount, long seed,
+			Partitioner partitioner) {
+		this.writers = new Utf8CsvWriter[bucketCount];
+		this.counters = new CountingOutputStream[bucketCount];
 		this.destDir = destDir;
+		this.namePrefix = namePrefix;
+		this.seed = seed;
+		this.partitioner = partitioner;
+	}
+
+	/**
+	 * Returns a new writer which assigns phrases to buckets by range.
+	 * <p>
+	 * There will be one more bucket than split points. Bucket {@code i} contains
+	 * all phrases which are greater than or equal to split point {@code i - 1} and
+	 * less than split point {@code i} (see {@link Utf8Phrase#compareTo(Utf8Phrase)}).
+	 * The concatenation of all buckets in the order of their numbers will then be
+	 * sorted if each bucket is sorted.
+	 *
+	 * @param destDir
+	 * @param splitPoints The sorted split points.
+	 * @return
+	 */
+	public static SplitterCsvWriter byPhraseRanges(Path destDir, Utf8Phrase[] splitPoints) {
+		return new SplitterCsvWriter(destDir, "", splitPoints.length + 1, 0, new Partitioner() {
+			@Override
+			public int getBucket(String phrase, long frequency) {
+				return getBucket(Utf8Phrase.of(phrase), frequency);
+			}
+
+			@Override
+			public int getBucket(Utf8Phrase phrase, long frequency) {
+				int index = Arrays.binarySearch(splitPoints, phrase);
+				return index >= 0 ? index + 1 : -index - 1;
+			}
+		});
+	}
+
+	/**
+	 * Returns a new writer which assigns phrases to buckets by ranges of
+	 * descending frequencies.
+	 * <p>
+	 * Phrases are ordered by descending frequency and then by their UTF-8 bytes.
+	 * There will be one more bucket than split points. Bucket {@code i} contains
+	 * all phrases which are greater than or equal to split point {@code i - 1} and
+	 * less than split point {@code i} in this order. Since the split points
+	 * include phrases, phrases with the same frequency can be assigned different
+	 * buckets.
+	 *
+	 * @param destDir
+	 * @param splitPoints The split points in the above order.
+	 * @return
+	 */
+	public static SplitterCsvWriter byFrequencyRanges(Path destDir, PhraseFrequencyPair[] splitPoints) {
+		long[] frequencies = new long[splitPoints.length];
+		Utf8Phrase[] phrases = new Utf8Phrase[splitPoints.length];
+		for (int i = 0; i < splitPoints.length; i++) {
+			frequencies[i] = splitPoints[i].frequency;
+			phrases[i] = Utf8Phrase.of(splitPoints[i].phrase);
+		}
+
+		return new SplitterCsvWriter(destDir, "", splitPoints.length + 1, 0, new Partitioner() {
+			@Override
+			public int getBucket(String phrase, long frequency) {
+				int from = countGreater(frequencies, frequency);
+				int to = countGreaterOrEqual(frequencies, frequency);
+				// the phrase is only needed to split phrases with the frequency of a split point
+				return from == to ? from : getPhraseBucket(phrases, from, to, Utf8Phrase.of(phrase));
+			}
+
+			@Override
+			public int getBucket(Utf8Phrase phrase, long frequency) {
+				int from = countGreater(frequencies, frequency);
+				int to = countGreaterOrEqual(frequencies, frequency);
+				return from == to ? from : getPhraseBucket(phrases, from, to, phrase);
+			}
+		});
+	}
+
+	/**
+	 * Returns the number of the given descending frequencies which are greater
+	 * than the given frequency.
+	 */
+	private static int countGreater(long[] frequencies, long frequency) {
+		int low = 0;
+		int high = frequencies.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (frequencies[mid] > frequency) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the number of the given descending frequencies which are greater
+	 * than or equal to the given frequency.
+	 */
+	private static int countGreaterOrEqual(long[] frequencies, long frequency) {
+		return frequency == Long.MIN_VALUE ? frequencies.length : countGreater(frequencies, frequency - 1);
+	}
+
+	/**
+	 * Returns the number of split points before the given phrase where all split
+	 * points in the given range have the same frequency as the phrase.
+	 */
+	private static int getPhraseBucket(Utf8Phrase[] phrases, int from, int to, Utf8Phrase phrase) {
+		int index = Arrays.binarySearch(phrases, from, to, phrase);
+		return index >= 0 ? index + 1 : -index - 1;
 	}
 
 	@Override
 	public void close() throws Exception {
 		Exception last = null;
 
-		for (SimpleCsvWriter writer : writers) {
+		for (Utf8CsvWriter writer : writers) {
 			try {
 				if (writer != null)
 					writer.close();
@@ -55,15 +199,71 @@ public class SplitterCsvWriter implements PhraseWriter {
 	public void write(String phrase, long frequency) throws IOException {
 		initializeWriters();
 
-		int index = phrase.hashCode() % writers.length;
-		if (index < 0)
-			index += writers.length;
-		SimpleCsvWriter writer = writers[index];
+		int bucket = partitioner == null ? getBucket(Utf8Phrase.hash64(phrase, seed))
+				: partitioner.getBucket(phrase, frequency);
+		Utf8CsvWriter writer = writers[bucket];
 		synchronized (writer) {
 			writer.write(phrase, frequency);
 		}
 	}
 
+	@Override
+	public void write(Utf8Phrase phrase, long frequency) throws IOException {
+		initializeWriters();
+
+		int bucket = partitioner == null ? getBucket(phrase.hash64(seed)) : partitioner.getBucket(phrase, frequency);
+		Utf8CsvWriter writer = writers[bucket];
+		synchronized (writer) {
+			writer.write(phrase, frequency);
+		}
+	}
+
+	private int getBucket(long hash) {
+		return (int) Long.remainderUnsigned(hash, writers.length);
+	}
+
+	/**
+	 * Returns the number of bytes written to each bucket.
+	 * <p>
+	 * The sizes are only guaranteed to be up to date after all writes are done.
+	 * Buckets which were never written to have a size of {@code 0}.
+	 *
+	 * @return
+	 */
+	public long[] getBucketSizes() {
+		long[] sizes = new long[counters.length];
+		for (int i = 0; i < counters.length; i++) {
+			if (counters[i] != null) {
+				sizes[i] = counters[i].count;
+			}
+		}
+		return sizes;
+	}
+
+	/**
+	 * Returns the path of the given bucket.
+	 *
+	 * @param bucket
+	 * @return
+	 */
+	public Path getBucketPath(int bucket) {
+		return destDir.resolve(namePrefix + bucket + ".csv");
+	}
+
+	/**
+	 * Returns the size of the output buffer of each of the given number of
+	 * buckets.
+	 * <p>
+	 * All buffers are allocated at once, so the buffers get smaller the more
+	 * buckets there are.
+	 *
+	 * @param bucketCount
+	 * @return
+	 */
+	static int getBufferSize(int bucketCount) {
+		return Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, TOTAL_BUFFER_SIZE / Math.max(1, bucketCount)));
+	}
+
 	private final void initializeWriters() throws IOException {
 		if (initialized)
 			return;
@@ -71,15 +271,23 @@ public class SplitterCsvWriter implements PhraseWriter {
 			if (initialized)
 				return;
 
+			int bufferSize = getBufferSize(writers.length);
 			for (int i = 0; i < writers.length; i++) {
-				Path path = Paths.get(destDir.toString(), String.valueOf(i) + ".csv");
-				CharsetEncoder encoder = UTF_8.newEncoder();
-				Writer writer = new OutputStreamWriter(Files.newOutputStream(path, CREATE_NEW), encoder);
-				writers[i] = new SimpleCsvWriter(new BufferedWriter(writer, 1024 * 256));
+				counters[i] = new CountingOutputStream(
+						new BufferedOutputStream(Files.newOutputStream(getBucketPath(i), CREATE_NEW), bufferSize));
+				writers[i] = new Utf8CsvWriter(counters[i]);
 			}
 
 			initialized = true;
 		}
 	}
 
+	private interface Partitioner {
+
+		int getBucket(String phrase, long frequency);
+
+		int getBucket(Utf8Phrase phrase, long frequency);
+
+	}
+
 }
@@ -0,0 +1,96 @@
+package org.netspeak.io;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The word id equivalent of {@link SplitterCsvWriter}.
+ * <p>
+ * Phrases will be encoded using the given dictionary and assigned a bucket according to the 64-bit hash of their word
+ * ids.
+ * The buckets are files in the format of {@link WordIdWriter}.
+ * <p>
+ * The {@link #write(String, long)} and {@link #write(PhraseFrequencyPair)} methods are thread-safe.
+ *
+ * @see SplitterCsvWriter
+ */
+public class SplitterWordIdWriter implements PhraseWriter {
+
+	private final WordIdWriter[] writers;
+	private final Path destDir;
+	private final WordDictionary dictionary;
+	private boolean initialized = false;
+
+	public SplitterWordIdWriter(Path destDir, int bucketCount, WordDictionary dictionary) {
+		this.writers = new WordIdWriter[bucketCount];
+		this.destDir = requireNonNull(destDir);
+		this.dictionary = requireNonNull(dictionary);
+	}
+
+	@Override
+	public void close() throws Exception {
+		Exception last = null;
+
+		for (WordIdWriter writer : writers) {
+			try {
+				if (writer != null)
+					writer.close();
+			} catch (Exception e) {
+				last = e;
+			}
+		}
+
+		if (last != null)
+			throw last;
+	}
+
+	@Override
+	public void write(String phrase, long frequency) throws IOException {
+		initializeWriters();
+
+		int[] ids = dictionary.encode(phrase);
+		int index = (int) Long.remainderUnsigned(hash(ids), writers.length);
+		WordIdWriter writer = writers[index];
+		synchronized (writer) {
+			writer.write(ids, frequency);
+		}
+	}
+
+	private static long hash(int[] ids) {
+		// FNV-1a over all ids followed by the finalizer of MurmurHash3
+		long h = 0xcbf29ce484222325L;
+		for (int id : ids) {
+			h = (h ^ id) * 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private final void initializeWriters() throws IOException {
+		if (initialized)
+			return;
+		synchronized (this) {
+			if (initialized)
+				return;
+
+			int bufferSize = SplitterCsvWriter.getBufferSize(writers.length);
+			for (int i = 0; i < writers.length; i++) {
+				Path path = destDir.resolve(i + ".bin");
+				writers[i] = new WordIdWriter(
+						new BufferedOutputStream(Files.newOutputStream(path, CREATE_NEW), bufferSize), null);
+			}
+
+			initialized = true;
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+package org.netspeak.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * A reader for the same CSV files as {@link SimpleCsvReader} which reads the UTF-8 bytes of phrases without decoding
+ * them.
+ * <p>
+ * This reader behaves exactly like a {@link SimpleCsvReader} reading from a UTF-8 {@link java.io.BufferedReader}.
+ *
+ * @see SimpleCsvReader
+ */
+public class Utf8CsvReader implements Utf8PhraseReader, PhraseReader {
+
+	private static final ArrayScanner SCANNER = ArrayScanners.INSTANCE;
+
+	private final InputStream in;
+	private byte[] buffer = new byte[1024 * 64];
+	private int position = 0;
+	private int limit = 0;
+	private boolean done = false;
+	private boolean skipLineFeed = false;
+	private ReaderFilter filter = ReaderFilter.NONE;
+
+	private Utf8Phrase phrase;
+	private long frequency;
+
+	/**
+	 * Creates a new reader.
+	 * <p>
+	 * The given stream does not need to be buffered.
+	 *
+	 * @param in
+	 */
+	public Utf8CsvReader(InputStream in) {
+		this.in = requireNonNull(in);
+	}
+
+	/**
+	 * Sets a filter for the phrases of this reader.
+	 * <p>
+	 * Rejected phrases will be skipped without copying their bytes.
+	 */
+	@Override
+	public void setFilter(ReaderFilter filter) {
+		this.filter = requireNonNull(filter);
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		phrase = null;
+		if (done)
+			return false;
+
+		while (true) {
+			if (skipLineFeed) {
+				// the last line ended with \r, so a directly following \n belongs to it
+				skipLineFeed = false;
+				if (position == limit)
+					fill();
+				if (position < limit && buffer[position] == '\n')
+					position++;
+			}
+
+			int lineEnd = findLineEnd();
+			if (lineEnd == -1) {
+				done = true;
+				return false;
+			}
+			int lineStart = position;
+			position = lineEnd + 1;
+			skipLineFeed = buffer[lineEnd] == '\r';
+
+			// same as SimpleCsvReader: the first tab has to exist and it cannot be 0 and
+			// there must not be a second tab
+			int firstTab = indexOf((byte) '\t', lineStart, lineEnd);
+			if (firstTab <= lineStart || indexOf((byte) '\t', firstTab + 1, lineEnd) != -1) {
+				done = true;
+				return false;
+			}
+
+			frequency = parseLong(firstTab + 1, lineEnd);
+			if (frequency <= 0) {
+				throw new IllegalArgumentException();
+			}
+			if (!filter.acceptsFrequency(frequency) || !filter.acceptsWords(buffer, lineStart, firstTab)) {
+				continue;
+			}
+			phrase = Utf8Phrase.copyOf(buffer, lineStart, firstTab - lineStart);
+			return true;
+		}
+	}
+
+	@Override
+	public Utf8Phrase getPhrase() {
+		return phrase;
+	}
+
+	@Override
+	public long getFrequency() {
+		return frequency;
+	}
+
+	@Override
+	public boolean advance() throws IOException {
+		return next();
+	}
+
+	@Override
+	public String phrase() {
+		return phrase == null ? null : phrase.toString();
+	}
+
+	@Override
+	public long frequency() {
+		return frequency;
+	}
+
+	/**
+	 * Returns the index of the next line terminator ({@code \n} or {@code \r}) in the buffer.
+	 * <p>
+	 * The line will start at {@link #position} after this operation. If the input ends without a line terminator, a
+	 * terminator will be appended. Returns {@code -1} if there are no more lines.
+	 */
+	private int findLineEnd() throws IOException {
+		int searchFrom = position;
+		while (true) {
+			int lineEnd = SCANNER.indexOfLineTerminator(buffer, searchFrom, limit);
+			if (lineEnd != -1)
+				return lineEnd;
+
+			int lineLength = limit - position;
+			if (!fill()) {
+				if (lineLength == 0)
+					return -1;
+				// the last line does not end with a line terminator
+				if (limit == buffer.length) {
+					compact();
+				}
+				buffer[limit] = '\n';
+				return limit++;
+			}
+			searchFrom = position + lineLength;
+		}
+	}
+
+	/**
+	 * Reads more bytes into the buffer while keeping all bytes from {@link #position} on.
+	 * <p>
+	 * Returns {@code false} if the end of the stream has been reached.
+	 */
+	private boolean fill() throws IOException {
+		compact();
+		int read;
+		do {
+			read = in.read(buffer, limit, buffer.length - limit);
+		} while (read == 0);
+		if (read == -1)
+			return false;
+		limit += read;
+		return true;
+	}
+
+	private void compact() {
+		int length = limit - position;
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, length);
+			position = 0;
+			limit = length;
+		}
+		if (limit == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+	}
+
+	private int indexOf(byte b, int from, int to) {
+		return SCANNER.indexOf(buffer, from, to, b);
+	}
+
+	private long parseLong(int from, int to) {
+		long value = 0;
+		if (from == to || to - from > 18) {
+			return Long.parseLong(new String(buffer, from, to - from, UTF_8));
+		}
+		for (int i = from; i < to; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				// let Long#parseLong handle signs and errors
+				return Long.parseLong(new String(buffer, from, to - from, UTF_8));
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
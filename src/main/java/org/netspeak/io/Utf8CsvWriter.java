@@ -0,0 +1,64 @@
+package org.netspeak.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A writer for the same CSV files as {@link SimpleCsvWriter} which directly writes to an output stream.
+ * <p>
+ * {@link Utf8Phrase}s will be written without being converted to strings.
+ *
+ * @see SimpleCsvWriter
+ */
+public class Utf8CsvWriter implements Utf8PhraseWriter {
+
+	private final OutputStream out;
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * Creates a new writer.
+	 * <p>
+	 * The given output stream should be buffered.
+	 *
+	 * @param out
+	 */
+	public Utf8CsvWriter(OutputStream out) {
+		this.out = requireNonNull(out);
+	}
+
+	@Override
+	public void write(String phrase, long frequency) throws IOException {
+		out.write(phrase.getBytes(UTF_8));
+		writeFrequency(frequency);
+	}
+
+	@Override
+	public void write(Utf8Phrase phrase, long frequency) throws IOException {
+		phrase.writeTo(out);
+		writeFrequency(frequency);
+	}
+
+	private void writeFrequency(long frequency) throws IOException {
+		out.write('\t');
+		if (frequency < 0) {
+			out.write(Long.toString(frequency).getBytes(UTF_8));
+		} else {
+			int i = digits.length;
+			do {
+				digits[--i] = (byte) ('0' + frequency % 10);
+				frequency /= 10;
+			} while (frequency != 0);
+			out.write(digits, i, digits.length - i);
+		}
+		out.write('\n');
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+}
@@ -0,0 +1,303 @@
+package org.netspeak.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * An immutable phrase stored as UTF-8 bytes.
+ * <p>
+ * Most phrases of our corpora are pure ASCII. For those phrases, this class behaves exactly like a {@link String}
+ * without ever decoding the bytes. Non-ASCII phrases will be decoded lazily if a char-based method is used.
+ * <p>
+ * The {@link #hashCode()} of a phrase is the same as the hash code of its {@link #toString()} representation. This
+ * means that phrases can be assigned to the same hash bucket no matter whether they are represented as strings or
+ * UTF-8 phrases. The same is true for {@link #hash64(long)}.
+ */
+public final class Utf8Phrase implements CharSequence, Comparable<Utf8Phrase> {
+
+	/**
+	 * The empty phrase.
+	 */
+	public static final Utf8Phrase EMPTY = new Utf8Phrase(new byte[0]);
+
+	// FNV-1a
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final byte[] bytes;
+	private final boolean ascii;
+	private String string;
+	private int hash;
+
+	/**
+	 * Creates a new phrase from the given UTF-8 bytes.
+	 * <p>
+	 * The given array will not be copied and must not be modified afterwards. The bytes have to be valid UTF-8.
+	 *
+	 * @param bytes
+	 */
+	public Utf8Phrase(byte[] bytes) {
+		this.bytes = requireNonNull(bytes);
+		this.ascii = isAscii(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Returns a new phrase with the UTF-8 encoding of the given string.
+	 *
+	 * @param phrase
+	 * @return
+	 */
+	public static Utf8Phrase of(String phrase) {
+		Utf8Phrase result = new Utf8Phrase(phrase.getBytes(UTF_8));
+		result.string = phrase;
+		return result;
+	}
+
+	/**
+	 * Returns a new phrase from the given range of bytes.
+	 * <p>
+	 * Malformed UTF-8 sequences will be replaced the same way an {@link java.io.InputStreamReader} would replace them.
+	 *
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public static Utf8Phrase copyOf(byte[] bytes, int offset, int length) {
+		if (isAscii(bytes, offset, length) || isValidUtf8(bytes, offset, length)) {
+			return new Utf8Phrase(Arrays.copyOfRange(bytes, offset, offset + length));
+		} else {
+			return of(new String(bytes, offset, length, UTF_8));
+		}
+	}
+
+	/**
+	 * Returns the UTF-8 bytes of this phrase.
+	 * <p>
+	 * The returned array must not be modified.
+	 *
+	 * @return
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Returns whether this phrase only contains ASCII characters.
+	 *
+	 * @return
+	 */
+	public boolean isAscii() {
+		return ascii;
+	}
+
+	public boolean isEmpty() {
+		return bytes.length == 0;
+	}
+
+	/**
+	 * Writes the UTF-8 bytes of this phrase to the given output stream.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		out.write(bytes);
+	}
+
+	@Override
+	public int length() {
+		return ascii ? bytes.length : toString().length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (ascii) {
+			if (index < 0 || index >= bytes.length)
+				throw new StringIndexOutOfBoundsException(index);
+			return (char) bytes[index];
+		}
+		return toString().charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (ascii) {
+			if (start < 0 || end > bytes.length || start > end)
+				throw new StringIndexOutOfBoundsException("begin " + start + ", end " + end);
+			return new Utf8Phrase(Arrays.copyOfRange(bytes, start, end));
+		}
+		return toString().subSequence(start, end);
+	}
+
+	@Override
+	public String toString() {
+		String s = string;
+		if (s == null) {
+			string = s = new String(bytes, UTF_8);
+		}
+		return s;
+	}
+
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0 && bytes.length > 0) {
+			if (ascii) {
+				for (byte b : bytes) {
+					h = 31 * h + b;
+				}
+			} else {
+				h = toString().hashCode();
+			}
+			hash = h;
+		}
+		return h;
+	}
+
+	/**
+	 * Returns a 64-bit hash of the UTF-8 bytes of this phrase.
+	 * <p>
+	 * Unlike {@link #hashCode()}, all bits of this hash are well distributed, even for short phrases with common
+	 * prefixes. The hash is the same as the {@link #hash64(CharSequence, long) hash of the string} of this phrase.
+	 * Different seeds result in unrelated hashes.
+	 *
+	 * @param seed
+	 * @return
+	 */
+	public long hash64(long seed) {
+		long h = FNV_OFFSET ^ mix(seed);
+		for (byte b : bytes) {
+			h = (h ^ (b & 0xFF)) * FNV_PRIME;
+		}
+		return mix(h);
+	}
+
+	/**
+	 * Returns the same hash as {@link #hash64(long)} for the given characters without encoding them.
+	 * <p>
+	 * Unpaired surrogates are hashed as {@code '?'} the same way {@link String#getBytes(java.nio.charset.Charset)}
+	 * encodes them.
+	 *
+	 * @param phrase
+	 * @param seed
+	 * @return
+	 */
+	public static long hash64(CharSequence phrase, long seed) {
+		long h = FNV_OFFSET ^ mix(seed);
+		final int length = phrase.length();
+		for (int i = 0; i < length; i++) {
+			char c = phrase.charAt(i);
+			if (c < 0x80) {
+				h = (h ^ c) * FNV_PRIME;
+			} else if (c < 0x800) {
+				h = (h ^ (0xC0 | (c >> 6))) * FNV_PRIME;
+				h = (h ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+			} else if (Character.isSurrogate(c)) {
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(phrase.charAt(i + 1))) {
+					int cp = Character.toCodePoint(c, phrase.charAt(++i));
+					h = (h ^ (0xF0 | (cp >> 18))) * FNV_PRIME;
+					h = (h ^ (0x80 | ((cp >> 12) & 0x3F))) * FNV_PRIME;
+					h = (h ^ (0x80 | ((cp >> 6) & 0x3F))) * FNV_PRIME;
+					h = (h ^ (0x80 | (cp & 0x3F))) * FNV_PRIME;
+				} else {
+					h = (h ^ '?') * FNV_PRIME;
+				}
+			} else {
+				h = (h ^ (0xE0 | (c >> 12))) * FNV_PRIME;
+				h = (h ^ (0x80 | ((c >> 6) & 0x3F))) * FNV_PRIME;
+				h = (h ^ (0x80 | (c & 0x3F))) * FNV_PRIME;
+			}
+		}
+		return mix(h);
+	}
+
+	/**
+	 * The finalizer of MurmurHash3.
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof Utf8Phrase) {
+			return Arrays.equals(bytes, ((Utf8Phrase) obj).bytes);
+		}
+		return false;
+	}
+
+	/**
+	 * Compares the UTF-8 bytes of the two phrases lexicographically.
+	 * <p>
+	 * This is equivalent to comparing the code points of the two phrases.
+	 */
+	@Override
+	public int compareTo(Utf8Phrase other) {
+		final byte[] a = this.bytes;
+		final byte[] b = other.bytes;
+		final int l = Math.min(a.length, b.length);
+		for (int i = 0; i < l; i++) {
+			if (a[i] != b[i])
+				return (a[i] & 0xFF) - (b[i] & 0xFF);
+		}
+		return a.length - b.length;
+	}
+
+	private static boolean isAscii(byte[] bytes, int offset, int length) {
+		return ArrayScanners.INSTANCE.indexOfUnsignedAtLeast(bytes, offset, offset + length, 0x80) == -1;
+	}
+
+	/**
+	 * Returns whether the given range of bytes is well-formed UTF-8.
+	 * <p>
+	 * Overlong encodings, surrogates, and code points above U+10FFFF are all malformed.
+	 */
+	private static boolean isValidUtf8(byte[] bytes, int offset, int length) {
+		final int end = offset + length;
+		int i = offset;
+		while (i < end) {
+			int b = bytes[i++] & 0xFF;
+			if (b < 0x80)
+				continue;
+
+			int following;
+			int min;
+			if (b >= 0xC2 && b <= 0xDF) {
+				following = 1;
+				min = 0x80;
+			} else if (b >= 0xE0 && b <= 0xEF) {
+				following = 2;
+				min = 0x800;
+			} else if (b >= 0xF0 && b <= 0xF4) {
+				following = 3;
+				min = 0x10000;
+			} else {
+				return false;
+			}
+			if (i + following > end)
+				return false;
+
+			int cp = b & (0x3F >> following);
+			for (int j = 0; j < following; j++) {
+				int c = bytes[i++] & 0xFF;
+				if ((c & 0xC0) != 0x80)
+					return false;
+				cp = (cp << 6) | (c & 0x3F);
+			}
+			if (cp < min || cp > 0x10FFFF || (cp >= 0xD800 && cp <= 0xDFFF))
+				return false;
+		}
+		return true;
+	}
+
+}
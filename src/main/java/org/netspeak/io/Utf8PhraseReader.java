@@ -0,0 +1,44 @@
+package org.netspeak.io;
+
+/**
+ * A reader which returns one UTF-8 phrase and its frequency at a time.
+ *
+ * @see Utf8CsvReader
+ */
+public interface Utf8PhraseReader extends AutoCloseable {
+
+	/**
+	 * Reads the next phrase-frequency-pair.
+	 * <p>
+	 * Returns {@code false} if no other pairs will be returned.
+	 *
+	 * @return
+	 * @throws Exception
+	 */
+	boolean next() throws Exception;
+
+	/**
+	 * Returns the phrase of the current pair.
+	 *
+	 * @return
+	 */
+	Utf8Phrase getPhrase();
+
+	/**
+	 * Returns the frequency of the current pair.
+	 *
+	 * @return
+	 */
+	long getFrequency();
+
+	/**
+	 * Sets a filter for the phrases of this reader.
+	 * <p>
+	 * This works the same way as {@link PhraseReader#setFilter(ReaderFilter)}. By default, the filter is ignored.
+	 *
+	 * @param filter
+	 */
+	default void setFilter(ReaderFilter filter) {
+	}
+
+}
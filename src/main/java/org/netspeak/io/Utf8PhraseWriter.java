@@ -0,0 +1,17 @@
+package org.netspeak.io;
+
+/**
+ * A {@link PhraseWriter} which can also write UTF-8 phrases without converting them to strings first.
+ */
+public interface Utf8PhraseWriter extends PhraseWriter {
+
+	/**
+	 * Writes the given phrase and frequency.
+	 *
+	 * @param phrase
+	 * @param frequency
+	 * @throws Exception
+	 */
+	void write(Utf8Phrase phrase, long frequency) throws Exception;
+
+}
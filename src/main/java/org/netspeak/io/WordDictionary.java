@@ -0,0 +1,177 @@
+package org.netspeak.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A thread-safe dictionary which assigns every word a unique, dense, and non-negative integer id.
+ * <p>
+ * Ids are assigned in order of first appearance starting at {@code 0}. Once assigned, the id of a word will never
+ * change.
+ *
+ * @see WordIdWriter
+ * @see WordIdReader
+ */
+public class WordDictionary {
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	private volatile String[] words = new String[1024];
+	private int size = 0;
+
+	/**
+	 * Returns the id of the given word.
+	 * <p>
+	 * If the word does not have an id yet, a new one will be assigned.
+	 *
+	 * @param word
+	 * @return
+	 */
+	public int getId(String word) {
+		Integer id = ids.get(word);
+		if (id != null)
+			return id;
+
+		synchronized (this) {
+			id = ids.get(word);
+			if (id != null)
+				return id;
+
+			int newId = size;
+			String[] w = words;
+			if (newId == w.length) {
+				words = w = Arrays.copyOf(w, w.length * 2);
+			}
+			w[newId] = requireNonNull(word);
+			size++;
+			// the word has to be in the array before the id gets published
+			ids.put(word, newId);
+			return newId;
+		}
+	}
+
+	/**
+	 * Returns the word with the given id.
+	 *
+	 * @param id
+	 * @return
+	 * @throws IndexOutOfBoundsException if no word has the given id.
+	 */
+	public String getWord(int id) {
+		String word = id >= 0 && id < words.length ? words[id] : null;
+		if (word == null)
+			throw new IndexOutOfBoundsException("Unknown word id " + id);
+		return word;
+	}
+
+	/**
+	 * Returns the number of words in this dictionary.
+	 *
+	 * @return
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the ids of the words of the given phrase.
+	 *
+	 * @param phrase
+	 * @return
+	 */
+	public int[] encode(String phrase) {
+		int words = 1;
+		final int l = phrase.length();
+		for (int i = 0; i < l; i++) {
+			if (phrase.charAt(i) == ' ')
+				words++;
+		}
+
+		int[] ids = new int[words];
+		int start = 0;
+		for (int i = 0; i < ids.length; i++) {
+			int end = phrase.indexOf(' ', start);
+			if (end == -1)
+				end = l;
+			ids[i] = getId(phrase.substring(start, end));
+			start = end + 1;
+		}
+		return ids;
+	}
+
+	/**
+	 * Returns the phrase of the given word ids.
+	 *
+	 * @param ids
+	 * @return
+	 */
+	public String decode(int[] ids) {
+		if (ids.length == 1)
+			return getWord(ids[0]);
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append(getWord(ids[0]));
+		for (int i = 1; i < ids.length; i++) {
+			sb.append(' ').append(getWord(ids[i]));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Assigns ids to all phrases returned by the given reader in the order they are returned.
+	 * <p>
+	 * This can be used to create a dictionary from an existing vocabulary file, e.g. the {@code 1gms/vocab_cs} file
+	 * of the Google Web corpus.
+	 *
+	 * @param reader
+	 * @throws Exception
+	 */
+	public void seed(PhraseReader reader) throws Exception {
+		while (reader.advance()) {
+			getId(reader.phrase());
+		}
+	}
+
+	/**
+	 * Writes all words of this dictionary to the given file.
+	 * <p>
+	 * The file will contain one word per line with the line number (starting at 0) being the id of the word.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public synchronized void write(Path file) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, UTF_8)) {
+			final String[] w = words;
+			for (int i = 0; i < size; i++) {
+				writer.append(w[i]).append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Reads a dictionary written by {@link #write(Path)}.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static WordDictionary read(Path file) throws IOException {
+		final WordDictionary dictionary = new WordDictionary();
+		try (BufferedReader reader = Files.newBufferedReader(file, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				dictionary.getId(line);
+			}
+		}
+		return dictionary;
+	}
+
+}
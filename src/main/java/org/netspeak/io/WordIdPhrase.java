@@ -0,0 +1,54 @@
+package org.netspeak.io;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+
+/**
+ * An immutable phrase represented by the ids its words have in some {@link WordDictionary}.
+ * <p>
+ * This class is intended to be used as a key in hash-based collections.
+ */
+public final class WordIdPhrase {
+
+	private final int[] ids;
+	private final int hash;
+
+	/**
+	 * Creates a new phrase from the given word ids.
+	 * <p>
+	 * The given array will not be copied and must not be modified afterwards.
+	 *
+	 * @param ids
+	 */
+	public WordIdPhrase(int[] ids) {
+		this.ids = requireNonNull(ids);
+		this.hash = Arrays.hashCode(ids);
+	}
+
+	/**
+	 * Returns the word ids of this phrase.
+	 * <p>
+	 * The returned array must not be modified.
+	 *
+	 * @return
+	 */
+	public int[] getIds() {
+		return ids;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof WordIdPhrase) {
+			WordIdPhrase other = (WordIdPhrase) obj;
+			return this.hash == other.hash && Arrays.equals(this.ids, other.ids);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+}
@@ -0,0 +1,118 @@
+package org.netspeak.io;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A reader for the binary phrase files written by {@link WordIdWriter}.
+ *
+ * @see WordIdWriter
+ */
+public class WordIdReader implements PhraseReader {
+
+	private final InputStream in;
+	private final WordDictionary dictionary;
+
+	private int[] ids;
+	private long frequency;
+
+	/**
+	 * Creates a new reader.
+	 * <p>
+	 * The given input stream should be buffered.
+	 *
+	 * @param in
+	 * @param dictionary The dictionary used by {@link #phrase()}. This may be {@code null} if only
+	 *                   {@link #next()} is used.
+	 */
+	public WordIdReader(InputStream in, WordDictionary dictionary) {
+		this.in = requireNonNull(in);
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Reads the next record.
+	 * <p>
+	 * Returns {@code false} if the end of the file has been reached.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public boolean next() throws IOException {
+		int first = in.read();
+		if (first == -1) {
+			ids = null;
+			return false;
+		}
+
+		int length = (int) readVarLong(first);
+		int[] ids = new int[length];
+		for (int i = 0; i < length; i++) {
+			ids[i] = (int) readVarLong(in.read());
+		}
+		this.ids = ids;
+		this.frequency = readVarLong(in.read());
+		return true;
+	}
+
+	/**
+	 * Returns the word ids of the current record.
+	 *
+	 * @return
+	 */
+	public int[] getIds() {
+		return ids;
+	}
+
+	/**
+	 * Returns the frequency of the current record.
+	 *
+	 * @return
+	 */
+	public long getFrequency() {
+		return frequency;
+	}
+
+	private long readVarLong(int b) throws IOException {
+		long value = 0;
+		int shift = 0;
+		while (true) {
+			if (b == -1)
+				throw new EOFException();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+			shift += 7;
+			b = in.read();
+		}
+	}
+
+	@Override
+	public boolean advance() throws IOException {
+		return next();
+	}
+
+	/**
+	 * Returns the decoded phrase of the current record.
+	 * <p>
+	 * This requires a dictionary.
+	 */
+	@Override
+	public String phrase() {
+		return ids == null ? null : dictionary.decode(ids);
+	}
+
+	@Override
+	public long frequency() {
+		return frequency;
+	}
+
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+
+}
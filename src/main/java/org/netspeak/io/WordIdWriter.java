@@ -0,0 +1,64 @@
+package org.netspeak.io;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A writer for binary phrase files where every phrase is stored as the ids of its words.
+ * <p>
+ * Every record consists of the number of words followed by the word ids followed by the frequency. All numbers are
+ * encoded as unsigned variable-length integers (7 bits per byte, least significant group first, the most significant
+ * bit of a byte indicates that another byte follows).
+ * <p>
+ * The word ids are relative to a {@link WordDictionary} which has to be stored separately.
+ *
+ * @see WordIdReader
+ */
+public class WordIdWriter implements PhraseWriter {
+
+	private final OutputStream out;
+	private final WordDictionary dictionary;
+
+	/**
+	 * Creates a new writer.
+	 * <p>
+	 * The given output stream should be buffered.
+	 *
+	 * @param out
+	 * @param dictionary The dictionary used by {@link #write(String, long)}. This may be {@code null} if only
+	 *                   {@link #write(int[], long)} is used.
+	 */
+	public WordIdWriter(OutputStream out, WordDictionary dictionary) {
+		this.out = requireNonNull(out);
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public void write(String phrase, long frequency) throws IOException {
+		write(dictionary.encode(phrase), frequency);
+	}
+
+	public void write(int[] ids, long frequency) throws IOException {
+		writeVarLong(out, ids.length);
+		for (int id : ids) {
+			writeVarLong(out, id);
+		}
+		writeVarLong(out, frequency);
+	}
+
+	private static void writeVarLong(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	@Override
+	public void close() throws IOException {
+		out.close();
+	}
+
+}
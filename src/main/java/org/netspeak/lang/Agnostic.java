@@ -32,7 +32,7 @@ public class Agnostic implements Processor, SingleMapProcessor {
 			mappers.add(PhraseMappers.maxNGram(config.maxNGram));
 		}
 		if (config.lowercase) {
-			mappers.add(PhraseMappers.toLowerCase());
+			mappers.add(PhraseMappers.toLowerCase(config.getLowercaseLocale()));
 		}
 		return mappers;
 	}
@@ -4,10 +4,14 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 
 import org.netspeak.Util;
+import org.netspeak.io.WordDictionary;
 import org.netspeak.preprocessing.PhraseSource;
 import org.netspeak.preprocessing.PreprocessingOptions;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputFormat;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
 
 public final class Config extends MapperConfig {
 
@@ -17,6 +21,48 @@ public final class Config extends MapperConfig {
 	public Path temp;
 	public int parallelDegree = 1;
 	public boolean mergeDuplicates = true;
+	/**
+	 * @see PreprocessingOptions#setSortedInput(boolean)
+	 */
+	public boolean sortedInput = false;
+	/**
+	 * @see PreprocessingOptions#setVerbose(boolean)
+	 */
+	public boolean verbose = false;
+	/**
+	 * @see PreprocessingOptions#setSlowPhraseThreshold(Duration)
+	 */
+	public Duration slowPhraseThreshold = null;
+	/**
+	 * Whether phrases will be merged as word ids.
+	 *
+	 * @see PreprocessingOptions#setWordDictionary(WordDictionary)
+	 */
+	public boolean wordIds = false;
+	public OutputFormat outputFormat = OutputFormat.CSV;
+	/**
+	 * @see PreprocessingOptions#setOutputOrder(OutputOrder)
+	 */
+	public OutputOrder outputOrder = OutputOrder.NONE;
+	/**
+	 * @see PreprocessingOptions#setBucketSize(long)
+	 */
+	public long bucketSize = 0;
+	/**
+	 * @see PreprocessingOptions#setOutputShardSize(long)
+	 */
+	public long outputShardSize = 0;
+	/**
+	 * The false positive rate of the Bloom filter in front of the on-disk vocabulary used by language-specific steps
+	 * which need the whole vocabulary of the data set.
+	 * <p>
+	 * If {@code null}, the vocabulary will be kept in memory.
+	 *
+	 * @see org.netspeak.preprocessing.items.GermanHyphenationJoiner#setDiskVocabulary(Path, double)
+	 */
+	public Double vocabularyFalsePositiveRate = null;
+
+	private WordDictionary wordDictionary;
 
 	public Config(PhraseSource source, Path output) {
 		this.source = requireNonNull(source);
@@ -37,6 +83,20 @@ public final class Config extends MapperConfig {
 		final PreprocessingOptions options = new PreprocessingOptions();
 		options.setParallelDegree(parallelDegree);
 		options.setMergeDuplicates(mergeDuplicates);
+		options.setSortedInput(sortedInput);
+		options.setVerbose(verbose);
+		options.setSlowPhraseThreshold(slowPhraseThreshold);
+		options.setOutputFormat(outputFormat);
+		options.setOutputOrder(outputOrder);
+		options.setBucketSize(bucketSize);
+		options.setOutputShardSize(outputShardSize);
+		if (wordIds) {
+			// all steps share one dictionary
+			if (wordDictionary == null) {
+				wordDictionary = new WordDictionary();
+			}
+			options.setWordDictionary(wordDictionary);
+		}
 		return options;
 	}
 }
@@ -1,7 +1,10 @@
 package org.netspeak.lang;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.netspeak.Util;
 import org.netspeak.preprocessing.PhraseMapper;
@@ -9,10 +12,11 @@ import org.netspeak.preprocessing.Pipeline;
 import org.netspeak.preprocessing.Preprocessing;
 import org.netspeak.preprocessing.PreprocessingOptions;
 import org.netspeak.preprocessing.PreprocessingOptions.DeleteMode;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
 import org.netspeak.preprocessing.items.GermanHyphenationJoiner;
 import org.netspeak.preprocessing.items.Operations;
-import org.netspeak.preprocessing.mappers.ContractionMapper;
 import org.netspeak.preprocessing.mappers.StandardMappers;
+import org.netspeak.preprocessing.mappers.VocabularyExtractor;
 
 public class De implements Processor {
 
@@ -21,50 +25,94 @@ public class De implements Processor {
 	private De() {
 	}
 
+	/**
+	 * Returns the mappers of the first step. The hyphenation joiner of the second step needs the vocabulary of the
+	 * output of the first step.
+	 *
+	 * @param config
+	 * @return
+	 * @throws IOException
+	 */
+	public List<PhraseMapper> getMappers(MapperConfig config) throws IOException {
+		final MapperArtifact artifact = MapperArtifact.get(config);
+
+		final StandardMappers stdMappers = artifact.newStandardMappers();
+		stdMappers.setMaxNGram(config.maxNGram);
+		stdMappers.setToLowerCase(config.lowercase);
+		stdMappers.setLowerCaseLocale(config.getLowercaseLocale());
+
+		final ArrayList<PhraseMapper> mappers = new ArrayList<>(stdMappers.getMappers());
+
+		mappers.add(artifact.getContractionMapper());
+
+		return mappers;
+	}
+
+	/**
+	 * Returns the stop words of the hyphenation joiner of the second step.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public Set<String> getStopWords() throws IOException {
+		return Util.readResourceWordList("/ger/stop-words.txt");
+	}
+
 	@Override
 	public void process(Config config) throws Exception {
 		final Path temp1 = config.newTempDir();
 		final Path temp2 = config.newTempDir();
+		final Path temp3 = config.newTempDir();
 
 		Util.createEmptyDirectory(temp1);
 		Util.createEmptyDirectory(temp2);
+		Util.createEmptyDirectory(temp3);
 
 		try {
 
 			final Pipeline pipeline = new Pipeline();
 
-			pipeline.add(() -> {
-				final Path output = temp1;
+			// the vocabulary of the hyphenation joiner is collected while the output of the first step is written
+			final Path diskVocabulary = temp3.resolve("vocabulary.bin");
+			final VocabularyExtractor vocabExtractor = config.vocabularyFalsePositiveRate == null
+					? new VocabularyExtractor()
+					: GermanHyphenationJoiner.newDiskVocabularyExtractor(diskVocabulary);
 
-				final StandardMappers stdMappers = new StandardMappers();
-				stdMappers.setSuperBlacklist(Util.readResourceWordList("/super-blacklist.txt"));
-				stdMappers.setBlacklist(Util.readResourceWordList("/blacklist.txt"));
-				stdMappers.setMaxNGram(config.maxNGram);
-				stdMappers.setToLowerCase(config.lowercase);
+			pipeline.add("Standard mappers", () -> {
+				final Path output = temp1;
 
-				final ArrayList<PhraseMapper> mappers = new ArrayList<>(stdMappers.getMappers());
+				final List<PhraseMapper> mappers = getMappers(config);
 
-				mappers.add(new ContractionMapper(Util.readResourceWordList("/eng/contractions.txt")));
+				final PreprocessingOptions options = config.getPreprocessingOptions();
+				options.setOutputObserver(vocabExtractor);
+				// only the output of the last step has to be ordered
+				options.setOutputOrder(OutputOrder.NONE);
 
-				return source -> Preprocessing.process(source, output, mappers, config.getPreprocessingOptions());
+				return source -> Preprocessing.process(source, output, mappers, options);
 			});
 
-			pipeline.add(() -> {
+			pipeline.add("Hyphenation joiner", () -> {
 				final Path output = temp2;
 
 				final PreprocessingOptions options = config.getPreprocessingOptions();
 				options.setDeleteSource(DeleteMode.PROGRESSIVE); // delete files from temp
 
-				return new GermanHyphenationJoiner(Util.readResourceWordList("/ger/stop-words.txt"), output, options);
+				final GermanHyphenationJoiner joiner = new GermanHyphenationJoiner(getStopWords(), output, options,
+						vocabExtractor);
+				if (config.vocabularyFalsePositiveRate != null) {
+					joiner.setDiskVocabulary(diskVocabulary, config.vocabularyFalsePositiveRate);
+				}
+				return joiner;
 			});
 
-			pipeline.add(Operations.moveTo(config.output));
+			pipeline.add("Move to output", Operations.moveTo(config.output));
 
 			pipeline.apply(config.source);
 
 		} finally {
 			Util.delete(temp1, true);
 			Util.delete(temp2, true);
+			Util.delete(temp3, true);
 		}
 	}
 
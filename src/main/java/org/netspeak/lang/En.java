@@ -5,9 +5,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-import org.netspeak.Util;
 import org.netspeak.preprocessing.PhraseMapper;
-import org.netspeak.preprocessing.mappers.ContractionMapper;
 import org.netspeak.preprocessing.mappers.EnglishHyphenJoinMapper;
 import org.netspeak.preprocessing.mappers.StandardMappers;
 
@@ -20,16 +18,17 @@ public class En implements Processor, SingleMapProcessor {
 
 	@Override
 	public Collection<PhraseMapper> getMappers(MapperConfig config) throws IOException {
-		final StandardMappers stdMappers = new StandardMappers();
-		stdMappers.setSuperBlacklist(Util.readResourceWordList("/super-blacklist.txt"));
-		stdMappers.setBlacklist(Util.readResourceWordList("/blacklist.txt"));
+		final MapperArtifact artifact = MapperArtifact.get(config);
+
+		final StandardMappers stdMappers = artifact.newStandardMappers();
 		stdMappers.setMaxNGram(config.maxNGram);
 		stdMappers.setToLowerCase(config.lowercase);
+		stdMappers.setLowerCaseLocale(config.getLowercaseLocale());
 
 		final List<PhraseMapper> mappers = new ArrayList<>(stdMappers.getMappers());
 
 		mappers.add(new EnglishHyphenJoinMapper());
-		mappers.add(new ContractionMapper(Util.readResourceWordList("/eng/contractions.txt")));
+		mappers.add(artifact.getContractionMapper());
 
 		return mappers;
 	}
@@ -0,0 +1,216 @@
+package org.netspeak.lang;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.netspeak.Util;
+import org.netspeak.preprocessing.mappers.ContractionMapper;
+import org.netspeak.preprocessing.mappers.RepeatedWordAutomaton;
+import org.netspeak.preprocessing.mappers.StandardMappers;
+
+/**
+ * The compiled state of the mappers of {@link En} and {@link De}: the word lists, the automaton of the blacklist, and
+ * the contraction mapper.
+ * <p>
+ * Creating this state from the word list resources (compiling the blacklist automaton and expanding the known
+ * contractions) takes a lot longer than reading it from a file written by {@link #write(Path)}. This matters for
+ * short-lived JVMs like the ones of Hadoop map tasks. Files are memory-mapped while they are read.
+ * <p>
+ * Files contain checksums of the word list resources they were created from and files created from other word lists
+ * will be rejected.
+ *
+ * @see MapperConfig#mapperArtifact
+ */
+public final class MapperArtifact {
+
+	private static final int MAGIC = 0x4E534D41; // "NSMA"
+	private static final int VERSION = 1;
+
+	private static final String SUPER_BLACKLIST = "/super-blacklist.txt";
+	private static final String BLACKLIST = "/blacklist.txt";
+	private static final String CONTRACTIONS = "/eng/contractions.txt";
+	private static final String[] RESOURCES = { SUPER_BLACKLIST, BLACKLIST, CONTRACTIONS };
+
+	private static MapperArtifact fromResources = null;
+
+	private final Set<String> superBlacklist;
+	private final Set<String> blacklist;
+	/**
+	 * The compiled {@link #blacklist}. This is {@code null} if the automaton of the blacklist is too large.
+	 */
+	private final RepeatedWordAutomaton blacklistAutomaton;
+	private final ContractionMapper contractionMapper;
+
+	private MapperArtifact(Set<String> superBlacklist, Set<String> blacklist, RepeatedWordAutomaton blacklistAutomaton,
+			ContractionMapper contractionMapper) {
+		this.superBlacklist = Collections.unmodifiableSet(superBlacklist);
+		this.blacklist = Collections.unmodifiableSet(blacklist);
+		this.blacklistAutomaton = blacklistAutomaton;
+		this.contractionMapper = contractionMapper;
+	}
+
+	/**
+	 * Returns the artifact of the given config.
+	 * <p>
+	 * If the config has no {@link MapperConfig#mapperArtifact artifact file}, the artifact will be created from the
+	 * word list resources once per JVM.
+	 *
+	 * @param config
+	 * @return
+	 * @throws IOException
+	 */
+	public static MapperArtifact get(MapperConfig config) throws IOException {
+		if (config.mapperArtifact != null) {
+			return load(config.mapperArtifact);
+		}
+		synchronized (MapperArtifact.class) {
+			if (fromResources == null) {
+				fromResources = create();
+			}
+			return fromResources;
+		}
+	}
+
+	private static MapperArtifact create() throws IOException {
+		final Set<String> superBlacklist = Util.readResourceWordList(SUPER_BLACKLIST);
+		final Set<String> blacklist = Util.readResourceWordList(BLACKLIST);
+
+		RepeatedWordAutomaton blacklistAutomaton;
+		try {
+			blacklistAutomaton = RepeatedWordAutomaton.compile(blacklist);
+		} catch (IllegalArgumentException e) {
+			// too large, the mapper will fall back to a regex
+			blacklistAutomaton = null;
+		}
+
+		final ContractionMapper contractionMapper = new ContractionMapper(Util.readResourceWordList(CONTRACTIONS));
+
+		return new MapperArtifact(superBlacklist, blacklist, blacklistAutomaton, contractionMapper);
+	}
+
+	/**
+	 * Returns new standard mappers with the super blacklist and the (compiled) blacklist of this artifact.
+	 *
+	 * @return
+	 */
+	public StandardMappers newStandardMappers() {
+		final StandardMappers stdMappers = new StandardMappers();
+		stdMappers.setSuperBlacklist(superBlacklist);
+		stdMappers.setBlacklist(blacklist);
+		if (blacklistAutomaton != null) {
+			stdMappers.setBlacklist(blacklistAutomaton);
+		}
+		return stdMappers;
+	}
+
+	/**
+	 * Returns the contraction mapper of the known English contractions.
+	 * <p>
+	 * The mapper is immutable, so the same instance will be returned every time.
+	 *
+	 * @return
+	 */
+	public ContractionMapper getContractionMapper() {
+		return contractionMapper;
+	}
+
+	/**
+	 * Creates the artifact from the word list resources and writes it to the given file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void write(Path file) throws IOException {
+		final MapperArtifact artifact = create();
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			for (final String resource : RESOURCES) {
+				out.writeLong(checksum(resource));
+			}
+
+			writeWords(out, artifact.superBlacklist);
+			writeWords(out, artifact.blacklist);
+			out.writeBoolean(artifact.blacklistAutomaton != null);
+			if (artifact.blacklistAutomaton != null) {
+				artifact.blacklistAutomaton.writeTo(out);
+			}
+			artifact.contractionMapper.writeTo(out);
+		}
+	}
+
+	/**
+	 * Reads the artifact of the given file.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException If the file is not a valid artifact or if it was created from other word lists.
+	 */
+	public static MapperArtifact load(Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < 8 || buffer.getInt() != MAGIC) {
+				throw new IOException("The file " + file + " is not a mapper artifact.");
+			}
+			final int version = buffer.getInt();
+			if (version != VERSION) {
+				throw new IOException("The mapper artifact " + file + " has the unsupported version " + version
+						+ ". Please create it again.");
+			}
+			for (final String resource : RESOURCES) {
+				if (buffer.getLong() != checksum(resource)) {
+					throw new IOException("The mapper artifact " + file + " was created from a different version of "
+							+ resource + ". Please create it again.");
+				}
+			}
+
+			final Set<String> superBlacklist = readWords(buffer);
+			final Set<String> blacklist = readWords(buffer);
+			final RepeatedWordAutomaton blacklistAutomaton = buffer.get() != 0
+					? RepeatedWordAutomaton.readFrom(buffer)
+					: null;
+			final ContractionMapper contractionMapper = ContractionMapper.readFrom(buffer);
+
+			return new MapperArtifact(superBlacklist, blacklist, blacklistAutomaton, contractionMapper);
+		} catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+			throw new IOException("The mapper artifact " + file + " is corrupted.", e);
+		}
+	}
+
+	private static long checksum(String resource) throws IOException {
+		final CRC32 crc = new CRC32();
+		crc.update(Util.readResource(resource));
+		return crc.getValue();
+	}
+
+	private static void writeWords(DataOutputStream out, Set<String> words) throws IOException {
+		out.writeInt(words.size());
+		for (final String word : words) {
+			Util.writeString(out, word);
+		}
+	}
+
+	private static Set<String> readWords(ByteBuffer buffer) {
+		final int size = buffer.getInt();
+		final Set<String> words = new LinkedHashSet<>();
+		for (int i = 0; i < size; i++) {
+			words.add(Util.readString(buffer));
+		}
+		return words;
+	}
+
+}
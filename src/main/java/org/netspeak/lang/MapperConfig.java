@@ -1,8 +1,36 @@
 package org.netspeak.lang;
 
+import java.nio.file.Path;
+import java.util.Locale;
+
 public class MapperConfig {
 
 	public int maxNGram = Integer.MAX_VALUE;
 	public boolean lowercase = false;
+	/**
+	 * The locale used to lower-case phrases.
+	 * <p>
+	 * If {@code null}, the default locale of the JVM will be used. Use {@link Locale#ROOT} for a locale-independent
+	 * conversion.
+	 *
+	 * @see org.netspeak.preprocessing.mappers.PhraseMappers#toLowerCase(Locale)
+	 */
+	public Locale lowercaseLocale = null;
+	/**
+	 * A file written by {@link MapperArtifact#write(Path)} which contains the compiled state of the language-specific
+	 * mappers.
+	 * <p>
+	 * If {@code null}, the mappers will be compiled from the word list resources.
+	 */
+	public Path mapperArtifact = null;
+
+	/**
+	 * Returns the locale used to lower-case phrases.
+	 *
+	 * @return
+	 */
+	public Locale getLowercaseLocale() {
+		return lowercaseLocale == null ? Locale.getDefault() : lowercaseLocale;
+	}
 
 }
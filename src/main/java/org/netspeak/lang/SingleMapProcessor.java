@@ -30,14 +30,14 @@ public interface SingleMapProcessor extends Processor {
 
 			final Pipeline pipeline = new Pipeline();
 
-			pipeline.add(() -> {
+			pipeline.add("Mappers", () -> {
 				final Path output = temp;
 
 				return source -> Preprocessing.process(source, output, getMappers(config),
 						config.getPreprocessingOptions());
 			});
 
-			pipeline.add(Operations.moveTo(config.output));
+			pipeline.add("Move to output", Operations.moveTo(config.output));
 
 			pipeline.apply(config.source);
 
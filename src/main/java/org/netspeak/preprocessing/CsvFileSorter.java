@@ -0,0 +1,206 @@
+package org.netspeak.preprocessing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.netspeak.io.ArrayScanner;
+import org.netspeak.io.ArrayScanners;
+import org.netspeak.io.Utf8CsvWriter;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
+
+/**
+ * Sorts the lines of a CSV file written by {@link Utf8CsvWriter}.
+ * <p>
+ * The whole file is read into a single byte array and only an {@code int} array with the indexes of the lines is
+ * sorted. Lines are compared by their UTF-8 bytes without decoding them, so phrases are sorted the same way as by
+ * {@link org.netspeak.io.Utf8Phrase#compareTo(org.netspeak.io.Utf8Phrase)}. The index is sorted by a parallel merge
+ * sort.
+ */
+final class CsvFileSorter {
+
+	private static final ArrayScanner SCANNER = ArrayScanners.INSTANCE;
+	/**
+	 * Ranges of the index with at most this many lines will be sorted by a single thread.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+
+	private final byte[] bytes;
+	/**
+	 * The start of each line. The last element is the length of the file.
+	 */
+	private final int[] starts;
+	/**
+	 * The index of the tab of each line.
+	 */
+	private final int[] tabs;
+	private final long[] frequencies;
+
+	private CsvFileSorter(byte[] bytes, int lines) throws IOException {
+		this.bytes = bytes;
+		this.starts = new int[lines + 1];
+		this.tabs = new int[lines];
+		this.frequencies = new long[lines];
+
+		int start = 0;
+		for (int i = 0; i < lines; i++) {
+			int end = SCANNER.indexOf(bytes, start, bytes.length, (byte) '\n');
+			int tab = SCANNER.indexOf(bytes, start, end, (byte) '\t');
+			if (tab == -1) {
+				throw new IOException("Invalid format: Unable to find tab character.");
+			}
+			starts[i] = start;
+			tabs[i] = tab;
+			frequencies[i] = Long.parseLong(new String(bytes, tab + 1, end - tab - 1, UTF_8));
+			start = end + 1;
+		}
+		starts[lines] = start;
+	}
+
+	/**
+	 * Writes the lines of the given file in the given order to the given output file and returns the number of lines.
+	 *
+	 * @param in
+	 * @param out
+	 * @param order
+	 * @param observer An optional observer which will see all phrases in the given order.
+	 * @return
+	 * @throws IOException
+	 */
+	public static long sort(Path in, Path out, OutputOrder order, PhraseMapper observer) throws IOException {
+		if (Files.size(in) > Integer.MAX_VALUE - 8) {
+			throw new IOException("The file " + in + " is too large to be sorted in memory.");
+		}
+		byte[] bytes = Files.readAllBytes(in);
+		int lines = 0;
+		for (int i = 0; (i = SCANNER.indexOf(bytes, i, bytes.length, (byte) '\n')) != -1; i++) {
+			lines++;
+		}
+		if (bytes.length > 0 && bytes[bytes.length - 1] != '\n') {
+			throw new IOException("Invalid format: The file " + in + " does not end with a new line.");
+		}
+
+		CsvFileSorter sorter = new CsvFileSorter(bytes, lines);
+		int[] index = new int[lines];
+		for (int i = 0; i < lines; i++) {
+			index[i] = i;
+		}
+		IntComparator comparator = order == OutputOrder.FREQUENCY ? sorter::compareByFrequency : sorter::comparePhrases;
+		ForkJoinPool.commonPool().invoke(new SortTask(index, new int[lines], 0, lines, comparator));
+
+		try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(out, CREATE_NEW), 1024 * 256)) {
+			for (int line : index) {
+				int start = sorter.starts[line];
+				output.write(bytes, start, sorter.starts[line + 1] - start);
+				if (observer != null) {
+					observer.map(new String(bytes, start, sorter.tabs[line] - start, UTF_8), sorter.frequencies[line]);
+				}
+			}
+		}
+		return lines;
+	}
+
+	private int comparePhrases(int a, int b) {
+		int i = starts[a];
+		int j = starts[b];
+		int aEnd = tabs[a];
+		int bEnd = tabs[b];
+		for (; i < aEnd && j < bEnd; i++, j++) {
+			if (bytes[i] != bytes[j]) {
+				return (bytes[i] & 0xFF) - (bytes[j] & 0xFF);
+			}
+		}
+		return (aEnd - starts[a]) - (bEnd - starts[b]);
+	}
+
+	private int compareByFrequency(int a, int b) {
+		int c = Long.compare(frequencies[b], frequencies[a]);
+		return c != 0 ? c : comparePhrases(a, b);
+	}
+
+	@FunctionalInterface
+	private interface IntComparator {
+
+		int compare(int a, int b);
+
+	}
+
+	/**
+	 * A merge sort of a range of an {@code int} array which sorts both halves in parallel.
+	 */
+	private static final class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] array;
+		private final int[] buffer;
+		private final int from;
+		private final int to;
+		private final IntComparator comparator;
+
+		SortTask(int[] array, int[] buffer, int from, int to, IntComparator comparator) {
+			this.array = array;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.comparator = comparator;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				sort(array, buffer, from, to, comparator);
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new SortTask(array, buffer, from, mid, comparator),
+						new SortTask(array, buffer, mid, to, comparator));
+				merge(array, buffer, from, mid, to, comparator);
+			}
+		}
+
+		private static void sort(int[] array, int[] buffer, int from, int to, IntComparator comparator) {
+			if (to - from <= INSERTION_SORT_THRESHOLD) {
+				for (int i = from + 1; i < to; i++) {
+					int value = array[i];
+					int j = i;
+					for (; j > from && comparator.compare(array[j - 1], value) > 0; j--) {
+						array[j] = array[j - 1];
+					}
+					array[j] = value;
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				sort(array, buffer, from, mid, comparator);
+				sort(array, buffer, mid, to, comparator);
+				merge(array, buffer, from, mid, to, comparator);
+			}
+		}
+
+		private static void merge(int[] array, int[] buffer, int from, int mid, int to, IntComparator comparator) {
+			if (comparator.compare(array[mid - 1], array[mid]) <= 0) {
+				// already in order
+				return;
+			}
+			System.arraycopy(array, from, buffer, from, to - from);
+			int i = from;
+			int j = mid;
+			for (int k = from; k < to; k++) {
+				if (j >= to || (i < mid && comparator.compare(buffer[i], buffer[j]) <= 0)) {
+					array[k] = buffer[i++];
+				} else {
+					array[k] = buffer[j++];
+				}
+			}
+		}
+
+	}
+
+}
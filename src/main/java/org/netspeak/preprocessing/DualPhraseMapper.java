@@ -0,0 +1,71 @@
+package org.netspeak.preprocessing;
+
+import java.util.List;
+
+import org.netspeak.io.ReaderFilter;
+import org.netspeak.io.Utf8Phrase;
+
+/**
+ * A mapper with both a string and a UTF-8 variant.
+ *
+ * @see Utf8PhraseMapper#rename(String, PhraseMapper, Utf8PhraseMapper)
+ */
+final class DualPhraseMapper implements PhraseMapper, Utf8PhraseMapper {
+
+	private final String name;
+	private final PhraseMapper mapper;
+	private final Utf8PhraseMapper utf8Mapper;
+	private final ReaderFilter readerFilter;
+	private final boolean neverRemovesSpaces;
+
+	DualPhraseMapper(String name, PhraseMapper mapper, Utf8PhraseMapper utf8Mapper) {
+		this(name, mapper, utf8Mapper, mapper.getReaderFilter(), mapper.neverRemovesSpaces());
+	}
+
+	private DualPhraseMapper(String name, PhraseMapper mapper, Utf8PhraseMapper utf8Mapper,
+			ReaderFilter readerFilter, boolean neverRemovesSpaces) {
+		this.name = name;
+		this.mapper = mapper;
+		this.utf8Mapper = utf8Mapper;
+		this.readerFilter = readerFilter;
+		this.neverRemovesSpaces = neverRemovesSpaces;
+	}
+
+	/**
+	 * @see PhraseMapper#describe(PhraseMapper, ReaderFilter, boolean)
+	 */
+	DualPhraseMapper describe(ReaderFilter readerFilter, boolean neverRemovesSpaces) {
+		return new DualPhraseMapper(name, mapper, utf8Mapper, readerFilter, neverRemovesSpaces);
+	}
+
+	@Override
+	public String map(String phrase, long frequency) {
+		return mapper.map(phrase, frequency);
+	}
+
+	@Override
+	public Utf8Phrase map(Utf8Phrase phrase, long frequency) {
+		return utf8Mapper.map(phrase, frequency);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public List<String> getStats() {
+		return mapper.getStats();
+	}
+
+	@Override
+	public ReaderFilter getReaderFilter() {
+		return readerFilter;
+	}
+
+	@Override
+	public boolean neverRemovesSpaces() {
+		return neverRemovesSpaces;
+	}
+
+}
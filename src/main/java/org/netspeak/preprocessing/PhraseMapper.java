@@ -1,5 +1,10 @@
 package org.netspeak.preprocessing;
 
+import java.util.Collections;
+import java.util.List;
+
+import org.netspeak.io.ReaderFilter;
+
 /**
  * An interface providing a {@link #map(String, long)} function that transforms
  * a given phrase. This interface can be used to apply certain string operations
@@ -38,6 +43,95 @@ public interface PhraseMapper {
 		return getClass().getName();
 	}
 
+	/**
+	 * Returns additional statistics about this mapper.
+	 * <p>
+	 * Each returned line will be printed by {@link Preprocessing} when printing the
+	 * statistics of verbose runs. By default, no additional statistics will be
+	 * printed.
+	 *
+	 * @return
+	 */
+	default List<String> getStats() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns a filter which only rejects phrases this mapper removes.
+	 * <p>
+	 * {@link Preprocessing} may push this filter down into the phrase readers so
+	 * that rejected phrases are skipped before they are decoded. By default, this
+	 * is {@link ReaderFilter#NONE}.
+	 *
+	 * @return
+	 * @see #neverRemovesSpaces()
+	 */
+	default ReaderFilter getReaderFilter() {
+		return ReaderFilter.NONE;
+	}
+
+	/**
+	 * Returns whether every phrase returned by this mapper contains at least as
+	 * many spaces as the input phrase.
+	 * <p>
+	 * The word count predicate of a {@link #getReaderFilter() reader filter} can
+	 * only be evaluated on the raw phrases if all mappers before it never decrease
+	 * the number of words. This is {@code false} by default.
+	 *
+	 * @return
+	 */
+	default boolean neverRemovesSpaces() {
+		return false;
+	}
+
+	/**
+	 * Returns a new {@link PhraseMapper} which behaves like the given
+	 * {@link PhraseMapper} but with the given reader filter and
+	 * {@link #neverRemovesSpaces()} value.
+	 * <p>
+	 * If the given mapper was created by
+	 * {@link Utf8PhraseMapper#rename(String, PhraseMapper, Utf8PhraseMapper)}, the
+	 * returned mapper will also be a {@link Utf8PhraseMapper}.
+	 *
+	 * @param mapper
+	 * @param readerFilter
+	 * @param neverRemovesSpaces
+	 * @return
+	 */
+	static PhraseMapper describe(PhraseMapper mapper, ReaderFilter readerFilter, boolean neverRemovesSpaces) {
+		if (mapper instanceof DualPhraseMapper) {
+			return ((DualPhraseMapper) mapper).describe(readerFilter, neverRemovesSpaces);
+		}
+
+		return new PhraseMapper() {
+
+			@Override
+			public String map(String phrase, long frequency) {
+				return mapper.map(phrase, frequency);
+			}
+
+			@Override
+			public String getName() {
+				return mapper.getName();
+			}
+
+			@Override
+			public List<String> getStats() {
+				return mapper.getStats();
+			}
+
+			@Override
+			public ReaderFilter getReaderFilter() {
+				return readerFilter;
+			}
+
+			@Override
+			public boolean neverRemovesSpaces() {
+				return neverRemovesSpaces;
+			}
+		};
+	}
+
 	/**
 	 * Returns a new {@link PhraseMapper} which behaves like the given
 	 * {@link PhraseMapper} and with the name of the full name of the caller method.
@@ -71,6 +165,21 @@ public interface PhraseMapper {
 			public String getName() {
 				return name;
 			}
+
+			@Override
+			public List<String> getStats() {
+				return mapper.getStats();
+			}
+
+			@Override
+			public ReaderFilter getReaderFilter() {
+				return mapper.getReaderFilter();
+			}
+
+			@Override
+			public boolean neverRemovesSpaces() {
+				return mapper.neverRemovesSpaces();
+			}
 		};
 	}
 
@@ -1,8 +1,12 @@
 package org.netspeak.preprocessing;
 
 import java.io.BufferedReader;
+import java.io.InputStream;
 
 import org.netspeak.io.PhraseReader;
+import org.netspeak.io.SimpleCsvReader;
+import org.netspeak.io.Utf8CsvReader;
+import org.netspeak.io.Utf8PhraseReader;
 
 /**
  * Given a {@link BufferedReader}, this will produce a {@link PhraseReader} that
@@ -15,4 +19,37 @@ public interface PhraseReaderFactory {
 
 	PhraseReader createReader(BufferedReader reader) throws Exception;
 
+	/**
+	 * Returns a {@link Utf8PhraseReader} which parses the given UTF-8 input stream
+	 * the same way as the reader returned by {@link #createReader(BufferedReader)}
+	 * would.
+	 * <p>
+	 * This will return {@code null} if the format of this factory cannot be read
+	 * as UTF-8 phrases. This is the default.
+	 *
+	 * @param in
+	 * @return
+	 * @throws Exception
+	 */
+	default Utf8PhraseReader createUtf8Reader(InputStream in) throws Exception {
+		return null;
+	}
+
+	/**
+	 * A factory for {@link SimpleCsvReader}s which also supports
+	 * {@link #createUtf8Reader(InputStream)}.
+	 */
+	PhraseReaderFactory SIMPLE_CSV = new PhraseReaderFactory() {
+
+		@Override
+		public PhraseReader createReader(BufferedReader reader) throws Exception {
+			return new SimpleCsvReader(reader);
+		}
+
+		@Override
+		public Utf8PhraseReader createUtf8Reader(InputStream in) throws Exception {
+			return new Utf8CsvReader(in);
+		}
+	};
+
 }
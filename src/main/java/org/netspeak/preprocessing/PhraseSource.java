@@ -1,5 +1,6 @@
 package org.netspeak.preprocessing;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -7,6 +8,7 @@ import java.util.Collection;
 import java.util.List;
 
 import org.netspeak.io.PhraseReader;
+import org.netspeak.io.Utf8PhraseReader;
 
 /**
  * A source of phrases.
@@ -23,6 +25,95 @@ public interface PhraseSource {
 
 		PhraseReader createReader() throws Exception;
 
+		/**
+		 * Returns a new reader which returns the phrases of this file as UTF-8 bytes.
+		 * <p>
+		 * The reader has to return the same phrases as {@link #createReader()}. This
+		 * will return {@code null} if the file does not support UTF-8 readers. This is
+		 * the default.
+		 *
+		 * @return
+		 * @throws Exception
+		 */
+		default Utf8PhraseReader createUtf8Reader() throws Exception {
+			return null;
+		}
+
+		/**
+		 * Returns a lower bound for the number of words of all phrases in this file.
+		 * <p>
+		 * {@link Preprocessing} will skip files without opening them if all of their
+		 * phrases have too many words. This is 1 by default.
+		 *
+		 * @return
+		 */
+		default int getMinWords() {
+			return 1;
+		}
+
+		/**
+		 * Returns an estimate of the number of bytes of the decompressed content of
+		 * this file.
+		 * <p>
+		 * This may read part of the file, so {@link Preprocessing} only calls this
+		 * for the few files it samples. This is the size of the file by default.
+		 *
+		 * @return
+		 * @throws Exception
+		 * @see #createCountingReader()
+		 */
+		default long estimateSize() throws Exception {
+			return Files.size(getPath());
+		}
+
+		/**
+		 * Returns a new reader like {@link #createReader()} which counts the
+		 * decompressed bytes of this file it read.
+		 * <p>
+		 * {@link Preprocessing} relates the phrases of the first part of a file to
+		 * {@link #estimateSize()} using this number. This matters for readers which
+		 * return fewer bytes than they read (e.g. one phrase for many lines). This
+		 * returns {@code null} by default in which case the bytes of the returned
+		 * phrases are assumed to be the bytes read.
+		 *
+		 * @return
+		 * @throws Exception
+		 */
+		default CountingReader createCountingReader() throws Exception {
+			return null;
+		}
+
+		/**
+		 * Returns whether the phrases of this file are sorted by their UTF-8 bytes
+		 * (see {@link org.netspeak.io.Utf8Phrase#compareTo(org.netspeak.io.Utf8Phrase)}).
+		 * <p>
+		 * If all files of a source are sorted and no mappers are applied,
+		 * {@link Preprocessing} will merge duplicates with a k-way merge instead of
+		 * splitting the phrases by hash. This is {@code false} by default.
+		 *
+		 * @return
+		 */
+		default boolean isSorted() {
+			return false;
+		}
+
+	}
+
+	/**
+	 * A phrase reader which knows how many bytes it read.
+	 *
+	 * @see File#createCountingReader()
+	 */
+	public interface CountingReader extends PhraseReader {
+
+		/**
+		 * Returns the number of decompressed bytes read so far. This includes bytes
+		 * read ahead for phrases which were not returned yet.
+		 *
+		 * @return
+		 */
+		long getBytesRead();
+
 	}
 
 	public interface MovableFile extends File {
@@ -1,28 +1,142 @@
 package org.netspeak.preprocessing;
 
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.netspeak.Util.ThrowsSupplier;
+import org.netspeak.preprocessing.events.PipelineItemEvent;
 
 public class Pipeline implements PipelineItem {
 
-	private final List<PipelineItem> items = new ArrayList<>();
+	/**
+	 * The phrase counts of the item which is currently applied by this thread.
+	 */
+	private static final ThreadLocal<PhraseCounts> CURRENT_COUNTS = new ThreadLocal<>();
 
+	private final List<Step> items = new ArrayList<>();
+
+	/**
+	 * Adds the given item. The item will be named after its class unless it's a lambda in which case it will be named
+	 * after its position in the pipeline.
+	 *
+	 * @param item
+	 */
 	public void add(PipelineItem item) {
-		items.add(item);
+		add(null, item);
+	}
+
+	/**
+	 * Adds the given item under the given name. The name is used to identify the item in JFR recordings.
+	 *
+	 * @param name
+	 * @param item
+	 */
+	public void add(String name, PipelineItem item) {
+		items.add(new Step(name, item));
 	}
 
 	public void add(ThrowsSupplier<PipelineItem> supplier) {
-		items.add(supplier.get());
+		add(null, supplier.get());
+	}
+
+	public void add(String name, ThrowsSupplier<PipelineItem> supplier) {
+		add(name, supplier.get());
 	}
 
 	@Override
 	public PhraseSource apply(PhraseSource source) throws Exception {
-		for (PipelineItem item : items) {
-			source = item.apply(source);
+		for (int i = 0; i < items.size(); i++) {
+			Step step = items.get(i);
+
+			PipelineItemEvent event = new PipelineItemEvent();
+			if (event.isEnabled()) {
+				// the source files might be deleted or moved by the item
+				event.sourceBytes = totalSize(source);
+			}
+			PhraseCounts counts = new PhraseCounts();
+			PhraseCounts outer = CURRENT_COUNTS.get();
+			CURRENT_COUNTS.set(counts);
+			event.begin();
+
+			PhraseSource result;
+			try {
+				result = step.item.apply(source);
+			} finally {
+				CURRENT_COUNTS.set(outer);
+			}
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.index = i;
+				event.item = step.getName(i);
+				event.source = source.toString();
+				event.output = result.toString();
+				event.outputBytes = totalSize(result);
+				event.phrasesRead = counts.read;
+				event.phrasesWritten = counts.written;
+				event.commit();
+			}
+
+			source = result;
 		}
 		return source;
 	}
 
+	/**
+	 * Records the number of phrases {@link Preprocessing} read from its input and wrote to its output for the
+	 * pipeline item which is currently applied by this thread.
+	 * <p>
+	 * An item may run several passes. The first pass reads the input of the item and the last pass writes its output.
+	 *
+	 * @param read
+	 * @param written
+	 */
+	static void countPhrases(long read, long written) {
+		PhraseCounts counts = CURRENT_COUNTS.get();
+		if (counts != null) {
+			if (!counts.counted) {
+				counts.read = read;
+				counts.counted = true;
+			}
+			counts.written = written;
+		}
+	}
+
+	private static long totalSize(PhraseSource source) throws Exception {
+		long size = 0;
+		for (PhraseSource.File file : source.getFiles()) {
+			size += Files.size(file.getPath());
+		}
+		return size;
+	}
+
+	private static class Step {
+
+		private final String name;
+		private final PipelineItem item;
+
+		public Step(String name, PipelineItem item) {
+			this.name = name;
+			this.item = item;
+		}
+
+		public String getName(int index) {
+			if (name != null) {
+				return name;
+			}
+			Class<?> clazz = item.getClass();
+			return clazz.isSynthetic() ? "Item " + index : clazz.getSimpleName();
+		}
+
+	}
+
+	private static class PhraseCounts {
+
+		private boolean counted = false;
+		private long read;
+		private long written;
+
+	}
+
 }
@@ -2,23 +2,40 @@ package org.netspeak.preprocessing;
 
 import org.netspeak.Util;
 import org.netspeak.Util.ThrowsRunnable;
-import org.netspeak.io.PhraseFrequencyPair;
 import org.netspeak.io.PhraseReader;
 import org.netspeak.io.PhraseWriter;
-import org.netspeak.io.SimpleCsvReader;
+import org.netspeak.io.ReaderFilter;
+import org.netspeak.io.RollingCsvWriter;
 import org.netspeak.io.SimpleCsvWriter;
 import org.netspeak.io.SplitterCsvWriter;
+import org.netspeak.io.SplitterWordIdWriter;
+import org.netspeak.io.Utf8CsvWriter;
+import org.netspeak.io.Utf8Phrase;
+import org.netspeak.io.Utf8PhraseReader;
+import org.netspeak.io.Utf8PhraseWriter;
+import org.netspeak.io.WordDictionary;
+import org.netspeak.io.WordIdPhrase;
+import org.netspeak.io.WordIdReader;
+import org.netspeak.io.WordIdWriter;
 import org.netspeak.preprocessing.PreprocessingOptions.DeleteMode;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputFormat;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
+import org.netspeak.preprocessing.events.FileTaskEvent;
+import org.netspeak.preprocessing.events.MergeBucketEvent;
+import org.netspeak.preprocessing.events.SlowPhraseEvent;
 import org.netspeak.preprocessing.mappers.PhraseMappers;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -30,6 +47,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
@@ -49,6 +67,39 @@ import static java.util.concurrent.TimeUnit.DAYS;
  */
 public final class Preprocessing {
 
+	/**
+	 * The number of mapped phrases of each sorted file which may be out of order.
+	 */
+	private static final int SORTED_MERGE_WINDOW = 1 << 10;
+	/**
+	 * The number of phrases of each output file of a sorted merge.
+	 */
+	private static final long SORTED_MERGE_FILE_PHRASES = 1 << 22;
+	/**
+	 * The maximum number of buckets phrases are split into to merge duplicates. All buckets are open at the same time.
+	 */
+	private static final int MAX_BUCKETS = 1 << 14;
+	/**
+	 * The ratio of the memory needed to merge a bucket to the size of the bucket.
+	 */
+	private static final int BUCKET_MEMORY_FACTOR = 5;
+	/**
+	 * The number of files and the number of phrases of each file used to estimate the size of the phrases.
+	 */
+	private static final int SIZE_SAMPLE_FILES = 8;
+	private static final int SIZE_SAMPLE_PHRASES = 10_000;
+	/**
+	 * Buckets larger than this many times the average bucket size (or larger than the bucket size) will be split again
+	 * into at most {@link #MAX_SUB_BUCKETS} sub-buckets using {@link #RESPLIT_SEED}.
+	 */
+	private static final int RESPLIT_SKEW = 4;
+	private static final int MAX_SUB_BUCKETS = 64;
+	private static final long RESPLIT_SEED = 1;
+	/**
+	 * The number of samples per bucket used to pick the split points of ordered output.
+	 */
+	private static final int SAMPLES_PER_BUCKET = 16;
+
 	private Preprocessing() {
 	}
 
@@ -78,25 +129,85 @@ public final class Preprocessing {
 
 		PhraseMapper[] mapperArray = mappers.toArray(new PhraseMapper[0]);
 		MapperStats[] stats = options.verbose ? createStats(mapperArray) : null;
+		ReaderFilter filter = pushDown(mapperArray, stats);
+		long slowPhraseThreshold = options.slowPhraseThreshold;
+		PhraseMapper outputObserver = options.outputObserver;
+
+		boolean wordIdOutput = options.outputFormat == OutputFormat.WORD_IDS;
+		WordDictionary dictionary = options.wordDictionary;
+		if (dictionary == null && wordIdOutput) {
+			dictionary = new WordDictionary();
+		}
+
+		OutputOrder order = options.outputOrder;
+		if (order != OutputOrder.NONE && (!options.mergeDuplicates || dictionary != null)) {
+			throw new IllegalArgumentException(
+					"Ordered output requires duplicates to be merged and is not supported for word ids.");
+		}
+		if (options.outputShardSize > 0 && dictionary != null) {
+			throw new IllegalArgumentException("The output shard size is not supported for word ids.");
+		}
+
+		// the number of phrases read from the input and written to the output
+		PhraseCounts counts = new PhraseCounts();
+
+		boolean sortedOutput = false;
+		if (options.mergeDuplicates && dictionary == null && order != OutputOrder.FREQUENCY
+				&& isSorted(input, options, mapperArray)) {
+			sortedOutput = mergeSorted(options, input, outputDir, mapperArray, filter, stats, slowPhraseThreshold,
+					counts);
+		}
 
-		if (options.mergeDuplicates) {
+		if (sortedOutput) {
+			// the k-way merge already wrote the output
+		} else if (options.mergeDuplicates) {
 			Path tmp = outputDir.resolve("tmp");
 			Util.createEmptyDirectory(tmp);
 
 			// split all phrases by hash into different buckets such that duplicates are in
 			// the same bucket
-			try (SplitterCsvWriter writer = new SplitterCsvWriter(tmp, 1024)) {
+			long bucketSize = getBucketSize(options);
+			long estimate = estimateBytes(input, filter);
+			int buckets = getBucketCount(estimate, bucketSize, options.parallelDegree);
+			System.out.println("Splitting about " + readableSize(estimate) + " into " + buckets + " buckets.");
+			PhraseWriter splitter = dictionary == null ? new SplitterCsvWriter(tmp, buckets)
+					: new SplitterWordIdWriter(tmp, buckets, dictionary);
+			// ordered output is partitioned by ranges which are sampled while splitting
+			SplitPointSampler sampler = order == OutputOrder.NONE ? null
+					: new SplitPointSampler(Math.max(SAMPLES_PER_BUCKET,
+							buckets * SAMPLES_PER_BUCKET / Math.max(1, input.getFiles().size())));
+			try (PhraseWriter writer = splitter) {
 				System.out.println("Applying mappers.");
-				processAllFiles(options, input, file -> {
-					try (PhraseReader reader = file.createReader()) {
-						applyMappers(reader, writer, mapperArray, stats);
+				counts.read = processAllFiles(options, "Applying mappers", input, (file, event) -> {
+					if (sampler == null) {
+						applyMappers(file, writer, mapperArray, filter, stats, slowPhraseThreshold, event);
+					} else {
+						try (PhraseWriter sampling = sampler.newWriter(writer)) {
+							applyMappers(file, sampling, mapperArray, filter, stats, slowPhraseThreshold, event);
+						}
 					}
-				});
+				}).read;
+			}
+
+			if (dictionary == null) {
+				resplitLargeBuckets(options, tmp, (SplitterCsvWriter) splitter, bucketSize);
 			}
 
-			// use NetspeakCsvReader to read the output of SplitterNetspeakCsvWriter
-			SimplePhraseSource tmpSource = new SimplePhraseSource(tmp);
-			tmpSource.setReaderFactory(SimpleCsvReader::new);
+			// merged phrases are split again by range and each range will be sorted
+			Path ranges = outputDir.resolve("ranges");
+			SplitterCsvWriter rangeWriter = null;
+			if (order != OutputOrder.NONE) {
+				// the size of the merged phrases is unknown, so the ranges are sized by the size of the buckets
+				// each range is sorted in memory, so there are at least as many ranges as buckets of the bucket size
+				long unmerged = directorySize(tmp);
+				long shards = options.outputShardSize > 0 ? divideCeil(unmerged, options.outputShardSize) : buckets;
+				int partitions = (int) Math.min(MAX_BUCKETS,
+						Math.max(1, Math.max(shards, divideCeil(unmerged, bucketSize))));
+				Util.createEmptyDirectory(ranges);
+				rangeWriter = order == OutputOrder.PHRASE
+						? SplitterCsvWriter.byPhraseRanges(ranges, sampler.getPhraseSplitPoints(partitions))
+						: SplitterCsvWriter.byFrequencyRanges(ranges, sampler.getFrequencySplitPoints(partitions));
+			}
 
 			// delete temp files
 			options.setDeleteSource(DeleteMode.PROGRESSIVE);
@@ -106,36 +217,91 @@ public final class Preprocessing {
 			AtomicLong totalPhrasesCount = new AtomicLong(0);
 			AtomicLong totalDuplicatesCount = new AtomicLong(0);
 
-			processAllFiles(options, tmpSource, file -> {
-				Map<String, Long> map = new HashMap<>();
-				try (PhraseReader reader = file.createReader()) {
-					long phrases = 0;
-					AtomicLong dups = new AtomicLong(0);
-					PhraseFrequencyPair pair;
-					while ((pair = reader.nextPair()) != null) {
-						phrases++;
-						map.merge(pair.phrase, pair.frequency, (a, b) -> {
-							dups.incrementAndGet();
-							return a + b;
-						});
-					}
-					totalPhrasesCount.addAndGet(phrases - dups.get());
-					totalDuplicatesCount.addAndGet(dups.get());
+			if (dictionary != null) {
+				mergeWordIds(options, new WordIdPhraseSource(tmp, dictionary), outputDir, dictionary, wordIdOutput,
+						totalPhrasesCount, totalDuplicatesCount);
+			} else {
+				// use NetspeakCsvReader to read the output of SplitterNetspeakCsvWriter
+				SimplePhraseSource tmpSource = new SimplePhraseSource(tmp);
+				tmpSource.setReaderFactory(PhraseReaderFactory.SIMPLE_CSV);
+
+				// all buckets are written to one writer if the output is ordered or has a shard size
+				PhraseWriter mergedWriter = rangeWriter;
+				if (mergedWriter == null && options.outputShardSize > 0) {
+					mergedWriter = observe(new RollingCsvWriter(outputDir, Long.MAX_VALUE, options.outputShardSize),
+							outputObserver);
 				}
+				PhraseWriter sharedWriter = mergedWriter;
+				try {
+					processAllFiles(options, "Merging phrases", tmpSource, (file, event) -> {
+						MergeBucketEvent bucketEvent = new MergeBucketEvent();
+						bucketEvent.begin();
+
+						Map<String, Long> map = new HashMap<>();
+						try (PhraseReader reader = file.createReader()) {
+							long phrases = 0;
+							AtomicLong dups = new AtomicLong(0);
+							while (reader.advance()) {
+								phrases++;
+								map.merge(reader.phrase(), reader.frequency(), (a, b) -> {
+									dups.incrementAndGet();
+									return a + b;
+								});
+							}
+							totalPhrasesCount.addAndGet(phrases - dups.get());
+							totalDuplicatesCount.addAndGet(dups.get());
+
+							event.phrasesRead = phrases;
+							bucketEvent.phrases = phrases - dups.get();
+							bucketEvent.duplicates = dups.get();
+						}
 
-				// write map
-				Path out = outputDir.resolve(file.getPath().getFileName());
-				try (SimpleCsvWriter writer = new SimpleCsvWriter(Files.newBufferedWriter(out, UTF_8))) {
-					for (Entry<String, Long> entry : map.entrySet()) {
-						writer.write(entry.getKey(), entry.getValue());
+						// write map
+						if (sharedWriter != null) {
+							for (Entry<String, Long> entry : map.entrySet()) {
+								sharedWriter.write(entry.getKey(), entry.getValue());
+							}
+						} else {
+							Path out = outputDir.resolve(file.getPath().getFileName());
+							try (PhraseWriter writer = observe(new SimpleCsvWriter(Files.newBufferedWriter(out, UTF_8)),
+									outputObserver)) {
+								for (Entry<String, Long> entry : map.entrySet()) {
+									writer.write(entry.getKey(), entry.getValue());
+								}
+							}
+						}
+						event.phrasesWritten = map.size();
+
+						bucketEvent.end();
+						if (bucketEvent.shouldCommit()) {
+							bucketEvent.path = file.getPath().toString();
+							bucketEvent.bytes = event.bytes;
+							bucketEvent.commit();
+						}
+					});
+				} finally {
+					if (mergedWriter != null) {
+						mergedWriter.close();
 					}
 				}
-			});
+			}
+
+			if (rangeWriter != null) {
+				System.out.println("Sorting phrases");
+				processAllFiles(options, "Sorting phrases", new SimplePhraseSource(ranges), (file, event) -> {
+					Path out = outputDir.resolve(file.getPath().getFileName());
+					long phrases = CsvFileSorter.sort(file.getPath(), out, order, outputObserver);
+					event.phrasesRead = phrases;
+					event.phrasesWritten = phrases;
+				});
+				Files.delete(ranges);
+			}
 
 			double percentage = Math
 					.round(100. * 10. * totalDuplicatesCount.doubleValue() / totalPhrasesCount.doubleValue()) / 10.;
 			System.out.println("Total of " + totalPhrasesCount + " phrases with " + totalDuplicatesCount + " ("
 					+ percentage + "%) duplicates merged.");
+			counts.written = totalPhrasesCount.get();
 
 			// clean up
 			System.out.println("Deleting temporary directory");
@@ -143,24 +309,504 @@ public final class Preprocessing {
 		} else {
 
 			System.out.println("Applying mappers.");
-			processAllFiles(options, input, file -> {
+			WordDictionary outputDictionary = wordIdOutput ? dictionary : null;
+			counts = processAllFiles(options, "Applying mappers", input, (file, event) -> {
 				String outFileName = file.getPath().getFileName().toString().replaceFirst("(?i).csv[^\\\\/]*", "")
-						+ ".csv";
+						+ (outputDictionary == null ? ".csv" : ".bin");
 				Path out = outputDir.resolve(Paths.get(outFileName));
-				try (PhraseReader reader = file.createReader();
-				     SimpleCsvWriter writer = new SimpleCsvWriter(Files.newBufferedWriter(out, UTF_8))) {
-					applyMappers(reader, writer, mapperArray, stats);
+				BufferedOutputStream outStream = new BufferedOutputStream(Files.newOutputStream(out), 1024 * 256);
+				try (PhraseWriter writer = observe(outputDictionary == null ? new Utf8CsvWriter(outStream)
+						: new WordIdWriter(outStream, outputDictionary), outputObserver)) {
+					applyMappers(file, writer, mapperArray, filter, stats, slowPhraseThreshold, event);
 				}
 			});
 		}
 
 		printStats(stats);
+		Pipeline.countPhrases(counts.read, counts.written);
+
+		PhraseSource result;
+		if (wordIdOutput) {
+			dictionary.write(outputDir.resolve(WordIdPhraseSource.VOCABULARY_FILE_NAME));
+			System.out.println("Vocabulary of " + dictionary.size() + " words written.");
+			result = new WordIdPhraseSource(outputDir, dictionary);
+		} else {
+			SimplePhraseSource output = new SimplePhraseSource(outputDir);
+			output.setSorted(sortedOutput || order == OutputOrder.PHRASE);
+			result = output;
+		}
 
 		long end = System.currentTimeMillis();
 		System.out.println("Took " + readableDuration(Duration.ofMillis(end - start)));
 		System.out.println("Done.");
 
-		return new SimplePhraseSource(outputDir);
+		return result;
+	}
+
+	/**
+	 * Returns whether the input should be merged with the k-way merge.
+	 * <p>
+	 * Mappers may change the order of phrases and the single-threaded k-way merge only notices this while merging. So
+	 * files which report to be sorted are only merged this way if no mappers are applied. Otherwise, the input has to
+	 * be declared as sorted (see {@link PreprocessingOptions#setSortedInput(boolean)}).
+	 */
+	private static boolean isSorted(PhraseSource input, PreprocessingOptions options, PhraseMapper[] mappers)
+			throws Exception {
+		if (options.sortedInput)
+			return true;
+		if (mappers.length > 0)
+			return false;
+
+		Collection<PhraseSource.File> files = input.getFiles();
+		for (PhraseSource.File file : files) {
+			if (!file.isSorted())
+				return false;
+		}
+		return !files.isEmpty();
+	}
+
+	/**
+	 * Returns the maximum number of bytes of each bucket.
+	 * <p>
+	 * Each bucket is merged in memory by one thread, so buckets are sized such that all threads can merge a bucket at
+	 * the same time.
+	 */
+	private static long getBucketSize(PreprocessingOptions options) {
+		if (options.bucketSize > 0) {
+			return options.bucketSize;
+		}
+		return Math.max(1, Runtime.getRuntime().maxMemory() / 2 / options.parallelDegree / BUCKET_MEMORY_FACTOR);
+	}
+
+	/**
+	 * Returns the number of buckets of the given size an input of the given estimated size will be split into.
+	 * <p>
+	 * There is at least one bucket per thread. More buckets than necessary only cost open file handles and smaller
+	 * write buffers.
+	 */
+	static int getBucketCount(long estimate, long bucketSize, int parallelDegree) {
+		return (int) Math.min(MAX_BUCKETS, Math.max(parallelDegree, divideCeil(estimate, bucketSize)));
+	}
+
+	/**
+	 * Splits the buckets of the given splitter which are a lot larger than the average bucket or larger than the given
+	 * bucket size into sub-buckets.
+	 * <p>
+	 * Sub-buckets are assigned by a hash with a different seed, so duplicates still end up in the same sub-bucket.
+	 * Buckets are only split once. A bucket which is large because of the duplicates of a few phrases will stay large,
+	 * but it is cheap to merge.
+	 */
+	private static void resplitLargeBuckets(PreprocessingOptions options, Path tmp, SplitterCsvWriter splitter,
+	                                        long bucketSize) throws Exception {
+		long[] sizes = splitter.getBucketSizes();
+		printBucketSizes(sizes);
+
+		long total = 0;
+		for (long size : sizes) {
+			total += size;
+		}
+		long average = Math.max(1, total / Math.max(1, sizes.length));
+		long threshold = Math.min(bucketSize, RESPLIT_SKEW * average);
+		long subBucketSize = Math.min(bucketSize, average);
+
+		Map<Path, Integer> large = new HashMap<>();
+		List<PhraseSource.File> files = new ArrayList<>();
+		for (int i = 0; i < sizes.length; i++) {
+			if (sizes[i] > threshold) {
+				Path path = splitter.getBucketPath(i);
+				large.put(path, i);
+				files.add(new SimplePhraseSourceFile(path, PhraseReaderFactory.SIMPLE_CSV));
+			}
+		}
+		if (files.isEmpty()) {
+			return;
+		}
+
+		System.out.println("Splitting " + files.size() + " large buckets again.");
+		PreprocessingOptions resplitOptions = new PreprocessingOptions(options);
+		resplitOptions.setDeleteSource(DeleteMode.PROGRESSIVE);
+		processAllFiles(resplitOptions, "Splitting large buckets", PhraseSource.fromFiles(files), (file, event) -> {
+			int bucket = large.get(file.getPath());
+			int subBuckets = (int) Math.min(MAX_SUB_BUCKETS, Math.max(2, divideCeil(sizes[bucket], subBucketSize)));
+			long phrases = 0;
+			try (Utf8PhraseReader reader = file.createUtf8Reader();
+			     SplitterCsvWriter writer = new SplitterCsvWriter(tmp, bucket + "-", subBuckets, RESPLIT_SEED)) {
+				while (reader.next()) {
+					writer.write(reader.getPhrase(), reader.getFrequency());
+					phrases++;
+				}
+			}
+			event.phrasesRead = phrases;
+			event.phrasesWritten = phrases;
+		});
+	}
+
+	private static void printBucketSizes(long[] sizes) {
+		if (sizes.length == 0) {
+			return;
+		}
+		long[] sorted = sizes.clone();
+		Arrays.sort(sorted);
+		System.out.println("Bucket sizes: min " + readableSize(sorted[0]) + ", median "
+				+ readableSize(sorted[sorted.length / 2]) + ", 99th percentile "
+				+ readableSize(sorted[(int) ((sorted.length - 1) * 0.99)]) + ", max "
+				+ readableSize(sorted[sorted.length - 1]));
+	}
+
+	/**
+	 * Estimates the number of bytes of all phrases of the given input which pass the given filter written as CSV.
+	 * <p>
+	 * Only the first phrases of a few files are read. The decompressed size of all files is the size of all files
+	 * multiplied with the compression ratio of the sampled files (see {@link PhraseSource.File#estimateSize()}). This
+	 * is multiplied with the ratio of CSV bytes of the accepted phrases to the bytes the readers read for them (see
+	 * {@link PhraseSource.File#createCountingReader()}).
+	 * <p>
+	 * The mappers are not applied because they may keep statistics of all phrases they see. Most mappers only remove
+	 * or shorten phrases, so this tends to overestimate which only costs a few more buckets.
+	 */
+	static long estimateBytes(PhraseSource input, ReaderFilter filter) throws Exception {
+		List<PhraseSource.File> files = new ArrayList<>();
+		long total = 0;
+		for (PhraseSource.File file : input.getFiles()) {
+			if (file.getMinWords() <= filter.getMaxWords()) {
+				files.add(file);
+				total += Files.size(file.getPath());
+			}
+		}
+		if (files.isEmpty()) {
+			return 0;
+		}
+
+		long sampledSize = 0;
+		long sampledEstimate = 0;
+		long read = 0;
+		long accepted = 0;
+		int step = Math.max(1, files.size() / SIZE_SAMPLE_FILES);
+		for (int i = 0; i < files.size(); i += step) {
+			PhraseSource.File file = files.get(i);
+			sampledSize += Files.size(file.getPath());
+			sampledEstimate += file.estimateSize();
+
+			PhraseSource.CountingReader counting = file.createCountingReader();
+			try (PhraseReader reader = counting == null ? file.createReader() : counting) {
+				long phraseBytes = 0;
+				for (int j = 0; j < SIZE_SAMPLE_PHRASES && reader.advance(); j++) {
+					String phrase = reader.phrase();
+					long frequency = reader.frequency();
+					long length = csvLength(phrase, frequency);
+					phraseBytes += length;
+					if (filter.acceptsFrequency(frequency) && filter.acceptsWords(phrase, 0, phrase.length())) {
+						accepted += length;
+					}
+				}
+				read += counting == null ? phraseBytes : counting.getBytesRead();
+			}
+		}
+
+		double decompressed = sampledSize == 0 ? total : (double) total / sampledSize * sampledEstimate;
+		return read == 0 ? (long) decompressed : (long) (decompressed * ((double) accepted / read));
+	}
+
+	private static long csvLength(String phrase, long frequency) {
+		// phrase, tab, frequency, new line
+		return phrase.getBytes(UTF_8).length + Long.toString(frequency).length() + 2;
+	}
+
+	private static long divideCeil(long a, long b) {
+		return (a + b - 1) / b;
+	}
+
+	private static long directorySize(Path dir) throws IOException {
+		long size = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+			for (Path file : stream) {
+				size += Files.size(file);
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Applies the mappers to all phrases of the given sorted input and merges the duplicates with a single k-way merge.
+	 * <p>
+	 * This neither splits phrases into temporary buckets nor uses hash maps. All files are read at the same time by a
+	 * single thread, so this only uses one core. The output files will be sorted (see {@link RollingCsvWriter}).
+	 * <p>
+	 * If the mapped phrases of a file are not sorted (see {@link SortedMerge}), the output will be deleted and
+	 * {@code false} will be returned. The input then has to be merged by hash. The output observer will only see the
+	 * output after the merge succeeded, so it never sees the phrases of a failed merge.
+	 *
+	 * @return Whether the input was sorted.
+	 */
+	private static boolean mergeSorted(PreprocessingOptions options, PhraseSource input, Path outputDir,
+	                                   PhraseMapper[] mappers, ReaderFilter filter, MapperStats[] stats,
+	                                   long slowPhraseThreshold, PhraseCounts counts) throws Exception {
+		// slow phrases are only detected if someone is actually interested in them
+		if (slowPhraseThreshold > 0 && !new SlowPhraseEvent().isEnabled()) {
+			slowPhraseThreshold = 0;
+		}
+
+		System.out.println("Applying mappers and merging sorted phrases.");
+		MergeBucketEvent bucketEvent = new MergeBucketEvent();
+		bucketEvent.begin();
+
+		Collection<PhraseSource.File> files = input.getFiles();
+		SortedMerge merge = new SortedMerge(SORTED_MERGE_WINDOW);
+		AtomicLong read = new AtomicLong(0);
+		try {
+			List<SortedMerge.Stream> streams = new ArrayList<>();
+			try {
+				for (PhraseSource.File file : files) {
+					if (file.getMinWords() <= filter.getMaxWords()) {
+						Utf8PhraseReader reader = createMappedReader(file, mappers, filter, stats, slowPhraseThreshold,
+								read);
+						streams.add(new SortedMerge.Stream(file.getPath(), reader));
+					}
+				}
+			} catch (Throwable e) {
+				for (SortedMerge.Stream stream : streams) {
+					stream.reader.close();
+				}
+				throw e;
+			}
+
+			try (RollingCsvWriter writer = new RollingCsvWriter(outputDir, SORTED_MERGE_FILE_PHRASES,
+						options.outputShardSize > 0 ? options.outputShardSize : Long.MAX_VALUE)) {
+				merge.merge(streams, writer);
+			}
+		} catch (SortedMerge.UnsortedException e) {
+			System.out.println(e.getMessage());
+			System.out.println("Merging phrases by hash instead.");
+			// the output directory was empty (see Util#createEmptyDirectory), so all files in it were written by the merge
+			try (DirectoryStream<Path> written = Files.newDirectoryStream(outputDir, Files::isRegularFile)) {
+				for (Path file : written) {
+					Files.delete(file);
+				}
+			}
+			if (stats != null) {
+				for (MapperStats s : stats) {
+					s.reset();
+				}
+			}
+			return false;
+		}
+
+		long phrases = merge.getPhrases();
+		long duplicates = merge.getDuplicates();
+		counts.read = read.get();
+		counts.written = phrases;
+		double percentage = Math.round(100. * 10. * duplicates / phrases) / 10.;
+		System.out.println("Total of " + phrases + " phrases with " + duplicates + " (" + percentage
+				+ "%) duplicates merged.");
+
+		bucketEvent.end();
+		if (bucketEvent.shouldCommit()) {
+			bucketEvent.path = outputDir.toString();
+			bucketEvent.phrases = phrases;
+			bucketEvent.duplicates = duplicates;
+			bucketEvent.commit();
+		}
+
+		if (options.deleteSource != DeleteMode.NONE) {
+			for (PhraseSource.File file : files) {
+				Files.delete(file.getPath());
+			}
+		}
+
+		if (options.outputObserver != null) {
+			PreprocessingOptions observerOptions = new PreprocessingOptions(options);
+			observerOptions.setDeleteSource(DeleteMode.NONE);
+			PhraseMapper[] observer = { options.outputObserver };
+			processAllFiles(observerOptions, "Observing output", new SimplePhraseSource(outputDir), (file, event) -> {
+				applyMappers(file, null, observer, ReaderFilter.NONE, null, 0, event);
+			});
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns a reader which returns the mapped phrases of the given file. Phrases removed by the mappers will be
+	 * skipped.
+	 * <p>
+	 * This reads and maps phrases the same way {@link #applyMappers(PhraseSource.File, PhraseWriter, PhraseMapper[],
+	 * ReaderFilter, MapperStats[], long, FileTaskEvent)} does. All phrases read from the file are counted in
+	 * {@code read}.
+	 */
+	private static Utf8PhraseReader createMappedReader(PhraseSource.File file, PhraseMapper[] mappers,
+	                                                   ReaderFilter filter, MapperStats[] stats,
+	                                                   long slowPhraseThreshold, AtomicLong read) throws Exception {
+		if (stats == null && slowPhraseThreshold <= 0) {
+			Utf8PhraseReader reader = file.createUtf8Reader();
+			if (reader != null) {
+				reader.setFilter(filter);
+
+				int utf8Mappers = countUtf8Mappers(mappers);
+				Utf8PhraseMapper[] utf8MapperArray = new Utf8PhraseMapper[utf8Mappers];
+				for (int i = 0; i < utf8Mappers; i++) {
+					utf8MapperArray[i] = (Utf8PhraseMapper) mappers[i];
+				}
+				PhraseMapper[] stringMappers = Arrays.copyOfRange(mappers, utf8Mappers, mappers.length);
+
+				return new Utf8PhraseReader() {
+					private Utf8Phrase phrase;
+
+					@Override
+					public boolean next() throws Exception {
+						while (reader.next()) {
+							read.incrementAndGet();
+							long frequency = reader.getFrequency();
+							Utf8Phrase newPhrase = mapAll(reader.getPhrase(), frequency, utf8MapperArray);
+							if (newPhrase != null && stringMappers.length > 0) {
+								String s = mapAll(newPhrase.toString(), frequency, stringMappers, null, 0);
+								newPhrase = s == null ? null : Utf8Phrase.of(s);
+							}
+							if (newPhrase != null) {
+								phrase = newPhrase;
+								return true;
+							}
+						}
+						return false;
+					}
+
+					@Override
+					public Utf8Phrase getPhrase() {
+						return phrase;
+					}
+
+					@Override
+					public long getFrequency() {
+						return reader.getFrequency();
+					}
+
+					@Override
+					public void close() throws Exception {
+						reader.close();
+					}
+				};
+			}
+		}
+
+		PhraseReader reader = file.createReader();
+		reader.setFilter(filter);
+		return new Utf8PhraseReader() {
+			private Utf8Phrase phrase;
+
+			@Override
+			public boolean next() throws Exception {
+				while (reader.advance()) {
+					read.incrementAndGet();
+					String newPhrase = mapAll(reader.phrase(), reader.frequency(), mappers, stats, slowPhraseThreshold);
+					if (newPhrase != null) {
+						phrase = Utf8Phrase.of(newPhrase);
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public Utf8Phrase getPhrase() {
+				return phrase;
+			}
+
+			@Override
+			public long getFrequency() {
+				return reader.frequency();
+			}
+
+			@Override
+			public void close() throws Exception {
+				reader.close();
+			}
+		};
+	}
+
+	/**
+	 * Merges the duplicates of the given buckets of word id phrases.
+	 * <p>
+	 * Phrases will only be converted back to strings if the output is not supposed to be word ids.
+	 */
+	private static void mergeWordIds(PreprocessingOptions options, WordIdPhraseSource buckets, Path outputDir,
+	                                 WordDictionary dictionary, boolean wordIdOutput, AtomicLong totalPhrasesCount,
+	                                 AtomicLong totalDuplicatesCount) throws Exception {
+		processAllFiles(options, "Merging phrases", buckets, (file, event) -> {
+			MergeBucketEvent bucketEvent = new MergeBucketEvent();
+			bucketEvent.begin();
+
+			Map<WordIdPhrase, Long> map = new HashMap<>();
+			try (WordIdReader reader = ((WordIdPhraseSource.WordIdFile) file).createWordIdReader()) {
+				long phrases = 0;
+				AtomicLong dups = new AtomicLong(0);
+				while (reader.next()) {
+					phrases++;
+					map.merge(new WordIdPhrase(reader.getIds()), reader.getFrequency(), (a, b) -> {
+						dups.incrementAndGet();
+						return a + b;
+					});
+				}
+				totalPhrasesCount.addAndGet(phrases - dups.get());
+				totalDuplicatesCount.addAndGet(dups.get());
+
+				event.phrasesRead = phrases;
+				bucketEvent.phrases = phrases - dups.get();
+				bucketEvent.duplicates = dups.get();
+			}
+
+			// write map
+			String name = file.getPath().getFileName().toString();
+			if (wordIdOutput) {
+				Path out = outputDir.resolve(name);
+				try (WordIdWriter writer = new WordIdWriter(
+						new BufferedOutputStream(Files.newOutputStream(out), 1024 * 256), dictionary)) {
+					for (Entry<WordIdPhrase, Long> entry : map.entrySet()) {
+						writer.write(entry.getKey().getIds(), entry.getValue());
+						if (options.outputObserver != null) {
+							options.outputObserver.map(dictionary.decode(entry.getKey().getIds()), entry.getValue());
+						}
+					}
+				}
+			} else {
+				Path out = outputDir.resolve(name.replaceFirst("\\.bin$", ".csv"));
+				try (PhraseWriter writer = observe(new SimpleCsvWriter(Files.newBufferedWriter(out, UTF_8)),
+						options.outputObserver)) {
+					for (Entry<WordIdPhrase, Long> entry : map.entrySet()) {
+						writer.write(dictionary.decode(entry.getKey().getIds()), entry.getValue());
+					}
+				}
+			}
+			event.phrasesWritten = map.size();
+
+			bucketEvent.end();
+			if (bucketEvent.shouldCommit()) {
+				bucketEvent.path = file.getPath().toString();
+				bucketEvent.bytes = event.bytes;
+				bucketEvent.commit();
+			}
+		});
+	}
+
+	/**
+	 * Returns a writer which passes all phrases to the given observer before writing them to the given writer.
+	 * <p>
+	 * If the observer is {@code null}, the given writer will be returned.
+	 */
+	private static PhraseWriter observe(PhraseWriter writer, PhraseMapper observer) {
+		if (observer == null)
+			return writer;
+
+		return new PhraseWriter() {
+			@Override
+			public void write(String phrase, long frequency) throws Exception {
+				observer.map(phrase, frequency);
+				writer.write(phrase, frequency);
+			}
+
+			@Override
+			public void close() throws Exception {
+				writer.close();
+			}
+		};
 	}
 
 	/**
@@ -186,23 +832,29 @@ public final class Preprocessing {
 		System.out.println("Applying mappers.");
 		PhraseMapper[] mapperArray = mappers.toArray(new PhraseMapper[0]);
 		MapperStats[] stats = options.verbose ? createStats(mapperArray) : null;
-		processAllFiles(options, input, file -> {
-			try (PhraseReader reader = file.createReader()) {
-				applyMappers(reader, null, mapperArray, stats);
-			}
+		ReaderFilter filter = pushDown(mapperArray, stats);
+		long slowPhraseThreshold = options.slowPhraseThreshold;
+		PhraseCounts counts = processAllFiles(options, "Iterating", input, (file, event) -> {
+			applyMappers(file, null, mapperArray, filter, stats, slowPhraseThreshold, event);
 		});
 
 		printStats(stats);
+		Pipeline.countPhrases(counts.read, 0);
 
 		long end = System.currentTimeMillis();
 		System.out.println("Took " + readableDuration(Duration.ofMillis(end - start)));
 		System.out.println("Done.");
 	}
 
-	private static void processAllFiles(PreprocessingOptions options, PhraseSource input, ProcessAllConsumer consumer)
-			throws Exception {
+	/**
+	 * Processes all files of the given input in parallel and returns the total number of phrases read and written.
+	 */
+	private static PhraseCounts processAllFiles(PreprocessingOptions options, String stage, PhraseSource input,
+	                                            ProcessAllConsumer consumer) throws Exception {
 		ExecutorService executor = Executors.newFixedThreadPool(options.parallelDegree);
 		DeleteMode deleteSource = options.deleteSource;
+		LongAdder read = new LongAdder();
+		LongAdder written = new LongAdder();
 		try {
 			List<Future<Path>> futures = new ArrayList<>();
 			int i = 0;
@@ -214,7 +866,23 @@ public final class Preprocessing {
 					String prefix = "[" + new Date() + "][" + percent + "% " + currentIndex + "/" + files.size() + "] ";
 					System.out.println(prefix + "Preprocessing " + file);
 
-					consumer.accept(file);
+					FileTaskEvent event = new FileTaskEvent();
+					if (event.isEnabled()) {
+						// the file might be deleted by the time the event is committed
+						event.bytes = Files.size(file.getPath());
+					}
+					event.begin();
+
+					consumer.accept(file, event);
+					read.add(event.phrasesRead);
+					written.add(event.phrasesWritten);
+
+					event.end();
+					if (event.shouldCommit()) {
+						event.stage = stage;
+						event.path = file.getPath().toString();
+						event.commit();
+					}
 
 					if (deleteSource == DeleteMode.PROGRESSIVE) {
 						Files.delete(file.getPath());
@@ -232,28 +900,214 @@ public final class Preprocessing {
 			executor.shutdown();
 			executor.awaitTermination(100, DAYS);
 		}
+
+		PhraseCounts counts = new PhraseCounts();
+		counts.read = read.sum();
+		counts.written = written.sum();
+		return counts;
+	}
+
+	private static class PhraseCounts {
+
+		long read;
+		long written;
+
 	}
 
 	@FunctionalInterface
 	private interface ProcessAllConsumer {
 
-		void accept(PhraseSource.File file) throws Exception;
+		/**
+		 * Processes the given file.
+		 * <p>
+		 * Implementations are expected to set the phrase counts of the given event.
+		 *
+		 * @param file
+		 * @param event
+		 * @throws Exception
+		 */
+		void accept(PhraseSource.File file, FileTaskEvent event) throws Exception;
+
+	}
+
+	/**
+	 * Returns the filter which can be pushed down into the readers of the given mappers.
+	 * <p>
+	 * Mappers never change frequencies, so the frequency predicates of all mappers can be pushed down. The word count
+	 * predicate of a mapper can only be pushed down if none of the mappers before it decreases the number of words
+	 * (see {@link PhraseMapper#neverRemovesSpaces()}). E.g. the maximum number of words of
+	 * {@link PhraseMappers#maxNGram(int)} can't be pushed down if it comes after
+	 * {@link PhraseMappers#joinWordsWithLeadingApostrophe()}.
+	 *
+	 * @param mappers
+	 * @return
+	 */
+	public static ReaderFilter getPushdownFilter(PhraseMapper[] mappers) {
+		ReaderFilter filter = ReaderFilter.NONE;
+		boolean wordsUnchanged = true;
+		for (PhraseMapper mapper : mappers) {
+			ReaderFilter mapperFilter = mapper.getReaderFilter();
+			filter = filter.and(wordsUnchanged ? mapperFilter : mapperFilter.withoutMaxWords());
+			wordsUnchanged = wordsUnchanged && mapper.neverRemovesSpaces();
+		}
+		return filter;
+	}
+
+	/**
+	 * Returns the filter which will be passed to the readers.
+	 * <p>
+	 * Nothing will be pushed down if stats are recorded because all phrases have to be passed to the mappers then.
+	 */
+	private static ReaderFilter pushDown(PhraseMapper[] mappers, MapperStats[] stats) {
+		if (stats != null)
+			return ReaderFilter.NONE;
 
+		ReaderFilter filter = getPushdownFilter(mappers);
+		if (!filter.isNone()) {
+			System.out.println("Skipping phrases while reading: " + filter);
+		}
+		return filter;
+	}
+
+	/**
+	 * Applies the given mappers to all phrases of the given file and writes the results to the given writer.
+	 * <p>
+	 * If neither stats nor slow phrases have to be recorded, the file will be read as UTF-8 phrases if possible. The
+	 * longest prefix of mappers which implement {@link Utf8PhraseMapper} will then be applied without decoding the
+	 * phrases.
+	 * <p>
+	 * The given filter will be passed to the reader of the file. Files whose phrases all have more words than the
+	 * filter allows will not be opened.
+	 *
+	 * @param file
+	 * @param writer The writer to write the mapped phrases to. This may be {@code null}.
+	 * @param mappers
+	 * @param filter The reader filter returned by {@link #pushDown(PhraseMapper[], MapperStats[])}.
+	 * @param stats
+	 * @param slowPhraseThreshold
+	 * @param event
+	 * @throws Exception
+	 */
+	private static void applyMappers(PhraseSource.File file, PhraseWriter writer, PhraseMapper[] mappers,
+	                                 ReaderFilter filter, MapperStats[] stats, long slowPhraseThreshold,
+	                                 FileTaskEvent event) throws Exception {
+		if (file.getMinWords() > filter.getMaxWords()) {
+			event.phrasesRead = 0;
+			event.phrasesWritten = 0;
+			return;
+		}
+
+		// slow phrases are only detected if someone is actually interested in them
+		if (slowPhraseThreshold > 0 && !new SlowPhraseEvent().isEnabled()) {
+			slowPhraseThreshold = 0;
+		}
+
+		if (stats == null && slowPhraseThreshold <= 0) {
+			int utf8Mappers = countUtf8Mappers(mappers);
+			if (utf8Mappers > 0 || mappers.length == 0) {
+				try (Utf8PhraseReader reader = file.createUtf8Reader()) {
+					if (reader != null) {
+						reader.setFilter(filter);
+						applyUtf8Mappers(reader, writer, mappers, utf8Mappers, event);
+						return;
+					}
+				}
+			}
+		}
+
+		try (PhraseReader reader = file.createReader()) {
+			reader.setFilter(filter);
+			applyMappers(reader, writer, mappers, stats, slowPhraseThreshold, event);
+		}
 	}
 
 	private static void applyMappers(PhraseReader reader, PhraseWriter writer, PhraseMapper[] mappers,
-	                                 MapperStats[] stats) throws Exception {
-		PhraseFrequencyPair pair;
-		while ((pair = reader.nextPair()) != null) {
-			String newPhrase = mapAll(pair.phrase, pair.frequency, mappers, stats);
+	                                 MapperStats[] stats, long slowPhraseThreshold, FileTaskEvent event)
+			throws Exception {
+		long read = 0;
+		long written = 0;
+		while (reader.advance()) {
+			read++;
+			long frequency = reader.frequency();
+			String newPhrase = mapAll(reader.phrase(), frequency, mappers, stats, slowPhraseThreshold);
 			if (newPhrase != null && writer != null) {
-				writer.write(newPhrase, pair.frequency);
+				writer.write(newPhrase, frequency);
+				written++;
+			}
+		}
+
+		event.phrasesRead = read;
+		event.phrasesWritten = written;
+	}
+
+	/**
+	 * Returns the number of leading mappers which implement {@link Utf8PhraseMapper}.
+	 *
+	 * @param mappers
+	 * @return
+	 */
+	private static int countUtf8Mappers(PhraseMapper[] mappers) {
+		int count = 0;
+		while (count < mappers.length && mappers[count] instanceof Utf8PhraseMapper) {
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Applies the first {@code utf8Mappers} mappers on the UTF-8 phrases of the given reader. The remaining mappers
+	 * will be applied on the decoded phrases.
+	 */
+	private static void applyUtf8Mappers(Utf8PhraseReader reader, PhraseWriter writer, PhraseMapper[] mappers,
+	                                     int utf8Mappers, FileTaskEvent event) throws Exception {
+		Utf8PhraseMapper[] utf8MapperArray = new Utf8PhraseMapper[utf8Mappers];
+		for (int i = 0; i < utf8Mappers; i++) {
+			utf8MapperArray[i] = (Utf8PhraseMapper) mappers[i];
+		}
+		PhraseMapper[] stringMappers = Arrays.copyOfRange(mappers, utf8Mappers, mappers.length);
+
+		// phrases only have to be decoded if there are string mappers left or the writer can't handle UTF-8 phrases
+		Utf8PhraseWriter utf8Writer = stringMappers.length == 0 && writer instanceof Utf8PhraseWriter
+				? (Utf8PhraseWriter) writer
+				: null;
+
+		long read = 0;
+		long written = 0;
+		while (reader.next()) {
+			read++;
+			long frequency = reader.getFrequency();
+			Utf8Phrase phrase = mapAll(reader.getPhrase(), frequency, utf8MapperArray);
+			if (phrase == null)
+				continue;
+
+			if (utf8Writer != null) {
+				utf8Writer.write(phrase, frequency);
+				written++;
+			} else {
+				String newPhrase = mapAll(phrase.toString(), frequency, stringMappers, null, 0);
+				if (newPhrase != null && writer != null) {
+					writer.write(newPhrase, frequency);
+					written++;
+				}
 			}
 		}
+
+		event.phrasesRead = read;
+		event.phrasesWritten = written;
 	}
 
-	private static String mapAll(String phrase, long frequency, PhraseMapper[] mappers, MapperStats[] stats) {
-		if (stats == null) {
+	private static Utf8Phrase mapAll(Utf8Phrase phrase, long frequency, Utf8PhraseMapper[] mappers) {
+		for (Utf8PhraseMapper mapper : mappers) {
+			if (phrase == null || phrase.isEmpty())
+				return null;
+			phrase = mapper.map(phrase, frequency);
+		}
+		return phrase == null || phrase.isEmpty() ? null : phrase;
+	}
+
+	private static String mapAll(String phrase, long frequency, PhraseMapper[] mappers, MapperStats[] stats,
+	                             long slowPhraseThreshold) {
+		if (stats == null && slowPhraseThreshold <= 0) {
 			for (PhraseMapper mapper : mappers) {
 				if (phrase == null || phrase.isEmpty())
 					return null;
@@ -261,11 +1115,17 @@ public final class Preprocessing {
 			}
 			return phrase == null || phrase.isEmpty() ? null : phrase;
 		} else {
-			return mapAllWithStats(phrase, frequency, mappers, stats);
+			return mapAllWithStats(phrase, frequency, mappers, stats, slowPhraseThreshold);
 		}
 	}
 
-	private static String mapAllWithStats(String phrase, long frequency, PhraseMapper[] mappers, MapperStats[] stats) {
+	/**
+	 * Same as {@link #mapAll(String, long, PhraseMapper[], MapperStats[], long)} but with time measurements.
+	 * <p>
+	 * The given stats may be {@code null}. The given slow phrase threshold is only used if it is positive.
+	 */
+	private static String mapAllWithStats(String phrase, long frequency, PhraseMapper[] mappers, MapperStats[] stats,
+	                                      long slowPhraseThreshold) {
 		if (phrase == null || phrase.isEmpty())
 			return null;
 
@@ -273,6 +1133,24 @@ public final class Preprocessing {
 			long start = System.nanoTime();
 			String newPhrase = mappers[i].map(phrase, frequency);
 			long time = System.nanoTime() - start;
+
+			if (slowPhraseThreshold > 0 && time >= slowPhraseThreshold) {
+				SlowPhraseEvent event = new SlowPhraseEvent();
+				event.mapper = mappers[i].getName();
+				event.phrase = phrase;
+				event.frequency = frequency;
+				event.mapperTime = time;
+				event.commit();
+			}
+
+			if (stats == null) {
+				if (newPhrase == null || newPhrase.isEmpty()) {
+					return null;
+				}
+				phrase = newPhrase;
+				continue;
+			}
+
 			MapperStats s = stats[i];
 			s.phrasesTotal.accumulate(1);
 			s.runTime.accumulate(time);
@@ -321,6 +1199,9 @@ public final class Preprocessing {
 				System.out.println("  kept   : " + padStart(kept, 12) + " (" + percent(kept / t, 2) + ")");
 				System.out.println("  time/phrase: " + round(runTime / total, 2) + "ns/p");
 			}
+			for (String line : s.mapper.getStats()) {
+				System.out.println("  " + line);
+			}
 		}
 		System.out.println();
 	}
@@ -351,6 +1232,14 @@ public final class Preprocessing {
 		return duration.toString().substring(2).replaceAll("(\\d[HMS])(?!$)", "$1 ").toLowerCase();
 	}
 
+	private static String readableSize(long bytes) {
+		if (bytes < 1024) {
+			return bytes + " B";
+		}
+		int unit = (63 - Long.numberOfLeadingZeros(bytes)) / 10;
+		return round(bytes / (double) (1L << (unit * 10)), 1) + " " + "KMGTPE".charAt(unit - 1) + "iB";
+	}
+
 	private static class MapperStats {
 
 		public final PhraseMapper mapper;
@@ -367,6 +1256,14 @@ public final class Preprocessing {
 			this.mapper = mapper;
 		}
 
+		public void reset() {
+			phrasesTotal.reset();
+			phrasesRemoved.reset();
+			phrasesChanged.reset();
+			phrasesLeftUnchanged.reset();
+			runTime.reset();
+		}
+
 	}
 
 }
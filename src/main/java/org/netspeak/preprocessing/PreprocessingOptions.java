@@ -2,11 +2,23 @@ package org.netspeak.preprocessing;
 
 import static java.util.Objects.requireNonNull;
 
+import java.time.Duration;
+
+import org.netspeak.io.WordDictionary;
+
 public class PreprocessingOptions {
 	int parallelDegree = 1;
 	boolean mergeDuplicates = false;
+	boolean sortedInput = false;
 	DeleteMode deleteSource = DeleteMode.NONE;
 	boolean verbose = false;
+	long slowPhraseThreshold = 0;
+	WordDictionary wordDictionary = null;
+	OutputFormat outputFormat = OutputFormat.CSV;
+	OutputOrder outputOrder = OutputOrder.NONE;
+	long bucketSize = 0;
+	long outputShardSize = 0;
+	PhraseMapper outputObserver = null;
 
 	public PreprocessingOptions() {
 	}
@@ -14,8 +26,16 @@ public class PreprocessingOptions {
 	public PreprocessingOptions(PreprocessingOptions toCopy) {
 		parallelDegree = toCopy.parallelDegree;
 		mergeDuplicates = toCopy.mergeDuplicates;
+		sortedInput = toCopy.sortedInput;
 		deleteSource = toCopy.deleteSource;
 		verbose = toCopy.verbose;
+		slowPhraseThreshold = toCopy.slowPhraseThreshold;
+		wordDictionary = toCopy.wordDictionary;
+		outputFormat = toCopy.outputFormat;
+		outputOrder = toCopy.outputOrder;
+		bucketSize = toCopy.bucketSize;
+		outputShardSize = toCopy.outputShardSize;
+		outputObserver = toCopy.outputObserver;
 	}
 
 	/**
@@ -42,6 +62,25 @@ public class PreprocessingOptions {
 		this.mergeDuplicates = mergeDuplicates;
 	}
 
+	/**
+	 * Sets whether the phrases of all input files are sorted by their UTF-8 bytes,
+	 * even if the files don't report so (see {@link PhraseSource.File#isSorted()}).
+	 * Files which report to be sorted are only merged with a k-way merge without
+	 * this option if no mappers are applied.
+	 * <p>
+	 * If the input is sorted, duplicates will be merged with a single k-way merge
+	 * which needs neither temporary files nor hash maps. The mapped phrases of each
+	 * file only have to be roughly sorted. If they are not, duplicates will be merged
+	 * by hash as usual.
+	 * <p>
+	 * This defaults to {@code false}.
+	 *
+	 * @param sortedInput
+	 */
+	public void setSortedInput(boolean sortedInput) {
+		this.sortedInput = sortedInput;
+	}
+
 	/**
 	 * Sets whether the source files will be deleted after they were read.
 	 * <p>
@@ -84,4 +123,150 @@ public class PreprocessingOptions {
 		this.verbose = verbose;
 	}
 
+	/**
+	 * Sets the time a single mapper is allowed to take for a single phrase before a
+	 * {@link org.netspeak.preprocessing.events.SlowPhraseEvent} is emitted.
+	 * <p>
+	 * The mapper time will only be measured if the threshold is positive and the
+	 * event is enabled in the current JFR recording.
+	 * <p>
+	 * This defaults to {@code null} meaning that no slow phrase events will be
+	 * emitted.
+	 *
+	 * @param slowPhraseThreshold
+	 */
+	public void setSlowPhraseThreshold(Duration slowPhraseThreshold) {
+		this.slowPhraseThreshold = slowPhraseThreshold == null ? 0 : slowPhraseThreshold.toNanos();
+	}
+
+	/**
+	 * Sets the dictionary used to represent phrases as word ids.
+	 * <p>
+	 * If set, phrases will be encoded as word ids right after all mappers have been
+	 * applied. Splitting and merging will then work on the compact word id
+	 * sequences and phrases will only be converted back to strings when writing the
+	 * output (if the output format is {@link OutputFormat#CSV}). The dictionary may
+	 * be pre-seeded (see {@link WordDictionary#seed(org.netspeak.io.PhraseReader)})
+	 * and will be extended with all unknown words.
+	 * <p>
+	 * This defaults to {@code null} meaning that phrases will be handled as
+	 * strings.
+	 *
+	 * @param wordDictionary
+	 */
+	public void setWordDictionary(WordDictionary wordDictionary) {
+		this.wordDictionary = wordDictionary;
+	}
+
+	/**
+	 * Sets the format of the output files.
+	 * <p>
+	 * This defaults to {@link OutputFormat#CSV}.
+	 *
+	 * @param outputFormat
+	 */
+	public void setOutputFormat(OutputFormat outputFormat) {
+		this.outputFormat = requireNonNull(outputFormat);
+	}
+
+	/**
+	 * Sets the order of the phrases in the output files.
+	 * <p>
+	 * Ordered output requires duplicates to be merged and is only supported for
+	 * phrases merged as strings (without a word dictionary).
+	 * <p>
+	 * This defaults to {@link OutputOrder#NONE}.
+	 *
+	 * @param outputOrder
+	 */
+	public void setOutputOrder(OutputOrder outputOrder) {
+		this.outputOrder = requireNonNull(outputOrder);
+	}
+
+	/**
+	 * Sets the maximum number of bytes of the mapped phrases of each bucket used
+	 * to merge duplicates.
+	 * <p>
+	 * Each bucket is merged in memory, so the number of buckets is the estimated
+	 * size of all phrases divided by this. All buckets are written at the
+	 * same time, so more buckets need more open file handles.
+	 * <p>
+	 * This defaults to {@code 0} meaning that the bucket size will be derived from
+	 * the maximum heap size and the parallel degree.
+	 *
+	 * @param bucketSize
+	 */
+	public void setBucketSize(long bucketSize) {
+		this.bucketSize = bucketSize;
+	}
+
+	/**
+	 * Sets the number of bytes of each output file if duplicates are merged.
+	 * <p>
+	 * Unordered output files will be closed as soon as they reach this size, so all
+	 * but the last one will have about this size. The files of ordered output are partitioned by sampled ranges, so
+	 * their size is only approximate. This is not supported for phrases merged as
+	 * word ids.
+	 * <p>
+	 * This defaults to {@code 0} meaning that each bucket will be written to its
+	 * own output file.
+	 *
+	 * @param outputShardSize
+	 */
+	public void setOutputShardSize(long outputShardSize) {
+		this.outputShardSize = outputShardSize;
+	}
+
+	/**
+	 * Sets a mapper which will be called with every phrase written to the output
+	 * files. The return value of the mapper will be ignored.
+	 * <p>
+	 * If duplicates are merged, the observer will see the merged phrases and their
+	 * final frequencies. This can be used to collect information about the output
+	 * (e.g. using a {@link org.netspeak.preprocessing.mappers.VocabularyExtractor})
+	 * without reading the output again. The observer has to be thread-safe.
+	 * <p>
+	 * This defaults to {@code null}.
+	 *
+	 * @param outputObserver
+	 */
+	public void setOutputObserver(PhraseMapper outputObserver) {
+		this.outputObserver = outputObserver;
+	}
+
+	public enum OutputOrder {
+		/**
+		 * Phrases will be partitioned by hash and written in no particular order.
+		 */
+		NONE,
+		/**
+		 * Phrases will be sorted by their UTF-8 bytes. The output files are
+		 * partitioned by ranges of phrases, so the concatenation of all output files
+		 * in the order of their numbers ({@code 0.csv}, {@code 1.csv}, ...) is sorted.
+		 */
+		PHRASE,
+		/**
+		 * Phrases will be sorted by descending frequency and then by their UTF-8 bytes.
+		 * The output files are partitioned by ranges of frequencies, so the
+		 * concatenation of all output files in the order of their numbers is sorted.
+		 */
+		FREQUENCY
+	}
+
+	public enum OutputFormat {
+		/**
+		 * The output will be written as CSV files as understood by
+		 * {@link org.netspeak.io.SimpleCsvReader}.
+		 */
+		CSV,
+		/**
+		 * The output will be written as binary word id files as understood by
+		 * {@link WordIdPhraseSource}.
+		 * <p>
+		 * The output directory will contain the vocabulary file and the phrase files.
+		 * If no word dictionary is set, a new one will be created.
+		 */
+		WORD_IDS
+	}
+
 }
@@ -18,13 +18,13 @@ import java.util.Collection;
 import java.util.List;
 
 import org.netspeak.io.PhraseReader;
-import org.netspeak.io.SimpleCsvReader;
 
 public class SimplePhraseSource implements PhraseSource {
 
 	private final Path path;
-	private PhraseReaderFactory readerFactory = SimpleCsvReader::new;
+	private PhraseReaderFactory readerFactory = PhraseReaderFactory.SIMPLE_CSV;
 	private Filter<Path> fileFilter;
+	private boolean sorted = false;
 
 	public SimplePhraseSource(Path path) {
 		this.path = requireNonNull(path);
@@ -43,7 +43,7 @@ public class SimplePhraseSource implements PhraseSource {
 	 * Sets the factory to create a new {@link PhraseReader} from the given
 	 * {@link BufferedReader}.
 	 * <p>
-	 * This defaults to {@code NetspeakCsvReader::new}.
+	 * This defaults to {@link PhraseReaderFactory#SIMPLE_CSV}.
 	 *
 	 * @param readerFactory
 	 */
@@ -80,6 +80,18 @@ public class SimplePhraseSource implements PhraseSource {
 		}
 	}
 
+	/**
+	 * Sets whether the phrases of all files are sorted.
+	 * <p>
+	 * This defaults to {@code false}.
+	 *
+	 * @param sorted
+	 * @see PhraseSource.File#isSorted()
+	 */
+	public void setSorted(boolean sorted) {
+		this.sorted = sorted;
+	}
+
 	@Override
 	public Collection<PhraseSource.File> getFiles() throws Exception {
 		if (!Files.isDirectory(path)) {
@@ -92,7 +104,9 @@ public class SimplePhraseSource implements PhraseSource {
 			@Override
 			public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) throws IOException {
 				if (fileFilter == null || fileFilter.accept(path)) {
-					files.add(new SimplePhraseSourceFile(path, readerFactory));
+					final SimplePhraseSourceFile file = new SimplePhraseSourceFile(path, readerFactory);
+					file.setSorted(sorted);
+					files.add(file);
 				}
 				return FileVisitResult.CONTINUE;
 			}
@@ -14,17 +14,26 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.utils.CountingInputStream;
 import org.netspeak.io.PhraseReader;
-import org.netspeak.io.SimpleCsvReader;
+import org.netspeak.io.ReaderFilter;
+import org.netspeak.io.Utf8PhraseReader;
 
 public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 
+	/**
+	 * The number of decompressed bytes used to estimate the compression ratio of compressed files.
+	 */
+	private static final int SIZE_SAMPLE_BYTES = 4 << 20;
+
 	private Path path;
 	private final Format format;
 	private final PhraseReaderFactory readerFactory;
+	private int minWords = 1;
+	private boolean sorted = false;
 
 	public SimplePhraseSourceFile(Path path) {
-		this(path, SimpleCsvReader::new);
+		this(path, PhraseReaderFactory.SIMPLE_CSV);
 	}
 
 	public SimplePhraseSourceFile(Path path, PhraseReaderFactory readerFactory) {
@@ -42,6 +51,71 @@ public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 		return path;
 	}
 
+	@Override
+	public int getMinWords() {
+		return minWords;
+	}
+
+	/**
+	 * Sets the minimum number of words of all phrases in this file.
+	 * <p>
+	 * This defaults to 1.
+	 *
+	 * @param minWords
+	 * @see PhraseSource.File#getMinWords()
+	 */
+	public void setMinWords(int minWords) {
+		if (minWords < 1) {
+			throw new IllegalArgumentException("The minimum number of words has to be at least 1.");
+		}
+		this.minWords = minWords;
+	}
+
+	/**
+	 * Returns the size of the file multiplied by the compression ratio of its first few megabytes.
+	 * <p>
+	 * This decompresses up to {@value #SIZE_SAMPLE_BYTES} bytes of compressed files.
+	 */
+	@Override
+	public long estimateSize() throws Exception {
+		final long size = Files.size(path);
+		if (format == Format.TEXT || size == 0) {
+			return size;
+		}
+
+		try (CountingInputStream compressed = new CountingInputStream(Files.newInputStream(path));
+				InputStream in = open(compressed, format)) {
+			final byte[] buffer = new byte[1 << 16];
+			long read = 0;
+			while (read < SIZE_SAMPLE_BYTES) {
+				final int n = in.read(buffer);
+				if (n == -1) {
+					// the whole file was read
+					return read;
+				}
+				read += n;
+			}
+			return (long) ((double) read / Math.max(1, compressed.getBytesRead()) * size);
+		}
+	}
+
+	@Override
+	public boolean isSorted() {
+		return sorted;
+	}
+
+	/**
+	 * Sets whether the phrases of this file are sorted.
+	 * <p>
+	 * This defaults to {@code false}.
+	 *
+	 * @param sorted
+	 * @see PhraseSource.File#isSorted()
+	 */
+	public void setSorted(boolean sorted) {
+		this.sorted = sorted;
+	}
+
 	@Override
 	public void move(Path to) throws Exception {
 		Files.move(path, to);
@@ -55,7 +129,8 @@ public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 
 	@Override
 	public PhraseReader createReader() throws Exception {
-		final BufferedReader br = read(Files.newInputStream(path), format);
+		final InputStream in = open(Files.newInputStream(path), format);
+		final BufferedReader br = new BufferedReader(new InputStreamReader(in, UTF_8));
 
 		try {
 			return readerFactory.createReader(br);
@@ -65,6 +140,66 @@ public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 		}
 	}
 
+	@Override
+	public PhraseSource.CountingReader createCountingReader() throws Exception {
+		final CountingInputStream in = new CountingInputStream(open(Files.newInputStream(path), format));
+		final PhraseReader reader;
+		try {
+			reader = readerFactory.createReader(new BufferedReader(new InputStreamReader(in, UTF_8)));
+		} catch (final Throwable e) {
+			in.close();
+			throw e;
+		}
+
+		return new PhraseSource.CountingReader() {
+			@Override
+			public boolean advance() throws Exception {
+				return reader.advance();
+			}
+
+			@Override
+			public String phrase() {
+				return reader.phrase();
+			}
+
+			@Override
+			public long frequency() {
+				return reader.frequency();
+			}
+
+			@Override
+			public void setFilter(ReaderFilter filter) {
+				reader.setFilter(filter);
+			}
+
+			@Override
+			public long getBytesRead() {
+				return in.getBytesRead();
+			}
+
+			@Override
+			public void close() throws Exception {
+				reader.close();
+			}
+		};
+	}
+
+	@Override
+	public Utf8PhraseReader createUtf8Reader() throws Exception {
+		final InputStream in = open(Files.newInputStream(path), format);
+
+		try {
+			final Utf8PhraseReader reader = readerFactory.createUtf8Reader(in);
+			if (reader == null) {
+				in.close();
+			}
+			return reader;
+		} catch (final Throwable e) {
+			in.close();
+			throw e;
+		}
+	}
+
 	private static Format detectFormat(Path path) {
 		final String lowerPath = path.getFileName().toString().toLowerCase();
 
@@ -81,27 +216,29 @@ public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 		throw new RuntimeException("Unable to detect file format for " + path.toString());
 	}
 
-	private static BufferedReader read(InputStream in, Format format) throws Exception {
+	/**
+	 * Returns the decompressed content of the given stream.
+	 */
+	private static InputStream open(InputStream in, Format format) throws Exception {
 		switch (format) {
 		case TEXT:
-			return new BufferedReader(new InputStreamReader(in, UTF_8));
+			return in;
 		case GZIP:
-			return new BufferedReader(new InputStreamReader(new GZIPInputStream(in), UTF_8));
+			return new GZIPInputStream(in);
 		case BZ2:
-			return readBZ2(in);
+			return openBZ2(in);
 		case ZIP:
-			return readZip(in);
+			return openZip(in);
 		default:
 			throw new IllegalArgumentException("Unknown format");
 		}
 	}
 
-	private static BufferedReader readBZ2(InputStream in) throws Exception {
+	private static InputStream openBZ2(InputStream in) throws Exception {
 		BufferedInputStream bis = null;
 		try {
 			bis = new BufferedInputStream(in);
-			return new BufferedReader(
-					new InputStreamReader(new CompressorStreamFactory().createCompressorInputStream(bis), UTF_8));
+			return new CompressorStreamFactory().createCompressorInputStream(bis);
 		} catch (final Throwable t) {
 			if (bis != null)
 				bis.close();
@@ -110,7 +247,7 @@ public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 		}
 	}
 
-	private static BufferedReader readZip(InputStream in) throws Exception {
+	private static InputStream openZip(InputStream in) throws Exception {
 		// we assume that the .zip contains only one file which is a CSV file
 		BufferedInputStream bis = null;
 		ZipInputStream zip = null;
@@ -124,7 +261,7 @@ public class SimplePhraseSourceFile implements PhraseSource.MovableFile {
 			if (!entry.getName().toLowerCase().endsWith(".csv")) {
 				throw new IllegalStateException("The .zip file is only allowed to contain a single CSV file.");
 			}
-			return new BufferedReader(new InputStreamReader(zip, UTF_8));
+			return zip;
 		} catch (final Throwable t) {
 			if (bis != null)
 				bis.close();
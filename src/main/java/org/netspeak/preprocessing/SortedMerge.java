@@ -0,0 +1,219 @@
+package org.netspeak.preprocessing;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.netspeak.io.Utf8Phrase;
+import org.netspeak.io.Utf8PhraseReader;
+import org.netspeak.io.Utf8PhraseWriter;
+
+/**
+ * A k-way merge of sorted phrase streams which sums up the frequencies of duplicates.
+ * <p>
+ * Each stream has to be sorted by the UTF-8 bytes of its phrases (see {@link Utf8Phrase#compareTo(Utf8Phrase)}).
+ * Mappers may move phrases a little (e.g. by removing a character), so the next {@code window} phrases of each stream
+ * are kept in a heap and taken from there in order. If a stream is still out of order, {@link UnsortedException} will
+ * be thrown.
+ * <p>
+ * Only the windows of all streams are kept in memory and nothing is written to temporary files.
+ */
+final class SortedMerge {
+
+	private static final Comparator<Entry> ENTRY_ORDER = (a, b) -> a.phrase.compareTo(b.phrase);
+	private static final Comparator<Cursor> CURSOR_ORDER = (a, b) -> a.head.phrase.compareTo(b.head.phrase);
+
+	private final int window;
+	private long phrases = 0;
+	private long duplicates = 0;
+
+	/**
+	 * Creates a new merge.
+	 *
+	 * @param window The number of phrases of each stream which may be out of order.
+	 */
+	public SortedMerge(int window) {
+		if (window < 1) {
+			throw new IllegalArgumentException("The window has to be at least 1.");
+		}
+		this.window = window;
+	}
+
+	/**
+	 * Merges the given streams into the given writer.
+	 * <p>
+	 * All readers will be closed.
+	 *
+	 * @param streams
+	 * @param writer
+	 * @throws UnsortedException If one of the streams is not sorted.
+	 * @throws Exception
+	 */
+	public void merge(Collection<Stream> streams, Utf8PhraseWriter writer) throws Exception {
+		final List<Cursor> cursors = new ArrayList<>();
+		for (final Stream stream : streams) {
+			cursors.add(new Cursor(stream));
+		}
+
+		try {
+			final PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, cursors.size()), CURSOR_ORDER);
+			for (final Cursor cursor : cursors) {
+				if (cursor.advance()) {
+					heap.add(cursor);
+				}
+			}
+
+			Utf8Phrase current = null;
+			long sum = 0;
+			while (!heap.isEmpty()) {
+				final Cursor cursor = heap.poll();
+				final Entry head = cursor.head;
+				if (current != null && current.equals(head.phrase)) {
+					sum += head.frequency;
+					duplicates++;
+				} else {
+					if (current != null) {
+						writer.write(current, sum);
+					}
+					current = head.phrase;
+					sum = head.frequency;
+					phrases++;
+				}
+
+				if (cursor.advance()) {
+					heap.add(cursor);
+				}
+			}
+			if (current != null) {
+				writer.write(current, sum);
+			}
+		} catch (final Throwable e) {
+			close(cursors, e);
+			throw e;
+		}
+		close(cursors, null);
+	}
+
+	private static void close(List<Cursor> cursors, Throwable cause) throws Exception {
+		Exception last = null;
+		for (final Cursor cursor : cursors) {
+			try {
+				cursor.stream.reader.close();
+			} catch (final Exception e) {
+				if (cause != null) {
+					cause.addSuppressed(e);
+				} else {
+					last = e;
+				}
+			}
+		}
+		if (last != null) {
+			throw last;
+		}
+	}
+
+	/**
+	 * Returns the number of distinct phrases written so far.
+	 *
+	 * @return
+	 */
+	public long getPhrases() {
+		return phrases;
+	}
+
+	/**
+	 * Returns the number of duplicates merged so far.
+	 *
+	 * @return
+	 */
+	public long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * A sorted stream of phrases.
+	 */
+	public static final class Stream {
+
+		final Path path;
+		final Utf8PhraseReader reader;
+
+		/**
+		 * Creates a new stream.
+		 *
+		 * @param path The path of the file the phrases are read from. This is only used for error messages.
+		 * @param reader
+		 */
+		public Stream(Path path, Utf8PhraseReader reader) {
+			this.path = path;
+			this.reader = reader;
+		}
+
+	}
+
+	/**
+	 * Thrown if a stream is not sorted.
+	 */
+	public static final class UnsortedException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		public UnsortedException(String message) {
+			super(message);
+		}
+
+	}
+
+	private static final class Entry {
+
+		final Utf8Phrase phrase;
+		final long frequency;
+
+		Entry(Utf8Phrase phrase, long frequency) {
+			this.phrase = phrase;
+			this.frequency = frequency;
+		}
+
+	}
+
+	private final class Cursor {
+
+		final Stream stream;
+		final PriorityQueue<Entry> pending = new PriorityQueue<>(window, ENTRY_ORDER);
+		boolean exhausted = false;
+		Entry head = null;
+
+		Cursor(Stream stream) {
+			this.stream = stream;
+		}
+
+		/**
+		 * Moves the head to the next phrase of the stream and returns whether there was one.
+		 */
+		boolean advance() throws Exception {
+			while (!exhausted && pending.size() < window) {
+				if (stream.reader.next()) {
+					pending.add(new Entry(stream.reader.getPhrase(), stream.reader.getFrequency()));
+				} else {
+					exhausted = true;
+				}
+			}
+
+			final Entry next = pending.poll();
+			if (next == null) {
+				return false;
+			}
+			if (head != null && next.phrase.compareTo(head.phrase) < 0) {
+				throw new UnsortedException("The phrases of " + stream.path + " are not sorted: \"" + next.phrase
+						+ "\" comes after \"" + head.phrase + "\".");
+			}
+			head = next;
+			return true;
+		}
+
+	}
+
+}
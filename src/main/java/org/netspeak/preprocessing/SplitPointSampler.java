@@ -0,0 +1,199 @@
+package org.netspeak.preprocessing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+import org.netspeak.io.PhraseFrequencyPair;
+import org.netspeak.io.PhraseWriter;
+import org.netspeak.io.Utf8Phrase;
+import org.netspeak.io.Utf8PhraseWriter;
+
+/**
+ * Picks the split points of range partitions from samples of the phrases written by many tasks.
+ * <p>
+ * Each task samples the phrases it writes into its own reservoir (see {@link #newWriter(PhraseWriter)}), so tasks
+ * don't have to synchronize for every phrase. Tasks see different numbers of phrases, so each sample is weighted by the
+ * number of phrases its reservoir saw divided by the size of the reservoir.
+ */
+final class SplitPointSampler {
+
+	private final int reservoirSize;
+	private final List<Sample> samples = new ArrayList<>();
+
+	/**
+	 * Creates a new sampler.
+	 *
+	 * @param reservoirSize The maximum number of samples of each task.
+	 */
+	public SplitPointSampler(int reservoirSize) {
+		if (reservoirSize < 1) {
+			throw new IllegalArgumentException("The reservoir size has to be at least 1.");
+		}
+		this.reservoirSize = reservoirSize;
+	}
+
+	/**
+	 * Returns a new writer which samples all phrases before writing them to the given writer.
+	 * <p>
+	 * Closing the returned writer adds its samples to this sampler. The given writer will not be closed.
+	 *
+	 * @param out
+	 * @return
+	 */
+	public SamplingWriter newWriter(PhraseWriter out) {
+		return new SamplingWriter(out);
+	}
+
+	/**
+	 * Returns at most {@code partitions - 1} distinct sorted phrases which split the sampled phrases into
+	 * {@code partitions} ranges of about the same size.
+	 *
+	 * @param partitions
+	 * @return
+	 * @see org.netspeak.io.SplitterCsvWriter#byPhraseRanges(java.nio.file.Path, Utf8Phrase[])
+	 */
+	public synchronized Utf8Phrase[] getPhraseSplitPoints(int partitions) {
+		return pick(partitions, (a, b) -> a.phrase.compareTo(b.phrase), s -> s.phrase).toArray(new Utf8Phrase[0]);
+	}
+
+	/**
+	 * Returns at most {@code partitions - 1} distinct phrase frequency pairs ordered by descending frequency and then
+	 * by phrase which split the sampled phrases into {@code partitions} ranges of about the same size.
+	 * <p>
+	 * The split points are pairs, so even a frequency shared by many phrases can be split into several ranges.
+	 * Frequencies are sampled before duplicates are merged, so the ranges of merged phrases will be less balanced.
+	 *
+	 * @param partitions
+	 * @return
+	 * @see org.netspeak.io.SplitterCsvWriter#byFrequencyRanges(java.nio.file.Path, PhraseFrequencyPair[])
+	 */
+	public synchronized PhraseFrequencyPair[] getFrequencySplitPoints(int partitions) {
+		Comparator<Sample> order = (a, b) -> {
+			int cmp = Long.compare(b.frequency, a.frequency);
+			return cmp != 0 ? cmp : a.phrase.compareTo(b.phrase);
+		};
+		return pick(partitions, order, s -> new PhraseFrequencyPair(s.phrase.toString(), s.frequency))
+				.toArray(new PhraseFrequencyPair[0]);
+	}
+
+	private <T> List<T> pick(int partitions, Comparator<Sample> order, Function<Sample, T> key) {
+		samples.sort(order);
+		double total = 0;
+		for (Sample sample : samples) {
+			total += sample.weight;
+		}
+
+		List<T> points = new ArrayList<>();
+		double cumulative = 0;
+		int next = 1;
+		for (int i = 0; i < samples.size() && next < partitions; i++) {
+			Sample sample = samples.get(i);
+			cumulative += sample.weight;
+			if (cumulative >= total * next / partitions) {
+				T point = key.apply(sample);
+				if (points.isEmpty() || !points.get(points.size() - 1).equals(point)) {
+					points.add(point);
+				}
+				while (next < partitions && cumulative >= total * next / partitions) {
+					next++;
+				}
+			}
+		}
+		return points;
+	}
+
+	private synchronized void addAll(List<Sample> reservoir, long seen) {
+		double weight = (double) seen / reservoir.size();
+		for (Sample sample : reservoir) {
+			samples.add(new Sample(sample.phrase, sample.frequency, weight));
+		}
+	}
+
+	private static final class Sample {
+
+		final Utf8Phrase phrase;
+		final long frequency;
+		final double weight;
+
+		Sample(Utf8Phrase phrase, long frequency, double weight) {
+			this.phrase = phrase;
+			this.frequency = frequency;
+			this.weight = weight;
+		}
+
+	}
+
+	/**
+	 * A writer which keeps a uniform sample of all phrases written to it.
+	 */
+	public final class SamplingWriter implements Utf8PhraseWriter {
+
+		private final PhraseWriter out;
+		private final Utf8PhraseWriter utf8Out;
+		private final List<Sample> reservoir = new ArrayList<>();
+		// the seed is fixed, so the same phrases result in the same split points
+		private final SplittableRandom random = new SplittableRandom(reservoirSize);
+		private long seen = 0;
+
+		private SamplingWriter(PhraseWriter out) {
+			this.out = out;
+			this.utf8Out = out instanceof Utf8PhraseWriter ? (Utf8PhraseWriter) out : null;
+		}
+
+		/**
+		 * Returns the index of the reservoir the next phrase will be stored at or -1 if it will not be sampled.
+		 */
+		private int nextIndex() {
+			long index = seen++;
+			if (index < reservoirSize) {
+				return (int) index;
+			}
+			index = random.nextLong(seen);
+			return index < reservoirSize ? (int) index : -1;
+		}
+
+		private void sample(int index, Utf8Phrase phrase, long frequency) {
+			Sample sample = new Sample(phrase, frequency, 0);
+			if (index == reservoir.size()) {
+				reservoir.add(sample);
+			} else {
+				reservoir.set(index, sample);
+			}
+		}
+
+		@Override
+		public void write(String phrase, long frequency) throws Exception {
+			int index = nextIndex();
+			if (index != -1) {
+				sample(index, Utf8Phrase.of(phrase), frequency);
+			}
+			out.write(phrase, frequency);
+		}
+
+		@Override
+		public void write(Utf8Phrase phrase, long frequency) throws Exception {
+			int index = nextIndex();
+			if (index != -1) {
+				sample(index, phrase, frequency);
+			}
+			if (utf8Out != null) {
+				utf8Out.write(phrase, frequency);
+			} else {
+				out.write(phrase.toString(), frequency);
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!reservoir.isEmpty()) {
+				addAll(reservoir, seen);
+				reservoir.clear();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package org.netspeak.preprocessing;
+
+import org.netspeak.io.Utf8Phrase;
+
+/**
+ * The UTF-8 equivalent of {@link PhraseMapper}.
+ * <p>
+ * {@link Preprocessing} will use the UTF-8 variant of a mapper if the mapper implements both {@link PhraseMapper}
+ * and this interface and the input file can be read as UTF-8 phrases. Both variants have to map every phrase to the
+ * same result.
+ *
+ * @see #rename(PhraseMapper, Utf8PhraseMapper)
+ */
+@FunctionalInterface
+public interface Utf8PhraseMapper {
+
+	/**
+	 * Maps a given input {@code phrase} to some output phrase. The returned phrase may be {@code null} or the empty
+	 * phrase in which case the phrase will be removed from the corpus.
+	 * <p>
+	 * The same restrictions as for {@link PhraseMapper#map(String, long)} apply.
+	 *
+	 * @param phrase    The input phrase. This is guaranteed to not be {@code null} and to not be empty.
+	 * @param frequency The phrase frequency.
+	 * @return The filtered phrase.
+	 */
+	Utf8Phrase map(Utf8Phrase phrase, long frequency);
+
+	/**
+	 * Returns a new {@link PhraseMapper} which is also a {@link Utf8PhraseMapper} with the name of the full name of
+	 * the caller method.
+	 *
+	 * @param mapper     The string variant of the mapper.
+	 * @param utf8Mapper The UTF-8 variant of the mapper.
+	 * @return
+	 */
+	static PhraseMapper rename(PhraseMapper mapper, Utf8PhraseMapper utf8Mapper) {
+		StackTraceElement[] stack = Thread.currentThread().getStackTrace();
+		StackTraceElement caller = stack[2];
+		return rename(caller.getClassName() + "." + caller.getMethodName(), mapper, utf8Mapper);
+	}
+
+	/**
+	 * Returns a new {@link PhraseMapper} with the given name which is also a {@link Utf8PhraseMapper}.
+	 *
+	 * @param name
+	 * @param mapper     The string variant of the mapper.
+	 * @param utf8Mapper The UTF-8 variant of the mapper.
+	 * @return
+	 */
+	static PhraseMapper rename(String name, PhraseMapper mapper, Utf8PhraseMapper utf8Mapper) {
+		return new DualPhraseMapper(name, mapper, utf8Mapper);
+	}
+
+}
@@ -0,0 +1,125 @@
+package org.netspeak.preprocessing;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.netspeak.io.PhraseReader;
+import org.netspeak.io.WordDictionary;
+import org.netspeak.io.WordIdReader;
+
+/**
+ * A phrase source of a directory of binary phrase files written by {@link org.netspeak.io.WordIdWriter}.
+ * <p>
+ * The directory is expected to contain a {@link #VOCABULARY_FILE_NAME} file created by
+ * {@link WordDictionary#write(Path)} and any number of {@code .bin} phrase files. Moving a file of this source to
+ * another directory will also copy the vocabulary into that directory.
+ */
+public class WordIdPhraseSource implements PhraseSource {
+
+	/**
+	 * The name of the vocabulary file of a word id directory.
+	 */
+	public static final String VOCABULARY_FILE_NAME = "vocab.txt";
+
+	private final Path path;
+	private WordDictionary dictionary;
+
+	public WordIdPhraseSource(Path path) {
+		this(path, null);
+	}
+
+	/**
+	 * Creates a new phrase source for the given directory.
+	 *
+	 * @param path
+	 * @param dictionary The dictionary of the phrase files. If {@code null}, the dictionary will be read from the
+	 *                   vocabulary file of the directory.
+	 */
+	public WordIdPhraseSource(Path path, WordDictionary dictionary) {
+		this.path = requireNonNull(path);
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public String toString() {
+		return path.toString();
+	}
+
+	private synchronized WordDictionary getDictionary() throws IOException {
+		if (dictionary == null) {
+			dictionary = WordDictionary.read(path.resolve(VOCABULARY_FILE_NAME));
+		}
+		return dictionary;
+	}
+
+	@Override
+	public Collection<PhraseSource.File> getFiles() throws Exception {
+		if (!Files.isDirectory(path)) {
+			throw new AssertionError("Not a directory " + path);
+		}
+
+		final List<PhraseSource.File> files = new ArrayList<>();
+		try (Stream<Path> paths = Files.list(path)) {
+			paths.filter(p -> p.getFileName().toString().endsWith(".bin")).sorted()
+					.forEach(p -> files.add(new WordIdFile(p)));
+		}
+		return files;
+	}
+
+	public class WordIdFile implements PhraseSource.MovableFile {
+
+		private Path path;
+
+		private WordIdFile(Path path) {
+			this.path = requireNonNull(path);
+		}
+
+		@Override
+		public Path getPath() {
+			return path;
+		}
+
+		@Override
+		public void move(Path to) throws Exception {
+			Files.move(path, to);
+			path = to;
+
+			Path vocabulary = to.resolveSibling(VOCABULARY_FILE_NAME);
+			synchronized (WordIdPhraseSource.this) {
+				if (!Files.exists(vocabulary)) {
+					getDictionary().write(vocabulary);
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return path.toString();
+		}
+
+		@Override
+		public PhraseReader createReader() throws Exception {
+			return createWordIdReader();
+		}
+
+		/**
+		 * Returns a new reader for the word ids of this file.
+		 *
+		 * @return
+		 * @throws Exception
+		 */
+		public WordIdReader createWordIdReader() throws Exception {
+			return new WordIdReader(new BufferedInputStream(Files.newInputStream(path), 1024 * 64), getDictionary());
+		}
+
+	}
+
+}
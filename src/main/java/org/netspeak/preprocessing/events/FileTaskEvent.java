@@ -0,0 +1,35 @@
+package org.netspeak.preprocessing.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event which is emitted for every file processed by
+ * {@link org.netspeak.preprocessing.Preprocessing}.
+ */
+@Name("org.netspeak.FileTask")
+@Label("File Task")
+@Category({ "Netspeak", "Preprocessing" })
+@Description("The processing of a single input file.")
+public class FileTaskEvent extends jdk.jfr.Event {
+
+	@Label("Stage")
+	public String stage;
+
+	@Label("Path")
+	public String path;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Phrases Read")
+	public long phrasesRead;
+
+	@Label("Phrases Written")
+	public long phrasesWritten;
+
+}
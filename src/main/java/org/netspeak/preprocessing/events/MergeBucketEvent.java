@@ -0,0 +1,33 @@
+package org.netspeak.preprocessing.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event which is emitted for every bucket merged by
+ * {@link org.netspeak.preprocessing.Preprocessing}.
+ */
+@Name("org.netspeak.MergeBucket")
+@Label("Merge Bucket")
+@Category({ "Netspeak", "Preprocessing" })
+@Description("The merging of duplicate phrases within a single bucket.")
+public class MergeBucketEvent extends jdk.jfr.Event {
+
+	@Label("Path")
+	public String path;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+	@Label("Phrases")
+	@Description("The number of distinct phrases in the bucket.")
+	public long phrases;
+
+	@Label("Duplicates")
+	public long duplicates;
+
+}
@@ -0,0 +1,29 @@
+package org.netspeak.preprocessing.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event which is emitted for every file moved by
+ * {@link org.netspeak.preprocessing.items.Operations#moveTo(java.nio.file.Path)}.
+ */
+@Name("org.netspeak.Move")
+@Label("Move File")
+@Category({ "Netspeak", "Preprocessing" })
+@Description("The move of a single phrase file.")
+public class MoveEvent extends jdk.jfr.Event {
+
+	@Label("Source")
+	public String source;
+
+	@Label("Destination")
+	public String destination;
+
+	@Label("Bytes")
+	@DataAmount
+	public long bytes;
+
+}
@@ -0,0 +1,48 @@
+package org.netspeak.preprocessing.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event which is emitted for every {@link org.netspeak.preprocessing.PipelineItem} applied by a
+ * {@link org.netspeak.preprocessing.Pipeline}.
+ */
+@Name("org.netspeak.PipelineItem")
+@Label("Pipeline Item")
+@Category({ "Netspeak", "Preprocessing" })
+@Description("The application of a single pipeline item.")
+public class PipelineItemEvent extends jdk.jfr.Event {
+
+	@Label("Index")
+	@Description("The position of the item in its pipeline.")
+	public int index;
+
+	@Label("Item")
+	public String item;
+
+	@Label("Source")
+	public String source;
+
+	@Label("Output")
+	public String output;
+
+	@Label("Source Bytes")
+	@DataAmount
+	public long sourceBytes;
+
+	@Label("Output Bytes")
+	@DataAmount
+	public long outputBytes;
+
+	@Label("Phrases Read")
+	@Description("The number of phrases read from the source. This is 0 for items which only move files.")
+	public long phrasesRead;
+
+	@Label("Phrases Written")
+	@Description("The number of phrases written to the output. This is 0 for items which only move files.")
+	public long phrasesWritten;
+
+}
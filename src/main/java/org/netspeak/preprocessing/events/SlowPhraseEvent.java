@@ -0,0 +1,33 @@
+package org.netspeak.preprocessing.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A JFR event which is emitted for every phrase a single mapper took longer to map than the configured threshold.
+ *
+ * @see org.netspeak.preprocessing.PreprocessingOptions#setSlowPhraseThreshold(java.time.Duration)
+ */
+@Name("org.netspeak.SlowPhrase")
+@Label("Slow Phrase")
+@Category({ "Netspeak", "Preprocessing" })
+@Description("A phrase which took a single mapper longer than the configured threshold.")
+public class SlowPhraseEvent extends jdk.jfr.Event {
+
+	@Label("Mapper")
+	public String mapper;
+
+	@Label("Phrase")
+	public String phrase;
+
+	@Label("Frequency")
+	public long frequency;
+
+	@Label("Mapper Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long mapperTime;
+
+}
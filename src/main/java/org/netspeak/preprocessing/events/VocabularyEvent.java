@@ -0,0 +1,24 @@
+package org.netspeak.preprocessing.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JFR event which is emitted for the vocabulary pass of
+ * {@link org.netspeak.preprocessing.items.GermanHyphenationJoiner}.
+ */
+@Name("org.netspeak.Vocabulary")
+@Label("Vocabulary Extraction")
+@Category({ "Netspeak", "Preprocessing" })
+@Description("The extraction of the word vocabulary of a phrase source.")
+public class VocabularyEvent extends jdk.jfr.Event {
+
+	@Label("Source")
+	public String source;
+
+	@Label("Words")
+	public long words;
+
+}
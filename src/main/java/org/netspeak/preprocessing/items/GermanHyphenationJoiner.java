@@ -5,8 +5,12 @@ import static java.util.Objects.requireNonNull;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.netspeak.Util;
 import org.netspeak.preprocessing.PhraseMapper;
@@ -14,54 +18,202 @@ import org.netspeak.preprocessing.PhraseSource;
 import org.netspeak.preprocessing.PipelineItem;
 import org.netspeak.preprocessing.Preprocessing;
 import org.netspeak.preprocessing.PreprocessingOptions;
+import org.netspeak.preprocessing.events.VocabularyEvent;
 import org.netspeak.preprocessing.mappers.VocabularyExtractor;
+import org.netspeak.vocabulary.BloomFilterWordSet;
+import org.netspeak.vocabulary.CompactWordSet;
+import org.netspeak.vocabulary.ExternalWordMaxMap;
+import org.netspeak.vocabulary.SortedWordFile;
+import org.netspeak.vocabulary.TopWords;
+import org.netspeak.vocabulary.WordSet;
 
 /**
  * This will join all hyphenated words in two phases.
  * <p>
  * In the first pass it will iterate over all input phrases and extract the
  * vocabulary and stop words. This will be done according to the given options.
+ * The first pass can be skipped by providing a vocabulary extractor which
+ * already saw all input phrases (see
+ * {@link PreprocessingOptions#setOutputObserver(PhraseMapper)}).
  * <p>
  * The second phase is specific to the joiner set. Generally, it will try to
  * normalize and, where possible, join hyphenated words.
  */
 public class GermanHyphenationJoiner implements PipelineItem {
 
+	/**
+	 * The number of the most frequent words of the vocabulary which will be used as stop words.
+	 */
+	public static final int TOP_WORDS = 100;
+	/**
+	 * The maximum number of words kept in memory while extracting the vocabulary if the vocabulary is kept on disk.
+	 */
+	public static final int DISK_VOCABULARY_MAX_WORDS = 1 << 21;
+
 	private final Joiner joiner;
 	private final Path output;
 	private final PreprocessingOptions options;
+	private VocabularyExtractor vocabExtractor;
+	private Path diskVocabularyFile;
+	private double falsePositiveRate;
 
 	public GermanHyphenationJoiner(Set<String> stopWordList, Path output, PreprocessingOptions options) throws Exception {
+		this(stopWordList, output, options, null);
+	}
+
+	/**
+	 * Creates a new joiner.
+	 *
+	 * @param stopWordList
+	 * @param output
+	 * @param options
+	 * @param vocabExtractor An extractor which saw all phrases of the source this joiner will be applied to. If
+	 *                       {@code null}, the vocabulary will be extracted in a separate pass over the source.
+	 * @throws Exception
+	 */
+	public GermanHyphenationJoiner(Set<String> stopWordList, Path output, PreprocessingOptions options,
+			VocabularyExtractor vocabExtractor) throws Exception {
 		this.joiner = new Joiner(stopWordList);
 		this.output = requireNonNull(output);
 		this.options = requireNonNull(options);
+		this.vocabExtractor = vocabExtractor;
+	}
+
+	/**
+	 * Sets whether the vocabulary will be kept on disk instead of in memory.
+	 * <p>
+	 * If set, the vocabulary will be written to the given file and only a Bloom filter with the given false positive
+	 * rate will be kept in memory. Words which pass the filter will be looked up in the memory-mapped file. The file
+	 * will not be deleted by the joiner.
+	 * <p>
+	 * While the vocabulary is extracted, at most {@link #DISK_VOCABULARY_MAX_WORDS} words are kept in memory and the
+	 * rest is written to sorted runs next to the given file (see {@link #newDiskVocabularyExtractor(Path)}). An
+	 * extractor given to the constructor should be created the same way; otherwise its whole vocabulary is in memory.
+	 * <p>
+	 * This defaults to {@code null} meaning that the vocabulary will be kept in memory.
+	 *
+	 * @param file
+	 * @param falsePositiveRate
+	 * @throws IllegalArgumentException If the false positive rate is not between 0 and 1.
+	 */
+	public void setDiskVocabulary(Path file, double falsePositiveRate) {
+		BloomFilterWordSet.checkFalsePositiveRate(falsePositiveRate);
+		this.diskVocabularyFile = file;
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	/**
+	 * Returns a new vocabulary extractor which writes its runs next to the given disk vocabulary file.
+	 *
+	 * @param diskVocabularyFile
+	 * @return
+	 * @throws IOException
+	 * @see #setDiskVocabulary(Path, double)
+	 */
+	public static VocabularyExtractor newDiskVocabularyExtractor(Path diskVocabularyFile) throws IOException {
+		return new VocabularyExtractor(diskVocabularyFile.resolveSibling(diskVocabularyFile.getFileName() + ".runs"),
+				DISK_VOCABULARY_MAX_WORDS);
+	}
+
+	/**
+	 * Returns a mapper which joins hyphenated words using the given vocabulary.
+	 * <p>
+	 * This is the second phase of the joiner for vocabularies which were extracted elsewhere (e.g. by a distributed
+	 * job).
+	 *
+	 * @param stopWordList
+	 * @param vocabulary
+	 * @param topWords     The {@link #TOP_WORDS} most frequent words of the vocabulary.
+	 * @return
+	 * @throws IOException
+	 */
+	public static PhraseMapper createMapper(Set<String> stopWordList, WordSet vocabulary, Collection<String> topWords)
+			throws IOException {
+		final Joiner joiner = new Joiner(stopWordList);
+		joiner.setVocabulary(requireNonNull(vocabulary), topWords);
+		return joiner;
 	}
 
 	@Override
 	public PhraseSource apply(PhraseSource source) throws Exception {
 		// Pass 1
 
-		System.out.println("Extracting vocabulary...");
+		final VocabularyEvent event = new VocabularyEvent();
+		event.begin();
 
-		VocabularyExtractor vocabExtractor = new VocabularyExtractor();
-		Preprocessing.iterate(source, Arrays.asList(vocabExtractor), options);
+		VocabularyExtractor vocabExtractor = this.vocabExtractor;
+		this.vocabExtractor = null;
+		if (vocabExtractor == null) {
+			System.out.println("Extracting vocabulary...");
+
+			vocabExtractor = diskVocabularyFile == null ? new VocabularyExtractor()
+					: newDiskVocabularyExtractor(diskVocabularyFile);
+			Preprocessing.iterate(source, Arrays.asList(vocabExtractor), options);
+		}
 
 		System.out.println("Preparing vocabulary...");
 
-		final Set<String> vocabulary = vocabExtractor.getVocabulary();
+		final WordSet vocabulary;
+		final List<String> topWords;
+		final ExternalWordMaxMap external = vocabExtractor.getExternalVocabulary();
+		if (external != null) {
+			if (diskVocabularyFile == null) {
+				throw new IllegalStateException("An extractor which keeps its words on disk requires a disk vocabulary.");
+			}
+			// merge the runs into the vocabulary file without ever having all words in memory
+			final TopWords top = new TopWords(TOP_WORDS);
+			final Set<String> malformed = new HashSet<>();
+			try (ExternalWordMaxMap words = external;
+					SortedWordFile.Writer writer = new SortedWordFile.Writer(diskVocabularyFile)) {
+				words.forEachSorted((word, value) -> {
+					top.add(word, value);
+					if (CompactWordSet.isMalformed(word)) {
+						malformed.add(word);
+					} else {
+						writer.add(word);
+					}
+				});
+			}
+			vocabulary = BloomFilterWordSet.open(diskVocabularyFile, malformed, falsePositiveRate);
+			topWords = top.get().stream().map(p -> p.phrase).collect(Collectors.toList());
+		} else {
+			if (diskVocabularyFile == null) {
+				vocabulary = CompactWordSet.copyOf(vocabExtractor.getWords());
+			} else {
+				vocabulary = BloomFilterWordSet.create(vocabExtractor.getWords(), diskVocabularyFile,
+						falsePositiveRate);
+			}
+			topWords = vocabExtractor.getTopWords(TOP_WORDS);
+		}
 		vocabExtractor = null;
-		System.gc();
 
-		joiner.setVocabulary(vocabulary);
+		event.end();
+		if (event.shouldCommit()) {
+			event.source = source.toString();
+			event.words = vocabulary.size();
+			event.commit();
+		}
+
+		joiner.setVocabulary(vocabulary, topWords);
 
 		System.out.println("Joining Hyphenations...");
 
+		if (vocabulary instanceof BloomFilterWordSet) {
+			try (BloomFilterWordSet diskVocabulary = (BloomFilterWordSet) vocabulary) {
+				PhraseSource result = Preprocessing.process(source, output, Arrays.asList(joiner), options);
+				System.out.println(diskVocabulary.getStats());
+				return result;
+			} finally {
+				joiner.setVocabulary(null, Collections.emptyList());
+			}
+		}
+
 		return Preprocessing.process(source, output, Arrays.asList(joiner), options);
 	}
 
 	private static class Joiner implements PhraseMapper {
 
-		private Set<String> vocabulary;
+		private WordSet vocabulary;
 		private final Set<String> stopWords = new HashSet<>();
 
 		public Joiner(Set<String> stopWordList) throws IOException {
@@ -70,11 +222,15 @@ public class GermanHyphenationJoiner implements PipelineItem {
 			}
 		}
 
-		public void setVocabulary(Set<String> vocabulary) {
+		/**
+		 * Sets the vocabulary.
+		 *
+		 * @param vocabulary
+		 * @param topWords   The most frequent words of the vocabulary. These will be used as stop words.
+		 */
+		public void setVocabulary(WordSet vocabulary, Collection<String> topWords) {
 			this.vocabulary = vocabulary;
-
-			// add the top 100 words as stop words
-			vocabulary.stream().limit(100).forEach(stopWords::add);
+			stopWords.addAll(topWords);
 		}
 
 		private String[] normalizeHyphens(String[] words, String phrase) {
@@ -132,9 +288,8 @@ public class GermanHyphenationJoiner implements PipelineItem {
 					 */
 
 					if (Character.isLowerCase(next.charAt(0))) {
-						final String concat = word.substring(0, word.length() - 1) + next;
-						if (vocabulary.contains(concat)) {
-							result = concat;
+						if (vocabulary.contains(word, word.length() - 1, next)) {
+							result = word.substring(0, word.length() - 1) + next;
 						}
 					}
 
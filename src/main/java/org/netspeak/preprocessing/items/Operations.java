@@ -12,6 +12,7 @@ import java.util.Set;
 import org.netspeak.Util;
 import org.netspeak.preprocessing.PhraseSource;
 import org.netspeak.preprocessing.PipelineItem;
+import org.netspeak.preprocessing.events.MoveEvent;
 
 public abstract class Operations {
 
@@ -83,7 +84,21 @@ public abstract class Operations {
 				name = counter + "-" + name;
 			}
 
+			final MoveEvent event = new MoveEvent();
+			if (event.isEnabled()) {
+				event.source = file.getPath().toString();
+				event.bytes = Files.size(file.getPath());
+			}
+			event.begin();
+
 			file.move(dest.resolve(name));
+
+			event.end();
+			if (event.shouldCommit()) {
+				event.destination = file.getPath().toString();
+				event.commit();
+			}
+
 			counter++;
 		}
 
@@ -3,7 +3,9 @@ package org.netspeak.preprocessing.mappers;
 import org.netspeak.Util;
 import org.netspeak.preprocessing.PhraseMapper;
 
+import java.io.DataOutput;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -20,14 +22,22 @@ public class ContractionMapper implements PhraseMapper {
 
 	private final Pattern contractionPattern;
 	private final Pattern incompleteContractionPattern;
-	private final Map<String, Integer> knownContractionMap = new HashMap<>();
+	private final Map<String, Integer> knownContractionMap;
 	private static final Pattern POSSESSIVE_S_PATTERN = Pattern.compile("s '(?= |\\z)", Pattern.CASE_INSENSITIVE);
 
+	private ContractionMapper(Pattern contractionPattern, Pattern incompleteContractionPattern,
+			Map<String, Integer> knownContractionMap) {
+		this.contractionPattern = contractionPattern;
+		this.incompleteContractionPattern = incompleteContractionPattern;
+		this.knownContractionMap = knownContractionMap;
+	}
+
 	public ContractionMapper(Path file) throws IOException {
 		this(Util.readWordList(file));
 	}
 
 	public ContractionMapper(Iterable<String> knownContractions) {
+		knownContractionMap = new HashMap<>();
 		StringBuilder pattern = new StringBuilder();
 		Set<String> incompleteContractionSuffixes = new HashSet<>();
 		Set<String> incompleteContractionPrefixes = new HashSet<>();
@@ -85,6 +95,45 @@ public class ContractionMapper implements PhraseMapper {
 	}
 
 
+	/**
+	 * Writes the compiled state of this mapper to the given output.
+	 * <p>
+	 * The mapper can be read again using {@link #readFrom(ByteBuffer)} which is a lot faster than parsing and
+	 * expanding the known contractions again.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		Util.writeString(out, contractionPattern.pattern());
+		Util.writeString(out, incompleteContractionPattern.pattern());
+		out.writeInt(knownContractionMap.size());
+		for (Map.Entry<String, Integer> entry : knownContractionMap.entrySet()) {
+			Util.writeString(out, entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	/**
+	 * Reads a mapper written by {@link #writeTo(DataOutput)} from the given buffer.
+	 * <p>
+	 * The position of the buffer will be moved to the end of the mapper.
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	public static ContractionMapper readFrom(ByteBuffer buffer) {
+		Pattern contractionPattern = Pattern.compile(Util.readString(buffer), Pattern.CASE_INSENSITIVE);
+		Pattern incompleteContractionPattern = Pattern.compile(Util.readString(buffer), Pattern.CASE_INSENSITIVE);
+		int size = buffer.getInt();
+		Map<String, Integer> knownContractionMap = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			String contraction = Util.readString(buffer);
+			knownContractionMap.put(contraction, buffer.getInt());
+		}
+		return new ContractionMapper(contractionPattern, incompleteContractionPattern, knownContractionMap);
+	}
+
 	@Override
 	public String map(String phrase, long frequency) {
 		// phrases with incomplete contractions will be removed
@@ -3,13 +3,18 @@ package org.netspeak.preprocessing.mappers;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 
+import org.netspeak.io.ReaderFilter;
 import org.netspeak.preprocessing.PhraseMapper;
 import org.netspeak.preprocessing.Preprocessing;
+import org.netspeak.preprocessing.Utf8PhraseMapper;
 
 /**
  * Some common {@link PhraseMapper} to be used in {@link Preprocessing}.
@@ -17,15 +22,59 @@ import org.netspeak.preprocessing.Preprocessing;
 public final class PhraseMappers {
 
 	/**
-	 * Returns a new {@link PhraseMapper} which converts phrases to lower case.
+	 * Returns a new {@link PhraseMapper} which converts phrases to lower case
+	 * using the default locale.
 	 * <p>
 	 * Example: <code>"You'll make it"</code> becomes <code>"you'll make it"</code>
 	 * </p>
 	 *
 	 * @return
+	 * @see #toLowerCase(Locale)
 	 */
 	public static PhraseMapper toLowerCase() {
-		return PhraseMapper.rename((phrase, frequency) -> phrase.toLowerCase());
+		return toLowerCase(Locale.getDefault());
+	}
+
+	/**
+	 * Returns a new {@link PhraseMapper} which converts phrases to lower case
+	 * using the rules of the given locale.
+	 * <p>
+	 * Use {@link Locale#ROOT} for a locale-independent conversion.
+	 * <p>
+	 * Phrases which are already lower case will be returned as is. ASCII-only
+	 * phrases will be converted without using {@link String#toLowerCase(Locale)}
+	 * if the given locale allows it.
+	 *
+	 * @param locale
+	 * @return
+	 */
+	public static PhraseMapper toLowerCase(final Locale locale) {
+		final boolean asciiSafe = Utf8PhraseMappers.isAsciiLowerCaseSafe(locale);
+
+		return keepsSpaces(Utf8PhraseMapper.rename((phrase, frequency) -> {
+			final int l = phrase.length();
+			int i = 0;
+			while (i < l) {
+				final char c = phrase.charAt(i);
+				if (c >= 0x80 || ('A' <= c && c <= 'Z'))
+					break;
+				i++;
+			}
+			if (i == l)
+				return phrase;
+			if (!asciiSafe)
+				return phrase.toLowerCase(locale);
+
+			final char[] chars = phrase.toCharArray();
+			for (; i < l; i++) {
+				final char c = chars[i];
+				if (c >= 0x80)
+					return phrase.toLowerCase(locale);
+				if ('A' <= c && c <= 'Z')
+					chars[i] = (char) (c + ('a' - 'A'));
+			}
+			return new String(chars);
+		}, Utf8PhraseMappers.toLowerCase(locale)));
 	}
 
 	/**
@@ -39,7 +88,8 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper removeLeadingDoubleQuote() {
-		return PhraseMapper.rename((phrase, frequency) -> LEADING_DOUBLE_QUOTE_PATTERN.matcher(phrase).replaceAll(""));
+		return keepsSpaces(PhraseMapper
+				.rename((phrase, frequency) -> LEADING_DOUBLE_QUOTE_PATTERN.matcher(phrase).replaceAll("")));
 	}
 
 	private static final Pattern LEADING_DOUBLE_QUOTE_PATTERN = Pattern
@@ -57,11 +107,12 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper joinWordsWithLeadingApostrophe() {
-		return PhraseMapper.rename((phrase, frequency) -> phrase.replace(" '", "'"));
+		return Utf8PhraseMapper.rename((phrase, frequency) -> phrase.replace(" '", "'"),
+				Utf8PhraseMappers.joinWordsWithLeadingApostrophe());
 	}
 
 	// https://en.wikipedia.org/wiki/Hyphen#Unicode
-	private static final Pattern UNICODE_HYPHEN_APPTERN = Pattern.compile("[\u00ad\u2010\u2011]");
+	private static final String UNICODE_HYPHENS = "\u00ad\u2010\u2011";
 
 	/**
 	 * Returns a new {@link PhraseMapper} that replaces all Unicode hyphen
@@ -69,11 +120,13 @@ public final class PhraseMappers {
 	 *
 	 */
 	public static PhraseMapper normalizeHyphens() {
-		return PhraseMapper.rename((phrase, frequency) -> UNICODE_HYPHEN_APPTERN.matcher(phrase).replaceAll("-"));
+		return keepsSpaces(Utf8PhraseMapper.rename(
+				(phrase, frequency) -> replaceNonAscii(phrase, UNICODE_HYPHENS, '-'),
+				Utf8PhraseMappers.normalizeHyphens()));
 	}
 
 	// https://en.wikipedia.org/wiki/Apostrophe
-	private static final Pattern UNICODE_APOSTROPHE_APPTERN = Pattern.compile("[\u2019\u02B9\u2032\u2035]");
+	private static final String UNICODE_APOSTROPHES = "\u2019\u02B9\u2032\u2035";
 
 	/**
 	 * Returns a new {@link PhraseMapper} that replaces all Unicode apostrophe
@@ -81,7 +134,42 @@ public final class PhraseMappers {
 	 *
 	 */
 	public static PhraseMapper normalizeApostrophe() {
-		return PhraseMapper.rename((phrase, frequency) -> UNICODE_APOSTROPHE_APPTERN.matcher(phrase).replaceAll("'"));
+		return keepsSpaces(Utf8PhraseMapper.rename(
+				(phrase, frequency) -> replaceNonAscii(phrase, UNICODE_APOSTROPHES, '\''),
+				Utf8PhraseMappers.normalizeApostrophe()));
+	}
+
+	/**
+	 * Replaces all occurrences of the given non-ASCII chars in the given phrase
+	 * with the given replacement.
+	 * <p>
+	 * If the phrase doesn't contain any of the chars, the phrase itself will be
+	 * returned.
+	 *
+	 * @param phrase
+	 * @param nonAsciiChars
+	 * @param replacement
+	 * @return
+	 */
+	private static String replaceNonAscii(String phrase, String nonAsciiChars, char replacement) {
+		final int l = phrase.length();
+		int i = 0;
+		while (i < l) {
+			final char c = phrase.charAt(i);
+			if (c >= 0x80 && nonAsciiChars.indexOf(c) >= 0)
+				break;
+			i++;
+		}
+		if (i == l)
+			return phrase;
+
+		final char[] chars = phrase.toCharArray();
+		for (; i < l; i++) {
+			final char c = chars[i];
+			if (c >= 0x80 && nonAsciiChars.indexOf(c) >= 0)
+				chars[i] = replacement;
+		}
+		return new String(chars);
 	}
 
 	/**
@@ -108,7 +196,8 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper removeHTMLEntities() {
-		return PhraseMapper.rename(filterByWords(w -> !(w.charAt(0) == '&' && w.charAt(w.length() - 1) == ';')));
+		return Utf8PhraseMapper.rename(filterByWords(w -> !(w.charAt(0) == '&' && w.charAt(w.length() - 1) == ';')),
+				Utf8PhraseMappers.removeHTMLEntities());
 	}
 
 	/**
@@ -121,7 +210,7 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper removeControlCharacters() {
-		return PhraseMapper.rename((phrase, freq) -> {
+		return keepsSpaces(Utf8PhraseMapper.rename((phrase, freq) -> {
 			final int l = phrase.length();
 			for (int i = 0; i < l; i++) {
 				final char c = phrase.charAt(i);
@@ -131,7 +220,7 @@ public final class PhraseMappers {
 					return null;
 			}
 			return phrase;
-		});
+		}, Utf8PhraseMappers.removeControlCharacters()));
 	}
 
 	/**
@@ -147,8 +236,51 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper blacklistRepeated(final Collection<String> words) {
-		// create a regex for the words
+		final RepeatedWordAutomaton automaton;
+		try {
+			automaton = RepeatedWordAutomaton.compile(words);
+		} catch (IllegalArgumentException e) {
+			// the automaton for this blacklist is too large, so we have to use the regex
+			final Pattern regex = repeatedWordsPattern(words);
+			return PhraseMapper.rename(filterByWords(w -> !regex.matcher(w).matches(), DEFAULT_WORD_CACHE_SIZE));
+		}
+
+		return blacklistRepeated(automaton);
+	}
+
+	/**
+	 * Same as {@link #blacklistRepeated(Collection)} but with the already compiled automaton of the blacklist.
+	 *
+	 * @param automaton
+	 * @return
+	 */
+	public static PhraseMapper blacklistRepeated(final RepeatedWordAutomaton automaton) {
+		return keepsSpaces(PhraseMapper.rename((phrase, frequency) -> {
+			// words are separated by a single space
+			final int length = phrase.length();
+			int start = 0;
+			for (int i = 0; i <= length; i++) {
+				if (i == length || phrase.charAt(i) == ' ') {
+					if (automaton.matches(phrase, start, i)) {
+						return null;
+					}
+					start = i + 1;
+				}
+			}
+			return phrase;
+		}));
+	}
 
+	/**
+	 * Returns a regex which matches all strings which can be constructed by
+	 * concatenating the given words.
+	 * <p>
+	 * This is the slower equivalent of {@link RepeatedWordAutomaton}.
+	 *
+	 * @param words
+	 * @return
+	 */
+	static Pattern repeatedWordsPattern(final Collection<String> words) {
 		// split by length
 		final ArrayList<String> singleChar = new ArrayList<>();
 		final ArrayList<String> multipleChar = new ArrayList<>();
@@ -174,9 +306,7 @@ public final class PhraseMappers {
 			appendLiteral(sb, word);
 		}
 
-		final Pattern regex = Pattern.compile("(?:" + sb.toString() + ")+");
-
-		return PhraseMapper.rename(filterByWords(w -> !regex.matcher(w).matches()));
+		return Pattern.compile("(?:" + sb.toString() + ")+");
 	}
 
 	private static void appendLiteral(StringBuilder sb, String value) {
@@ -200,6 +330,47 @@ public final class PhraseMappers {
 		return PhraseMapper.rename(filterByWords(whitelist::contains));
 	}
 
+	private static final int DEFAULT_WORD_CACHE_SIZE = 1 << 16;
+
+	/**
+	 * Returns a {@link PhraseMapper} which filters out all words for which the
+	 * given predicate returns {@code false}.
+	 * <p>
+	 * The results of the given predicate will be cached in a {@link WordCache} of
+	 * the given size. This should be used for expensive predicates. The hit rate
+	 * of the cache will be reported in the mapper statistics.
+	 *
+	 * @param wordPredicate
+	 * @param cacheSize
+	 * @return
+	 */
+	public static PhraseMapper filterByWords(final Predicate<String> wordPredicate, int cacheSize) {
+		final WordCache<Boolean> cache = new WordCache<>(cacheSize);
+		final PhraseMapper mapper = filterByWords(w -> cache.get(w, wordPredicate::test));
+
+		return new PhraseMapper() {
+			@Override
+			public String map(String phrase, long frequency) {
+				return mapper.map(phrase, frequency);
+			}
+
+			@Override
+			public String getName() {
+				return mapper.getName();
+			}
+
+			@Override
+			public List<String> getStats() {
+				return Collections.singletonList(cache.getStats());
+			}
+
+			@Override
+			public boolean neverRemovesSpaces() {
+				return mapper.neverRemovesSpaces();
+			}
+		};
+	}
+
 	/**
 	 * Returns a {@link PhraseMapper} which filters out all words for which the
 	 * given predicate returns {@code false}.
@@ -208,14 +379,14 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper filterByWords(final Predicate<String> wordPredicate) {
-		return PhraseMapper.rename((phrase, frequency) -> {
+		return keepsSpaces(PhraseMapper.rename((phrase, frequency) -> {
 			for (final String word : phrase.split(" ")) {
 				if (!wordPredicate.test(word)) {
 					return null;
 				}
 			}
 			return phrase;
-		});
+		}));
 	}
 
 	/**
@@ -231,7 +402,7 @@ public final class PhraseMappers {
 	 */
 	public static PhraseMapper superBlacklist(final Iterable<String> strings) {
 		final StringMatcherNode matcher = StringMatcherNode.createRoot(strings);
-		return PhraseMapper.rename((phrase, freq) -> {
+		return keepsSpaces(PhraseMapper.rename((phrase, freq) -> {
 			final int l = phrase.length();
 			for (int i = 0; i < l; i++) {
 				if (matcher.matches(phrase, i)) {
@@ -239,7 +410,7 @@ public final class PhraseMappers {
 				}
 			}
 			return phrase;
-		});
+		}));
 	}
 
 	private static class StringMatcherNode {
@@ -306,7 +477,10 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper removeIfFrequencyIsLessThan(final long minimumFrequency) {
-		return PhraseMapper.rename((phrase, frequency) -> frequency < minimumFrequency ? null : phrase);
+		final PhraseMapper mapper = Utf8PhraseMapper.rename(
+				(phrase, frequency) -> frequency < minimumFrequency ? null : phrase,
+				Utf8PhraseMappers.removeIfFrequencyIsLessThan(minimumFrequency));
+		return PhraseMapper.describe(mapper, ReaderFilter.minFrequency(minimumFrequency), true);
 	}
 
 	/**
@@ -322,16 +496,19 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper removeIfContainsNonLatin1Chars() {
-		final int maxLatin1CodePoint = 255;
+		final char maxLatin1Char = 255;
 
-		return PhraseMapper.rename((phrase, frequency) -> {
-			for (int i = 0; i != phrase.length(); ++i) {
-				if (phrase.codePointAt(i) > maxLatin1CodePoint) {
+		return keepsSpaces(Utf8PhraseMapper.rename((phrase, frequency) -> {
+			// code points outside the BMP are encoded as surrogates which are outside
+			// Latin-1 as well, so we don't need to decode code points
+			final int l = phrase.length();
+			for (int i = 0; i < l; i++) {
+				if (phrase.charAt(i) > maxLatin1Char) {
 					return null;
 				}
 			}
 			return phrase;
-		});
+		}, Utf8PhraseMappers.removeIfContainsNonLatin1Chars()));
 	}
 
 	/**
@@ -341,49 +518,29 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper removeURLsAndEmails() {
-		return PhraseMapper.rename((phrase, frequency) -> {
-			final String lower = phrase.toLowerCase();
-
-			// check for Email addresses
-			if (EMAIL_PATTERN.matcher(lower).find())
-				return null;
-			// matches the URL pattern
-			if (URL_PATTERN.matcher(lower).find())
+		return keepsSpaces(PhraseMapper.rename((phrase, frequency) -> {
+			if (UrlScanner.containsUrlOrEmail(phrase))
 				return null;
 
 			return phrase;
-		});
+		}));
 	}
 
-	// Email addresses can be right about anything which contains an @.
-	private static final Pattern EMAIL_PATTERN = Pattern.compile(".@.");
-	private static final String ALL_COUNTRY_TLD = "a[cdefgilmoqrstuwxz]|b[abdefghijmnorstwyz]|c[acdfghiklmnoruvwxyz]|d[ejkmoz]|e[cegrstu]|f[ijkmor]|g[adefghilmnpqrstuwy]|h[kmnrtu]|i[delmnoqrst]|j[emop]|k[eghimnprwyz]|l[abcikrstuvy]|m[acdeghklmnopqrstuvwxyz]|n[acefgilopruz]|om|p[aefghklmnrstwy]|qa|r[eosuw]|s[abcdeghiklmnorstuvxyz]|t[cdfghjklmnortvwz]|u[agksyz]|v[aceginu]|w[fs]|y[et]|z[amw]";
-	// some of the more common domains
-	// https://w3techs.com/technologies/overview/top_level_domain/all
-	private static final Pattern URL_PATTERN = Pattern
-			.compile("www\\.|https?:|ftps?:|\\.(?:com|org|net|edu|gov|xyz|moe|club|online|pro|site|top|shop|info|biz|"
-					+ ALL_COUNTRY_TLD + ")\\b");
-
 	/**
-	 * Returns a new {@link PhraseMapper} that removes phrases that contain URLs or
-	 * email addresses.
+	 * Returns a new {@link PhraseMapper} that removes phrases that contain file
+	 * names.
 	 *
 	 * @return
 	 */
 	public static PhraseMapper removeFileNames() {
-		return PhraseMapper.rename((phrase, frequency) -> {
-			final String lower = phrase.toLowerCase();
-
-			if (FILE_NAME_PATTERN.matcher(lower).find())
+		return keepsSpaces(PhraseMapper.rename((phrase, frequency) -> {
+			if (UrlScanner.containsFileName(phrase))
 				return null;
 
 			return phrase;
-		});
+		}));
 	}
 
-	private static final Pattern FILE_NAME_PATTERN = Pattern.compile(
-			"\\.(?:exe|dll|bin|msi|bat|com|jar|pkg|apk|ini|ai|ico|jpg|jpeg|png|gif|bmp|webp|tif|tag|ps|odp|pps|ppt|pptx|pdf|doc|docx|xml|csv|sql|zip|rar|tar|gz|7z|iso|webm|mov|mkv|mpg|mpeg|mp3|acc|ogg|wav|wmv|mid|midi|mp4|avi|vlc|html|htm|php|asp|aspx|js|css)\\b");
-
 	/**
 	 * This removes all phrases with additional markers in the Google web corpus.
 	 * This includes: {@code <s>}, {@code <S>}, {@code </s>}, {@code </S>},
@@ -430,12 +587,12 @@ public final class PhraseMappers {
 	}
 
 	public static PhraseMapper explodeCommas() {
-		return PhraseMapper.rename((phrase, freq) -> {
+		return Utf8PhraseMapper.rename((phrase, freq) -> {
 			if (phrase.indexOf(',') >= 0) {
 				return normalizeSpaces(phrase.replace(",", " , "));
 			}
 			return phrase;
-		});
+		}, Utf8PhraseMappers.explodeCommas());
 	}
 
 	/**
@@ -445,7 +602,7 @@ public final class PhraseMappers {
 	 * @return
 	 */
 	public static PhraseMapper maxNGram(int n) {
-		return PhraseMapper.rename((phrase, freq) -> {
+		return PhraseMapper.describe(Utf8PhraseMapper.rename((phrase, freq) -> {
 			int words = 1;
 			final int l = phrase.length();
 			for (int i = 0; i < l; i++) {
@@ -453,7 +610,18 @@ public final class PhraseMappers {
 					words++;
 			}
 			return words > n ? null : phrase;
-		});
+		}, Utf8PhraseMappers.maxNGram(n)), ReaderFilter.maxWords(n), true);
+	}
+
+	/**
+	 * Marks the given mapper as a mapper which never removes spaces.
+	 * <p>
+	 * This is true for all mappers which only remove phrases or only replace characters other than spaces.
+	 *
+	 * @see PhraseMapper#neverRemovesSpaces()
+	 */
+	private static PhraseMapper keepsSpaces(PhraseMapper mapper) {
+		return PhraseMapper.describe(mapper, mapper.getReaderFilter(), true);
 	}
 
 	private static final Pattern SPACES_PATTERN = Pattern.compile("\\s{2,}");
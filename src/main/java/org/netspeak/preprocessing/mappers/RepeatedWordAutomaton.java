@@ -0,0 +1,352 @@
+package org.netspeak.preprocessing.mappers;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A deterministic finite automaton which accepts all non-empty strings that can be constructed by concatenating
+ * words of a given word set.
+ * <p>
+ * This is equivalent to the regex {@code (?:w1|w2|...)+} but matching neither allocates nor backtracks. Each char of
+ * the input is a single table lookup.
+ * <p>
+ * The automaton is created using the subset construction on the trie of all words where every word end has an
+ * epsilon transition back to the root. Chars which don't occur in any word all map to the same char class which
+ * always leads to the dead state.
+ */
+public final class RepeatedWordAutomaton {
+
+	/**
+	 * The maximum number of states an automaton may have.
+	 * <p>
+	 * The subset construction may create exponentially many states for pathological word sets.
+	 */
+	public static final int MAX_STATES = 1 << 16;
+
+	private static final int DEAD = 0;
+	private static final int START = 1;
+
+	/**
+	 * Maps each char to its char class. Chars which are not in this array have the class 0.
+	 */
+	private final int[] charClasses;
+	private final int classCount;
+	/**
+	 * The transition table. The next state of state {@code s} and char class {@code c} is at
+	 * {@code s * classCount + c}.
+	 */
+	private final int[] transitions;
+	private final boolean[] accepting;
+
+	private RepeatedWordAutomaton(int[] charClasses, int classCount, int[] transitions, boolean[] accepting) {
+		this.charClasses = charClasses;
+		this.classCount = classCount;
+		this.transitions = transitions;
+		this.accepting = accepting;
+	}
+
+	/**
+	 * Returns the number of states of this automaton including the dead state.
+	 *
+	 * @return
+	 */
+	public int getStateCount() {
+		return accepting.length;
+	}
+
+	/**
+	 * Returns whether the given string can be constructed by concatenating words of the word set.
+	 *
+	 * @param s
+	 * @return
+	 */
+	public boolean matches(CharSequence s) {
+		return matches(s, 0, s.length());
+	}
+
+	/**
+	 * Returns whether the given range of the given string can be constructed by concatenating words of the word set.
+	 * <p>
+	 * Empty ranges never match.
+	 *
+	 * @param s
+	 * @param start The index of the first char (inclusive).
+	 * @param end   The index of the last char (exclusive).
+	 * @return
+	 */
+	public boolean matches(CharSequence s, int start, int end) {
+		final int[] charClasses = this.charClasses;
+		final int[] transitions = this.transitions;
+		final int classCount = this.classCount;
+
+		int state = START;
+		for (int i = start; i < end; i++) {
+			final char c = s.charAt(i);
+			final int charClass = c < charClasses.length ? charClasses[c] : 0;
+			state = transitions[state * classCount + charClass];
+			if (state == DEAD) {
+				return false;
+			}
+		}
+		return accepting[state];
+	}
+
+	/**
+	 * Writes this automaton to the given output.
+	 * <p>
+	 * The automaton can be read again using {@link #readFrom(ByteBuffer)}.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(classCount);
+		out.writeInt(accepting.length);
+		out.writeInt(charClasses.length);
+		for (final int charClass : charClasses) {
+			out.writeInt(charClass);
+		}
+		for (final int next : transitions) {
+			out.writeInt(next);
+		}
+		for (final boolean accept : accepting) {
+			out.writeBoolean(accept);
+		}
+	}
+
+	/**
+	 * Reads an automaton written by {@link #writeTo(DataOutput)} from the given buffer.
+	 * <p>
+	 * The position of the buffer will be moved to the end of the automaton. The buffer has to be big-endian.
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws IllegalArgumentException If the buffer doesn't contain a valid automaton.
+	 */
+	public static RepeatedWordAutomaton readFrom(ByteBuffer buffer) {
+		final int classCount = buffer.getInt();
+		final int stateCount = buffer.getInt();
+		if (classCount < 1 || stateCount < 2 || stateCount > MAX_STATES
+				|| (long) stateCount * classCount > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid automaton.");
+		}
+		final int[] charClasses = readInts(buffer, buffer.getInt());
+		final int[] transitions = readInts(buffer, stateCount * classCount);
+		final boolean[] accepting = new boolean[stateCount];
+		for (int i = 0; i < stateCount; i++) {
+			accepting[i] = buffer.get() != 0;
+		}
+
+		for (final int charClass : charClasses) {
+			if (charClass < 0 || charClass >= classCount) {
+				throw new IllegalArgumentException("Invalid automaton.");
+			}
+		}
+		for (final int next : transitions) {
+			if (next < 0 || next >= stateCount) {
+				throw new IllegalArgumentException("Invalid automaton.");
+			}
+		}
+
+		return new RepeatedWordAutomaton(charClasses, classCount, transitions, accepting);
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int length) {
+		if (length < 0 || length > buffer.remaining() / 4) {
+			throw new IllegalArgumentException("Invalid automaton.");
+		}
+		final int[] array = new int[length];
+		buffer.asIntBuffer().get(array);
+		buffer.position(buffer.position() + length * 4);
+		return array;
+	}
+
+	/**
+	 * Creates a new automaton for the given words.
+	 * <p>
+	 * {@code null} and empty words will be ignored.
+	 *
+	 * @param words
+	 * @return
+	 * @throws IllegalArgumentException If the automaton would have more than {@link #MAX_STATES} states.
+	 */
+	public static RepeatedWordAutomaton compile(Collection<String> words) {
+		final Trie trie = new Trie();
+
+		// assign char classes
+		final TreeSet<Character> chars = new TreeSet<>();
+		for (final String word : words) {
+			if (word != null && !word.isEmpty()) {
+				trie.add(word);
+				for (int i = 0; i < word.length(); i++) {
+					chars.add(word.charAt(i));
+				}
+			}
+		}
+		final int[] charClasses = new int[chars.isEmpty() ? 0 : chars.last() + 1];
+		final char[] classChars = new char[chars.size() + 1];
+		int classCount = 1;
+		for (final char c : chars) {
+			charClasses[c] = classCount;
+			classChars[classCount] = c;
+			classCount++;
+		}
+
+		// subset construction
+		final Map<NodeSet, Integer> stateIds = new HashMap<>();
+		final List<NodeSet> states = new ArrayList<>();
+		final ArrayDeque<NodeSet> queue = new ArrayDeque<>();
+
+		final NodeSet dead = new NodeSet(new int[0], false);
+		final NodeSet start = new NodeSet(new int[] { Trie.ROOT }, false);
+		for (final NodeSet set : new NodeSet[] { dead, start }) {
+			stateIds.put(set, states.size());
+			states.add(set);
+		}
+		queue.add(start);
+
+		int[] transitions = new int[classCount * 16];
+		while (!queue.isEmpty()) {
+			final NodeSet current = queue.poll();
+			final int id = stateIds.get(current);
+
+			for (int charClass = 1; charClass < classCount; charClass++) {
+				final NodeSet next = trie.step(current, classChars[charClass]);
+				Integer nextId = stateIds.get(next);
+				if (nextId == null) {
+					if (states.size() >= MAX_STATES) {
+						throw new IllegalArgumentException(
+								"The automaton for the given words would have more than " + MAX_STATES + " states.");
+					}
+					nextId = states.size();
+					stateIds.put(next, nextId);
+					states.add(next);
+					queue.add(next);
+				}
+
+				final int index = id * classCount + charClass;
+				if (index >= transitions.length) {
+					transitions = Arrays.copyOf(transitions, Math.max(index + 1, transitions.length * 2));
+				}
+				transitions[index] = nextId;
+			}
+		}
+
+		final boolean[] accepting = new boolean[states.size()];
+		for (int i = 0; i < accepting.length; i++) {
+			accepting[i] = states.get(i).accept;
+		}
+
+		return new RepeatedWordAutomaton(charClasses, classCount,
+				Arrays.copyOf(transitions, states.size() * classCount), accepting);
+	}
+
+	/**
+	 * A set of trie nodes which is a state of the automaton.
+	 * <p>
+	 * {@code accept} is {@code true} if the last char completed a word.
+	 */
+	private static final class NodeSet {
+
+		final int[] nodes;
+		final boolean accept;
+		private final int hash;
+
+		NodeSet(int[] nodes, boolean accept) {
+			this.nodes = nodes;
+			this.accept = accept;
+			this.hash = Arrays.hashCode(nodes) * 31 + (accept ? 1 : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof NodeSet))
+				return false;
+			final NodeSet other = (NodeSet) obj;
+			return accept == other.accept && Arrays.equals(nodes, other.nodes);
+		}
+
+	}
+
+	private static final class Trie {
+
+		static final int ROOT = 0;
+
+		private final List<Map<Character, Integer>> children = new ArrayList<>();
+		private final List<Boolean> wordEnd = new ArrayList<>();
+
+		Trie() {
+			newNode();
+		}
+
+		private int newNode() {
+			children.add(new HashMap<>());
+			wordEnd.add(false);
+			return children.size() - 1;
+		}
+
+		void add(String word) {
+			int node = ROOT;
+			for (int i = 0; i < word.length(); i++) {
+				final Character c = word.charAt(i);
+				Integer child = children.get(node).get(c);
+				if (child == null) {
+					child = newNode();
+					children.get(node).put(c, child);
+				}
+				node = child;
+			}
+			wordEnd.set(node, true);
+		}
+
+		/**
+		 * Returns the set of all nodes reachable from the given set by reading the given char.
+		 * <p>
+		 * If a word end is reached, the root will be added to the returned set as well.
+		 *
+		 * @param set
+		 * @param c
+		 * @return
+		 */
+		NodeSet step(NodeSet set, char c) {
+			final Character key = c;
+			final TreeSet<Integer> next = new TreeSet<>();
+			boolean accept = false;
+			for (final int node : set.nodes) {
+				final Integer child = children.get(node).get(key);
+				if (child != null) {
+					next.add(child);
+					if (wordEnd.get(child)) {
+						accept = true;
+						next.add(ROOT);
+					}
+				}
+			}
+
+			final int[] nodes = new int[next.size()];
+			int i = 0;
+			for (final int node : next) {
+				nodes[i++] = node;
+			}
+			return new NodeSet(nodes, accept);
+		}
+
+	}
+
+}
@@ -5,6 +5,7 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 
 import org.netspeak.Util;
 import org.netspeak.preprocessing.PhraseMapper;
@@ -18,11 +19,19 @@ public class StandardMappers {
 	 * Whether all phrases should be lower-cased.
 	 */
 	boolean toLowerCase = false;
+	/**
+	 * The locale used to lower-case phrases.
+	 */
+	Locale lowerCaseLocale = Locale.getDefault();
 	/**
 	 * All phrases with at least one word which can be constructed from blacklisted
 	 * word will be removed.
 	 */
 	Collection<String> blacklist = null;
+	/**
+	 * The compiled {@link #blacklist}. If set, this will be used instead of the blacklist.
+	 */
+	RepeatedWordAutomaton blacklistAutomaton = null;
 	/**
 	 * @see PhraseMappers#superBlacklist(Iterable)
 	 */
@@ -36,6 +45,18 @@ public class StandardMappers {
 		this.blacklist = blacklist;
 	}
 
+	/**
+	 * Sets the already compiled blacklist.
+	 * <p>
+	 * This is the same as setting the words of the automaton using {@link #setBlacklist(Collection)} but the
+	 * automaton doesn't have to be compiled again.
+	 *
+	 * @param blacklistAutomaton
+	 */
+	public void setBlacklist(RepeatedWordAutomaton blacklistAutomaton) {
+		this.blacklistAutomaton = blacklistAutomaton;
+	}
+
 	public void setSuperBlacklist(Path superBlacklist) throws IOException {
 		this.superBlacklist = Util.readWordList(superBlacklist);
 	}
@@ -48,6 +69,10 @@ public class StandardMappers {
 		this.toLowerCase = toLowerCase;
 	}
 
+	public void setLowerCaseLocale(Locale lowerCaseLocale) {
+		this.lowerCaseLocale = lowerCaseLocale;
+	}
+
 	public void setMaxNGram(int maxNGram) {
 		this.maxNGram = maxNGram;
 	}
@@ -73,14 +98,16 @@ public class StandardMappers {
 		mappers.add(PhraseMappers.removeLeadingDoubleQuote());
 		mappers.add(PhraseMappers.joinWordsWithLeadingApostrophe());
 
-		if (blacklist != null) {
+		if (blacklistAutomaton != null) {
+			mappers.add(PhraseMappers.blacklistRepeated(blacklistAutomaton));
+		} else if (blacklist != null) {
 			mappers.add(PhraseMappers.blacklistRepeated(blacklist));
 		}
 		if (maxNGram < Integer.MAX_VALUE) {
 			mappers.add(PhraseMappers.maxNGram(maxNGram));
 		}
 		if (toLowerCase) {
-			mappers.add(PhraseMappers.toLowerCase());
+			mappers.add(PhraseMappers.toLowerCase(lowerCaseLocale));
 		}
 
 		return mappers;
@@ -0,0 +1,234 @@
+package org.netspeak.preprocessing.mappers;
+
+import java.util.Arrays;
+
+/**
+ * A single-pass scanner which detects URLs, email addresses, and file names in phrases.
+ * <p>
+ * The scanner only looks at the surroundings of {@code @}, {@code .}, and {@code :} characters and compares all
+ * letters case-insensitively, so the phrase doesn't have to be lower-cased first. It accepts exactly the phrases whose
+ * lower-case form (as returned by {@link String#toLowerCase()}) is matched by the following regexes:
+ *
+ * <pre>
+ * email:     .@.
+ * URL:       www\.|https?:|ftps?:|\.(?:com|org|...|&lt;country TLD&gt;)\b
+ * file name: \.(?:exe|dll|...|css)\b
+ * </pre>
+ *
+ * The TLDs and file extensions are matched using small tries.
+ */
+final class UrlScanner {
+
+	private UrlScanner() {
+	}
+
+	// some of the more common domains
+	// https://w3techs.com/technologies/overview/top_level_domain/all
+	private static final AsciiTrie TLDS = new AsciiTrie(
+			"com org net edu gov xyz moe club online pro site top shop info biz "
+					// all country TLDs
+					+ "ac ad ae af ag ai al am ao aq ar as at au aw ax az "
+					+ "ba bb bd be bf bg bh bi bj bm bn bo br bs bt bw by bz "
+					+ "ca cc cd cf cg ch ci ck cl cm cn co cr cu cv cw cx cy cz "
+					+ "de dj dk dm do dz "
+					+ "ec ee eg er es et eu "
+					+ "fi fj fk fm fo fr "
+					+ "ga gd ge gf gg gh gi gl gm gn gp gq gr gs gt gu gw gy "
+					+ "hk hm hn hr ht hu "
+					+ "id ie il im in io iq ir is it "
+					+ "je jm jo jp "
+					+ "ke kg kh ki km kn kp kr kw ky kz "
+					+ "la lb lc li lk lr ls lt lu lv ly "
+					+ "ma mc md me mg mh mk ml mm mn mo mp mq mr ms mt mu mv mw mx my mz "
+					+ "na nc ne nf ng ni nl no np nr nu nz "
+					+ "om "
+					+ "pa pe pf pg ph pk pl pm pn pr ps pt pw py "
+					+ "qa "
+					+ "re ro rs ru rw "
+					+ "sa sb sc sd se sg sh si sk sl sm sn so sr ss st su sv sx sy sz "
+					+ "tc td tf tg th tj tk tl tm tn to tr tt tv tw tz "
+					+ "ua ug uk us uy uz "
+					+ "va vc ve vg vi vn vu "
+					+ "wf ws "
+					+ "ye yt "
+					+ "za zm zw");
+
+	private static final AsciiTrie FILE_EXTENSIONS = new AsciiTrie(
+			"exe dll bin msi bat com jar pkg apk ini ai ico jpg jpeg png gif bmp webp tif tag ps odp pps ppt pptx pdf "
+					+ "doc docx xml csv sql zip rar tar gz 7z iso webm mov mkv mpg mpeg mp3 acc ogg wav wmv mid midi mp4 "
+					+ "avi vlc html htm php asp aspx js css");
+
+	/**
+	 * Returns whether the given phrase contains a URL or an email address.
+	 *
+	 * @param phrase
+	 * @return
+	 */
+	public static boolean containsUrlOrEmail(CharSequence phrase) {
+		final int length = phrase.length();
+		for (int i = 0; i < length; i++) {
+			switch (phrase.charAt(i)) {
+			case '@':
+				// Email addresses can be right about anything which contains an @.
+				if (i > 0 && i + 1 < length && !isLineTerminator(phrase.charAt(i - 1))
+						&& !isLineTerminator(phrase.charAt(i + 1)))
+					return true;
+				break;
+			case '.':
+				if (endsWith(phrase, i, "www") || TLDS.matchesWordAt(phrase, i + 1))
+					return true;
+				break;
+			case ':': {
+				// http: https: ftp: ftps:
+				int end = i;
+				if (end > 0 && toLowerAscii(phrase.charAt(end - 1)) == 's')
+					end--;
+				if (endsWith(phrase, end, "http") || endsWith(phrase, end, "ftp"))
+					return true;
+				break;
+			}
+			default:
+				break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns whether the given phrase contains a file name.
+	 *
+	 * @param phrase
+	 * @return
+	 */
+	public static boolean containsFileName(CharSequence phrase) {
+		final int length = phrase.length();
+		for (int i = 0; i < length; i++) {
+			if (phrase.charAt(i) == '.' && FILE_EXTENSIONS.matchesWordAt(phrase, i + 1))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the lower-case ASCII letter of the given char or {@code 0} if the lower-case form of the char is not an
+	 * ASCII letter or digit.
+	 * <p>
+	 * Besides ASCII characters, only the Kelvin sign (U+212A) lower-cases to an ASCII letter. U+0130 lower-cases to
+	 * {@code i} followed by a combining dot which can never be part of a match, so it is treated like any other
+	 * non-ASCII char.
+	 *
+	 * @param c
+	 * @return
+	 */
+	private static char toLowerAscii(char c) {
+		if (c >= 'A' && c <= 'Z')
+			return (char) (c + ('a' - 'A'));
+		if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'))
+			return c;
+		if (c == '\u212A')
+			return 'k';
+		return 0;
+	}
+
+	/**
+	 * Returns whether the chars right before the given end index are equal to the given lower-case ASCII string
+	 * ignoring case.
+	 */
+	private static boolean endsWith(CharSequence s, int end, String lowerCase) {
+		final int start = end - lowerCase.length();
+		if (start < 0)
+			return false;
+		for (int i = 0; i < lowerCase.length(); i++) {
+			if (toLowerAscii(s.charAt(start + i)) != lowerCase.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the given char is one of the line terminators which {@code .} in a regex doesn't match.
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/**
+	 * Returns whether there is a regex word boundary ({@code \b}) between the given index and the word character
+	 * before it.
+	 * <p>
+	 * Like {@link java.util.regex.Pattern}, a non-spacing mark after a word character is treated as a word character.
+	 */
+	private static boolean isWordEnd(CharSequence s, int index) {
+		if (index == s.length())
+			return true;
+		final int c = Character.codePointAt(s, index);
+		return !(c == '_' || Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK);
+	}
+
+	/**
+	 * A trie of lower-case ASCII words which may contain the letters a-z and digits.
+	 */
+	private static final class AsciiTrie {
+
+		private static final int ALPHABET = 26 + 10;
+
+		/**
+		 * The child of node {@code n} for char index {@code c} is at {@code n * ALPHABET + c}. {@code 0} means no
+		 * child because the root (node 0) can't be a child.
+		 */
+		private int[] children = new int[ALPHABET];
+		private boolean[] terminal = new boolean[1];
+		private int nodeCount = 1;
+
+		AsciiTrie(String words) {
+			for (final String word : words.split(" ")) {
+				add(word);
+			}
+		}
+
+		private void add(String word) {
+			int node = 0;
+			for (int i = 0; i < word.length(); i++) {
+				final int index = node * ALPHABET + indexOf(word.charAt(i));
+				if (children[index] == 0) {
+					if (nodeCount * ALPHABET == children.length) {
+						children = Arrays.copyOf(children, children.length * 2);
+						terminal = Arrays.copyOf(terminal, terminal.length * 2);
+					}
+					children[index] = nodeCount++;
+				}
+				node = children[index];
+			}
+			terminal[node] = true;
+		}
+
+		private static int indexOf(char lowerAscii) {
+			return lowerAscii >= 'a' ? lowerAscii - 'a' : 26 + lowerAscii - '0';
+		}
+
+		/**
+		 * Returns whether a word of this trie starts at the given index and is followed by a word boundary.
+		 *
+		 * @param s
+		 * @param start
+		 * @return
+		 */
+		boolean matchesWordAt(CharSequence s, int start) {
+			final int length = s.length();
+			int node = 0;
+			for (int i = start; i < length; i++) {
+				final char c = toLowerAscii(s.charAt(i));
+				if (c == 0)
+					return false;
+				node = children[node * ALPHABET + indexOf(c)];
+				if (node == 0)
+					return false;
+				if (terminal[node] && isWordEnd(s, i + 1))
+					return true;
+			}
+			return false;
+		}
+
+	}
+
+}
@@ -0,0 +1,304 @@
+package org.netspeak.preprocessing.mappers;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.netspeak.io.ArrayScanner;
+import org.netspeak.io.ArrayScanners;
+import org.netspeak.io.Utf8Phrase;
+import org.netspeak.preprocessing.Utf8PhraseMapper;
+
+/**
+ * UTF-8 variants of some of the mappers of {@link PhraseMappers}.
+ * <p>
+ * All mappers operate directly on the UTF-8 bytes of phrases. ASCII-only phrases will never be decoded and phrases
+ * which are not changed by a mapper will be returned as is.
+ */
+public final class Utf8PhraseMappers {
+
+	private Utf8PhraseMappers() {
+	}
+
+	private static final ArrayScanner SCANNER = ArrayScanners.INSTANCE;
+
+	/**
+	 * @see PhraseMappers#toLowerCase()
+	 */
+	public static Utf8PhraseMapper toLowerCase() {
+		return toLowerCase(Locale.getDefault());
+	}
+
+	/**
+	 * @see PhraseMappers#toLowerCase(Locale)
+	 */
+	public static Utf8PhraseMapper toLowerCase(final Locale locale) {
+		final boolean asciiSafe = isAsciiLowerCaseSafe(locale);
+
+		return (phrase, frequency) -> {
+			if (!phrase.isAscii() || !asciiSafe) {
+				final String s = phrase.toString();
+				final String lower = s.toLowerCase(locale);
+				return s.equals(lower) ? phrase : Utf8Phrase.of(lower);
+			}
+
+			final byte[] bytes = phrase.getBytes();
+			final int l = bytes.length;
+			int i = 0;
+			while (i < l && !isAsciiUpperCase(bytes[i])) {
+				i++;
+			}
+			if (i == l)
+				return phrase;
+
+			final byte[] lower = Arrays.copyOf(bytes, l);
+			for (; i < l; i++) {
+				if (isAsciiUpperCase(lower[i]))
+					lower[i] += 'a' - 'A';
+			}
+			return new Utf8Phrase(lower);
+		};
+	}
+
+	private static boolean isAsciiUpperCase(byte b) {
+		return 'A' <= b && b <= 'Z';
+	}
+
+	/**
+	 * Returns whether lower-casing an ASCII string in the given locale is the same as lower-casing each ASCII letter.
+	 * <p>
+	 * This is not the case for Turkish and Azeri where {@code I} will be mapped to a dotless {@code i}.
+	 */
+	static boolean isAsciiLowerCaseSafe(Locale locale) {
+		final String language = locale.getLanguage();
+		return !("tr".equals(language) || "az".equals(language));
+	}
+
+	/**
+	 * @see PhraseMappers#removeControlCharacters()
+	 */
+	public static Utf8PhraseMapper removeControlCharacters() {
+		return (phrase, frequency) -> {
+			final byte[] bytes = phrase.getBytes();
+			if (SCANNER.indexOfControlCharacter(bytes, 0, bytes.length) != -1)
+				return null;
+			return phrase;
+		};
+	}
+
+	/**
+	 * @see PhraseMappers#removeIfContainsNonLatin1Chars()
+	 */
+	public static Utf8PhraseMapper removeIfContainsNonLatin1Chars() {
+		return (phrase, frequency) -> {
+			if (phrase.isAscii())
+				return phrase;
+
+			// all code points above U+00FF start with a byte >= C4
+			final byte[] bytes = phrase.getBytes();
+			if (SCANNER.indexOfUnsignedAtLeast(bytes, 0, bytes.length, 0xC4) != -1)
+				return null;
+			return phrase;
+		};
+	}
+
+	/**
+	 * @see PhraseMappers#removeIfFrequencyIsLessThan(long)
+	 */
+	public static Utf8PhraseMapper removeIfFrequencyIsLessThan(final long minimumFrequency) {
+		return (phrase, frequency) -> frequency < minimumFrequency ? null : phrase;
+	}
+
+	/**
+	 * @see PhraseMappers#maxNGram(int)
+	 */
+	public static Utf8PhraseMapper maxNGram(int n) {
+		return (phrase, frequency) -> {
+			final byte[] bytes = phrase.getBytes();
+			final int words = 1 + SCANNER.count(bytes, 0, bytes.length, (byte) ' ');
+			return words > n ? null : phrase;
+		};
+	}
+
+	/**
+	 * @see PhraseMappers#removeHTMLEntities()
+	 */
+	public static Utf8PhraseMapper removeHTMLEntities() {
+		return (phrase, frequency) -> {
+			final byte[] bytes = phrase.getBytes();
+			final int l = bytes.length;
+			int wordStart = 0;
+			for (int i = 0; i <= l; i++) {
+				if (i == l || bytes[i] == ' ') {
+					if (i > wordStart && bytes[wordStart] == '&' && bytes[i - 1] == ';')
+						return null;
+					wordStart = i + 1;
+				}
+			}
+			return phrase;
+		};
+	}
+
+	/**
+	 * @see PhraseMappers#joinWordsWithLeadingApostrophe()
+	 */
+	public static Utf8PhraseMapper joinWordsWithLeadingApostrophe() {
+		return (phrase, frequency) -> {
+			final byte[] bytes = phrase.getBytes();
+			final int l = bytes.length;
+			int count = 0;
+			for (int i = 0; i + 1 < l; i++) {
+				if (bytes[i] == ' ' && bytes[i + 1] == '\'')
+					count++;
+			}
+			if (count == 0)
+				return phrase;
+
+			final byte[] result = new byte[l - count];
+			int writeIndex = 0;
+			for (int i = 0; i < l; i++) {
+				if (bytes[i] == ' ' && i + 1 < l && bytes[i + 1] == '\'')
+					continue;
+				result[writeIndex++] = bytes[i];
+			}
+			return new Utf8Phrase(result);
+		};
+	}
+
+	/**
+	 * @see PhraseMappers#explodeCommas()
+	 */
+	public static Utf8PhraseMapper explodeCommas() {
+		return (phrase, frequency) -> {
+			final byte[] bytes = phrase.getBytes();
+			int commas = 0;
+			for (final byte b : bytes) {
+				if (b == ',')
+					commas++;
+			}
+			if (commas == 0)
+				return phrase;
+
+			// replace all "," with " , "
+			final byte[] exploded = new byte[bytes.length + 2 * commas];
+			int writeIndex = 0;
+			for (final byte b : bytes) {
+				if (b == ',') {
+					exploded[writeIndex++] = ' ';
+					exploded[writeIndex++] = ',';
+					exploded[writeIndex++] = ' ';
+				} else {
+					exploded[writeIndex++] = b;
+				}
+			}
+
+			return normalizeSpaces(exploded);
+		};
+	}
+
+	/**
+	 * The equivalent of {@code str.replaceAll("\\s{2,}", " ").trim()}.
+	 */
+	private static Utf8Phrase normalizeSpaces(byte[] bytes) {
+		final byte[] result = new byte[bytes.length];
+		int l = 0;
+		for (int i = 0; i < bytes.length;) {
+			if (isWhitespace(bytes[i]) && i + 1 < bytes.length && isWhitespace(bytes[i + 1])) {
+				result[l++] = ' ';
+				while (i < bytes.length && isWhitespace(bytes[i])) {
+					i++;
+				}
+			} else {
+				result[l++] = bytes[i++];
+			}
+		}
+
+		// trim
+		int start = 0;
+		while (start < l && (result[start] & 0xFF) <= ' ') {
+			start++;
+		}
+		while (l > start && (result[l - 1] & 0xFF) <= ' ') {
+			l--;
+		}
+		return new Utf8Phrase(Arrays.copyOfRange(result, start, l));
+	}
+
+	/**
+	 * Returns whether the given byte is matched by {@code \s}.
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+	}
+
+	// U+00AD, U+2010, U+2011
+	private static final byte[][] UNICODE_HYPHENS = { utf8(0x00AD), utf8(0x2010), utf8(0x2011) };
+
+	/**
+	 * @see PhraseMappers#normalizeHyphens()
+	 */
+	public static Utf8PhraseMapper normalizeHyphens() {
+		return (phrase, frequency) -> replace(phrase, UNICODE_HYPHENS, (byte) '-');
+	}
+
+	// U+2019, U+02B9, U+2032, U+2035
+	private static final byte[][] UNICODE_APOSTROPHES = { utf8(0x2019), utf8(0x02B9), utf8(0x2032), utf8(0x2035) };
+
+	/**
+	 * @see PhraseMappers#normalizeApostrophe()
+	 */
+	public static Utf8PhraseMapper normalizeApostrophe() {
+		return (phrase, frequency) -> replace(phrase, UNICODE_APOSTROPHES, (byte) '\'');
+	}
+
+	private static byte[] utf8(int codePoint) {
+		return new String(Character.toChars(codePoint)).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Replaces all occurrences of the given non-ASCII characters with the given ASCII character.
+	 */
+	private static Utf8Phrase replace(Utf8Phrase phrase, byte[][] characters, byte replacement) {
+		if (phrase.isAscii())
+			return phrase;
+
+		final byte[] bytes = phrase.getBytes();
+		final int l = bytes.length;
+		byte[] result = null;
+		int writeIndex = 0;
+		for (int i = 0; i < l;) {
+			final byte[] match = startsWithAny(bytes, i, characters);
+			if (match == null) {
+				if (result != null)
+					result[writeIndex++] = bytes[i];
+				i++;
+			} else {
+				if (result == null) {
+					result = new byte[l];
+					System.arraycopy(bytes, 0, result, 0, i);
+					writeIndex = i;
+				}
+				result[writeIndex++] = replacement;
+				i += match.length;
+			}
+		}
+
+		return result == null ? phrase : new Utf8Phrase(Arrays.copyOf(result, writeIndex));
+	}
+
+	private static byte[] startsWithAny(byte[] bytes, int index, byte[][] characters) {
+		if (bytes[index] >= 0)
+			return null;
+
+		outer: for (final byte[] c : characters) {
+			if (index + c.length > bytes.length)
+				continue;
+			for (int i = 0; i < c.length; i++) {
+				if (bytes[index + i] != c[i])
+					continue outer;
+			}
+			return c;
+		}
+		return null;
+	}
+
+}
@@ -2,22 +2,23 @@ package org.netspeak.preprocessing.mappers;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.LongAccumulator;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.netspeak.io.PhraseFrequencyPair;
 import org.netspeak.io.PhraseWriter;
 import org.netspeak.io.SimpleCsvWriter;
 import org.netspeak.preprocessing.PhraseMapper;
+import org.netspeak.vocabulary.ConcurrentWordMaxMap;
+import org.netspeak.vocabulary.ExternalWordMaxMap;
 
 /**
  * A phrase mapper that will create a vocabulary from all phrases it sees.
@@ -26,38 +27,102 @@ import org.netspeak.preprocessing.PhraseMapper;
  */
 public class VocabularyExtractor implements PhraseMapper {
 
-	private Map<String, LongAccumulator> vocabulary = new ConcurrentHashMap<>();
+	private ConcurrentWordMaxMap vocabulary;
+	private final ExternalWordMaxMap external;
 	private List<PhraseFrequencyPair> list;
 
+	public VocabularyExtractor() {
+		this.vocabulary = new ConcurrentWordMaxMap();
+		this.external = null;
+	}
+
+	/**
+	 * Creates a new extractor which keeps at most the given number of words in memory and writes the rest to sorted
+	 * runs in the given directory.
+	 * <p>
+	 * The vocabulary of such an extractor can only be read using {@link #getExternalVocabulary()}.
+	 *
+	 * @param runDir
+	 * @param maxWordsInMemory
+	 * @throws IOException
+	 */
+	public VocabularyExtractor(Path runDir, int maxWordsInMemory) throws IOException {
+		this.vocabulary = null;
+		this.external = new ExternalWordMaxMap(runDir, maxWordsInMemory);
+	}
+
+	/**
+	 * Returns the vocabulary of an extractor which keeps its words on disk or {@code null} if the vocabulary is kept
+	 * in memory.
+	 *
+	 * @return
+	 * @see #VocabularyExtractor(Path, int)
+	 */
+	public ExternalWordMaxMap getExternalVocabulary() {
+		return external;
+	}
+
 	private List<PhraseFrequencyPair> getPairs() {
+		if (external != null) {
+			throw new IllegalStateException("The vocabulary is kept on disk. Use getExternalVocabulary() instead.");
+		}
 		if (list == null) {
-			list = new ArrayList<>();
-			vocabulary.forEach((phrase, counter) -> {
-				list.add(new PhraseFrequencyPair(phrase, counter.get()));
-			});
+			list = vocabulary.sorted();
 			vocabulary = null;
-
-			list.sort((a, b) -> {
-				if (a.frequency > b.frequency) {
-					return -1;
-				} else if (a.frequency < b.frequency) {
-					return 1;
-				}
-				return a.phrase.compareTo(b.phrase);
-			});
 		}
 		return list;
 	}
 
 	@Override
 	public String map(String phrase, long frequency) {
+		if (external != null) {
+			try {
+				for (String word : phrase.split(" ")) {
+					external.accumulate(word, frequency);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return phrase;
+		}
 		for (String word : phrase.split(" ")) {
-			LongAccumulator counter = vocabulary.computeIfAbsent(word, key -> new LongAccumulator(Long::max, 0));
-			counter.accumulate(frequency);
+			vocabulary.accumulate(word, frequency);
 		}
 		return phrase;
 	}
 
+	/**
+	 * Returns the {@code k} most frequent words ordered by descending frequency.
+	 * <p>
+	 * Unlike {@link #getVocabulary()}, this will not sort the whole vocabulary and the extractor can still be used
+	 * afterwards.
+	 *
+	 * @param k
+	 * @return
+	 */
+	public List<String> getTopWords(int k) {
+		if (vocabulary == null) {
+			// also throws if the vocabulary is kept on disk
+			return getPairs().stream().limit(k).map(p -> p.phrase).collect(Collectors.toList());
+		}
+		return vocabulary.top(k).stream().map(p -> p.phrase).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns an unmodifiable set of all words seen by this extractor.
+	 * <p>
+	 * Unlike {@link #getVocabulary()}, this will not create a copy of the vocabulary. The iteration order of the set
+	 * is unspecified. The set should only be used after the extractor saw all phrases.
+	 *
+	 * @return
+	 */
+	public Set<String> getWords() {
+		if (vocabulary == null) {
+			return Collections.unmodifiableSet(getVocabulary());
+		}
+		return vocabulary.keySet();
+	}
+
 	public void writePairs(PhraseWriter writer) throws Exception {
 		for (PhraseFrequencyPair pair : getPairs()) {
 			writer.write(pair);
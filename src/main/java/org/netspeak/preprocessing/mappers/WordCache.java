@@ -0,0 +1,137 @@
+package org.netspeak.preprocessing.mappers;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A bounded, thread-safe cache which maps words to values computed by a function.
+ * <p>
+ * This is intended for expensive per-word computations (e.g. matching a word against a regex). Since word frequencies
+ * follow Zipf's law, a small cache of the most recently used words is enough to avoid most computations.
+ * <p>
+ * The cache is a 4-way set-associative table indexed by the hash of the word. Each set is evicted using the CLOCK
+ * algorithm. Lookups and insertions don't lock: concurrent insertions into the same set may overwrite each other in
+ * which case the value will simply be computed again the next time.
+ *
+ * @param <V> The type of the cached values. Values must not be {@code null}.
+ */
+public final class WordCache<V> {
+
+	private static final int WAYS = 4;
+
+	private final Entry<V>[] table;
+	private final byte[] hands;
+	private final int setMask;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param capacity The maximum number of cached words. This will be rounded up to the next power of 2.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public WordCache(int capacity) {
+		int sets = Math.max(1, (capacity + WAYS - 1) / WAYS);
+		sets = sets == 1 ? 1 : Integer.highestOneBit(sets - 1) << 1;
+		this.table = new Entry[sets * WAYS];
+		this.hands = new byte[sets];
+		this.setMask = sets - 1;
+	}
+
+	/**
+	 * Returns the cached value of the given word. If the word is not cached, the value will be computed using the
+	 * given function and added to the cache.
+	 * <p>
+	 * The function has to always return the same value for the same word.
+	 *
+	 * @param word
+	 * @param function
+	 * @return
+	 */
+	public V get(String word, Function<? super String, ? extends V> function) {
+		int hash = word.hashCode();
+		hash ^= hash >>> 16;
+		int set = hash & setMask;
+		int start = set * WAYS;
+
+		for (int i = start; i < start + WAYS; i++) {
+			Entry<V> entry = table[i];
+			if (entry != null && entry.hash == hash && entry.word.equals(word)) {
+				entry.referenced = true;
+				hits.increment();
+				return entry.value;
+			}
+		}
+
+		misses.increment();
+		V value = function.apply(word);
+
+		// CLOCK: evict the first entry of the set which wasn't referenced since the hand last passed it
+		int hand = hands[set];
+		for (int i = 0; i < WAYS * 2; i++) {
+			int index = start + ((hand + i) & (WAYS - 1));
+			Entry<V> entry = table[index];
+			if (entry == null || !entry.referenced || i >= WAYS) {
+				table[index] = new Entry<>(hash, word, value);
+				hands[set] = (byte) ((hand + i + 1) & (WAYS - 1));
+				break;
+			}
+			entry.referenced = false;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Returns the number of lookups which were answered from the cache.
+	 *
+	 * @return
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Returns the number of lookups which had to compute the value.
+	 *
+	 * @return
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Returns a human-readable summary of the cache hits and misses.
+	 *
+	 * @return
+	 */
+	public String getStats() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		double rate = total == 0 ? 0 : 100. * hits / total;
+		return "word cache: " + hits + " hits of " + total + " lookups (" + String.format("%.2f", rate) + "%), "
+				+ table.length + " entries";
+	}
+
+	private static final class Entry<V> {
+
+		final int hash;
+		final String word;
+		final V value;
+		/**
+		 * Whether the entry was used since the CLOCK hand last passed it. Races on this flag only affect the eviction
+		 * order.
+		 */
+		boolean referenced = false;
+
+		Entry(int hash, String word, V value) {
+			this.hash = hash;
+			this.word = word;
+			this.value = value;
+		}
+
+	}
+
+}
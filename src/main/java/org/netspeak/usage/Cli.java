@@ -3,26 +3,34 @@ package org.netspeak.usage;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.stream.Collectors.toList;
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.stream.Collectors;
 
 import org.netspeak.hadoop.Merge;
+import org.netspeak.hadoop.MergeConfig;
 import org.netspeak.io.GoogleBooksCsvReader;
+import org.netspeak.io.GoogleBooksCsvReader.CountColumn;
 import org.netspeak.lang.Agnostic;
 import org.netspeak.lang.Config;
 import org.netspeak.lang.De;
 import org.netspeak.lang.En;
+import org.netspeak.lang.MapperArtifact;
 import org.netspeak.lang.MapperConfig;
 import org.netspeak.lang.Processor;
 import org.netspeak.preprocessing.PhraseSource;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputFormat;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
 import org.netspeak.preprocessing.SimplePhraseSourceFile;
 
 import picocli.CommandLine;
@@ -66,6 +74,11 @@ public class Cli implements Runnable {
 
 	@Option(names = { "--lowercase" }, description = { "Whether the whole data set will be lowercased." })
 	Boolean lowercase;
+	@Option(names = { "--lowercase-locale" }, description = {
+			"The locale used to lowercase the data set as an IETF BCP 47 language tag (e.g. `en` or `de-DE`).",
+			"Use `root` to lowercase independently of any locale.",
+			"By default, the default locale of the JVM will be used which may differ between machines." })
+	String lowercaseLocale;
 	@Option(names = { "--max-n-gram" }, description = {
 			"The maximum number of words an n-gram is allowed to contain. All n-grams with more words will be removed.",
 			"By default, no n-grams will be removed based on length." })
@@ -77,6 +90,95 @@ public class Cli implements Runnable {
 	@Option(names = { "--merge" }, description = { "Whether duplicate phrases in the data set will be merged.",
 			"Defaults to true." })
 	Boolean merge;
+	@Option(names = { "--sorted-input" }, description = {
+			"Whether the phrases of all input files are sorted by their UTF-8 bytes.",
+			"Duplicates of sorted files will be merged with a single k-way merge without temporary files. If the mapped phrases turn out not to be sorted, duplicates will be merged by hash as usual.",
+			"Without this option, only files known to be sorted (e.g. the Google Web 1T layout) which aren't mapped are merged this way.",
+			"Defaults to false." })
+	Boolean sortedInput;
+	@Option(names = { "--verbose" }, description = {
+			"Whether statistics about each mapper (e.g. removed phrases, run time, and cache hit rates) will be printed.",
+			"This might make the preprocessing slower.", "Defaults to false.",
+			"When run with Hadoop, the statistics will be published as job counters." })
+	Boolean verbose;
+	@Option(names = { "--slow-phrase-threshold" }, description = {
+			"The time in microseconds a single mapper may take for a single phrase before a JFR event is emitted.",
+			"The events will only be emitted if a JFR recording is active.",
+			"By default, no events for slow phrases will be emitted." })
+	Long slowPhraseThreshold;
+	@Option(names = { "--word-ids" }, description = {
+			"Whether phrases will be split and merged as sequences of word ids instead of strings.",
+			"This reduces the memory and temporary disk space required for merging.",
+			"Defaults to false.", "This option will be ignored when run with Hadoop." })
+	Boolean wordIds;
+	@Option(names = { "--output-format" }, description = { "The format of the output files.",
+			"Valid values:  ${COMPLETION-CANDIDATES}  (case insensitive)",
+			"CSV: One phrase and its frequency per line.",
+			"WORD_IDS: A vocabulary file (`vocab.txt`) and binary files of word id sequences.",
+			"Defaults to CSV.", "This option will be ignored when run with Hadoop." })
+	OutputFormat outputFormat;
+	@Option(names = { "--output-order" }, description = { "The order of the phrases in the output files.",
+			"Valid values:  ${COMPLETION-CANDIDATES}  (case insensitive)",
+			"NONE: Phrases are partitioned by hash and not sorted.",
+			"PHRASE: Phrases are sorted by their UTF-8 bytes and partitioned by sampled ranges, so the concatenation of `0.csv`, `1.csv`, ... is sorted.",
+			"FREQUENCY: Phrases are sorted by descending frequency and partitioned by sampled ranges of frequencies.",
+			"Defaults to NONE.", "When run with Hadoop, PHRASE is the same as `--sorted` and FREQUENCY is not supported." })
+	OutputOrder outputOrder;
+	@Option(names = { "--bucket-size" }, description = {
+			"The maximum number of bytes of the mapped phrases of each bucket used to merge duplicates.",
+			"The number of buckets is the estimated size of all phrases divided by this. More buckets need more open file handles.",
+			"By default, the bucket size is derived from the maximum heap size and the number of threads.",
+			"This option will be ignored when run with Hadoop." })
+	Long bucketSize;
+	@Option(names = { "--output-shard-size" }, description = {
+			"The number of bytes of each output file if duplicates are merged.",
+			"The files of ordered output only have about this size. Not supported for `--word-ids`.",
+			"By default, each bucket will be written to its own output file.",
+			"This option will be ignored when run with Hadoop. Use `--part-size` instead." })
+	Long outputShardSize;
+	@Option(names = { "--vocabulary-false-positive-rate" }, description = {
+			"If set, language-specific steps which need the whole vocabulary of the data set (e.g. the German hyphenation joiner) will keep the vocabulary in a temporary file and only keep a Bloom filter with the given false positive rate in memory.",
+			"By default, the vocabulary will be kept in memory.", "This option will be ignored when run with Hadoop." })
+	Double vocabularyFalsePositiveRate;
+	@Option(names = { "--google-books-min-year" }, description = {
+			"The first year whose counts will be aggregated for Google Books n-grams.",
+			"By default, all years will be aggregated." })
+	Integer googleBooksMinYear;
+	@Option(names = { "--google-books-max-year" }, description = {
+			"The last year whose counts will be aggregated for Google Books n-grams.",
+			"By default, all years will be aggregated." })
+	Integer googleBooksMaxYear;
+	@Option(names = { "--google-books-count" }, description = {
+			"The count of Google Books n-grams which will be used as the frequency of a phrase.",
+			"Valid values:  ${COMPLETION-CANDIDATES}  (case insensitive)",
+			"MATCH_COUNT: The number of occurrences of the n-gram.",
+			"VOLUME_COUNT: The number of books the n-gram occurs in.", "Defaults to MATCH_COUNT." })
+	CountColumn googleBooksCount;
+	@Option(names = { "--part-size" }, description = {
+			"The number of input bytes per reduce task. The number of output parts is the total input size divided by this.",
+			"Defaults to 256 MiB.", "This option will only be used when run with Hadoop." })
+	Long partSize;
+	@Option(names = { "--sorted" }, description = {
+			"Whether the phrases will be partitioned by sampled ranges so that the concatenation of all output parts is sorted and all parts have about the same size.",
+			"Defaults to false.", "This is the same as `--output-order PHRASE`." })
+	Boolean sorted;
+	@Option(names = { "--compress-map-output" }, description = {
+			"Whether the intermediate output of the map tasks will be compressed.", "Defaults to true.",
+			"This option will only be used when run with Hadoop." })
+	Boolean compressMapOutput;
+	@Option(names = { "--sequence-file" }, description = {
+			"Whether the output will be written as block-compressed SequenceFiles of Text phrases and LongWritable frequencies instead of CSV files.",
+			"Defaults to false.", "This option will only be used when run with Hadoop." })
+	Boolean sequenceFile;
+	@Option(names = { "--mapper-artifact" }, description = {
+			"A file created with `--write-mapper-artifact` which contains the compiled language-specific mappers.",
+			"Loading this file is faster than compiling the mappers from the word lists which speeds up short-lived processes like Hadoop map tasks.",
+			"By default, the mappers will be compiled from the word lists." })
+	Path mapperArtifact;
+	@Option(names = { "--write-mapper-artifact" }, description = {
+			"Compiles the language-specific mappers, writes them to the given file, and exits.",
+			"All other options will be ignored." })
+	Path writeMapperArtifact;
 	@Option(names = { "--hadoop" }, description = { "Whether to do the given operation on a Hadoop cluster.",
 			"Defaults to false." })
 	Boolean hadoop;
@@ -127,6 +229,20 @@ public class Cli implements Runnable {
 			}
 		}
 
+		if (lowercaseLocale == null) {
+			p = props.getProperty("lowercase-locale");
+			if (p != null) {
+				lowercaseLocale = p;
+			}
+		}
+
+		if (mapperArtifact == null) {
+			p = props.getProperty("mapper-artifact");
+			if (p != null) {
+				mapperArtifact = Paths.get(p);
+			}
+		}
+
 		if (maxNGram == null) {
 			p = props.getProperty("max-n-gram");
 			if (p != null) {
@@ -148,6 +264,118 @@ public class Cli implements Runnable {
 			}
 		}
 
+		if (sortedInput == null) {
+			p = props.getProperty("sorted-input");
+			if (p != null) {
+				sortedInput = Boolean.parseBoolean(p);
+			}
+		}
+
+		if (verbose == null) {
+			p = props.getProperty("verbose");
+			if (p != null) {
+				verbose = Boolean.parseBoolean(p);
+			}
+		}
+
+		if (wordIds == null) {
+			p = props.getProperty("word-ids");
+			if (p != null) {
+				wordIds = Boolean.parseBoolean(p);
+			}
+		}
+
+		if (outputFormat == null) {
+			p = props.getProperty("output-format");
+			if (p != null) {
+				outputFormat = OutputFormat.valueOf(p.toUpperCase().replace('-', '_'));
+			}
+		}
+
+		if (outputOrder == null) {
+			p = props.getProperty("output-order");
+			if (p != null) {
+				outputOrder = OutputOrder.valueOf(p.toUpperCase().replace('-', '_'));
+			}
+		}
+
+		if (bucketSize == null) {
+			p = props.getProperty("bucket-size");
+			if (p != null) {
+				bucketSize = Long.parseLong(p);
+			}
+		}
+
+		if (outputShardSize == null) {
+			p = props.getProperty("output-shard-size");
+			if (p != null) {
+				outputShardSize = Long.parseLong(p);
+			}
+		}
+
+		if (slowPhraseThreshold == null) {
+			p = props.getProperty("slow-phrase-threshold");
+			if (p != null) {
+				slowPhraseThreshold = Long.parseLong(p);
+			}
+		}
+
+		if (vocabularyFalsePositiveRate == null) {
+			p = props.getProperty("vocabulary-false-positive-rate");
+			if (p != null) {
+				vocabularyFalsePositiveRate = Double.parseDouble(p);
+			}
+		}
+
+		if (googleBooksMinYear == null) {
+			p = props.getProperty("google-books-min-year");
+			if (p != null) {
+				googleBooksMinYear = Integer.parseInt(p);
+			}
+		}
+
+		if (googleBooksMaxYear == null) {
+			p = props.getProperty("google-books-max-year");
+			if (p != null) {
+				googleBooksMaxYear = Integer.parseInt(p);
+			}
+		}
+
+		if (googleBooksCount == null) {
+			p = props.getProperty("google-books-count");
+			if (p != null) {
+				googleBooksCount = CountColumn.valueOf(p.toUpperCase().replace('-', '_'));
+			}
+		}
+
+		if (partSize == null) {
+			p = props.getProperty("part-size");
+			if (p != null) {
+				partSize = Long.parseLong(p);
+			}
+		}
+
+		if (sorted == null) {
+			p = props.getProperty("sorted");
+			if (p != null) {
+				sorted = Boolean.parseBoolean(p);
+			}
+		}
+
+		if (compressMapOutput == null) {
+			p = props.getProperty("compress-map-output");
+			if (p != null) {
+				compressMapOutput = Boolean.parseBoolean(p);
+			}
+		}
+
+		if (sequenceFile == null) {
+			p = props.getProperty("sequence-file");
+			if (p != null) {
+				sequenceFile = Boolean.parseBoolean(p);
+			}
+		}
+
 	}
 
 	private PhraseSource toPhraseSource(Path input) throws IOException {
@@ -161,13 +389,15 @@ public class Cli implements Runnable {
 
 			final Collection<PhraseSource.File> sourceFiles = new ArrayList<>();
 
-			// 1gms is special
+			// 1gms is special: vocab is sorted alphabetically and vocab_cs by count
 			final Path oneGrams = data.resolve("1gms");
-			final List<String> vocabFiles = Arrays.asList("vocab_cs.gz", "vocab_cs.bz2");
+			final List<String> vocabFiles = Arrays.asList("vocab.gz", "vocab.bz2", "vocab_cs.gz", "vocab_cs.bz2");
 			for (final String file : vocabFiles) {
 				final Path path = oneGrams.resolve(file);
 				if (Files.isRegularFile(path)) {
-					sourceFiles.add(new SimplePhraseSourceFile(path));
+					final SimplePhraseSourceFile vocab = new SimplePhraseSourceFile(path);
+					vocab.setSorted(file.startsWith("vocab."));
+					sourceFiles.add(vocab);
 					break;
 				}
 			}
@@ -183,9 +413,16 @@ public class Cli implements Runnable {
 
 				// all files are of the name "<n>gm-0000.<ext>"
 				final String prefix = n + "gm-";
+				// all phrases in these files have n words, so they can be skipped if n is too large
+				final int words = n;
 
 				Files.list(dir).filter(Files::isRegularFile).filter(p -> p.getFileName().toString().startsWith(prefix))
-						.map(SimplePhraseSourceFile::new).forEach(sourceFiles::add);
+						.map(p -> {
+							final SimplePhraseSourceFile file = new SimplePhraseSourceFile(p);
+							file.setMinWords(words);
+							file.setSorted(true);
+							return file;
+						}).forEach(sourceFiles::add);
 			}
 
 			return PhraseSource.fromFiles(sourceFiles);
@@ -199,13 +436,25 @@ public class Cli implements Runnable {
 		if (files.stream().anyMatch(f -> f.getFileName().toString().startsWith("googlebooks-"))) {
 			// Google Books
 			return PhraseSource.fromFiles(files.stream()
-					.map(p -> new SimplePhraseSourceFile(p, GoogleBooksCsvReader::new)).collect(Collectors.toList()));
+					.map(p -> new SimplePhraseSourceFile(p, this::createGoogleBooksReader)).collect(Collectors.toList()));
 		}
 
 		// assume simple CSV format
 		return PhraseSource.fromFiles(files.stream().map(SimplePhraseSourceFile::new).collect(Collectors.toList()));
 	}
 
+	private GoogleBooksCsvReader createGoogleBooksReader(BufferedReader reader) {
+		final GoogleBooksCsvReader booksReader = new GoogleBooksCsvReader(reader);
+		if (googleBooksMinYear != null || googleBooksMaxYear != null) {
+			booksReader.setYearRange(googleBooksMinYear == null ? Integer.MIN_VALUE : googleBooksMinYear,
+					googleBooksMaxYear == null ? Integer.MAX_VALUE : googleBooksMaxYear);
+		}
+		if (googleBooksCount != null) {
+			booksReader.setCountColumn(googleBooksCount);
+		}
+		return booksReader;
+	}
+
 	private void runLocal() throws Throwable {
 		final PhraseSource source = PhraseSource.combine(input.stream().map(p -> {
 			try {
@@ -218,14 +467,42 @@ public class Cli implements Runnable {
 		final Config config = new Config(source, Paths.get(output));
 		config.temp = Paths.get(temp);
 		config.lowercase = lowercase == null ? false : lowercase;
+		config.lowercaseLocale = parseLocale(lowercaseLocale);
 		config.maxNGram = maxNGram == null ? Integer.MAX_VALUE : maxNGram;
+		config.mapperArtifact = mapperArtifact;
 		config.parallelDegree = parallel == null || parallel <= 0 ? Runtime.getRuntime().availableProcessors()
 				: parallel;
 		config.mergeDuplicates = merge == null ? true : merge;
+		config.sortedInput = sortedInput == null ? false : sortedInput;
+		config.verbose = verbose == null ? false : verbose;
+		config.wordIds = wordIds == null ? false : wordIds;
+		config.outputFormat = outputFormat == null ? OutputFormat.CSV : outputFormat;
+		config.outputOrder = getOutputOrder();
+		config.bucketSize = bucketSize == null ? 0 : bucketSize;
+		config.outputShardSize = outputShardSize == null ? 0 : outputShardSize;
+		config.slowPhraseThreshold = slowPhraseThreshold == null ? null : Duration.ofNanos(slowPhraseThreshold * 1000);
+		config.vocabularyFalsePositiveRate = vocabularyFalsePositiveRate;
 
 		lang.processor.process(config);
 	}
 
+	private OutputOrder getOutputOrder() {
+		if (outputOrder != null) {
+			return outputOrder;
+		}
+		return sorted != null && sorted ? OutputOrder.PHRASE : OutputOrder.NONE;
+	}
+
+	private static Locale parseLocale(String languageTag) {
+		if (languageTag == null) {
+			return null;
+		}
+		if ("root".equalsIgnoreCase(languageTag)) {
+			return Locale.ROOT;
+		}
+		return Locale.forLanguageTag(languageTag);
+	}
+
 	private void runHadoop() throws Throwable {
 		if (merge != null && merge == false) {
 			throw new IllegalArgumentException(
@@ -234,12 +511,53 @@ public class Cli implements Runnable {
 
 		final MapperConfig config = new MapperConfig();
 		config.lowercase = lowercase == null ? false : lowercase;
+		config.lowercaseLocale = parseLocale(lowercaseLocale);
 		config.maxNGram = maxNGram == null ? Integer.MAX_VALUE : maxNGram;
+		config.mapperArtifact = mapperArtifact;
+
+		final MergeConfig mergeConfig = new MergeConfig();
+		if (googleBooksMinYear != null) {
+			mergeConfig.googleBooksMinYear = googleBooksMinYear;
+		}
+		if (googleBooksMaxYear != null) {
+			mergeConfig.googleBooksMaxYear = googleBooksMaxYear;
+		}
+		if (googleBooksCount != null) {
+			mergeConfig.googleBooksCount = googleBooksCount;
+		}
+		if (partSize != null) {
+			mergeConfig.partSize = partSize;
+		}
+		switch (getOutputOrder()) {
+		case NONE:
+			break;
+		case PHRASE:
+			mergeConfig.sorted = true;
+			break;
+		default:
+			throw new IllegalArgumentException(
+					"When running using Hadoop, the output can only be ordered by phrase. This conflicts with the `output-order="
+							+ outputOrder + "` given.");
+		}
+		if (verbose != null) {
+			mergeConfig.counters = verbose;
+		}
+		if (compressMapOutput != null) {
+			mergeConfig.compressMapOutput = compressMapOutput;
+		}
+		if (sequenceFile != null) {
+			mergeConfig.sequenceFile = sequenceFile;
+		}
 
-		Merge.run(input, output, lang.name(), config);
+		Merge.run(input, output, lang.name(), config, mergeConfig);
 	}
 
 	private void runWithExecption() throws Throwable {
+		if (writeMapperArtifact != null) {
+			MapperArtifact.write(writeMapperArtifact);
+			return;
+		}
+
 		readConfig();
 
 		if (input == null) {
@@ -254,6 +572,10 @@ public class Cli implements Runnable {
 		if (lang == null) {
 			throw new IllegalArgumentException("--lang option is not set by config file or argument.");
 		}
+		if (vocabularyFalsePositiveRate != null
+				&& !(vocabularyFalsePositiveRate > 0 && vocabularyFalsePositiveRate < 1)) {
+			throw new IllegalArgumentException("--vocabulary-false-positive-rate has to be between 0 and 1.");
+		}
 
 		if (hadoop == true) {
 			runHadoop();
@@ -0,0 +1,107 @@
+package org.netspeak.vocabulary;
+
+/**
+ * A Bloom filter for words.
+ * <p>
+ * Adding words is not thread-safe. Queries are thread-safe if no words are added concurrently.
+ */
+public final class BloomFilter {
+
+	private final long[] bits;
+	private final long bitCount;
+	private final int hashFunctions;
+
+	/**
+	 * Creates a new Bloom filter.
+	 *
+	 * @param expectedWords     The expected number of words.
+	 * @param falsePositiveRate The desired false positive rate if {@code expectedWords} words have been added.
+	 */
+	public BloomFilter(long expectedWords, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("The false positive rate has to be between 0 and 1.");
+		}
+		expectedWords = Math.max(expectedWords, 1);
+
+		double ln2 = Math.log(2);
+		long bitCount = (long) Math.ceil(-expectedWords * Math.log(falsePositiveRate) / (ln2 * ln2));
+		bitCount = Math.max(64, Math.min(bitCount, (long) Integer.MAX_VALUE * 64));
+		this.bits = new long[(int) ((bitCount + 63) / 64)];
+		this.bitCount = bits.length * 64L;
+		this.hashFunctions = (int) Math.max(1, Math.round((double) this.bitCount / expectedWords * ln2));
+	}
+
+	/**
+	 * Adds the given word.
+	 *
+	 * @param word
+	 */
+	public void add(CharSequence word) {
+		long hash = hash(word, word.length(), "");
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashFunctions; i++) {
+			long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+			bits[(int) (bit >>> 6)] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Returns whether the concatenation of the first {@code prefixLength} characters of {@code prefix} and
+	 * {@code suffix} might have been added.
+	 * <p>
+	 * If this returns {@code false}, the word has not been added.
+	 *
+	 * @param prefix
+	 * @param prefixLength
+	 * @param suffix
+	 * @return
+	 */
+	public boolean mightContain(CharSequence prefix, int prefixLength, CharSequence suffix) {
+		long hash = hash(prefix, prefixLength, suffix);
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32);
+		for (int i = 0; i < hashFunctions; i++) {
+			long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+			if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the size of the filter in bytes.
+	 *
+	 * @return
+	 */
+	public long getByteSize() {
+		return bits.length * 8L;
+	}
+
+	/**
+	 * Returns the number of hash functions used.
+	 *
+	 * @return
+	 */
+	public int getHashFunctions() {
+		return hashFunctions;
+	}
+
+	private static long hash(CharSequence prefix, int prefixLength, CharSequence suffix) {
+		// FNV-1a over all chars followed by the finalizer of MurmurHash3
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0; i < prefixLength; i++) {
+			h = (h ^ prefix.charAt(i)) * 0x100000001b3L;
+		}
+		for (int i = 0; i < suffix.length(); i++) {
+			h = (h ^ suffix.charAt(i)) * 0x100000001b3L;
+		}
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+}
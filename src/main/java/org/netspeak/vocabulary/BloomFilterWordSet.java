@@ -0,0 +1,161 @@
+package org.netspeak.vocabulary;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A word set for vocabularies which are too large to be kept in memory.
+ * <p>
+ * All lookups first query an in-memory Bloom filter. Only words which might be contained in the set are looked up in
+ * a memory-mapped {@link SortedWordFile}. The heap usage of this set is the size of the Bloom filter which only depends
+ * on the number of words and the false positive rate.
+ */
+public final class BloomFilterWordSet implements WordSet, AutoCloseable {
+
+	private final BloomFilter filter;
+	private final SortedWordFile file;
+	private final Set<String> malformed;
+	private final double falsePositiveRate;
+
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder filterPositives = new LongAdder();
+	private final LongAdder falsePositives = new LongAdder();
+
+	private BloomFilterWordSet(BloomFilter filter, SortedWordFile file, Set<String> malformed,
+			double falsePositiveRate) {
+		this.filter = filter;
+		this.file = file;
+		this.malformed = malformed;
+		this.falsePositiveRate = falsePositiveRate;
+	}
+
+	/**
+	 * Creates a new set of the given words.
+	 * <p>
+	 * The words will be written to the given file which will be memory-mapped. The file must not be changed or deleted
+	 * until the returned set is closed.
+	 *
+	 * @param words             The words. These must not contain duplicates.
+	 * @param file              The file the sorted words will be written to.
+	 * @param falsePositiveRate The false positive rate of the Bloom filter, i.e. the ratio of lookups of unknown words
+	 *                          which have to be looked up in the file.
+	 * @return
+	 * @throws IOException
+	 */
+	public static BloomFilterWordSet create(Collection<String> words, Path file, double falsePositiveRate)
+			throws IOException {
+		checkFalsePositiveRate(falsePositiveRate);
+		Set<String> malformed = new HashSet<>();
+		List<String> wellFormed = new ArrayList<>(words.size());
+		for (String word : words) {
+			if (CompactWordSet.isMalformed(word)) {
+				malformed.add(word);
+			} else {
+				wellFormed.add(word);
+			}
+		}
+
+		SortedWordFile.write(file, wellFormed);
+		wellFormed = null;
+
+		return open(file, malformed, falsePositiveRate);
+	}
+
+	/**
+	 * Returns a new set of the words of the given sorted word file and the given words with unpaired surrogates.
+	 * <p>
+	 * The Bloom filter is filled by reading the file once, so the words never have to be in memory. The file must not
+	 * be changed or deleted until the returned set is closed.
+	 *
+	 * @param file
+	 * @param malformed         The words with unpaired surrogates which cannot be stored in the file.
+	 * @param falsePositiveRate The false positive rate of the Bloom filter.
+	 * @return
+	 * @throws IOException
+	 * @see SortedWordFile.Writer
+	 */
+	public static BloomFilterWordSet open(Path file, Set<String> malformed, double falsePositiveRate)
+			throws IOException {
+		checkFalsePositiveRate(falsePositiveRate);
+		SortedWordFile words = SortedWordFile.open(file);
+		BloomFilter filter = new BloomFilter(words.size(), falsePositiveRate);
+		words.forEach(filter::add);
+		return new BloomFilterWordSet(filter, words, malformed, falsePositiveRate);
+	}
+
+	/**
+	 * Throws an {@link IllegalArgumentException} if the given false positive rate is not between 0 and 1 (exclusive).
+	 *
+	 * @param falsePositiveRate
+	 */
+	public static void checkFalsePositiveRate(double falsePositiveRate) {
+		if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException(
+					"The false positive rate has to be between 0 and 1 but was " + falsePositiveRate + ".");
+		}
+	}
+
+	@Override
+	public boolean contains(CharSequence prefix, int prefixLength, CharSequence suffix) {
+		lookups.increment();
+		if (filter.mightContain(prefix, prefixLength, suffix)) {
+			filterPositives.increment();
+			if (file.contains(prefix, prefixLength, suffix))
+				return true;
+			falsePositives.increment();
+		}
+
+		if (!malformed.isEmpty()) {
+			String word = new StringBuilder(prefixLength + suffix.length()).append(prefix, 0, prefixLength)
+					.append(suffix).toString();
+			return malformed.contains(word);
+		}
+		return false;
+	}
+
+	@Override
+	public long size() {
+		return file.size() + malformed.size();
+	}
+
+	/**
+	 * Returns the underlying Bloom filter.
+	 *
+	 * @return
+	 */
+	public BloomFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Returns a human-readable summary of the lookups done so far.
+	 * <p>
+	 * This includes the number of lookups, how many of them passed the Bloom filter, and the measured false positive
+	 * rate compared to the configured one.
+	 *
+	 * @return
+	 */
+	public String getStats() {
+		long lookups = this.lookups.sum();
+		long positives = filterPositives.sum();
+		long falsePositives = this.falsePositives.sum();
+		long negatives = lookups - (positives - falsePositives);
+		double rate = negatives == 0 ? 0 : (double) falsePositives / negatives;
+		return "Vocabulary lookups: " + lookups + ", Bloom filter positives: " + positives + ", false positives: "
+				+ falsePositives + " (rate " + String.format("%.4f", rate) + ", budget "
+				+ String.format("%.4f", falsePositiveRate) + ", filter size " + filter.getByteSize() + " bytes, "
+				+ filter.getHashFunctions() + " hash functions)";
+	}
+
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+}
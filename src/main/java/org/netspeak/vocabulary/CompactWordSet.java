@@ -0,0 +1,205 @@
+package org.netspeak.vocabulary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable set of words which stores all words as UTF-8 bytes in a single array.
+ * <p>
+ * The words are kept in an open-addressing hash table of offsets into the byte array. This needs only a fraction of
+ * the memory of a {@link HashSet} of the same words. Since the set is immutable, it can be shared between any number of
+ * threads without synchronization.
+ * <p>
+ * Lookups ({@link #contains(CharSequence, int, CharSequence)}) accept the word in two parts, so words which are the
+ * concatenation of two strings can be looked up without creating the concatenation.
+ */
+public final class CompactWordSet implements WordSet {
+
+	/**
+	 * All words encoded as a variable-length length followed by the UTF-8 bytes of the word.
+	 */
+	private final byte[] data;
+	/**
+	 * The offsets of the words in {@link #data} plus 1. {@code 0} marks an empty slot.
+	 */
+	private final int[] slots;
+	private final int size;
+	/**
+	 * All words which cannot be encoded as UTF-8 (i.e. words with unpaired surrogates).
+	 */
+	private final Set<String> malformed;
+
+	private CompactWordSet(byte[] data, int[] slots, int size, Set<String> malformed) {
+		this.data = data;
+		this.slots = slots;
+		this.size = size;
+		this.malformed = malformed;
+	}
+
+	/**
+	 * Returns a new set containing all of the given words.
+	 *
+	 * @param words
+	 * @return
+	 */
+	public static CompactWordSet copyOf(Collection<String> words) {
+		int capacity = Integer.highestOneBit(Math.max(words.size(), 1) * 2 - 1) << 1;
+		int[] slots = new int[capacity];
+		int mask = capacity - 1;
+		Set<String> malformed = new HashSet<>();
+
+		byte[] data = new byte[Math.max(words.size() * 8, 16)];
+		int length = 0;
+		int size = 0;
+		for (String word : words) {
+			if (isMalformed(word)) {
+				if (malformed.add(word))
+					size++;
+				continue;
+			}
+
+			int slot = findSlot(data, slots, mask, word, word.length(), "");
+			if (slots[slot] != 0)
+				continue; // duplicate
+
+			byte[] bytes = word.getBytes(UTF_8);
+			if (length + bytes.length + 5 > data.length) {
+				long newLength = Math.max((long) data.length * 2, (long) length + bytes.length + 5);
+				if (newLength > Integer.MAX_VALUE - 8) {
+					throw new IllegalArgumentException("Too many words.");
+				}
+				data = Arrays.copyOf(data, (int) newLength);
+			}
+
+			slots[slot] = length + 1;
+			length = writeVarInt(data, length, bytes.length);
+			System.arraycopy(bytes, 0, data, length, bytes.length);
+			length += bytes.length;
+			size++;
+		}
+
+		return new CompactWordSet(Arrays.copyOf(data, length), slots, size, malformed);
+	}
+
+	@Override
+	public long size() {
+		return size;
+	}
+
+	@Override
+	public boolean contains(CharSequence prefix, int prefixLength, CharSequence suffix) {
+		if (prefixLength < 0 || prefixLength > prefix.length()) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (slots[findSlot(data, slots, slots.length - 1, prefix, prefixLength, suffix)] != 0)
+			return true;
+
+		if (!malformed.isEmpty()) {
+			String word = new StringBuilder(prefixLength + suffix.length()).append(prefix, 0, prefixLength)
+					.append(suffix).toString();
+			return malformed.contains(word);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the slot of the given word or the empty slot where the word would be inserted.
+	 */
+	private static int findSlot(byte[] data, int[] slots, int mask, CharSequence prefix, int prefixLength,
+			CharSequence suffix) {
+		// same as String#hashCode of the concatenation
+		int hash = 0;
+		for (int i = 0; i < prefixLength; i++) {
+			hash = 31 * hash + prefix.charAt(i);
+		}
+		for (int i = 0; i < suffix.length(); i++) {
+			hash = 31 * hash + suffix.charAt(i);
+		}
+		hash *= 0x9E3779B9;
+		hash ^= hash >>> 16;
+
+		for (int i = hash & mask;; i = (i + 1) & mask) {
+			int offset = slots[i];
+			if (offset == 0 || equals(data, offset - 1, prefix, prefixLength, suffix))
+				return i;
+		}
+	}
+
+	/**
+	 * Returns whether the word stored at the given offset is equal to the concatenation of the given prefix and
+	 * suffix.
+	 */
+	private static boolean equals(byte[] data, int offset, CharSequence prefix, int prefixLength,
+			CharSequence suffix) {
+		// read the length
+		int length = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = data[offset++];
+			length |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		int end = offset + length;
+
+		int totalLength = prefixLength + suffix.length();
+		for (int i = 0; i < totalLength; i++) {
+			char c = i < prefixLength ? prefix.charAt(i) : suffix.charAt(i - prefixLength);
+			if (c < 0x80) {
+				if (offset >= end || data[offset++] != c)
+					return false;
+			} else if (c < 0x800) {
+				if (offset + 2 > end || data[offset++] != (byte) (0xC0 | (c >> 6))
+						|| data[offset++] != (byte) (0x80 | (c & 0x3F)))
+					return false;
+			} else if (Character.isSurrogate(c)) {
+				char low = i + 1 >= totalLength ? 0
+						: i + 1 < prefixLength ? prefix.charAt(i + 1) : suffix.charAt(i + 1 - prefixLength);
+				if (!Character.isHighSurrogate(c) || !Character.isLowSurrogate(low))
+					return false; // malformed words are not stored in the table
+				i++;
+				int cp = Character.toCodePoint(c, low);
+				if (offset + 4 > end || data[offset++] != (byte) (0xF0 | (cp >> 18))
+						|| data[offset++] != (byte) (0x80 | ((cp >> 12) & 0x3F))
+						|| data[offset++] != (byte) (0x80 | ((cp >> 6) & 0x3F))
+						|| data[offset++] != (byte) (0x80 | (cp & 0x3F)))
+					return false;
+			} else {
+				if (offset + 3 > end || data[offset++] != (byte) (0xE0 | (c >> 12))
+						|| data[offset++] != (byte) (0x80 | ((c >> 6) & 0x3F))
+						|| data[offset++] != (byte) (0x80 | (c & 0x3F)))
+					return false;
+			}
+		}
+		return offset == end;
+	}
+
+	/**
+	 * Returns whether the given word contains unpaired surrogates.
+	 */
+	public static boolean isMalformed(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			char c = word.charAt(i);
+			if (Character.isHighSurrogate(c) && i + 1 < word.length() && Character.isLowSurrogate(word.charAt(i + 1))) {
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int writeVarInt(byte[] data, int offset, int value) {
+		while ((value & ~0x7F) != 0) {
+			data[offset++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		data[offset++] = (byte) value;
+		return offset;
+	}
+
+}
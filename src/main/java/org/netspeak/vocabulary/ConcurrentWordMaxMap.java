@@ -0,0 +1,299 @@
+package org.netspeak.vocabulary;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
+
+import org.netspeak.io.PhraseFrequencyPair;
+
+/**
+ * A thread-safe map from words to the maximum of all values accumulated for that word.
+ * <p>
+ * The map is split into a number of stripes each of which is an open-addressing hash table with its own lock. Words
+ * and values are stored in plain arrays, so the map needs a few bytes per word on top of the words themselves.
+ * <p>
+ * Writes are linearizable. Reads ({@link #get(String)} and {@link #contains(String)}) do not lock and may not see
+ * concurrent writes. They are exact if all writes happened-before the read (e.g. because the writing threads have been
+ * joined).
+ */
+public class ConcurrentWordMaxMap {
+
+	private static final int DEFAULT_STRIPES = 64;
+	private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+	/**
+	 * The order of words by descending value and then ascending word.
+	 */
+	static final Comparator<PhraseFrequencyPair> ORDER = (a, b) -> {
+		if (a.frequency > b.frequency) {
+			return -1;
+		} else if (a.frequency < b.frequency) {
+			return 1;
+		}
+		return a.phrase.compareTo(b.phrase);
+	};
+
+	private final Stripe[] stripes;
+	private final int stripeShift;
+
+	public ConcurrentWordMaxMap() {
+		this(DEFAULT_STRIPES);
+	}
+
+	/**
+	 * Creates a new map.
+	 *
+	 * @param stripes The number of stripes. This will be rounded up to the next power of 2.
+	 */
+	public ConcurrentWordMaxMap(int stripes) {
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("The number of stripes has to be positive.");
+		}
+		int bits = 32 - Integer.numberOfLeadingZeros(stripes - 1);
+		this.stripes = new Stripe[1 << bits];
+		this.stripeShift = 32 - bits;
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new Stripe();
+		}
+	}
+
+	private static int hash(String word) {
+		int h = word.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private Stripe stripeOf(int hash) {
+		// the upper bits select the stripe, the lower bits select the slot
+		return stripeShift == 32 ? stripes[0] : stripes[hash >>> stripeShift];
+	}
+
+	/**
+	 * Sets the value of the given word to the maximum of its current value and the given value.
+	 * <p>
+	 * Words which are not in the map yet have a value of {@link Long#MIN_VALUE}.
+	 *
+	 * @param word
+	 * @param value
+	 * @return Whether the word was not in the map before.
+	 */
+	public boolean accumulate(String word, long value) {
+		requireNonNull(word);
+		int hash = hash(word);
+		return stripeOf(hash).accumulate(word, hash, value);
+	}
+
+	/**
+	 * Returns the value of the given word or the given default value if the word is not in the map.
+	 *
+	 * @param word
+	 * @param defaultValue
+	 * @return
+	 */
+	public long get(String word, long defaultValue) {
+		int hash = hash(word);
+		return stripeOf(hash).get(word, hash, defaultValue);
+	}
+
+	/**
+	 * Returns whether the given word is in the map.
+	 *
+	 * @param word
+	 * @return
+	 */
+	public boolean contains(String word) {
+		int hash = hash(word);
+		return stripeOf(hash).indexOf(word, hash) >= 0;
+	}
+
+	/**
+	 * Returns the number of words in the map.
+	 * <p>
+	 * This does not lock, so concurrent writes may or may not be counted. The size is exact if all writes
+	 * happened-before this call.
+	 *
+	 * @return
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			size += stripe.size;
+		}
+		return size;
+	}
+
+	/**
+	 * Calls the given consumer for all words and their values in no particular order.
+	 *
+	 * @param consumer
+	 */
+	public void forEach(ObjLongConsumer<String> consumer) {
+		for (Stripe stripe : stripes) {
+			stripe.forEach(consumer);
+		}
+	}
+
+	/**
+	 * Returns the {@code k} words with the highest values ordered by descending value. Words with the same value are
+	 * ordered lexicographically.
+	 * <p>
+	 * This only keeps {@code k} words in memory at any time. All values have to be positive.
+	 *
+	 * @param k
+	 * @return
+	 */
+	public List<PhraseFrequencyPair> top(int k) {
+		TopWords top = new TopWords(k);
+		forEach(top::add);
+		return top.get();
+	}
+
+	/**
+	 * Returns all words and their values ordered by descending value. Words with the same value are ordered
+	 * lexicographically. All values have to be positive.
+	 *
+	 * @return
+	 */
+	public List<PhraseFrequencyPair> sorted() {
+		List<PhraseFrequencyPair> list = new ArrayList<>(size());
+		forEach((word, value) -> list.add(new PhraseFrequencyPair(word, value)));
+		list.sort(ORDER);
+		return list;
+	}
+
+	/**
+	 * Returns an unmodifiable set view of the words of this map.
+	 * <p>
+	 * {@link Set#contains(Object)} has the same guarantees as {@link #contains(String)}.
+	 *
+	 * @return
+	 */
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public boolean contains(Object o) {
+				return o instanceof String && ConcurrentWordMaxMap.this.contains((String) o);
+			}
+
+			@Override
+			public int size() {
+				return ConcurrentWordMaxMap.this.size();
+			}
+
+			@Override
+			public Iterator<String> iterator() {
+				List<String> words = new ArrayList<>(size());
+				ConcurrentWordMaxMap.this.forEach((word, value) -> words.add(word));
+				return Collections.unmodifiableList(words).iterator();
+			}
+		};
+	}
+
+	private static final class Stripe {
+
+		/**
+		 * The keys and values of the stripe. Both arrays are replaced together when the stripe grows.
+		 */
+		private volatile Table table = new Table(INITIAL_STRIPE_CAPACITY);
+		/**
+		 * Only written while holding the lock of the stripe, but read without it by {@link ConcurrentWordMaxMap#size()}.
+		 */
+		private volatile int size = 0;
+
+		int indexOf(String word, int hash) {
+			Table table = this.table;
+			String[] keys = table.keys;
+			int mask = keys.length - 1;
+			for (int i = hash & mask;; i = (i + 1) & mask) {
+				String key = keys[i];
+				if (key == null)
+					return -1;
+				if (key.equals(word))
+					return i;
+			}
+		}
+
+		long get(String word, int hash, long defaultValue) {
+			Table table = this.table;
+			String[] keys = table.keys;
+			int mask = keys.length - 1;
+			for (int i = hash & mask;; i = (i + 1) & mask) {
+				String key = keys[i];
+				if (key == null)
+					return defaultValue;
+				if (key.equals(word))
+					return table.values[i];
+			}
+		}
+
+		synchronized boolean accumulate(String word, int hash, long value) {
+			Table table = this.table;
+			String[] keys = table.keys;
+			int mask = keys.length - 1;
+			for (int i = hash & mask;; i = (i + 1) & mask) {
+				String key = keys[i];
+				if (key == null) {
+					table.values[i] = value;
+					keys[i] = word;
+					if (++size * 2 > keys.length) {
+						grow();
+					}
+					return true;
+				}
+				if (key.equals(word)) {
+					if (table.values[i] < value)
+						table.values[i] = value;
+					return false;
+				}
+			}
+		}
+
+		private void grow() {
+			Table old = this.table;
+			Table table = new Table(old.keys.length * 2);
+			int mask = table.keys.length - 1;
+			for (int j = 0; j < old.keys.length; j++) {
+				String key = old.keys[j];
+				if (key != null) {
+					int i = hash(key) & mask;
+					while (table.keys[i] != null) {
+						i = (i + 1) & mask;
+					}
+					table.keys[i] = key;
+					table.values[i] = old.values[j];
+				}
+			}
+			this.table = table;
+		}
+
+		synchronized void forEach(ObjLongConsumer<String> consumer) {
+			Table table = this.table;
+			for (int i = 0; i < table.keys.length; i++) {
+				String key = table.keys[i];
+				if (key != null) {
+					consumer.accept(key, table.values[i]);
+				}
+			}
+		}
+
+	}
+
+	private static final class Table {
+
+		final String[] keys;
+		final long[] values;
+
+		Table(int capacity) {
+			keys = new String[capacity];
+			values = new long[capacity];
+		}
+
+	}
+
+}
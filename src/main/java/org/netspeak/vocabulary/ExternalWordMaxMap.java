@@ -0,0 +1,259 @@
+package org.netspeak.vocabulary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.netspeak.Util;
+
+/**
+ * A thread-safe map from words to the maximum of all values accumulated for that word which keeps at most a given
+ * number of words in memory.
+ * <p>
+ * Once the map holds the maximum number of words, all words are written to a sorted run file and the map starts over.
+ * {@link #forEachSorted(WordConsumer)} merges all runs, so each word is seen once with its maximum value. The heap
+ * usage of the map therefore only depends on the maximum number of words and not on the size of the vocabulary.
+ * <p>
+ * Like {@link ConcurrentWordMaxMap}, the map is split into stripes with their own locks. Only writing a run locks all
+ * stripes.
+ */
+public final class ExternalWordMaxMap implements AutoCloseable {
+
+	private static final int STRIPES = 64;
+	/**
+	 * The maximum number of runs merged at once. If there are more runs, groups of runs are merged into larger runs
+	 * first.
+	 */
+	private static final int MAX_MERGE_WIDTH = 128;
+	private static final int RUN_BUFFER_SIZE = 1024 * 64;
+	private static final Comparator<RunReader> READER_ORDER = (a, b) -> SortedWordFile.compareCodePoints(a.word,
+			b.word);
+
+	private final Path dir;
+	private final int maxWords;
+	private final ConcurrentWordMaxMap[] stripes = new ConcurrentWordMaxMap[STRIPES];
+	private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+	private final AtomicInteger words = new AtomicInteger();
+	private final List<Path> runs = new ArrayList<>();
+	private int nextRun = 0;
+
+	/**
+	 * Creates a new map.
+	 *
+	 * @param dir      The directory of the run files. It will be created if it doesn't exist and deleted by
+	 *                 {@link #close()}.
+	 * @param maxWords The maximum number of words kept in memory.
+	 * @throws IOException
+	 */
+	public ExternalWordMaxMap(Path dir, int maxWords) throws IOException {
+		if (maxWords < 1) {
+			throw new IllegalArgumentException("The map has to keep at least one word in memory.");
+		}
+		this.dir = dir;
+		this.maxWords = maxWords;
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new ConcurrentWordMaxMap(1);
+			locks[i] = new ReentrantLock();
+		}
+		Files.createDirectories(dir);
+	}
+
+	/**
+	 * Sets the value of the given word to the maximum of its current value and the given value.
+	 *
+	 * @param word
+	 * @param value
+	 * @throws IOException If the words in memory could not be written to a run.
+	 */
+	public void accumulate(String word, long value) throws IOException {
+		int stripe = stripeOf(word);
+		boolean added;
+		ReentrantLock lock = locks[stripe];
+		lock.lock();
+		try {
+			added = stripes[stripe].accumulate(word, value);
+		} finally {
+			lock.unlock();
+		}
+
+		if (added && words.incrementAndGet() >= maxWords) {
+			spill(maxWords);
+		}
+	}
+
+	private static int stripeOf(String word) {
+		return (word.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(STRIPES));
+	}
+
+	/**
+	 * Writes all words in memory to a new run if there are at least the given number of words.
+	 */
+	private void spill(int minWords) throws IOException {
+		for (ReentrantLock lock : locks) {
+			lock.lock();
+		}
+		try {
+			if (words.get() < minWords || words.get() == 0) {
+				return;
+			}
+
+			List<String> sorted = new ArrayList<>(words.get());
+			for (ConcurrentWordMaxMap stripe : stripes) {
+				stripe.forEach((word, value) -> sorted.add(word));
+			}
+			sorted.sort(SortedWordFile::compareCodePoints);
+
+			Path run = newRun();
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE))) {
+				for (String word : sorted) {
+					writeEntry(out, word, stripes[stripeOf(word)].get(word, Long.MIN_VALUE));
+				}
+			}
+			runs.add(run);
+
+			for (int i = 0; i < STRIPES; i++) {
+				stripes[i] = new ConcurrentWordMaxMap(1);
+			}
+			words.set(0);
+		} finally {
+			for (ReentrantLock lock : locks) {
+				lock.unlock();
+			}
+		}
+	}
+
+	private Path newRun() {
+		return dir.resolve("run-" + nextRun++ + ".bin");
+	}
+
+	private static void writeEntry(DataOutputStream out, String word, long value) throws IOException {
+		// chars instead of UTF-8, so words with unpaired surrogates survive
+		out.writeInt(word.length());
+		out.writeChars(word);
+		out.writeLong(value);
+	}
+
+	/**
+	 * Calls the given consumer for all words and their values in the order of
+	 * {@link SortedWordFile#compareCodePoints(String, String)}.
+	 * <p>
+	 * This must not be called concurrently with {@link #accumulate(String, long)}.
+	 *
+	 * @param consumer
+	 * @throws IOException
+	 */
+	public void forEachSorted(WordConsumer consumer) throws IOException {
+		spill(1);
+		while (runs.size() > MAX_MERGE_WIDTH) {
+			List<Path> group = new ArrayList<>(runs.subList(0, MAX_MERGE_WIDTH));
+			Path run = newRun();
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(run), RUN_BUFFER_SIZE))) {
+				merge(group, (word, value) -> writeEntry(out, word, value));
+			}
+			for (Path path : group) {
+				Files.delete(path);
+			}
+			runs.removeAll(group);
+			runs.add(run);
+		}
+		merge(runs, consumer);
+	}
+
+	private static void merge(List<Path> runs, WordConsumer consumer) throws IOException {
+		List<RunReader> readers = new ArrayList<>();
+		try {
+			PriorityQueue<RunReader> heap = new PriorityQueue<>(Math.max(1, runs.size()), READER_ORDER);
+			for (Path run : runs) {
+				RunReader reader = new RunReader(run);
+				readers.add(reader);
+				if (reader.next()) {
+					heap.add(reader);
+				}
+			}
+
+			String current = null;
+			long max = 0;
+			while (!heap.isEmpty()) {
+				RunReader reader = heap.poll();
+				if (current != null && current.equals(reader.word)) {
+					max = Math.max(max, reader.value);
+				} else {
+					if (current != null) {
+						consumer.accept(current, max);
+					}
+					current = reader.word;
+					max = reader.value;
+				}
+				if (reader.next()) {
+					heap.add(reader);
+				}
+			}
+			if (current != null) {
+				consumer.accept(current, max);
+			}
+		} finally {
+			for (RunReader reader : readers) {
+				reader.in.close();
+			}
+		}
+	}
+
+	/**
+	 * Deletes all runs.
+	 */
+	@Override
+	public void close() throws IOException {
+		Util.delete(dir, true);
+	}
+
+	@FunctionalInterface
+	public interface WordConsumer {
+
+		void accept(String word, long value) throws IOException;
+
+	}
+
+	private static final class RunReader {
+
+		final DataInputStream in;
+		String word;
+		long value;
+
+		RunReader(Path run) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), RUN_BUFFER_SIZE));
+		}
+
+		/**
+		 * Reads the next entry and returns whether there was one.
+		 */
+		boolean next() throws IOException {
+			int b = in.read();
+			if (b == -1) {
+				return false;
+			}
+			int length = (b << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8)
+					| in.readUnsignedByte();
+			char[] chars = new char[length];
+			for (int i = 0; i < length; i++) {
+				chars[i] = in.readChar();
+			}
+			word = new String(chars);
+			value = in.readLong();
+			return true;
+		}
+
+	}
+
+}
@@ -0,0 +1,286 @@
+package org.netspeak.vocabulary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * A file of sorted words which is searched using a binary search over a memory-mapped view of the file.
+ * <p>
+ * The file contains the number of words, the total length of all words, the UTF-8 bytes of all words ordered by code
+ * point, and the offsets of all words. The offsets come last, so files can be written by a {@link Writer} one word at
+ * a time without knowing the words in advance. Only the pages of the file touched by lookups are loaded into memory,
+ * so the heap usage does not depend on the number of words.
+ * <p>
+ * Words with unpaired surrogates cannot be stored and are never contained.
+ */
+public final class SortedWordFile implements WordSet, AutoCloseable {
+
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final long DATA_START = 16;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+
+	private final long count;
+	private final long offsetsStart;
+
+	private SortedWordFile(FileChannel channel) throws IOException {
+		this.channel = channel;
+
+		long size = channel.size();
+		segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)];
+		for (int i = 0; i < segments.length; i++) {
+			long position = (long) i << SEGMENT_BITS;
+			segments[i] = channel.map(MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position));
+		}
+
+		count = getLong(0);
+		offsetsStart = DATA_START + getLong(8);
+	}
+
+	/**
+	 * Opens the given sorted word file.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static SortedWordFile open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return new SortedWordFile(channel);
+		} catch (Throwable e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Writes the given words to the given file.
+	 * <p>
+	 * The given words must not contain duplicates or words with unpaired surrogates.
+	 *
+	 * @param file
+	 * @param words
+	 * @throws IOException
+	 */
+	public static void write(Path file, Collection<String> words) throws IOException {
+		String[] sorted = words.toArray(new String[0]);
+		Arrays.sort(sorted, SortedWordFile::compareCodePoints);
+
+		try (Writer writer = new Writer(file)) {
+			for (String word : sorted) {
+				writer.add(word);
+			}
+		}
+	}
+
+	/**
+	 * Calls the given consumer for all words of this file in order.
+	 *
+	 * @param consumer
+	 */
+	public void forEach(Consumer<String> consumer) {
+		byte[] buffer = new byte[64];
+		long start = DATA_START + getLong(offsetsStart);
+		for (long i = 0; i < count; i++) {
+			long end = DATA_START + getLong(offsetsStart + (i + 1) * 8);
+			int length = (int) (end - start);
+			if (buffer.length < length) {
+				buffer = new byte[Math.max(length, buffer.length * 2)];
+			}
+			for (int j = 0; j < length; j++) {
+				buffer[j] = get(start + j);
+			}
+			consumer.accept(new String(buffer, 0, length, UTF_8));
+			start = end;
+		}
+	}
+
+	@Override
+	public long size() {
+		return count;
+	}
+
+	@Override
+	public boolean contains(CharSequence prefix, int prefixLength, CharSequence suffix) {
+		String word = new StringBuilder(prefixLength + suffix.length()).append(prefix, 0, prefixLength)
+				.append(suffix).toString();
+		if (CompactWordSet.isMalformed(word))
+			return false;
+		byte[] bytes = word.getBytes(UTF_8);
+
+		long low = 0;
+		long high = count - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			int cmp = compareTo(middle, bytes);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compares the word with the given index to the given UTF-8 bytes.
+	 */
+	private int compareTo(long index, byte[] bytes) {
+		long start = DATA_START + getLong(offsetsStart + index * 8);
+		long end = DATA_START + getLong(offsetsStart + (index + 1) * 8);
+		long length = end - start;
+		for (int i = 0; i < bytes.length; i++) {
+			if (i >= length)
+				return -1;
+			int cmp = Integer.compare(get(start + i) & 0xFF, bytes[i] & 0xFF);
+			if (cmp != 0)
+				return cmp;
+		}
+		return length == bytes.length ? 0 : 1;
+	}
+
+	private byte get(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & (SEGMENT_SIZE - 1)));
+	}
+
+	private long getLong(long position) {
+		int index = (int) (position & (SEGMENT_SIZE - 1));
+		MappedByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+		if (index + 8 <= segment.limit()) {
+			return segment.getLong(index);
+		}
+		// the long crosses two segments
+		long value = 0;
+		for (int i = 0; i < 8; i++) {
+			value = (value << 8) | (get(position + i) & 0xFF);
+		}
+		return value;
+	}
+
+	/**
+	 * Compares the given strings by code point. This is the same order as the unsigned byte order of their UTF-8
+	 * encodings.
+	 */
+	static int compareCodePoints(String a, String b) {
+		int length = Math.min(a.length(), b.length());
+		for (int i = 0; i < length; i++) {
+			char c1 = a.charAt(i);
+			char c2 = b.charAt(i);
+			if (c1 != c2) {
+				if (c1 >= 0xD800 && c2 >= 0xD800) {
+					// surrogates (D800-DFFF) are greater than all other chars >= E000
+					c1 = (char) (c1 >= 0xE000 ? c1 - 0x800 : c1 + 0x2000);
+					c2 = (char) (c2 >= 0xE000 ? c2 - 0x800 : c2 + 0x2000);
+				}
+				return c1 - c2;
+			}
+		}
+		return a.length() - b.length();
+	}
+
+	/**
+	 * Closes the file.
+	 * <p>
+	 * The memory-mapped views of the file will be released by the garbage collector.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	/**
+	 * A writer which writes the words given to it one at a time.
+	 * <p>
+	 * Words have to be added in the order of {@link SortedWordFile#compareCodePoints(String, String)}. Only the
+	 * offsets of the words are buffered in a temporary file next to the written file, so the heap usage does not
+	 * depend on the number of words.
+	 */
+	public static final class Writer implements AutoCloseable {
+
+		private final FileChannel channel;
+		private final OutputStream data;
+		private final Path offsetsFile;
+		private final DataOutputStream offsets;
+		private String last = null;
+		private long count = 0;
+		private long length = 0;
+
+		/**
+		 * Creates a new writer.
+		 *
+		 * @param file
+		 * @throws IOException
+		 */
+		public Writer(Path file) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			channel.position(DATA_START);
+			data = new BufferedOutputStream(Channels.newOutputStream(channel), 1024 * 256);
+			offsetsFile = file.resolveSibling(file.getFileName() + ".offsets");
+			offsets = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(offsetsFile), 1024 * 64));
+			offsets.writeLong(0);
+		}
+
+		/**
+		 * Adds the given word.
+		 *
+		 * @param word A word without unpaired surrogates which is greater than all words added before.
+		 * @throws IOException
+		 */
+		public void add(String word) throws IOException {
+			if (last != null && compareCodePoints(last, word) >= 0) {
+				throw new IllegalArgumentException("The words are not sorted or contain duplicates: \"" + word
+						+ "\" was added after \"" + last + "\".");
+			}
+			if (CompactWordSet.isMalformed(word)) {
+				throw new IllegalArgumentException("Words with unpaired surrogates cannot be stored: \"" + word + "\"");
+			}
+			byte[] bytes = word.getBytes(UTF_8);
+			data.write(bytes);
+			length += bytes.length;
+			offsets.writeLong(length);
+			count++;
+			last = word;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				data.flush();
+				offsets.close();
+				Files.copy(offsetsFile, Channels.newOutputStream(channel));
+
+				ByteBuffer header = ByteBuffer.allocate((int) DATA_START);
+				header.putLong(count).putLong(length).flip();
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+			} finally {
+				channel.close();
+				Files.deleteIfExists(offsetsFile);
+			}
+		}
+
+	}
+
+}
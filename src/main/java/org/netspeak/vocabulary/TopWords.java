@@ -0,0 +1,60 @@
+package org.netspeak.vocabulary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.netspeak.io.PhraseFrequencyPair;
+
+/**
+ * Keeps the {@code k} words with the highest values of all words added to it.
+ * <p>
+ * Words are ordered by descending value and words with the same value are ordered lexicographically. Only {@code k}
+ * words are kept in memory at any time. Each word may only be added once. This class is not thread-safe.
+ */
+public final class TopWords {
+
+	private final int k;
+	/**
+	 * The head of the heap is the worst of the current top k words.
+	 */
+	private final PriorityQueue<PhraseFrequencyPair> heap;
+
+	public TopWords(int k) {
+		this.k = k;
+		this.heap = new PriorityQueue<>(Math.max(1, k), ConcurrentWordMaxMap.ORDER.reversed());
+	}
+
+	/**
+	 * Adds the given word.
+	 *
+	 * @param word
+	 * @param value
+	 */
+	public void add(String word, long value) {
+		if (k <= 0) {
+			return;
+		}
+		if (heap.size() < k) {
+			heap.add(new PhraseFrequencyPair(word, value));
+		} else {
+			PhraseFrequencyPair worst = heap.peek();
+			if (value > worst.frequency || value == worst.frequency && word.compareTo(worst.phrase) < 0) {
+				heap.poll();
+				heap.add(new PhraseFrequencyPair(word, value));
+			}
+		}
+	}
+
+	/**
+	 * Returns the top words ordered by descending value.
+	 *
+	 * @return
+	 */
+	public List<PhraseFrequencyPair> get() {
+		List<PhraseFrequencyPair> list = new ArrayList<>(heap);
+		list.sort(ConcurrentWordMaxMap.ORDER);
+		return list;
+	}
+
+}
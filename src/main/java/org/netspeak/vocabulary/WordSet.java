@@ -0,0 +1,38 @@
+package org.netspeak.vocabulary;
+
+/**
+ * A read-only set of words.
+ * <p>
+ * Implementations have to be thread-safe.
+ */
+public interface WordSet {
+
+	/**
+	 * Returns whether the concatenation of the first {@code prefixLength} characters of {@code prefix} and
+	 * {@code suffix} is contained in this set.
+	 *
+	 * @param prefix
+	 * @param prefixLength
+	 * @param suffix
+	 * @return
+	 */
+	boolean contains(CharSequence prefix, int prefixLength, CharSequence suffix);
+
+	/**
+	 * Returns whether the given word is contained in this set.
+	 *
+	 * @param word
+	 * @return
+	 */
+	default boolean contains(CharSequence word) {
+		return contains(word, word.length(), "");
+	}
+
+	/**
+	 * Returns the number of words in this set.
+	 *
+	 * @return
+	 */
+	long size();
+
+}
@@ -0,0 +1,32 @@
+package org.netspeak.io;
+
+/**
+ * Provides the {@link ArrayScanner} used by all readers and mappers.
+ * <p>
+ * This is the Java 17 variant of this class (multi-release jar). It returns a SIMD implementation based on the
+ * Vector API if the {@code jdk.incubator.vector} module is available (e.g. {@code --add-modules
+ * jdk.incubator.vector}) and the hardware supports vectors of at least 128 bits. The Vector API can be disabled using
+ * {@code -Dnetspeak.vector=false}.
+ */
+public final class ArrayScanners {
+
+	private ArrayScanners() {
+	}
+
+	/**
+	 * The fastest available scanner.
+	 * <p>
+	 * Its {@link Object#toString()} returns the name of the implementation.
+	 */
+	public static final ArrayScanner INSTANCE = create();
+
+	private static ArrayScanner create() {
+		final boolean enabled = Boolean.parseBoolean(System.getProperty("netspeak.vector", "true"));
+		if (enabled && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+				&& VectorArrayScanner.isSupported()) {
+			return new VectorArrayScanner();
+		}
+		return new ScalarArrayScanner();
+	}
+
+}
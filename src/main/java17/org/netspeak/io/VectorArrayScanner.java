@@ -0,0 +1,142 @@
+package org.netspeak.io;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * An {@link ArrayScanner} which uses the Vector API to scan many bytes or chars at once.
+ * <p>
+ * Each method processes full vectors and hands the remaining elements to {@link ScalarArrayScanner}. Vectors are at
+ * most 256 bits wide: phrases and CSV lines are usually shorter than 64 bytes, so wider vectors would mostly be
+ * skipped in favor of the scalar tail.
+ */
+final class VectorArrayScanner implements ArrayScanner {
+
+	private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED.vectorBitSize() > 256
+			? ByteVector.SPECIES_256
+			: ByteVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Short> SHORTS = VectorSpecies.of(short.class, BYTES.vectorShape());
+
+	private static final ScalarArrayScanner SCALAR = new ScalarArrayScanner();
+
+	/**
+	 * Returns whether the hardware supports vectors which are wide enough for this implementation to be faster than
+	 * the scalar one.
+	 *
+	 * @return
+	 */
+	static boolean isSupported() {
+		return BYTES.vectorBitSize() >= 128;
+	}
+
+	@Override
+	public int indexOf(byte[] a, int from, int to, byte value) {
+		int i = from;
+		final int bound = from + BYTES.loopBound(to - from);
+		for (; i < bound; i += BYTES.length()) {
+			final VectorMask<Byte> mask = ByteVector.fromArray(BYTES, a, i).eq(value);
+			if (mask.anyTrue())
+				return i + mask.firstTrue();
+		}
+		return SCALAR.indexOf(a, i, to, value);
+	}
+
+	@Override
+	public int indexOf(char[] a, int from, int to, char value) {
+		int i = from;
+		final int bound = from + SHORTS.loopBound(to - from);
+		for (; i < bound; i += SHORTS.length()) {
+			final VectorMask<Short> mask = ShortVector.fromCharArray(SHORTS, a, i).eq((short) value);
+			if (mask.anyTrue())
+				return i + mask.firstTrue();
+		}
+		return SCALAR.indexOf(a, i, to, value);
+	}
+
+	@Override
+	public int indexOfLineTerminator(byte[] a, int from, int to) {
+		int i = from;
+		final int bound = from + BYTES.loopBound(to - from);
+		for (; i < bound; i += BYTES.length()) {
+			final ByteVector v = ByteVector.fromArray(BYTES, a, i);
+			final VectorMask<Byte> mask = v.eq((byte) '\n').or(v.eq((byte) '\r'));
+			if (mask.anyTrue())
+				return i + mask.firstTrue();
+		}
+		return SCALAR.indexOfLineTerminator(a, i, to);
+	}
+
+	@Override
+	public int indexOfLineTerminator(char[] a, int from, int to) {
+		int i = from;
+		final int bound = from + SHORTS.loopBound(to - from);
+		for (; i < bound; i += SHORTS.length()) {
+			final ShortVector v = ShortVector.fromCharArray(SHORTS, a, i);
+			final VectorMask<Short> mask = v.eq((short) '\n').or(v.eq((short) '\r'));
+			if (mask.anyTrue())
+				return i + mask.firstTrue();
+		}
+		return SCALAR.indexOfLineTerminator(a, i, to);
+	}
+
+	@Override
+	public int count(byte[] a, int from, int to, byte value) {
+		int i = from;
+		int count = 0;
+		final int bound = from + BYTES.loopBound(to - from);
+		for (; i < bound; i += BYTES.length()) {
+			count += ByteVector.fromArray(BYTES, a, i).eq(value).trueCount();
+		}
+		return count + SCALAR.count(a, i, to, value);
+	}
+
+	@Override
+	public int indexOfUnsignedAtLeast(byte[] a, int from, int to, int unsignedMin) {
+		// bytes are signed, so values >= 0x80 are negative
+		final byte min = (byte) unsignedMin;
+		final boolean negativeMin = unsignedMin >= 0x80;
+
+		int i = from;
+		final int bound = from + BYTES.loopBound(to - from);
+		for (; i < bound; i += BYTES.length()) {
+			final ByteVector v = ByteVector.fromArray(BYTES, a, i);
+			final VectorMask<Byte> negative = v.lt((byte) 0);
+			final VectorMask<Byte> atLeast = v.compare(VectorOperators.GE, min);
+			final VectorMask<Byte> mask = negativeMin ? negative.and(atLeast) : negative.or(atLeast);
+			if (mask.anyTrue())
+				return i + mask.firstTrue();
+		}
+		return SCALAR.indexOfUnsignedAtLeast(a, i, to, unsignedMin);
+	}
+
+	@Override
+	public int indexOfControlCharacter(byte[] a, int from, int to) {
+		final int length = BYTES.length();
+		int i = from;
+		while (to - i >= length) {
+			final ByteVector v = ByteVector.fromArray(BYTES, a, i);
+			// candidates are \x00 - \x1F, DEL, and the C2 lead byte of \x80 - \x9F
+			final VectorMask<Byte> mask = v.compare(VectorOperators.GE, (byte) 0).and(v.lt((byte) ' '))
+					.or(v.eq((byte) 0x7F)).or(v.eq((byte) 0xC2));
+			if (!mask.anyTrue()) {
+				i += length;
+				continue;
+			}
+
+			final int candidate = i + mask.firstTrue();
+			if (a[candidate] != (byte) 0xC2 || (candidate + 1 < to && (a[candidate + 1] & 0xFF) <= 0x9F))
+				return candidate;
+			i = candidate + 1;
+		}
+		return SCALAR.indexOfControlCharacter(a, i, to);
+	}
+
+	@Override
+	public String toString() {
+		return "vector (" + BYTES.vectorBitSize() + " bit)";
+	}
+
+}
@@ -0,0 +1,165 @@
+package org.netspeak.hadoop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Counters;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.junit.Test;
+import org.netspeak.Util;
+import org.netspeak.lang.En;
+import org.netspeak.lang.MapperConfig;
+import org.netspeak.preprocessing.PhraseMapper;
+
+public class MapperCountersTest {
+
+	private static final PhraseMapper IDENTITY = (phrase, frequency) -> phrase;
+
+	/**
+	 * Runs a map-only job with the given mapper over the given lines and returns the counters of the job.
+	 */
+	private static Counters runJob(Configuration conf, Class<? extends Mapper<?, ?, ?, ?>> mapper, List<String> lines)
+			throws Exception {
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path file = dir.resolve("test.csv");
+			Files.write(file, lines, UTF_8);
+
+			final Job job = Job.getInstance(conf);
+			MultipleInputs.addInputPath(job, new Path(file.toUri()), CsvInputFormat.class, mapper);
+			job.setNumReduceTasks(0);
+			job.setOutputKeyClass(Text.class);
+			job.setOutputValueClass(LongWritable.class);
+			FileOutputFormat.setOutputPath(job, new Path(dir.resolve("output").toUri()));
+			assertTrue(job.waitForCompletion(false));
+			return job.getCounters();
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void counterNames() {
+		final PhraseMapper[] mappers = new PhraseMapper[12];
+		Arrays.fill(mappers, IDENTITY);
+		mappers[3] = PhraseMapper.rename("org.netspeak.preprocessing.mappers.StandardMappers.toLowerCase", IDENTITY);
+		mappers[11] = PhraseMapper.rename("Foo.bar", IDENTITY);
+		final MapperCounters counters = new MapperCounters(mappers, 0);
+
+		// the package is removed and the index comes first
+		assertEquals(Arrays.asList("03 StandardMappers.toLowerCase", "11 Foo.bar"),
+				Arrays.asList(counters.getName(3), counters.getName(11)));
+		assertEquals(48, MapperCounters.getCounterCount(mappers.length));
+	}
+
+	@Test
+	public void timingInterval() {
+		final MapperCounters counters = new MapperCounters(new PhraseMapper[] { IDENTITY }, 4);
+		for (int i = 0; i < 20; i++) {
+			assertEquals("phrase " + i, i % 4 == 0, counters.timeNext());
+		}
+
+		final MapperCounters untimed = new MapperCounters(new PhraseMapper[] { IDENTITY }, 0);
+		for (int i = 0; i < 20; i++) {
+			assertFalse(untimed.timeNext());
+		}
+
+		try {
+			new MapperCounters(new PhraseMapper[] { IDENTITY }, -1);
+			fail();
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Publishes fixed statistics at the end of the task.
+	 */
+	public static class PublishingMapper extends Mapper<Text, LongWritable, Text, LongWritable> {
+
+		@Override
+		protected void cleanup(Context context) throws IOException, InterruptedException {
+			final MapperCounters counters = new MapperCounters(
+					new PhraseMapper[] { PhraseMapper.rename("a.b.Foo", IDENTITY), IDENTITY }, 5);
+			counters.removed(0);
+			counters.changed(0);
+			counters.changed(0);
+			counters.kept(1);
+			// 3 ms for every 5th phrase
+			counters.time(0, 3_000_000);
+			counters.time(1, 1_000_000);
+			counters.time(1, 1_000_000);
+			counters.publish(context);
+		}
+
+	}
+
+	@Test
+	public void publish() throws Exception {
+		final Counters counters = runJob(new Configuration(), PublishingMapper.class, Arrays.asList("a\t1"));
+
+		assertEquals(1, counters.findCounter(MapperCounters.GROUP_REMOVED, "00 Foo").getValue());
+		assertEquals(2, counters.findCounter(MapperCounters.GROUP_CHANGED, "00 Foo").getValue());
+		assertEquals(0, counters.findCounter(MapperCounters.GROUP_KEPT, "00 Foo").getValue());
+		// the sampled time is scaled by the timing interval
+		assertEquals(15, counters.findCounter(MapperCounters.GROUP_TIME, "00 Foo").getValue());
+		final String second = new MapperCounters(new PhraseMapper[] { IDENTITY, IDENTITY }, 0).getName(1);
+		assertEquals(1, counters.findCounter(MapperCounters.GROUP_KEPT, second).getValue());
+		assertEquals(10, counters.findCounter(MapperCounters.GROUP_TIME, second).getValue());
+	}
+
+	@Test
+	public void tokenizerMapper() throws Exception {
+		final Random random = new Random(42);
+		final String[] words = { "foo", "Bar", "(", "a-b", "http://example.com", "don't", "<S>", "1,000", "\u00FCber",
+				"..." };
+		final List<String> lines = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			final StringBuilder phrase = new StringBuilder(words[random.nextInt(words.length)]);
+			for (int n = random.nextInt(4); n > 0; n--) {
+				phrase.append(' ').append(words[random.nextInt(words.length)]);
+			}
+			lines.add(phrase + "\t" + (1 + random.nextInt(100)));
+		}
+
+		final Configuration conf = new Configuration();
+		conf.set(Merge.CONFIG_LANG, "en");
+		conf.setBoolean(Merge.CONFIG_COUNTERS, true);
+		final Counters counters = runJob(conf, Merge.TokenizerMapper.class, lines);
+
+		// each mapper sees the phrases which were not removed by the previous mappers
+		final PhraseMapper[] mappers = En.INSTANCE.getMappers(new MapperConfig()).toArray(new PhraseMapper[0]);
+		final MapperCounters names = new MapperCounters(mappers, 0);
+		long seen = lines.size();
+		long removed = 0;
+		for (int i = 0; i < mappers.length; i++) {
+			final long r = counters.findCounter(MapperCounters.GROUP_REMOVED, names.getName(i)).getValue();
+			final long c = counters.findCounter(MapperCounters.GROUP_CHANGED, names.getName(i)).getValue();
+			final long k = counters.findCounter(MapperCounters.GROUP_KEPT, names.getName(i)).getValue();
+			assertEquals(names.getName(i), seen, r + c + k);
+			seen -= r;
+			removed += r;
+		}
+		assertTrue(mappers.length > 1);
+		assertTrue(removed > 0);
+		assertTrue(seen > 0);
+	}
+
+}
@@ -0,0 +1,265 @@
+package org.netspeak.hadoop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.input.MultipleInputs;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.mapreduce.lib.output.MultipleOutputs;
+import org.apache.hadoop.mapreduce.lib.output.TextOutputFormat;
+import org.apache.hadoop.mapreduce.lib.partition.InputSampler;
+import org.apache.hadoop.mapreduce.lib.partition.TotalOrderPartitioner;
+import org.junit.Test;
+import org.netspeak.Util;
+import org.netspeak.lang.Config;
+import org.netspeak.lang.De;
+import org.netspeak.lang.MapperConfig;
+import org.netspeak.preprocessing.PhraseMapper;
+import org.netspeak.preprocessing.PhraseSource;
+import org.netspeak.preprocessing.SimplePhraseSource;
+import org.netspeak.preprocessing.items.GermanHyphenationJoiner;
+import org.netspeak.vocabulary.SortedWordFile;
+
+public class MergeTest {
+
+	@Test
+	public void reduceTasks() {
+		assertEquals(1, Merge.getReduceTasks(0, 100));
+		assertEquals(1, Merge.getReduceTasks(100, 100));
+		assertEquals(2, Merge.getReduceTasks(101, 100));
+		assertEquals(40, Merge.getReduceTasks(10L << 30, 256L << 20));
+	}
+
+	@Test
+	public void totalOrderPartitions() throws Exception {
+		final List<String> phrases = new ArrayList<>();
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			final String phrase = "Foo " + (i * 7919 % 2000);
+			phrases.add(phrase.toLowerCase());
+			sb.append(phrase).append('\t').append(i + 1).append('\n');
+		}
+		phrases.sort(null);
+
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path file = dir.resolve("test.csv");
+			Files.write(file, sb.toString().getBytes(UTF_8));
+
+			final Job job = Job.getInstance(new Configuration());
+			job.setNumReduceTasks(8);
+			MultipleInputs.addInputPath(job, new Path(file.toUri()), CsvInputFormat.class);
+
+			final Path partitionFile = new Path(dir.resolve("partitions").toUri());
+			Merge.setTotalOrderPartitioner(job, partitionFile, new InputSampler.RandomSampler<>(1, 500),
+					new PhraseMapper[] { (phrase, frequency) -> phrase.toLowerCase() });
+			assertEquals(8, job.getNumReduceTasks());
+
+			final TotalOrderPartitioner<Text, LongWritable> partitioner = new TotalOrderPartitioner<>();
+			partitioner.setConf(job.getConfiguration());
+
+			// the partitions of the mapped (lowercased) phrases are ascending and all of them are used
+			final int[] sizes = new int[8];
+			int last = 0;
+			for (final String phrase : phrases) {
+				final int partition = partitioner.getPartition(new Text(phrase), new LongWritable(1), 8);
+				assertTrue(partition >= last);
+				last = partition;
+				sizes[partition]++;
+			}
+			for (final int size : sizes) {
+				assertTrue(size > 0);
+			}
+		} finally {
+			Files.walk(dir).map(java.nio.file.Path::toFile).sorted((a, b) -> -a.compareTo(b))
+					.forEach(java.io.File::delete);
+		}
+	}
+
+	/**
+	 * Returns the phrases and frequencies of all tab-separated files of the given directory whose names start with the
+	 * given prefix.
+	 */
+	private static Map<String, Long> readOutput(java.nio.file.Path dir, String prefix) throws Exception {
+		final Map<String, Long> phrases = new HashMap<>();
+		try (Stream<java.nio.file.Path> files = Files.list(dir)) {
+			for (final java.nio.file.Path file : (Iterable<java.nio.file.Path>) files::iterator) {
+				if (!file.getFileName().toString().startsWith(prefix)) {
+					continue;
+				}
+				for (final String line : Files.readAllLines(file, UTF_8)) {
+					final int tab = line.lastIndexOf('\t');
+					assertEquals(line, null,
+							phrases.put(line.substring(0, tab), Long.parseLong(line.substring(tab + 1))));
+				}
+			}
+		}
+		return phrases;
+	}
+
+	@Test
+	public void vocabularyOutput() throws Exception {
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path file = dir.resolve("test.csv");
+			Files.write(file, Arrays.asList("a b\t3", "b c\t5", "a b\t4", "c\t1", "d \u00FCber\t2"), UTF_8);
+
+			final Job job = Job.getInstance(new Configuration());
+			MultipleInputs.addInputPath(job, new Path(file.toUri()), CsvInputFormat.class, Mapper.class);
+			job.setReducerClass(Merge.VocabularyReducer.class);
+			job.setOutputKeyClass(Text.class);
+			job.setOutputValueClass(LongWritable.class);
+			MultipleOutputs.addNamedOutput(job, Merge.VOCABULARY_OUTPUT, TextOutputFormat.class, Text.class,
+					LongWritable.class);
+			final java.nio.file.Path output = dir.resolve("output");
+			FileOutputFormat.setOutputPath(job, new Path(output.toUri()));
+			assertTrue(job.waitForCompletion(false));
+
+			final Map<String, Long> phrases = new HashMap<>();
+			phrases.put("a b", 7L);
+			phrases.put("b c", 5L);
+			phrases.put("c", 1L);
+			phrases.put("d \u00FCber", 2L);
+			assertEquals(phrases, readOutput(output, "part-"));
+
+			// the maximum frequency of all phrases with the word
+			final Map<String, Long> words = new HashMap<>();
+			words.put("a", 7L);
+			words.put("b", 7L);
+			words.put("c", 5L);
+			words.put("d", 2L);
+			words.put("\u00FCber", 2L);
+			assertEquals(words, readOutput(output.resolve(Merge.VOCABULARY_DIR), "part-"));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void writeVocabulary() throws Exception {
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path input = dir.resolve("input");
+			Files.createDirectory(input);
+
+			// the same words are written by several tasks with different values
+			final Random random = new Random(42);
+			final Map<String, Long> expected = new HashMap<>();
+			final List<List<String>> parts = new ArrayList<>();
+			for (int part = 0; part < 3; part++) {
+				final List<String> lines = new ArrayList<>();
+				for (int i = 0; i < 300; i++) {
+					final String word = "w" + random.nextInt(500);
+					final long value = random.nextInt(10_000);
+					lines.add(word + "\t" + value);
+					expected.merge(word, value, Math::max);
+				}
+				parts.add(lines);
+			}
+			Files.write(input.resolve("part-r-00000"), parts.get(0), UTF_8);
+			Files.write(input.resolve("part-r-00001"), parts.get(1), UTF_8);
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(input.resolve("part-r-00002.gz")))) {
+				out.write(String.join("\n", parts.get(2)).getBytes(UTF_8));
+			}
+			// not a vocabulary file
+			Files.write(input.resolve("_SUCCESS"), Arrays.asList("x\t1000000"), UTF_8);
+
+			final Configuration conf = new Configuration();
+			final java.nio.file.Path vocabularyFile = dir.resolve("vocabulary.bin");
+			final java.nio.file.Path topWordsFile = dir.resolve("top-words.txt");
+			Merge.writeVocabulary(FileSystem.getLocal(conf), new Path(input.toUri()), vocabularyFile, topWordsFile,
+					conf);
+
+			try (SortedWordFile vocabulary = SortedWordFile.open(vocabularyFile)) {
+				assertEquals(expected.size(), vocabulary.size());
+				for (int i = 0; i < 500; i++) {
+					assertEquals("w" + i, expected.containsKey("w" + i), vocabulary.contains("w" + i));
+				}
+				assertEquals(false, vocabulary.contains("x"));
+			}
+
+			// the words with the greatest maximum values, ordered by descending value and then by word
+			final List<String> words = new ArrayList<>(expected.keySet());
+			words.sort((a, b) -> {
+				final int cmp = Long.compare(expected.get(b), expected.get(a));
+				return cmp != 0 ? cmp : a.compareTo(b);
+			});
+			assertEquals(words.subList(0, GermanHyphenationJoiner.TOP_WORDS), Files.readAllLines(topWordsFile, UTF_8));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void deSameAsLocal() throws Exception {
+		// rare hyphenated words which are joined, and frequent words which are used as stop words by the joiner
+		final String[] hyphenated = { "das Haus- t\u00FCr", "Haus- t\u00FCr", "Haust\u00FCr", "Schl\u00FCs- sel",
+				"Schl\u00FCssel", "Bahn- hof", "die Bahn- hof" };
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path input = dir.resolve("input");
+			Files.createDirectory(input);
+			final Random random = new Random(42);
+			for (int file = 0; file < 2; file++) {
+				final List<String> lines = new ArrayList<>();
+				for (int i = 0; i < 2000; i++) {
+					final StringBuilder phrase = new StringBuilder();
+					for (int words = random.nextInt(3); words >= 0; words--) {
+						final int word = random.nextInt(300);
+						phrase.append(" x").append((char) ('a' + word / 26)).append((char) ('a' + word % 26));
+					}
+					if (random.nextInt(10) == 0) {
+						phrase.append(' ').append(hyphenated[random.nextInt(hyphenated.length)]);
+						lines.add(phrase.substring(1) + "\t" + (1 + random.nextInt(5)));
+					} else {
+						lines.add(phrase.substring(1) + "\t" + (1000 + random.nextInt(1000)));
+					}
+				}
+				Files.write(input.resolve(file + ".csv"), lines, UTF_8);
+			}
+
+			final java.nio.file.Path local = dir.resolve("local");
+			final Config config = new Config(new SimplePhraseSource(input), local);
+			config.temp = dir.resolve("temp");
+			De.INSTANCE.process(config);
+
+			// several reduce tasks, so the vocabulary is written by several tasks
+			final MergeConfig mergeConfig = new MergeConfig();
+			mergeConfig.partSize = 16 * 1024;
+			final java.nio.file.Path hadoop = dir.resolve("hadoop");
+			Merge.run(Arrays.asList(input.toString()), hadoop.toString(), "de", new MapperConfig(), mergeConfig);
+
+			final Map<String, Long> expected = new HashMap<>();
+			for (final PhraseSource.File file : new SimplePhraseSource(local).getFiles()) {
+				expected.putAll(readOutput(file.getPath().getParent(), file.getPath().getFileName().toString()));
+			}
+			// the joiner was applied
+			assertTrue(expected.keySet().stream().anyMatch(phrase -> phrase.endsWith("Bahn-hof")));
+			assertFalse(expected.keySet().stream().anyMatch(phrase -> phrase.contains("Schl\u00FCs- sel")));
+			assertEquals(expected, readOutput(hadoop, "part-"));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.netspeak.hadoop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.netspeak.io.Utf8Phrase;
+
+public class PhraseCountsTest {
+
+	@Test
+	public void sums() throws Exception {
+		final Random random = new Random(42);
+		final Map<String, Long> expected = new TreeMap<>();
+		final Map<String, Long> actual = new TreeMap<>();
+		final PhraseCounts counts = new PhraseCounts(50, Long.MAX_VALUE);
+		final PhraseCounts.Sink sink = (phrase, sum) -> actual.merge(phrase.toString(), sum, Long::sum);
+
+		int flushes = 0;
+		for (int i = 0; i < 10_000; i++) {
+			final String phrase = "foo " + random.nextInt(200) + (random.nextBoolean() ? " bär" : "");
+			final long frequency = 1 + random.nextInt(1000);
+			expected.merge(phrase, frequency, Long::sum);
+
+			final byte[] bytes = phrase.getBytes(UTF_8);
+			if (counts.add(Utf8Phrase.copyOf(bytes, 0, bytes.length), frequency)) {
+				assertEquals(50, counts.size());
+				counts.flush(sink);
+				assertEquals(0, counts.size());
+				flushes++;
+			}
+		}
+		counts.flush(sink);
+
+		assertTrue(flushes > 0);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void maxBytes() throws Exception {
+		final PhraseCounts counts = new PhraseCounts(100, 10);
+		assertFalse(counts.add(Utf8Phrase.copyOf("abcd".getBytes(UTF_8), 0, 4), 1));
+		assertFalse(counts.add(Utf8Phrase.copyOf("abcd".getBytes(UTF_8), 0, 4), 1));
+		assertTrue(counts.add(Utf8Phrase.copyOf("abcdef".getBytes(UTF_8), 0, 6), 1));
+	}
+
+}
@@ -0,0 +1,201 @@
+package org.netspeak.hadoop;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+import org.apache.hadoop.mapreduce.task.TaskAttemptContextImpl;
+import org.junit.Test;
+import org.netspeak.io.GoogleBooksCsvReader;
+import org.netspeak.io.PhraseReader;
+import org.netspeak.io.ReaderFilter;
+import org.netspeak.io.SimpleCsvReader;
+
+public class PhraseInputFormatTest {
+
+	/**
+	 * Reads the given file with the given input format using splits of the given size and sums up the frequencies of
+	 * all phrases.
+	 */
+	private static Map<String, Long> readSplits(PhraseInputFormat format, Job job, java.nio.file.Path file,
+			long splitSize) throws Exception {
+		final Configuration conf = job.getConfiguration();
+		final Path path = new Path(file.toUri());
+		final long length = Files.size(file);
+
+		final List<InputSplit> splits = new ArrayList<>();
+		if (format.isSplitable(job, path)) {
+			for (long start = 0; start < length; start += splitSize) {
+				splits.add(new FileSplit(path, start, Math.min(splitSize, length - start), new String[0]));
+			}
+		} else {
+			splits.add(new FileSplit(path, 0, length, new String[0]));
+		}
+
+		final Map<String, Long> result = new TreeMap<>();
+		for (final InputSplit split : splits) {
+			final TaskAttemptContext context = new TaskAttemptContextImpl(conf, new TaskAttemptID());
+			try (RecordReader<Text, LongWritable> reader = format.createRecordReader(split, context)) {
+				reader.initialize(split, context);
+				while (reader.nextKeyValue()) {
+					result.merge(reader.getCurrentKey().toString(), reader.getCurrentValue().get(), Long::sum);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static Map<String, Long> readLocal(PhraseReader reader) throws Exception {
+		final Map<String, Long> result = new TreeMap<>();
+		try (PhraseReader r = reader) {
+			while (r.advance()) {
+				result.merge(r.phrase(), r.frequency(), Long::sum);
+			}
+		}
+		return result;
+	}
+
+	private static void write(java.nio.file.Path file, String content, boolean bzip2) throws Exception {
+		try (OutputStream out = bzip2 ? new BZip2CompressorOutputStream(Files.newOutputStream(file))
+				: Files.newOutputStream(file)) {
+			out.write(content.getBytes(UTF_8));
+		}
+	}
+
+	@Test
+	public void googleBooksSplits() throws Exception {
+		final Random random = new Random(42);
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			final String phrase = "w" + (i / 7) + (random.nextBoolean() ? " x" : " y z") + (i % 11 == 0 ? " " : "");
+			for (int year = 1990 + random.nextInt(3); year < 2000; year += 1 + random.nextInt(4)) {
+				sb.append(phrase).append('\t').append(year).append('\t').append(1 + random.nextInt(100)).append('\t')
+						.append(1 + random.nextInt(10)).append('\t').append(1 + random.nextInt(5)).append('\n');
+			}
+		}
+		final String content = sb.toString();
+
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			for (final boolean bzip2 : new boolean[] { false, true }) {
+				final java.nio.file.Path file = dir.resolve("googlebooks-test" + (bzip2 ? ".bz2" : ".csv"));
+				write(file, content, bzip2);
+
+				final Job job = Job.getInstance(new Configuration());
+				GoogleBooksInputFormat.setYearRange(job, 1992, 1997);
+				GoogleBooksInputFormat.setCountColumn(job, GoogleBooksCsvReader.CountColumn.VOLUME_COUNT);
+				PhraseInputFormat.setReaderFilter(job, ReaderFilter.maxWords(2));
+
+				final GoogleBooksCsvReader local = new GoogleBooksCsvReader(
+						new BufferedReader(new StringReader(content)));
+				local.setYearRange(1992, 1997);
+				local.setCountColumn(GoogleBooksCsvReader.CountColumn.VOLUME_COUNT);
+				final Map<String, Long> expected = readLocal(local);
+				expected.keySet().removeIf(p -> p.split(" ").length > 2);
+
+				assertEquals(expected, readSplits(new GoogleBooksInputFormat(), job, file, 1000));
+			}
+		} finally {
+			Files.walk(dir).map(java.nio.file.Path::toFile).sorted((a, b) -> -a.compareTo(b))
+					.forEach(java.io.File::delete);
+		}
+	}
+
+	@Test
+	public void csvSplits() throws Exception {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			sb.append("foo ").append(i % 37).append(i % 3 == 0 ? " bar" : "").append('\t').append(i + 1).append('\n');
+		}
+		final String content = sb.toString();
+
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path file = dir.resolve("test.csv");
+			write(file, content, false);
+
+			final Job job = Job.getInstance(new Configuration());
+			PhraseInputFormat.setReaderFilter(job, ReaderFilter.minFrequency(100));
+
+			final Map<String, Long> expected = new TreeMap<>();
+			final SimpleCsvReader local = new SimpleCsvReader(new BufferedReader(new StringReader(content)));
+			while (local.advance()) {
+				if (local.frequency() >= 100) {
+					expected.merge(local.phrase(), local.frequency(), Long::sum);
+				}
+			}
+
+			assertEquals(expected, readSplits(new CsvInputFormat(), job, file, 777));
+		} finally {
+			Files.walk(dir).map(java.nio.file.Path::toFile).sorted((a, b) -> -a.compareTo(b))
+					.forEach(java.io.File::delete);
+		}
+	}
+
+	@Test
+	public void googleWebFiles() throws Exception {
+		final java.nio.file.Path dir = Files.createTempDirectory("netspeak-test");
+		try {
+			final java.nio.file.Path data = dir.resolve("data");
+			for (int n = 1; n <= 3; n++) {
+				Files.createDirectories(data.resolve(n + "gms"));
+			}
+			write(data.resolve("1gms/vocab_cs.bz2"), "a\t1\n", true);
+			write(data.resolve("1gms/vocab.bz2"), "a\t1\n", true);
+			write(data.resolve("2gms/2gm-0000.bz2"), "a b\t1\n", true);
+			write(data.resolve("2gms/2gm-0001.bz2"), "a c\t1\n", true);
+			write(data.resolve("3gms/3gm-0000.bz2"), "a b c\t1\n", true);
+
+			final Path root = new Path(dir.toUri());
+			assertEquals(GoogleWebInputFormat.class, Merge.detectInputFormat(root.getFileSystem(new Configuration()),
+					root));
+
+			final Job job = Job.getInstance(new Configuration());
+			FileInputFormat.setInputPaths(job, root);
+			assertEquals(4, new GoogleWebInputFormat().listStatus(job).size());
+
+			PhraseInputFormat.setReaderFilter(job, ReaderFilter.maxWords(2));
+			final List<String> names = new ArrayList<>();
+			for (final FileStatus status : new GoogleWebInputFormat().listStatus(job)) {
+				names.add(status.getPath().getName());
+			}
+			names.sort(null);
+			// the alphabetically sorted vocabulary is preferred like by the local CLI
+			assertEquals("[2gm-0000.bz2, 2gm-0001.bz2, vocab.bz2]", names.toString());
+
+			Files.delete(data.resolve("1gms/vocab.bz2"));
+			names.clear();
+			for (final FileStatus status : new GoogleWebInputFormat().listStatus(job)) {
+				names.add(status.getPath().getName());
+			}
+			names.sort(null);
+			assertEquals("[2gm-0000.bz2, 2gm-0001.bz2, vocab_cs.bz2]", names.toString());
+		} finally {
+			Files.walk(dir).map(java.nio.file.Path::toFile).sorted((a, b) -> -a.compareTo(b))
+					.forEach(java.io.File::delete);
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.netspeak.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ArrayScannerTest {
+
+	/**
+	 * Compares {@link ArrayScanners#INSTANCE} with {@link ScalarArrayScanner}.
+	 * <p>
+	 * On Java 17 with {@code --add-modules jdk.incubator.vector} and the Java 17 classes on the class path, this tests
+	 * the SIMD implementation.
+	 */
+	@Test
+	public void sameAsScalar() {
+		final ArrayScanner expected = new ScalarArrayScanner();
+		final ArrayScanner actual = ArrayScanners.INSTANCE;
+		final String name = actual.toString();
+
+		// mostly ASCII letters with the occasional interesting byte
+		final byte[] interesting = { '\t', '\n', '\r', ' ', 0x00, 0x1F, 0x7F, (byte) 0x80, (byte) 0x9F, (byte) 0xA0,
+				(byte) 0xC2, (byte) 0xC3, (byte) 0xC4, (byte) 0xFF };
+		final int[] unsignedMins = { 0x00, 0x20, 0x7F, 0x80, 0x9F, 0xC4, 0xFF };
+
+		final Random random = new Random(42);
+		for (int n = 0; n < 20000; n++) {
+			final int length = random.nextInt(n % 10 == 0 ? 1000 : 100);
+			final byte[] bytes = new byte[length];
+			final char[] chars = new char[length];
+			final int density = 1 + random.nextInt(64);
+			for (int i = 0; i < length; i++) {
+				final byte b = random.nextInt(density) == 0 ? interesting[random.nextInt(interesting.length)]
+						: (byte) ('a' + random.nextInt(26));
+				bytes[i] = b;
+				chars[i] = random.nextInt(density) == 0 ? (char) random.nextInt(0x10000) : (char) (b & 0xFF);
+			}
+			final int from = length == 0 ? 0 : random.nextInt(length);
+			final int to = from + random.nextInt(length - from + 1);
+			final String message = name + ", length " + length + ", [" + from + ", " + to + ")";
+
+			final byte value = interesting[random.nextInt(interesting.length)];
+			assertEquals(message, expected.indexOf(bytes, from, to, value), actual.indexOf(bytes, from, to, value));
+			assertEquals(message, expected.indexOf(chars, from, to, (char) value),
+					actual.indexOf(chars, from, to, (char) value));
+			assertEquals(message, expected.indexOfLineTerminator(bytes, from, to),
+					actual.indexOfLineTerminator(bytes, from, to));
+			assertEquals(message, expected.indexOfLineTerminator(chars, from, to),
+					actual.indexOfLineTerminator(chars, from, to));
+			assertEquals(message, expected.count(bytes, from, to, value), actual.count(bytes, from, to, value));
+			final int min = unsignedMins[random.nextInt(unsignedMins.length)];
+			assertEquals(message, expected.indexOfUnsignedAtLeast(bytes, from, to, min),
+					actual.indexOfUnsignedAtLeast(bytes, from, to, min));
+			assertEquals(message, expected.indexOfControlCharacter(bytes, from, to),
+					actual.indexOfControlCharacter(bytes, from, to));
+		}
+	}
+
+}
@@ -0,0 +1,120 @@
+package org.netspeak.io;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+import org.netspeak.Util;
+
+public class RollingCsvWriterTest {
+
+	private static List<String> randomLines(int count) {
+		final Random random = new Random(42);
+		final List<String> lines = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final StringBuilder phrase = new StringBuilder("w" + random.nextInt(1000));
+			for (int words = random.nextInt(4); words > 0; words--) {
+				phrase.append(" \u00FCber").append(random.nextInt(1000));
+			}
+			lines.add(phrase + "\t" + (1 + random.nextInt(100_000)));
+		}
+		return lines;
+	}
+
+	/**
+	 * Writes the given lines and returns the lines of all written files in the order of their names.
+	 */
+	private static List<List<String>> write(List<String> lines, long phrasesPerFile, long bytesPerFile)
+			throws Exception {
+		final Path dir = Files.createTempDirectory("rolling");
+		try {
+			try (RollingCsvWriter writer = new RollingCsvWriter(dir, phrasesPerFile, bytesPerFile)) {
+				for (String line : lines) {
+					final int tab = line.indexOf('\t');
+					writer.write(line.substring(0, tab), Long.parseLong(line.substring(tab + 1)));
+				}
+			}
+
+			final List<Path> files;
+			try (Stream<Path> stream = Files.list(dir)) {
+				files = stream.sorted().collect(Collectors.toList());
+			}
+			final List<List<String>> result = new ArrayList<>();
+			for (int i = 0; i < files.size(); i++) {
+				assertEquals(String.format("%05d.csv", i), files.get(i).getFileName().toString());
+				result.add(Files.readAllLines(files.get(i), UTF_8));
+			}
+			return result;
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	private static long utf8Length(List<String> lines) {
+		long length = 0;
+		for (String line : lines) {
+			length += line.getBytes(UTF_8).length + 1;
+		}
+		return length;
+	}
+
+	@Test
+	public void rollsByBytes() throws Exception {
+		final List<String> lines = randomLines(10_000);
+		final long bytesPerFile = 10_000;
+		final List<List<String>> files = write(lines, Long.MAX_VALUE, bytesPerFile);
+
+		final List<String> all = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			final List<String> file = files.get(i);
+			final long length = utf8Length(file);
+			if (i < files.size() - 1) {
+				// a file is only closed once it reached the limit, so it is larger by less than one line
+				final long lastLine = utf8Length(file.subList(file.size() - 1, file.size()));
+				assertTrue(i + ": " + length, length >= bytesPerFile);
+				assertTrue(i + ": " + length, length - lastLine < bytesPerFile);
+			} else {
+				assertTrue(i + ": " + length, length > 0 && length - utf8Length(file.subList(0, 1)) < bytesPerFile);
+			}
+			all.addAll(file);
+		}
+		assertEquals(lines, all);
+		assertEquals((utf8Length(lines) + bytesPerFile - 1) / bytesPerFile, files.size(), 1);
+	}
+
+	@Test
+	public void rollsByPhrases() throws Exception {
+		final List<String> lines = randomLines(1000);
+		final List<List<String>> files = write(lines, 300, Long.MAX_VALUE);
+
+		assertEquals(4, files.size());
+		final List<String> all = new ArrayList<>();
+		for (int i = 0; i < files.size(); i++) {
+			assertEquals(i < 3 ? 300 : 100, files.get(i).size());
+			all.addAll(files.get(i));
+		}
+		assertEquals(lines, all);
+	}
+
+	@Test
+	public void rollsByWhicheverComesFirst() throws Exception {
+		final List<String> lines = randomLines(1000);
+		final List<List<String>> files = write(lines, 10, 200);
+
+		for (List<String> file : files) {
+			assertTrue(file.size() <= 10);
+			final long lastLine = utf8Length(file.subList(file.size() - 1, file.size()));
+			assertTrue(utf8Length(file) - lastLine < 200);
+		}
+	}
+
+}
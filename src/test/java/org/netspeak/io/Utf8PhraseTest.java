@@ -0,0 +1,40 @@
+package org.netspeak.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class Utf8PhraseTest {
+
+	/**
+	 * Strings and UTF-8 phrases have to be assigned the same bucket by {@link SplitterCsvWriter}.
+	 */
+	@Test
+	public void hash64OfString() {
+		final String[] phrases = { "", "a", "the cat", "über", "€ 5", "😀 smile", "unpaired \uD800 high",
+				"unpaired \uDC00 low", "end \uD83D" };
+		for (final String phrase : phrases) {
+			assertEquals(phrase, Utf8Phrase.of(phrase).hash64(7), Utf8Phrase.hash64(phrase, 7));
+		}
+
+		final Random random = new Random(42);
+		for (int n = 0; n < 10000; n++) {
+			final char[] chars = new char[random.nextInt(20)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = random.nextInt(4) == 0 ? (char) random.nextInt(0x10000) : (char) ('a' + random.nextInt(26));
+			}
+			final String phrase = new String(chars);
+			assertEquals(phrase, Utf8Phrase.of(phrase).hash64(n), Utf8Phrase.hash64(phrase, n));
+		}
+	}
+
+	@Test
+	public void hash64Seed() {
+		final Utf8Phrase phrase = Utf8Phrase.of("the cat");
+		assertNotEquals(phrase.hash64(0), phrase.hash64(1));
+	}
+
+}
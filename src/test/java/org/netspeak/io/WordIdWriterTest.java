@@ -0,0 +1,111 @@
+package org.netspeak.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class WordIdWriterTest {
+
+	private static byte[] write(int[][] ids, long[] frequencies) throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (WordIdWriter writer = new WordIdWriter(out, null)) {
+			for (int i = 0; i < ids.length; i++) {
+				writer.write(ids[i], frequencies[i]);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	@Test
+	public void roundTripIds() throws Exception {
+		// ids and frequencies which need 1, 2, 3, 5, and 10 bytes
+		final int[][] ids = { { 0 }, { 127, 128 }, { 16384, 0, Integer.MAX_VALUE }, {} };
+		final long[] frequencies = { 1, 300, Long.MAX_VALUE, -1 };
+		final byte[] bytes = write(ids, frequencies);
+
+		try (WordIdReader reader = new WordIdReader(new ByteArrayInputStream(bytes), null)) {
+			for (int i = 0; i < ids.length; i++) {
+				assertTrue(reader.next());
+				assertArrayEquals(ids[i], reader.getIds());
+				assertEquals(frequencies[i], reader.getFrequency());
+			}
+			assertFalse(reader.next());
+		}
+	}
+
+	@Test
+	public void roundTripPhrases() throws Exception {
+		final WordDictionary dictionary = new WordDictionary();
+		final String[] phrases = { "the cat", "the  cat", " leading", "trailing ", "über ß", "" };
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (WordIdWriter writer = new WordIdWriter(out, dictionary)) {
+			for (int i = 0; i < phrases.length; i++) {
+				writer.write(phrases[i], 1L << (7 * i));
+			}
+		}
+
+		// the dictionary has to survive being written to disk, including the empty word
+		final Path file = Files.createTempFile("vocab", ".txt");
+		final WordDictionary read;
+		try {
+			dictionary.write(file);
+			read = WordDictionary.read(file);
+		} finally {
+			Files.delete(file);
+		}
+		assertEquals(dictionary.size(), read.size());
+
+		try (WordIdReader reader = new WordIdReader(new ByteArrayInputStream(out.toByteArray()), read)) {
+			for (int i = 0; i < phrases.length; i++) {
+				final PhraseFrequencyPair pair = reader.nextPair();
+				assertEquals(phrases[i], pair.phrase);
+				assertEquals(1L << (7 * i), pair.frequency);
+			}
+			assertNull(reader.nextPair());
+		}
+	}
+
+	@Test
+	public void truncated() throws Exception {
+		final byte[] bytes = write(new int[][] { { 1, 200, 70000 } }, new long[] { 1L << 40 });
+		// every proper prefix which ends inside the record
+		for (int length = 1; length < bytes.length; length++) {
+			try (WordIdReader reader = new WordIdReader(
+					new ByteArrayInputStream(Arrays.copyOf(bytes, length)), null)) {
+				reader.next();
+				fail("Expected EOFException for length " + length);
+			} catch (EOFException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void seed() throws Exception {
+		final WordDictionary dictionary = new WordDictionary();
+		dictionary.getId("x");
+		dictionary.seed(new SimpleCsvReader(new BufferedReader(new StringReader("the\t10\ncat\t5\nthe\t3\n"))));
+
+		assertEquals(3, dictionary.size());
+		assertEquals(0, dictionary.getId("x"));
+		assertEquals(1, dictionary.getId("the"));
+		assertEquals(2, dictionary.getId("cat"));
+		assertArrayEquals(new int[] { 1, 2, 3 }, dictionary.encode("the cat sat"));
+		assertEquals("the cat sat", dictionary.decode(new int[] { 1, 2, 3 }));
+	}
+
+}
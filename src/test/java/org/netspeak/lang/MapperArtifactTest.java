@@ -0,0 +1,121 @@
+package org.netspeak.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.netspeak.Util;
+import org.netspeak.preprocessing.PhraseMapper;
+
+public class MapperArtifactTest {
+
+	/**
+	 * Returns the phrases of all given phrases after applying the standard mappers and the contraction mapper of the
+	 * given artifact. Removed phrases are {@code null}.
+	 */
+	private static List<String> map(MapperArtifact artifact, List<String> phrases) {
+		final List<PhraseMapper> mappers = new ArrayList<>(artifact.newStandardMappers().getMappers());
+		mappers.add(artifact.getContractionMapper());
+
+		final List<String> result = new ArrayList<>();
+		for (String phrase : phrases) {
+			for (final PhraseMapper mapper : mappers) {
+				phrase = mapper.map(phrase, 1000);
+				if (phrase == null || phrase.isEmpty()) {
+					phrase = null;
+					break;
+				}
+			}
+			result.add(phrase);
+		}
+		return result;
+	}
+
+	private static List<String> testPhrases() throws IOException {
+		final List<String> words = new ArrayList<>();
+		words.addAll(Arrays.asList("the", "house", "don't", "do", "n't", "can", "'", "t", "I", "'m", "y'all", "-",
+				"\u00FCber", "Foo", "1,000", "http://example.com"));
+		words.addAll(Util.readResourceWordList("/blacklist.txt"));
+		words.addAll(Util.readResourceWordList("/super-blacklist.txt"));
+
+		final Random random = new Random(42);
+		final List<String> phrases = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			final StringBuilder phrase = new StringBuilder(words.get(random.nextInt(16)));
+			for (int n = random.nextInt(4); n > 0; n--) {
+				// mostly common words, so some phrases are kept
+				phrase.append(' ').append(words.get(random.nextInt(random.nextBoolean() ? 16 : words.size())));
+			}
+			phrases.add(phrase.toString());
+		}
+		return phrases;
+	}
+
+	private static void assertRejected(Path file, byte[] bytes) throws Exception {
+		Files.write(file, bytes);
+		try {
+			MapperArtifact.load(file);
+			fail("Loaded an artifact of " + bytes.length + " bytes.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void roundTrip() throws Exception {
+		final Path dir = Files.createTempDirectory("mapper-artifact");
+		try {
+			final Path file = dir.resolve("mappers.bin");
+			MapperArtifact.write(file);
+
+			final List<String> phrases = testPhrases();
+			final List<String> expected = map(MapperArtifact.get(new MapperConfig()), phrases);
+			assertEquals(expected, map(MapperArtifact.load(file), phrases));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void rejectsInvalidFiles() throws Exception {
+		final Path dir = Files.createTempDirectory("mapper-artifact");
+		try {
+			final Path file = dir.resolve("mappers.bin");
+			MapperArtifact.write(file);
+			final byte[] bytes = Files.readAllBytes(file);
+			final Path invalid = dir.resolve("invalid.bin");
+
+			// magic, version, and the checksums of the 3 word lists
+			for (final int offset : new int[] { 0, 4, 8, 16, 24 }) {
+				final byte[] copy = bytes.clone();
+				final ByteBuffer buffer = ByteBuffer.wrap(copy);
+				if (offset < 8) {
+					buffer.putInt(offset, buffer.getInt(offset) + 1);
+				} else {
+					buffer.putLong(offset, buffer.getLong(offset) + 1);
+				}
+				assertRejected(invalid, copy);
+			}
+
+			// truncated
+			final Random random = new Random(42);
+			for (int i = 0; i < 200; i++) {
+				final int length = i < 100 ? i : random.nextInt(bytes.length);
+				assertRejected(invalid, Arrays.copyOf(bytes, length));
+			}
+			assertRejected(invalid, Arrays.copyOf(bytes, bytes.length - 1));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+}
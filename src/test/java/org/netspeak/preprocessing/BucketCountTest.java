@@ -0,0 +1,131 @@
+package org.netspeak.preprocessing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Test;
+import org.netspeak.Util;
+import org.netspeak.io.GoogleBooksCsvReader;
+import org.netspeak.io.ReaderFilter;
+
+public class BucketCountTest {
+
+	/**
+	 * Writes random phrases with 1 to 4 words in the simple CSV format and returns the number of bytes written.
+	 */
+	private static long writeCsv(Writer writer, int phrases) throws Exception {
+		final Random random = new Random(42);
+		long bytes = 0;
+		for (int i = 0; i < phrases; i++) {
+			final StringBuilder line = new StringBuilder("w" + random.nextInt(100_000));
+			for (int words = random.nextInt(4); words > 0; words--) {
+				line.append(" w").append(random.nextInt(100_000));
+			}
+			line.append('\t').append(1 + random.nextInt(1000)).append('\n');
+			writer.write(line.toString());
+			bytes += line.length();
+		}
+		return bytes;
+	}
+
+	private static void assertAbout(long expected, long actual, double tolerance) {
+		assertTrue(expected + " vs " + actual, Math.abs(expected - actual) <= expected * tolerance);
+	}
+
+	@Test
+	public void bucketCount() {
+		// at least one bucket per thread
+		assertEquals(4, Preprocessing.getBucketCount(0, 100, 4));
+		assertEquals(4, Preprocessing.getBucketCount(300, 100, 4));
+		// rounded up
+		assertEquals(11, Preprocessing.getBucketCount(1001, 100, 4));
+		// at most 16384 buckets
+		assertEquals(1 << 14, Preprocessing.getBucketCount(Long.MAX_VALUE, 1, 4));
+	}
+
+	@Test
+	public void estimateUncompressed() throws Exception {
+		final Path dir = Files.createTempDirectory("estimate");
+		try {
+			final Path file = dir.resolve("a.csv");
+			final long size;
+			try (Writer writer = Files.newBufferedWriter(file, UTF_8)) {
+				size = writeCsv(writer, 100_000);
+			}
+
+			final PhraseSource source = PhraseSource.fromFiles(new SimplePhraseSourceFile(file));
+			assertAbout(size, Preprocessing.estimateBytes(source, ReaderFilter.NONE), 0.01);
+
+			long oneWord = 0;
+			for (String line : Files.readAllLines(file, UTF_8)) {
+				if (line.indexOf(' ') == -1) {
+					oneWord += line.length() + 1;
+				}
+			}
+			// only the first phrases are sampled
+			assertAbout(oneWord, Preprocessing.estimateBytes(source, ReaderFilter.maxWords(1)), 0.1);
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void estimateCompressed() throws Exception {
+		final Path dir = Files.createTempDirectory("estimate");
+		try {
+			long size = 0;
+			final PhraseSource.File[] files = new PhraseSource.File[20];
+			for (int i = 0; i < files.length; i++) {
+				final Path file = dir.resolve(i + ".csv.gz");
+				try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+						Writer writer = new OutputStreamWriter(out, UTF_8)) {
+					size += writeCsv(writer, 50_000);
+				}
+				files[i] = new SimplePhraseSourceFile(file);
+			}
+
+			// not all files are sampled, but all have the same compression ratio
+			assertAbout(size, Preprocessing.estimateBytes(PhraseSource.fromFiles(files), ReaderFilter.NONE), 0.05);
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void estimateGoogleBooks() throws Exception {
+		final Path dir = Files.createTempDirectory("estimate");
+		try {
+			// each phrase has one line per year, but the reader returns each phrase once
+			final Path file = dir.resolve("googlebooks-eng-all-2gram-20120701-ab.gz");
+			long merged = 0;
+			try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file));
+					Writer writer = new OutputStreamWriter(out, UTF_8)) {
+				for (int i = 0; i < 20_000; i++) {
+					final String phrase = "ab w" + i;
+					long frequency = 0;
+					for (int year = 1900; year < 2000; year++) {
+						writer.write(phrase + "\t" + year + "\t" + 10 + "\t1\n");
+						frequency += 10;
+					}
+					merged += (phrase + "\t" + frequency + "\n").length();
+				}
+			}
+
+			final PhraseSource source = PhraseSource
+					.fromFiles(new SimplePhraseSourceFile(file, GoogleBooksCsvReader::new));
+			assertAbout(merged, Preprocessing.estimateBytes(source, ReaderFilter.NONE), 0.05);
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+}
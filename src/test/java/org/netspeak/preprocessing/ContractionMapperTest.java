@@ -1,5 +1,9 @@
 package org.netspeak.preprocessing;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
@@ -25,8 +29,22 @@ public class ContractionMapperTest {
 
 	@Test
 	public void contractionTest() {
-		final ContractionMapper mapper = new ContractionMapper(getContractionPatterns());
+		testMapper(new ContractionMapper(getContractionPatterns()));
+	}
+
+	@Test
+	public void serializedTest() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			new ContractionMapper(getContractionPatterns()).writeTo(out);
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+
+		testMapper(ContractionMapper.readFrom(buffer));
+		Assert.assertFalse(buffer.hasRemaining());
+	}
 
+	private static void testMapper(ContractionMapper mapper) {
 		BiConsumer<String, String> test = (from, to) -> {
 			String actual = mapper.map(from, 100);
 			if (actual == to)
@@ -0,0 +1,72 @@
+package org.netspeak.preprocessing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.netspeak.Util;
+import org.netspeak.io.Utf8Phrase;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
+
+public class CsvFileSorterTest {
+
+	private static final String[] WORDS = { "a", "b", "ab", "Über", "über", "z", "zz", "ß", "the" };
+
+	private static List<String> randomLines(int count) {
+		final Random random = new Random(42);
+		final List<String> lines = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final StringBuilder phrase = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+			for (int words = random.nextInt(4); words > 0; words--) {
+				phrase.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+			}
+			lines.add(phrase + "\t" + (1 + random.nextInt(100)));
+		}
+		return lines;
+	}
+
+	private static String phrase(String line) {
+		return line.substring(0, line.indexOf('\t'));
+	}
+
+	private static long frequency(String line) {
+		return Long.parseLong(line.substring(line.indexOf('\t') + 1));
+	}
+
+	private static void test(OutputOrder order, Comparator<String> expectedOrder) throws Exception {
+		final Path dir = Files.createTempDirectory("sorter");
+		try {
+			// enough lines to be sorted in parallel
+			final List<String> lines = randomLines(50_000);
+			final Path in = dir.resolve("in.csv");
+			final Path out = dir.resolve("out.csv");
+			Files.write(in, lines, UTF_8);
+
+			assertEquals(lines.size(), CsvFileSorter.sort(in, out, order, null));
+
+			lines.sort(expectedOrder);
+			assertEquals(lines, Files.readAllLines(out, UTF_8));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void byPhrase() throws Exception {
+		test(OutputOrder.PHRASE, Comparator.comparing(line -> Utf8Phrase.of(phrase(line))));
+	}
+
+	@Test
+	public void byFrequency() throws Exception {
+		test(OutputOrder.FREQUENCY, Comparator.comparingLong(CsvFileSorterTest::frequency).reversed()
+				.thenComparing(line -> Utf8Phrase.of(phrase(line))));
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.netspeak.preprocessing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.netspeak.Util;
+import org.netspeak.io.PhraseReader;
+import org.netspeak.preprocessing.PreprocessingOptions.OutputOrder;
+
+/**
+ * The output observer has to see every merged phrase exactly once with its merged frequency, no matter how the
+ * duplicates are merged.
+ */
+@RunWith(Parameterized.class)
+public class OutputObserverTest {
+
+	private enum Mode {
+		HASH, SHARDED, PHRASE_ORDER, FREQUENCY_ORDER, SORTED_INPUT, UNSORTED_SORTED_INPUT
+	}
+
+	@Parameters(name = "{0}")
+	public static Collection<Object[]> modes() {
+		final List<Object[]> modes = new ArrayList<>();
+		for (final Mode mode : Mode.values()) {
+			modes.add(new Object[] { mode });
+		}
+		return modes;
+	}
+
+	private final Mode mode;
+
+	public OutputObserverTest(Mode mode) {
+		this.mode = mode;
+	}
+
+	private static final class RecordingObserver implements PhraseMapper {
+
+		final Map<String, Long> seen = new ConcurrentHashMap<>();
+		final AtomicLong duplicates = new AtomicLong();
+
+		@Override
+		public String map(String phrase, long frequency) {
+			if (seen.put(phrase, frequency) != null) {
+				duplicates.incrementAndGet();
+			}
+			return phrase;
+		}
+
+	}
+
+	/**
+	 * Writes 3 files with random phrases which have duplicates within and between files and returns the merged
+	 * phrases.
+	 */
+	private static Map<String, Long> writeInput(Path dir, boolean sorted) throws Exception {
+		final Random random = new Random(42);
+		final Map<String, Long> merged = new HashMap<>();
+		for (int i = 0; i < 3; i++) {
+			final List<String> phrases = new ArrayList<>();
+			for (int j = 0; j < 5000; j++) {
+				phrases.add("w" + random.nextInt(2000) + (random.nextBoolean() ? "" : " w" + random.nextInt(20)));
+			}
+			if (sorted) {
+				// ASCII phrases, so this is the order of their UTF-8 bytes
+				Collections.sort(phrases);
+			}
+
+			try (Writer writer = Files.newBufferedWriter(dir.resolve(i + ".csv"), UTF_8)) {
+				for (final String phrase : phrases) {
+					final long frequency = 1 + random.nextInt(100);
+					writer.write(phrase + "\t" + frequency + "\n");
+					merged.merge(phrase, frequency, Long::sum);
+				}
+			}
+		}
+		return merged;
+	}
+
+	private static Map<String, Long> readOutput(PhraseSource output) throws Exception {
+		final Map<String, Long> phrases = new HashMap<>();
+		for (final PhraseSource.File file : output.getFiles()) {
+			try (PhraseReader reader = file.createReader()) {
+				while (reader.advance()) {
+					assertEquals(reader.phrase(), null, phrases.put(reader.phrase(), reader.frequency()));
+				}
+			}
+		}
+		return phrases;
+	}
+
+	@Test
+	public void observesEachMergedPhraseOnce() throws Exception {
+		final Path dir = Files.createTempDirectory("observer");
+		try {
+			final Path input = dir.resolve("input");
+			Files.createDirectory(input);
+			final boolean sortedInput = mode == Mode.SORTED_INPUT || mode == Mode.UNSORTED_SORTED_INPUT;
+			final Map<String, Long> expected = writeInput(input, mode == Mode.SORTED_INPUT);
+
+			final RecordingObserver observer = new RecordingObserver();
+			final PreprocessingOptions options = new PreprocessingOptions();
+			options.setParallelDegree(2);
+			options.setMergeDuplicates(true);
+			options.setOutputObserver(observer);
+			// several buckets
+			options.setBucketSize(16 * 1024);
+			options.setSortedInput(sortedInput);
+			if (mode == Mode.SHARDED) {
+				options.setOutputShardSize(8 * 1024);
+			} else if (mode == Mode.PHRASE_ORDER) {
+				options.setOutputOrder(OutputOrder.PHRASE);
+			} else if (mode == Mode.FREQUENCY_ORDER) {
+				options.setOutputOrder(OutputOrder.FREQUENCY);
+			}
+
+			final PhraseSource output = Preprocessing.process(new SimplePhraseSource(input), dir.resolve("output"),
+					Collections.emptyList(), options);
+
+			assertEquals(0, observer.duplicates.get());
+			assertEquals(expected, observer.seen);
+			assertEquals(expected, readOutput(output));
+			if (mode == Mode.SORTED_INPUT) {
+				// the k-way merge was used
+				for (final PhraseSource.File file : output.getFiles()) {
+					assertTrue(file.toString(), file.isSorted());
+				}
+			}
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+}
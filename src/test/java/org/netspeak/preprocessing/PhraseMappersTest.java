@@ -1,15 +1,35 @@
 package org.netspeak.preprocessing;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.junit.Test;
+import org.netspeak.io.GoogleBooksCsvReader;
+import org.netspeak.io.PhraseReader;
+import org.netspeak.io.ReaderFilter;
+import org.netspeak.io.SimpleCsvReader;
+import org.netspeak.io.Utf8CsvReader;
+import org.netspeak.io.Utf8Phrase;
 import org.netspeak.preprocessing.mappers.PhraseMappers;
+import org.netspeak.preprocessing.mappers.RepeatedWordAutomaton;
 
 public class PhraseMappersTest {
 
@@ -89,6 +109,68 @@ public class PhraseMappersTest {
 		}
 	}
 
+	@Test
+	public void repeatedWordAutomaton() {
+		final Collection<String> words = new ArrayList<>();
+		for (final String word : "- -- --- ab abc cd ( ) \u201e \u201c \ud83d\ude00".split(" ")) {
+			words.add(word);
+		}
+
+		final RepeatedWordAutomaton automaton = RepeatedWordAutomaton.compile(words);
+		final StringBuilder regex = new StringBuilder();
+		for (final String word : words) {
+			regex.append(regex.length() == 0 ? "(?:" : "|").append(Pattern.quote(word));
+		}
+		final Pattern pattern = Pattern.compile(regex.append(")+").toString());
+
+		assertEquals(false, automaton.matches(""));
+		assertEquals(true, automaton.matches("abcd"));
+		assertEquals(true, automaton.matches("abccd"));
+		assertEquals(false, automaton.matches("abcdc"));
+		assertEquals(true, automaton.matches("x()x", 1, 3));
+
+		// compare against the regex using random strings over the alphabet of the words
+		final char[] alphabet = "-abcd()x\u201e\u201c\ud83d\ude00".toCharArray();
+		final Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			final char[] chars = new char[random.nextInt(8)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			final String s = new String(chars);
+			assertEquals("Expected same result for \"" + s + "\"", pattern.matcher(s).matches(), automaton.matches(s));
+		}
+	}
+
+	@Test
+	public void repeatedWordAutomatonRoundTrip() throws Exception {
+		final List<String> words = Arrays.asList("- -- --- ab abc cd ( ) \u201e \u201c \ud83d\ude00".split(" "));
+		final RepeatedWordAutomaton automaton = RepeatedWordAutomaton.compile(words);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			automaton.writeTo(out);
+			// the automaton is followed by other data
+			out.writeInt(42);
+		}
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+		final RepeatedWordAutomaton copy = RepeatedWordAutomaton.readFrom(buffer);
+		assertEquals(42, buffer.getInt());
+		assertEquals(0, buffer.remaining());
+		assertEquals(automaton.getStateCount(), copy.getStateCount());
+
+		final char[] alphabet = "-abcd()x\u201e\u201c\ud83d\ude00".toCharArray();
+		final Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			final char[] chars = new char[random.nextInt(8)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			final String s = new String(chars);
+			assertEquals("Expected same result for \"" + s + "\"", automaton.matches(s), copy.matches(s));
+		}
+	}
+
 	@Test
 	public void superBlacklist() {
 		final Set<String> blacklistedWords = new HashSet<>();
@@ -136,4 +218,159 @@ public class PhraseMappersTest {
 		}
 	}
 
+	@Test
+	public void urlsEmailsAndFileNames() {
+		final Pattern email = Pattern.compile(".@.");
+		final Pattern url = Pattern.compile("www\\.|https?:|ftps?:|\\.(?:com|org|net|edu|gov|xyz|moe|club|online|pro|site|"
+				+ "top|shop|info|biz|a[cdefgilmoqrstuwxz]|b[abdefghijmnorstwyz]|c[acdfghiklmnoruvwxyz]|d[ejkmoz]|"
+				+ "e[cegrstu]|f[ijkmor]|g[adefghilmnpqrstuwy]|h[kmnrtu]|i[delmnoqrst]|j[emop]|k[eghimnprwyz]|"
+				+ "l[abcikrstuvy]|m[acdeghklmnopqrstuvwxyz]|n[acefgilopruz]|om|p[aefghklmnrstwy]|qa|r[eosuw]|"
+				+ "s[abcdeghiklmnorstuvxyz]|t[cdfghjklmnortvwz]|u[agksyz]|v[aceginu]|w[fs]|y[et]|z[amw])\\b");
+		final Pattern fileName = Pattern.compile("\\.(?:exe|dll|bin|msi|bat|com|jar|pkg|apk|ini|ai|ico|jpg|jpeg|png|"
+				+ "gif|bmp|webp|tif|tag|ps|odp|pps|ppt|pptx|pdf|doc|docx|xml|csv|sql|zip|rar|tar|gz|7z|iso|webm|mov|"
+				+ "mkv|mpg|mpeg|mp3|acc|ogg|wav|wmv|mid|midi|mp4|avi|vlc|html|htm|php|asp|aspx|js|css)\\b");
+
+		final PhraseMapper urlMapper = PhraseMappers.removeURLsAndEmails();
+		final PhraseMapper fileNameMapper = PhraseMappers.removeFileNames();
+
+		final Collection<String> phrases = new ArrayList<>();
+		for (final String phrase : new String[] { "foo bar", "foo@bar", "@ foo", "foo @", "\n@\n", "a@\u2028",
+				"www.", "WwW.", "Www", "http://", "HTTPS:", "ftps:", "ftp", "xhttp:", "s:", "foo.com", "foo.COM",
+				"foo.community", "foo.com_", "foo.co.uk", "foo.c\u0301", "foo.ch\u0301", "foo.de\u00e9", "foo.de!",
+				"foo.ki", "foo.\u212Ai", "foo.\u0130n", "foo.i\u0307n", "foo.in\u0130", "foo.7z", "foo.mp3", "foo.pdfs",
+				"foo.midi", "foo.mid", "Setup.EXE", "e.g.", "i.e.", "U.S.", "3.5", "foo.\ud835\udc00", "foo.de\ud835\udc00" }) {
+			phrases.add(phrase);
+		}
+
+		// random strings over an alphabet with all interesting chars
+		final char[] alphabet = "@.:wWhHtTpPsSfFcCoOmMdDeEiInNkKz7_ \n\u2028\u0301\u00e9\u0130\u212A\ud835\udc00"
+				.toCharArray();
+		final Random random = new Random(42);
+		for (int i = 0; i < 200000; i++) {
+			final char[] chars = new char[random.nextInt(10)];
+			for (int j = 0; j < chars.length; j++) {
+				chars[j] = alphabet[random.nextInt(alphabet.length)];
+			}
+			phrases.add(new String(chars));
+		}
+
+		for (final String phrase : phrases) {
+			final String lower = phrase.toLowerCase();
+			final boolean urlOrEmail = email.matcher(lower).find() || url.matcher(lower).find();
+			assertEquals("Expected same result for \"" + phrase + "\"", urlOrEmail ? null : phrase,
+					urlMapper.map(phrase, 100));
+			assertEquals("Expected same result for \"" + phrase + "\"",
+					fileName.matcher(lower).find() ? null : phrase, fileNameMapper.map(phrase, 100));
+		}
+	}
+
+	@Test
+	public void toLowerCase() {
+		final String[] phrases = { "foo bar", "Foo BAR", "TITLE", "\u00c4pfel", "\u0130stanbul", "DIYARBAKIR",
+				"I\u0300 I", "\u03a3\u039f\u03a3", "\ud801\udc00 A" };
+		final Locale[] locales = { Locale.ROOT, Locale.ENGLISH, Locale.GERMAN, new Locale("tr"), new Locale("lt") };
+
+		for (final Locale locale : locales) {
+			final PhraseMapper mapper = PhraseMappers.toLowerCase(locale);
+			final Utf8PhraseMapper utf8Mapper = (Utf8PhraseMapper) mapper;
+			for (final String phrase : phrases) {
+				final String expected = phrase.toLowerCase(locale);
+				assertEquals("Expected same result for " + locale + " and \"" + phrase + "\"", expected,
+						mapper.map(phrase, 100));
+				assertEquals("Expected same result for " + locale + " and \"" + phrase + "\"", expected,
+						utf8Mapper.map(Utf8Phrase.of(phrase), 100).toString());
+			}
+
+			final String lower = "foo bar \u00e4pfel";
+			assertSame(lower, mapper.map(lower, 100));
+		}
+
+		final String normal = "don't foo-bar";
+		assertSame(normal, PhraseMappers.normalizeHyphens().map(normal, 100));
+		assertSame(normal, PhraseMappers.normalizeApostrophe().map(normal, 100));
+	}
+
+	@Test
+	public void utf8Mappers() {
+		final String[] phrases = { "foo bar", "Foo BAR", "\u00c4pfel und Birnen", "STRASSE \u00dfe", "\u0130stanbul",
+				"foo,bar", ", foo ,", "foo ,, bar", "foo\t, bar", "foo \u00a0, bar", "foo\u00adbar", "foo\u2010 \u2011bar",
+				"don\u2019t", "it\u02B9s \u2032 \u2035", "foo 's bar", "foo '", "&amp; foo", "foo &;", "& foo;",
+				"foo\u0085bar", "foo\u007fbar", "foo\u00a0bar", "\u0100", "\u00ff\u00fe", "\ud83d\ude00 foo",
+				"a b c d e", "a b c d e f" };
+
+		final PhraseMapper[] mappers = { PhraseMappers.toLowerCase(), PhraseMappers.joinWordsWithLeadingApostrophe(),
+				PhraseMappers.normalizeHyphens(), PhraseMappers.normalizeApostrophe(), PhraseMappers.removeHTMLEntities(),
+				PhraseMappers.removeControlCharacters(), PhraseMappers.removeIfFrequencyIsLessThan(50),
+				PhraseMappers.removeIfFrequencyIsLessThan(500), PhraseMappers.removeIfContainsNonLatin1Chars(),
+				PhraseMappers.explodeCommas(), PhraseMappers.maxNGram(5) };
+
+		for (final PhraseMapper mapper : mappers) {
+			final Utf8PhraseMapper utf8Mapper = (Utf8PhraseMapper) mapper;
+			for (final String phrase : phrases) {
+				final String expected = mapper.map(phrase, 100);
+				final Utf8Phrase actual = utf8Mapper.map(Utf8Phrase.of(phrase), 100);
+				assertEquals("Expected same result for " + mapper.getName() + " and \"" + phrase + "\"", expected,
+						actual == null ? null : actual.toString());
+			}
+		}
+	}
+
+	@Test
+	public void readerPushdown() throws Exception {
+		final PhraseMapper maxNGram = PhraseMappers.maxNGram(3);
+		final PhraseMapper minFrequency = PhraseMappers.removeIfFrequencyIsLessThan(10);
+
+		ReaderFilter filter = Preprocessing.getPushdownFilter(new PhraseMapper[] { PhraseMappers.removeHTMLEntities(),
+				PhraseMappers.toLowerCase(), PhraseMapper.rename("max", maxNGram), minFrequency });
+		assertEquals(3, filter.getMaxWords());
+		assertEquals(10, filter.getMinFrequency());
+
+		// joining words might turn a 4-gram into a 3-gram
+		filter = Preprocessing.getPushdownFilter(
+				new PhraseMapper[] { PhraseMappers.joinWordsWithLeadingApostrophe(), maxNGram, minFrequency });
+		assertEquals(Integer.MAX_VALUE, filter.getMaxWords());
+		assertEquals(10, filter.getMinFrequency());
+
+		// filtered readers have to return the same phrases as the mappers
+		final String csv = "a\t5\na b c\t20\na b c d\t100\n\u00e4 \u00f6 \u00fc \u00df\t12\nfoo  bar\t10\r\na b\t9";
+		final String books = "a b c d\t2000\t7\t1\na b c d\t2001\t7\t1\na b c\t2000\t4\t1\na b c\t2001\t6\t1\n"
+				+ "a b \t2000\t3\t1\nb\t2000\t100\t1\n";
+		filter = ReaderFilter.maxWords(3).and(ReaderFilter.minFrequency(10));
+		final PhraseMapper[] mappers = { maxNGram, minFrequency };
+
+		final List<String> expected = readAll(new SimpleCsvReader(new BufferedReader(new StringReader(csv))), mappers,
+				ReaderFilter.NONE);
+		assertEquals(Arrays.asList("a b c\t20", "foo  bar\t10"), expected);
+		assertEquals(expected,
+				readAll(new SimpleCsvReader(new BufferedReader(new StringReader(csv))), mappers, filter));
+		assertEquals(expected, readAll(new Utf8CsvReader(new ByteArrayInputStream(csv.getBytes(UTF_8))), mappers,
+				filter));
+
+		final List<String> expectedBooks = readAll(
+				new GoogleBooksCsvReader(new BufferedReader(new StringReader(books))), mappers, ReaderFilter.NONE);
+		assertEquals(Arrays.asList("a b c\t10", "b\t100"), expectedBooks);
+		assertEquals(expectedBooks,
+				readAll(new GoogleBooksCsvReader(new BufferedReader(new StringReader(books))), mappers, filter));
+	}
+
+	private static List<String> readAll(PhraseReader reader, PhraseMapper[] mappers, ReaderFilter filter)
+			throws Exception {
+		final List<String> result = new ArrayList<>();
+		try (PhraseReader r = reader) {
+			r.setFilter(filter);
+			while (r.advance()) {
+				String phrase = r.phrase();
+				for (final PhraseMapper mapper : mappers) {
+					if (phrase != null) {
+						phrase = mapper.map(phrase, r.frequency());
+					}
+				}
+				if (phrase != null) {
+					result.add(phrase + "\t" + r.frequency());
+				}
+			}
+		}
+		return result;
+	}
+
 }
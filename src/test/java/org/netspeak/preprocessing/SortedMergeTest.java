@@ -0,0 +1,87 @@
+package org.netspeak.preprocessing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.netspeak.io.Utf8Phrase;
+import org.netspeak.io.Utf8PhraseReader;
+import org.netspeak.io.Utf8PhraseWriter;
+
+public class SortedMergeTest {
+
+	private static SortedMerge.Stream stream(String... phrases) {
+		final Iterator<String> iter = Arrays.asList(phrases).iterator();
+		final Utf8PhraseReader reader = new Utf8PhraseReader() {
+			private Utf8Phrase phrase;
+
+			@Override
+			public boolean next() {
+				if (!iter.hasNext())
+					return false;
+				phrase = Utf8Phrase.of(iter.next());
+				return true;
+			}
+
+			@Override
+			public Utf8Phrase getPhrase() {
+				return phrase;
+			}
+
+			@Override
+			public long getFrequency() {
+				return phrase.length();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+		return new SortedMerge.Stream(Paths.get(phrases.length + ".csv"), reader);
+	}
+
+	private static List<String> merge(int window, SortedMerge.Stream... streams) throws Exception {
+		final List<String> result = new ArrayList<>();
+		new SortedMerge(window).merge(Arrays.asList(streams), new Utf8PhraseWriter() {
+			@Override
+			public void write(String phrase, long frequency) {
+				result.add(phrase + "\t" + frequency);
+			}
+
+			@Override
+			public void write(Utf8Phrase phrase, long frequency) {
+				write(phrase.toString(), frequency);
+			}
+
+			@Override
+			public void close() {
+			}
+		});
+		return result;
+	}
+
+	@Test
+	public void mergesDuplicates() throws Exception {
+		assertEquals(Arrays.asList("a\t2", "b\t1", "c\t3", "ä\t1"),
+				merge(1, stream("a", "c", "ä"), stream("a", "b"), stream(), stream("c", "c")));
+	}
+
+	@Test
+	public void resortsWindow() throws Exception {
+		assertEquals(Arrays.asList("a\t1", "b\t2", "c\t1", "d\t1"), merge(2, stream("b", "a", "d", "c"), stream("b")));
+
+		try {
+			merge(2, stream("c", "b", "a"));
+			fail();
+		} catch (SortedMerge.UnsortedException e) {
+			// expected
+		}
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.netspeak.preprocessing;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.netspeak.Util;
+import org.netspeak.io.PhraseFrequencyPair;
+import org.netspeak.io.PhraseWriter;
+import org.netspeak.io.SimpleCsvWriter;
+import org.netspeak.io.SplitterCsvWriter;
+import org.netspeak.io.Utf8Phrase;
+
+public class SplitPointSamplerTest {
+
+	private static final Comparator<PhraseFrequencyPair> FREQUENCY_ORDER = Comparator
+			.comparingLong((PhraseFrequencyPair p) -> p.frequency).reversed()
+			.thenComparing(p -> Utf8Phrase.of(p.phrase));
+
+	private static List<PhraseFrequencyPair> randomPairs(int count, int maxFrequency) {
+		final Random random = new Random(42);
+		final List<PhraseFrequencyPair> pairs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			pairs.add(new PhraseFrequencyPair("p" + random.nextInt(1_000_000), 1 + random.nextInt(maxFrequency)));
+		}
+		return pairs;
+	}
+
+	private static void testFrequencyRanges(List<PhraseFrequencyPair> pairs, int partitions) throws Exception {
+		final SplitPointSampler sampler = new SplitPointSampler(1000);
+		final Path dir = Files.createTempDirectory("ranges");
+		try {
+			try (PhraseWriter writer = sampler.newWriter(new SimpleCsvWriter(new BufferedWriter(new StringWriter())))) {
+				for (PhraseFrequencyPair pair : pairs) {
+					writer.write(pair.phrase, pair.frequency);
+				}
+			}
+			final PhraseFrequencyPair[] points = sampler.getFrequencySplitPoints(partitions);
+			assertEquals(partitions - 1, points.length);
+			for (int i = 1; i < points.length; i++) {
+				assertTrue(FREQUENCY_ORDER.compare(points[i - 1], points[i]) < 0);
+			}
+
+			try (SplitterCsvWriter splitter = SplitterCsvWriter.byFrequencyRanges(dir, points)) {
+				for (PhraseFrequencyPair pair : pairs) {
+					splitter.write(pair.phrase, pair.frequency);
+				}
+			}
+
+			// all phrases of a bucket are between the split points of the bucket
+			for (int bucket = 0; bucket < partitions; bucket++) {
+				final List<String> lines = Files.readAllLines(dir.resolve(bucket + ".csv"), UTF_8);
+				assertFalse("bucket " + bucket + " is empty", lines.isEmpty());
+				for (String line : lines) {
+					final String[] parts = line.split("\t");
+					final PhraseFrequencyPair pair = new PhraseFrequencyPair(parts[0], Long.parseLong(parts[1]));
+					if (bucket > 0) {
+						assertTrue(line, FREQUENCY_ORDER.compare(points[bucket - 1], pair) <= 0);
+					}
+					if (bucket < points.length) {
+						assertTrue(line, FREQUENCY_ORDER.compare(pair, points[bucket]) < 0);
+					}
+				}
+			}
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void frequencyRanges() throws Exception {
+		testFrequencyRanges(randomPairs(20_000, 1000), 8);
+	}
+
+	@Test
+	public void frequencyRangesOfEqualFrequencies() throws Exception {
+		// all phrases have the same frequency and are only split by phrase
+		testFrequencyRanges(randomPairs(20_000, 1), 8);
+	}
+
+}
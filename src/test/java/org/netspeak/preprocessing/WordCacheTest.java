@@ -0,0 +1,108 @@
+package org.netspeak.preprocessing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.junit.Test;
+import org.netspeak.preprocessing.mappers.WordCache;
+
+public class WordCacheTest {
+
+	private static final class CountingFunction implements Function<String, Integer> {
+
+		final List<String> computed = new ArrayList<>();
+
+		@Override
+		public Integer apply(String word) {
+			computed.add(word);
+			return word.length();
+		}
+
+	}
+
+	private static void assertCached(WordCache<Integer> cache, CountingFunction function, String word,
+			boolean cached) {
+		final int before = function.computed.size();
+		assertEquals(Integer.valueOf(word.length()), cache.get(word, function));
+		assertEquals(word, cached ? before : before + 1, function.computed.size());
+	}
+
+	@Test
+	public void clockEviction() {
+		// a single set with 4 ways
+		final WordCache<Integer> cache = new WordCache<>(4);
+		final CountingFunction function = new CountingFunction();
+
+		for (String word : new String[] { "a", "bb", "ccc", "dddd" }) {
+			assertCached(cache, function, word, false);
+		}
+		for (String word : new String[] { "a", "bb", "ccc", "dddd" }) {
+			assertCached(cache, function, word, true);
+		}
+		assertEquals(4, cache.getHits());
+		assertEquals(4, cache.getMisses());
+
+		// all entries are referenced, so the hand clears all of them and "eeeee" replaces "a"
+		assertCached(cache, function, "eeeee", false);
+		// the hand is past "eeeee", so "a" replaces "bb"
+		assertCached(cache, function, "a", false);
+		assertEquals(6, cache.getMisses());
+
+		// "ccc" is referenced again, so "ffffff" replaces "dddd" and "dddd" replaces "a"
+		assertCached(cache, function, "eeeee", true);
+		assertCached(cache, function, "ccc", true);
+		assertCached(cache, function, "ffffff", false);
+		assertCached(cache, function, "dddd", false);
+		assertCached(cache, function, "eeeee", true);
+		assertCached(cache, function, "a", false);
+
+		assertEquals(cache.getMisses(), function.computed.size());
+		assertEquals(7, cache.getHits());
+	}
+
+	@Test
+	public void concurrentGet() throws Exception {
+		final WordCache<Integer> cache = new WordCache<>(64);
+		final AtomicInteger computed = new AtomicInteger();
+		final LongAdder lookups = new LongAdder();
+
+		final int threads = 8;
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				final Random random = new Random(t);
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 100_000; i++) {
+						// more words than entries to force evictions
+						final String word = "w" + random.nextInt(200);
+						final int value = cache.get(word, w -> {
+							computed.incrementAndGet();
+							return w.hashCode();
+						});
+						assertEquals(word.hashCode(), value);
+						lookups.increment();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertEquals(lookups.sum(), cache.getHits() + cache.getMisses());
+		assertEquals(computed.get(), cache.getMisses());
+	}
+
+}
@@ -0,0 +1,84 @@
+package org.netspeak.vocabulary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.netspeak.vocabulary.TestWords.WELL_FORMED;
+import static org.netspeak.vocabulary.TestWords.randomWord;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.netspeak.Util;
+
+public class BloomFilterWordSetTest {
+
+	@Test
+	public void noFalseNegatives() {
+		final Random random = new Random(42);
+		final BloomFilter filter = new BloomFilter(10_000, 0.01);
+		final List<String> words = new ArrayList<>();
+		for (int i = 0; i < 10_000; i++) {
+			final String word = randomWord(random, WELL_FORMED, 8);
+			words.add(word);
+			filter.add(word);
+		}
+		for (String word : words) {
+			for (int split = 0; split <= word.length(); split++) {
+				assertTrue(word, filter.mightContain(word.substring(0, split) + "xyz", split, word.substring(split)));
+			}
+		}
+	}
+
+	@Test
+	public void sameAsHashSet() throws Exception {
+		final Path dir = Files.createTempDirectory("bloom-words");
+		try {
+			final Random random = new Random(42);
+			final Set<String> words = new HashSet<>();
+			while (words.size() < 5000) {
+				words.add(randomWord(random, WELL_FORMED, 8));
+			}
+			// words with unpaired surrogates are kept in memory
+			words.add("a\uD83D");
+			words.add("\uDE00");
+
+			try (BloomFilterWordSet set = BloomFilterWordSet.create(words, dir.resolve("words.bin"), 0.05)) {
+				assertEquals(words.size(), set.size());
+				for (String word : words) {
+					assertTrue(word, set.contains(word));
+				}
+				for (int i = 0; i < 5000; i++) {
+					final String word = randomWord(random, WELL_FORMED, 8) + "\uD83D";
+					assertEquals(word, words.contains(word), set.contains(word));
+				}
+				for (int i = 0; i < 5000; i++) {
+					final String word = randomWord(random, WELL_FORMED, 8);
+					assertEquals(word, words.contains(word), set.contains(word));
+				}
+			}
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void invalidFalsePositiveRate() {
+		for (double rate : new double[] { 0, 1, -0.5, 1.5, Double.NaN }) {
+			try {
+				BloomFilterWordSet.checkFalsePositiveRate(rate);
+				fail("" + rate);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+		BloomFilterWordSet.checkFalsePositiveRate(0.01);
+	}
+
+}
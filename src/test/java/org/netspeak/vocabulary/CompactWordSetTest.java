@@ -0,0 +1,77 @@
+package org.netspeak.vocabulary;
+
+import static org.junit.Assert.assertEquals;
+import static org.netspeak.vocabulary.TestWords.WITH_UNPAIRED;
+import static org.netspeak.vocabulary.TestWords.randomWord;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CompactWordSetTest {
+
+	private static void assertSameSplits(Set<String> expected, CompactWordSet set, String word) {
+		for (int split = 0; split <= word.length(); split++) {
+			// the prefix is longer than the prefix length to test that the rest of it is ignored
+			final String prefix = word.substring(0, split) + "xyz";
+			final String suffix = word.substring(split);
+			assertEquals(word + " split at " + split, expected.contains(word), set.contains(prefix, split, suffix));
+		}
+	}
+
+	@Test
+	public void sameAsHashSet() {
+		final Random random = new Random(42);
+		final List<String> words = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			words.add(randomWord(random, WITH_UNPAIRED, 5));
+		}
+		// duplicates, including malformed ones
+		words.addAll(words.subList(0, 500));
+		words.add("\uD83D");
+		words.add("\uD83D");
+
+		final Set<String> expected = new HashSet<>(words);
+		final CompactWordSet set = CompactWordSet.copyOf(words);
+		assertEquals(expected.size(), set.size());
+
+		for (final String word : expected) {
+			assertSameSplits(expected, set, word);
+		}
+		for (int i = 0; i < 2000; i++) {
+			assertSameSplits(expected, set, randomWord(random, WITH_UNPAIRED, 5));
+		}
+	}
+
+	@Test
+	public void surrogatePairAcrossParts() {
+		final CompactWordSet set = CompactWordSet.copyOf(Arrays.asList("a\uD83D\uDE00b", "\uD83D\uDE00", "x\uD83D"));
+		// the high surrogate is the last char of the prefix and the low surrogate the first char of the suffix
+		assertEquals(true, set.contains("a\uD83D", 2, "\uDE00b"));
+		assertEquals(true, set.contains("\uD83D", 1, "\uDE00"));
+		assertEquals(false, set.contains("\uD83D", 1, ""));
+		assertEquals(false, set.contains("a\uD83D", 2, "b"));
+		// unpaired surrogates are found in the fallback set, even if split
+		assertEquals(true, set.contains("x", 1, "\uD83D"));
+		assertEquals(true, set.contains("x\uD83D"));
+		assertEquals(false, set.contains("x\uDE00"));
+	}
+
+	@Test
+	public void empty() {
+		final CompactWordSet set = CompactWordSet.copyOf(new ArrayList<>());
+		assertEquals(0, set.size());
+		assertEquals(false, set.contains(""));
+		assertEquals(false, set.contains("a"));
+
+		final CompactWordSet withEmpty = CompactWordSet.copyOf(Arrays.asList(""));
+		assertEquals(1, withEmpty.size());
+		assertEquals(true, withEmpty.contains(""));
+	}
+
+}
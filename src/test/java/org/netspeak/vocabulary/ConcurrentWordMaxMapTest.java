@@ -0,0 +1,113 @@
+package org.netspeak.vocabulary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.netspeak.io.PhraseFrequencyPair;
+
+public class ConcurrentWordMaxMapTest {
+
+	private static final int THREADS = 8;
+	private static final int WORDS = 20_000;
+
+	@Test
+	public void maxSemantics() {
+		final ConcurrentWordMaxMap map = new ConcurrentWordMaxMap(1);
+		assertFalse(map.contains("a"));
+		assertEquals(-1, map.get("a", -1));
+
+		map.accumulate("a", 5);
+		map.accumulate("a", 3);
+		assertEquals(5, map.get("a", -1));
+		map.accumulate("a", 7);
+		assertEquals(7, map.get("a", -1));
+		map.accumulate("b", Long.MIN_VALUE);
+		assertTrue(map.contains("b"));
+		assertEquals(2, map.size());
+	}
+
+	@Test
+	public void concurrentAccumulate() throws Exception {
+		// few stripes, so every stripe grows many times while being written to
+		final ConcurrentWordMaxMap map = new ConcurrentWordMaxMap(2);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final List<Future<Map<String, Long>>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				final long seed = t;
+				futures.add(executor.submit(() -> {
+					final Random random = new Random(seed);
+					final Map<String, Long> expected = new HashMap<>();
+					for (int i = 0; i < WORDS * 2; i++) {
+						final String word = "w" + random.nextInt(WORDS);
+						final long value = 1 + random.nextInt(1_000_000);
+						map.accumulate(word, value);
+						expected.merge(word, value, Math::max);
+					}
+					return expected;
+				}));
+			}
+
+			final Map<String, Long> expected = new HashMap<>();
+			for (final Future<Map<String, Long>> future : futures) {
+				future.get().forEach((word, value) -> expected.merge(word, value, Math::max));
+			}
+
+			assertEquals(expected.size(), map.size());
+			expected.forEach((word, value) -> assertEquals(word, (long) value, map.get(word, -1)));
+			final Map<String, Long> actual = new HashMap<>();
+			map.forEach(actual::put);
+			assertEquals(expected, actual);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void top() {
+		final ConcurrentWordMaxMap map = new ConcurrentWordMaxMap();
+		final Map<String, Long> expected = new HashMap<>();
+		final Random random = new Random(42);
+		for (int i = 0; i < 5000; i++) {
+			final String word = Integer.toString(random.nextInt(2000), 36);
+			// few distinct values, so ties are ordered by word
+			final long value = 1 + random.nextInt(50);
+			map.accumulate(word, value);
+			expected.merge(word, value, Math::max);
+		}
+
+		final List<Map.Entry<String, Long>> sorted = new ArrayList<>(expected.entrySet());
+		sorted.sort((a, b) -> {
+			final int c = Long.compare(b.getValue(), a.getValue());
+			return c != 0 ? c : a.getKey().compareTo(b.getKey());
+		});
+
+		for (final int k : new int[] { 0, 1, 10, 100, sorted.size(), sorted.size() + 10 }) {
+			final List<PhraseFrequencyPair> top = map.top(k);
+			assertEquals(Math.min(k, sorted.size()), top.size());
+			for (int i = 0; i < top.size(); i++) {
+				assertEquals(sorted.get(i).getKey(), top.get(i).phrase);
+				assertEquals((long) sorted.get(i).getValue(), top.get(i).frequency);
+			}
+		}
+
+		final List<PhraseFrequencyPair> all = map.sorted();
+		assertEquals(sorted.size(), all.size());
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(sorted.get(i).getKey(), all.get(i).phrase);
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.netspeak.vocabulary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.netspeak.vocabulary.TestWords.WITH_UNPAIRED;
+import static org.netspeak.vocabulary.TestWords.randomWord;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class ExternalWordMaxMapTest {
+
+	private static void test(int maxWords, int threads) throws Exception {
+		final Path dir = Files.createTempDirectory("external-words");
+		final Map<String, Long> expected = new HashMap<>();
+		final Map<String, Long> actual = new LinkedHashMap<>();
+		try (ExternalWordMaxMap map = new ExternalWordMaxMap(dir.resolve("runs"), maxWords)) {
+			final ExecutorService executor = Executors.newFixedThreadPool(threads);
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < threads; t++) {
+					final Random random = new Random(t);
+					final List<String> words = new ArrayList<>();
+					final List<Long> values = new ArrayList<>();
+					for (int i = 0; i < 20_000; i++) {
+						final String word = randomWord(random, WITH_UNPAIRED, 4);
+						final long value = random.nextInt(1000);
+						words.add(word);
+						values.add(value);
+						expected.merge(word, value, Math::max);
+					}
+					futures.add(executor.submit(() -> {
+						for (int i = 0; i < words.size(); i++) {
+							map.accumulate(words.get(i), values.get(i));
+						}
+						return null;
+					}));
+				}
+				for (Future<?> future : futures) {
+					future.get();
+				}
+			} finally {
+				executor.shutdown();
+			}
+
+			map.forEachSorted((word, value) -> assertEquals(word, null, actual.put(word, value)));
+		}
+		assertFalse(Files.exists(dir.resolve("runs")));
+		Files.delete(dir);
+
+		assertEquals(expected, actual);
+		final List<String> words = new ArrayList<>(actual.keySet());
+		for (int i = 1; i < words.size(); i++) {
+			assertEquals(-1, Integer.signum(SortedWordFile.compareCodePoints(words.get(i - 1), words.get(i))));
+		}
+	}
+
+	@Test
+	public void inMemory() throws Exception {
+		test(1_000_000, 1);
+	}
+
+	@Test
+	public void spilled() throws Exception {
+		// small runs to force more runs than are merged at once
+		test(7, 1);
+	}
+
+	@Test
+	public void spilledConcurrently() throws Exception {
+		test(50, 8);
+	}
+
+}
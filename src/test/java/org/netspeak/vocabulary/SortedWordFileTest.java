@@ -0,0 +1,135 @@
+package org.netspeak.vocabulary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.netspeak.vocabulary.TestWords.WELL_FORMED;
+import static org.netspeak.vocabulary.TestWords.randomWord;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import org.netspeak.Util;
+
+public class SortedWordFileTest {
+
+	private static int compareUtf8(String a, String b) {
+		final byte[] x = a.getBytes(UTF_8);
+		final byte[] y = b.getBytes(UTF_8);
+		for (int i = 0; i < Math.min(x.length, y.length); i++) {
+			final int cmp = Integer.compare(x[i] & 0xFF, y[i] & 0xFF);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return Integer.compare(x.length, y.length);
+	}
+
+	private static List<String> randomWords(int count) {
+		final Random random = new Random(42);
+		final Set<String> words = new HashSet<>();
+		while (words.size() < count) {
+			words.add(randomWord(random, WELL_FORMED, 4));
+		}
+		return new ArrayList<>(words);
+	}
+
+	@Test
+	public void sameOrderAsUtf8() {
+		final List<String> words = new ArrayList<>(Arrays.asList(WELL_FORMED));
+		words.addAll(randomWords(500));
+		for (String a : words) {
+			for (String b : words) {
+				assertEquals(a + " vs " + b, Integer.signum(compareUtf8(a, b)),
+						Integer.signum(SortedWordFile.compareCodePoints(a, b)));
+			}
+		}
+	}
+
+	@Test
+	public void lookups() throws Exception {
+		final Path dir = Files.createTempDirectory("sorted-words");
+		try {
+			final List<String> words = randomWords(2000);
+			final Set<String> contained = new HashSet<>(words.subList(0, 1000));
+			final Path file = dir.resolve("words.bin");
+			SortedWordFile.write(file, contained);
+
+			try (SortedWordFile set = SortedWordFile.open(file)) {
+				assertEquals(contained.size(), set.size());
+				for (String word : words) {
+					assertEquals(word, contained.contains(word), set.contains(word));
+					if (!word.isEmpty()) {
+						assertEquals(word, contained.contains(word), set.contains(word.substring(0, 1) + "xyz", 1,
+								word.substring(1)));
+					}
+				}
+				assertFalse(set.contains("\uD83D"));
+
+				final List<String> expected = new ArrayList<>(contained);
+				expected.sort(SortedWordFileTest::compareUtf8);
+				final List<String> actual = new ArrayList<>();
+				set.forEach(actual::add);
+				assertEquals(expected, actual);
+			}
+			assertFalse(Files.exists(dir.resolve("words.bin.offsets")));
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void empty() throws Exception {
+		final Path dir = Files.createTempDirectory("sorted-words");
+		try {
+			final Path file = dir.resolve("words.bin");
+			SortedWordFile.write(file, new ArrayList<>());
+			try (SortedWordFile set = SortedWordFile.open(file)) {
+				assertEquals(0, set.size());
+				assertFalse(set.contains(""));
+				assertFalse(set.contains("a"));
+			}
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+	@Test
+	public void writerRejectsUnsortedWords() throws Exception {
+		final Path dir = Files.createTempDirectory("sorted-words");
+		try (SortedWordFile.Writer writer = new SortedWordFile.Writer(dir.resolve("words.bin"))) {
+			writer.add("\uFFFF");
+			try {
+				writer.add("\uE000");
+				fail();
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			try {
+				writer.add("\uFFFF");
+				fail();
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+			// supplementary characters come after all BMP characters
+			writer.add("\uD83D\uDE00");
+			try {
+				writer.add("\uD83D\uDE00\uD83D");
+				fail();
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		} finally {
+			Util.delete(dir, true);
+		}
+	}
+
+}
@@ -0,0 +1,47 @@
+package org.netspeak.vocabulary;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Random words for the word set and word map tests.
+ */
+final class TestWords {
+
+	private TestWords() {
+	}
+
+	/**
+	 * ASCII, 2-byte, 3-byte below and above the surrogates, and supplementary characters.
+	 */
+	static final String[] WELL_FORMED = { "a", "b", "z", "\u00E4", "\u00DF", "\u20AC", "\uD7FF", "\uE000",
+			"\uF8FF", "\uFFFF", "\uD83D\uDE00", "\uD800\uDC00", "\uDBFF\uDFFF" };
+
+	/**
+	 * The well-formed characters and unpaired high and low surrogates.
+	 */
+	static final String[] WITH_UNPAIRED = concat(WELL_FORMED, "\uD83D", "\uDE00");
+
+	private static String[] concat(String[] a, String... b) {
+		final String[] result = Arrays.copyOf(a, a.length + b.length);
+		System.arraycopy(b, 0, result, a.length, b.length);
+		return result;
+	}
+
+	/**
+	 * Returns a random word of 1 to {@code maxLength} of the given characters.
+	 *
+	 * @param random
+	 * @param chars
+	 * @param maxLength
+	 * @return
+	 */
+	static String randomWord(Random random, String[] chars, int maxLength) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = random.nextInt(maxLength); i >= 0; i--) {
+			sb.append(chars[random.nextInt(chars.length)]);
+		}
+		return sb.toString();
+	}
+
+}